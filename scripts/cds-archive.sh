@@ -0,0 +1,45 @@
+#!/usr/bin/env bash
+# Динамический архив CDS (AppCDS) для тонкой раскладки target/app, собранной mvn -Paot package.
+# Обучающий запуск: приложение стартует, принимает один POST /transfer и останавливается по SIGTERM,
+# классы, загруженные за это время (старт контекста и путь запроса), JVM сохраняет в архив при выходе.
+# Архив действителен только для того же JDK и того же classpath.
+#
+#   scripts/cds-archive.sh        -> target/app/app.jsa      (обычный запуск)
+#   scripts/cds-archive.sh aot    -> target/app/app-aot.jsa  (запуск с -Dspring.aot.enabled=true)
+#
+# Запуск с архивом: java -XX:SharedArchiveFile=target/app/app.jsa -jar target/app/<artifact>-app.jar
+set -euo pipefail
+source "$(dirname "$0")/common.sh"
+
+PORT=${TRAIN_PORT:-5590}
+if [[ ! -f $APP_JAR ]]; then
+  echo "$APP_JAR not found, run: mvn -Paot package" >&2
+  exit 1
+fi
+
+opts=()
+archive="$ROOT/target/app/app.jsa"
+if [[ ${1:-} == aot ]]; then
+  opts+=(-Dspring.aot.enabled=true)
+  archive="$ROOT/target/app/app-aot.jsa"
+fi
+rm -f "$archive"
+
+work=$(mktemp -d)
+trap 'rm -rf "$work"' EXIT
+# shellcheck disable=SC2046
+java -XX:ArchiveClassesAtExit="$archive" "${opts[@]}" -jar "$APP_JAR" $(app_args "$PORT" "$work") \
+    > "$work/training.log" 2>&1 &
+pid=$!
+if ! wait_for_transfer "$PORT" 120; then
+  kill "$pid" 2>/dev/null || true
+  cat "$work/training.log" >&2
+  exit 1
+fi
+kill "$pid"
+wait "$pid" || true
+if [[ ! -f $archive ]]; then
+  cat "$work/training.log" >&2
+  exit 1
+fi
+echo "$archive ($(du -h "$archive" | cut -f1))"
@@ -0,0 +1,28 @@
+# Общие функции скриптов запуска: источник для cds-archive.sh и startup-benchmark.sh.
+
+ROOT="$(cd "$(dirname "${BASH_SOURCE[0]}")/.." && pwd)"
+ARTIFACT=Spring_Boot_Course_Project_Money_Transfer_Service-0.0.1-SNAPSHOT
+FAT_JAR="$ROOT/target/$ARTIFACT.jar"
+APP_JAR="$ROOT/target/app/$ARTIFACT-app.jar"
+NATIVE="$ROOT/target/Spring_Boot_Course_Project_Money_Transfer_Service"
+
+TRANSFER='{"cardFromNumber":"4111111111111111","cardFromValidTill":"12/30","cardFromCVV":"245",'\
+'"cardToNumber":"5235890189478951","amount":{"value":22300,"currency":"RUR"}}'
+
+# ждать первого успешного POST /transfer на порту $1 не дольше $2 секунд; 0 - дождались
+wait_for_transfer() {
+  local port=$1 deadline=$((SECONDS + $2))
+  while ((SECONDS < deadline)); do
+    if [[ $(curl -s -o /dev/null -w '%{http_code}' -XPOST "localhost:$port/transfer" \
+        -H 'Content-Type: application/json' -d "$TRANSFER") == 200 ]]; then
+      return 0
+    fi
+    sleep 0.01
+  done
+  return 1
+}
+
+# аргументы приложения: порт $1, файлы лога аудита во временном каталоге $2
+app_args() {
+  echo "--server.port=$1 --logger.path=$2/audit.jsonl --logger.async.spill-path=$2/audit.spill.jsonl"
+}
@@ -0,0 +1,64 @@
+#!/usr/bin/env bash
+# Время до первого успешного POST /transfer и RSS процесса в этот момент для вариантов запуска:
+#   fat-jar  - java -jar target/<artifact>.jar (как в Dockerfile)
+#   thin     - тонкая раскладка target/app
+#   cds      - thin + архив CDS
+#   aot      - thin + -Dspring.aot.enabled=true
+#   aot+cds  - thin + AOT + архив CDS, снятый с AOT
+#   native   - target/Spring_Boot_Course_Project_Money_Transfer_Service, если собран mvn -Pnative native:compile
+# Время считается от запуска процесса. Каждый вариант запускается RUNS раз, печатается медиана.
+# Перед запуском: mvn -Paot package (архивы CDS, если их нет, создаются cds-archive.sh).
+#
+#   scripts/startup-benchmark.sh [runs]      JAVA_OPTS - дополнительные флаги JVM для всех вариантов
+set -euo pipefail
+source "$(dirname "$0")/common.sh"
+
+RUNS=${1:-5}
+PORT=${BENCH_PORT:-5591}
+read -r -a java_opts <<< "${JAVA_OPTS:-}"
+
+[[ -f $ROOT/target/app/app.jsa ]] || "$ROOT/scripts/cds-archive.sh"
+[[ -f $ROOT/target/app/app-aot.jsa ]] || "$ROOT/scripts/cds-archive.sh" aot
+
+declare -A variants=(
+  [fat-jar]="java ${java_opts[*]} -jar $FAT_JAR"
+  [thin]="java ${java_opts[*]} -jar $APP_JAR"
+  [cds]="java ${java_opts[*]} -XX:SharedArchiveFile=$ROOT/target/app/app.jsa -jar $APP_JAR"
+  [aot]="java ${java_opts[*]} -Dspring.aot.enabled=true -jar $APP_JAR"
+  [aot+cds]="java ${java_opts[*]} -XX:SharedArchiveFile=$ROOT/target/app/app-aot.jsa -Dspring.aot.enabled=true \
+-jar $APP_JAR"
+)
+order=(fat-jar thin cds aot aot+cds)
+if [[ -x $NATIVE ]]; then
+  variants[native]="$NATIVE"
+  order+=(native)
+fi
+
+median() {
+  sort -n | awk '{v[NR] = $1} END {print v[int((NR + 1) / 2)]}'
+}
+
+printf '%-8s %12s %10s   (%d runs, median)\n' variant first-ms rss-mb "$RUNS"
+for name in "${order[@]}"; do
+  times=()
+  rss=()
+  for ((run = 0; run < RUNS; run++)); do
+    work=$(mktemp -d)
+    start=$(date +%s%N)
+    # shellcheck disable=SC2086,SC2046
+    ${variants[$name]} $(app_args "$PORT" "$work") > "$work/app.log" 2>&1 &
+    pid=$!
+    if ! wait_for_transfer "$PORT" 120; then
+      echo "$name: no successful /transfer, log: $work/app.log" >&2
+      kill "$pid" 2>/dev/null || true
+      exit 1
+    fi
+    times+=($((($(date +%s%N) - start) / 1000000)))
+    rss+=($(awk '/^VmRSS/ {print int($2 / 1024)}' "/proc/$pid/status"))
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    rm -rf "$work"
+  done
+  printf '%-8s %12d %10d\n' "$name" "$(printf '%s\n' "${times[@]}" | median)" \
+      "$(printf '%s\n' "${rss[@]}" | median)"
+done
@@ -0,0 +1,136 @@
+package ru.netology.moneytransferservice.jmh;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import ru.netology.moneytransferservice.logger.AsyncLogger;
+import ru.netology.moneytransferservice.logger.AuditLogReader;
+import ru.netology.moneytransferservice.logger.AuditRecord;
+import ru.netology.moneytransferservice.logger.BackpressurePolicy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Лог аудита.
+ * log() - запись потока переводов через AsyncLogger с ротацией по 16 МБ и сжатием, every - запись каждого
+ * every-го успешного события с весом; логгер закрывается после итерации, сжатие последних сегментов
+ * в замер не входит.
+ * scan()/searchById() - AuditLogReader по RECORDS записям в сжатых сегментах: все строки и поиск
+ * одной операции по id.
+ */
+public class AuditLogBenchmark {
+
+    private static final int RECORDS = 1_000_000;
+
+    @State(Scope.Benchmark)
+    public static class Writer {
+
+        @Param({"1", "10"})
+        public int every;
+
+        Path dir;
+        AsyncLogger logger;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws IOException {
+            dir = Files.createTempDirectory("audit-jmh");
+            logger = logger(dir, every);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws IOException {
+            logger.close();
+            delete(dir);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Segments {
+
+        Path dir;
+        Path path;
+        String id;
+
+        @Setup
+        public void setUp() throws IOException {
+            dir = Files.createTempDirectory("audit-jmh");
+            path = dir.resolve("audit.jsonl");
+            id = UUID.randomUUID().toString();
+            AsyncLogger logger = logger(dir, 1);
+            for (int i = 0; i < RECORDS; i++) {
+                logger.log(transfer(i == RECORDS / 2 ? id : UUID.randomUUID().toString(), 1));
+            }
+            logger.close();
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            delete(dir);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void log(Writer writer) {
+        int weight = writer.logger.sampleSuccess();
+        if (weight > 0) {
+            writer.logger.log(transfer(UUID.randomUUID().toString(), weight));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long scan(Segments segments) throws IOException {
+        long[] bytes = new long[1];
+        AuditLogReader.scan(segments.path, AuditLogReader.Filter.all(), line -> bytes[0] += line.length() + 1);
+        return bytes[0];
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int searchById(Segments segments) throws IOException {
+        int[] found = new int[1];
+        AuditLogReader.scan(segments.path,
+                new AuditLogReader.Filter(null, segments.id, null, Long.MIN_VALUE, Long.MAX_VALUE),
+                line -> found[0]++);
+        return found[0];
+    }
+
+    private static AsyncLogger logger(Path dir, int every) throws IOException {
+        return new AsyncLogger(dir.resolve("audit.jsonl").toString(), dir.resolve("spill.jsonl").toString(),
+                8192, 256, 50, BackpressurePolicy.BLOCK, 16L * 1024 * 1024, 0, 0, 1000, every,
+                new SimpleMeterRegistry());
+    }
+
+    private static String transfer(String id, int weight) {
+        AuditRecord record = AuditRecord.of("transfer").field("id", id)
+                .card("from", "4111111111111111").card("to", "5235890189478951")
+                .field("amount", 22300).field("currency", "RUR");
+        return (weight > 1 ? record.field("weight", weight) : record).build();
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+}
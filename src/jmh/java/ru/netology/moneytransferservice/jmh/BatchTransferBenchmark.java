@@ -0,0 +1,100 @@
+package ru.netology.moneytransferservice.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.netology.moneytransferservice.SpringBootCourseProjectMoneyTransferServiceApplication;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Одиночные POST /transfer (1 и 16 клиентов) против POST /transfer/batch с BATCH переводами в NDJSON.
+ * Приложение запускается в этом же процессе с журналом в режиме BATCH, лимиты частоты выключены.
+ * Результат - переводов в секунду во всех трёх случаях; ответ не с 200 прерывает бенчмарк.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BatchTransferBenchmark {
+
+    private static final String TRANSFER = "{\"cardFromNumber\":\"4111111111111111\",\"cardFromValidTill\":\"12/30\","
+            + "\"cardFromCVV\":\"123\",\"cardToNumber\":\"5235890189478951\","
+            + "\"amount\":{\"value\":10000,\"currency\":\"RUR\"}}";
+    private static final int BATCH = 1_000;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private ConfigurableApplicationContext context;
+    private String base;
+    private String batch;
+
+    @Setup
+    public void setUp() throws IOException {
+        String journal = Files.createTempDirectory("batch-jmh").toString();
+        context = SpringApplication.run(SpringBootCourseProjectMoneyTransferServiceApplication.class,
+                "--server.port=0",
+                "--repository.type=journal",
+                "--repository.journal.dir=" + journal,
+                "--repository.journal.durability=BATCH",
+                "--rate-limit.card.limit=0",
+                "--rate-limit.confirmation.limit=0",
+                "--rate-limit.client.limit=0",
+                "--logger.path=" + journal + "/transfers.log",
+                "--logger.async.spill-path=" + journal + "/spill.log");
+        base = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+        StringBuilder body = new StringBuilder(BATCH * (TRANSFER.length() + 1));
+        for (int i = 0; i < BATCH; i++) {
+            body.append(TRANSFER).append('\n');
+        }
+        batch = body.toString();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int single1() throws IOException, InterruptedException {
+        return send("/transfer", "application/json", TRANSFER);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public int single16() throws IOException, InterruptedException {
+        return send("/transfer", "application/json", TRANSFER);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(BATCH)
+    public int batch() throws IOException, InterruptedException {
+        return send("/transfer/batch", "application/x-ndjson", batch);
+    }
+
+    private int send(String path, String contentType, String body) throws IOException, InterruptedException {
+        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(URI.create(base + path))
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(path + " failed: " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+}
@@ -0,0 +1,31 @@
+package ru.netology.moneytransferservice.jmh;
+
+import ru.netology.moneytransferservice.model.Amount;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+
+/**
+ * Общие тестовые данные для бенчмарков.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static TransferMoneyData transfer() {
+        TransferMoneyData data = new TransferMoneyData();
+        data.setCardFromNumber("4111111111111111");
+        data.setCardFromValidTill("12/30");
+        data.setCardFromCVV("123");
+        data.setCardToNumber("5235890189478951");
+        data.setAmount(new Amount(32323, "RUR"));
+        return data;
+    }
+
+    static TransferMoneyData invalidTransfer() {
+        TransferMoneyData data = transfer();
+        data.setCardFromNumber("11111111");
+        data.setCardFromValidTill("13/30");
+        data.setAmount(new Amount(0, "RUR"));
+        return data;
+    }
+}
@@ -0,0 +1,201 @@
+package ru.netology.moneytransferservice.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.netology.moneytransferservice.SpringBootCourseProjectMoneyTransferServiceApplication;
+import ru.netology.moneytransferservice.cluster.ClusterMember;
+import ru.netology.moneytransferservice.cluster.ClusterMembership;
+import ru.netology.moneytransferservice.cluster.ClusterRebalancer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кластер в этом же процессе на localhost.
+ * pair() - перевод и подтверждение на случайных узлах из 1, 3 и 5, поэтому при нескольких узлах большая
+ * часть подтверждений пересылается владельцу операции; подтверждение не с 200 прерывает бенчмарк.
+ * rebalance() - узел 3 из трёх исключается из кластера и передаёт свои ожидающие операции (перед каждым
+ * вызовом создаётся HANDOFF переводов), после вызова все они должны подтвердиться через узлы 1 и 2.
+ * Все узлы делят ядра одной машины: рост пропускной способности с числом узлов здесь не ожидается,
+ * бенчмарк показывает цену пересылки подтверждений. Масштабирование измеряется узлами на разных машинах.
+ */
+public class ClusterThroughputBenchmark {
+
+    private static final String TRANSFER = "{\"cardFromNumber\":\"4111111111111111\",\"cardFromValidTill\":\"12/30\","
+            + "\"cardFromCVV\":\"123\",\"cardToNumber\":\"5235890189478951\","
+            + "\"amount\":{\"value\":100,\"currency\":\"RUR\"}}";
+    private static final String SECRET = "benchmark";
+    private static final String CODE_SECRET = Base64.getEncoder().encodeToString(new byte[32]);
+    private static final int HANDOFF = 3_000;
+
+    @State(Scope.Benchmark)
+    public static class Cluster {
+
+        @Param({"1", "3", "5"})
+        public int nodes;
+
+        final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        List<ConfigurableApplicationContext> contexts;
+        List<String> bases;
+
+        @Setup
+        public void setUp() throws IOException {
+            contexts = start(nodes);
+            bases = bases(contexts);
+        }
+
+        @TearDown
+        public void tearDown() {
+            contexts.forEach(ConfigurableApplicationContext::close);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Handoff {
+
+        final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        List<ConfigurableApplicationContext> contexts;
+        List<String> bases;
+        List<ClusterMember> all;
+        List<String> ids;
+
+        @Setup
+        public void setUp() throws IOException {
+            contexts = start(3);
+            bases = bases(contexts);
+            all = new ArrayList<>();
+            for (int node = 1; node <= 3; node++) {
+                all.add(new ClusterMember(node, URI.create(bases.get(node - 1))));
+            }
+        }
+
+        // узел 3 возвращается в кластер, на всех узлах создаются новые ожидающие операции
+        @Setup(Level.Invocation)
+        public void transfers() throws IOException, InterruptedException {
+            for (ConfigurableApplicationContext node : contexts) {
+                node.getBean(ClusterMembership.class).update(all);
+            }
+            ids = new ArrayList<>(HANDOFF);
+            for (int i = 0; i < HANDOFF; i++) {
+                ids.add(id(send(client, bases.get(i % 3) + "/transfer", TRANSFER).body()));
+            }
+            for (ConfigurableApplicationContext node : contexts) {
+                node.getBean(ClusterMembership.class).update(all.subList(0, 2));
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void confirmAll() throws IOException, InterruptedException {
+            for (int i = 0; i < ids.size(); i++) {
+                confirm(client, bases.get(i % 2), ids.get(i));
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            contexts.forEach(ConfigurableApplicationContext::close);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(16)
+    public int pair(Cluster cluster) throws IOException, InterruptedException {
+        String id = id(send(cluster.client, random(cluster.bases) + "/transfer", TRANSFER).body());
+        return confirm(cluster.client, random(cluster.bases), id);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void rebalance(Handoff handoff) {
+        handoff.contexts.get(2).getBean(ClusterRebalancer.class).rebalance();
+    }
+
+    private static List<ConfigurableApplicationContext> start(int nodes) throws IOException {
+        int[] ports = new int[nodes];
+        StringBuilder members = new StringBuilder();
+        for (int node = 1; node <= nodes; node++) {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                ports[node - 1] = socket.getLocalPort();
+            }
+            if (!members.isEmpty()) {
+                members.append(',');
+            }
+            members.append(node).append("=http://127.0.0.1:").append(ports[node - 1]);
+        }
+        List<ConfigurableApplicationContext> cluster = new ArrayList<>();
+        for (int node = 1; node <= nodes; node++) {
+            String logs = Files.createTempDirectory("cluster-node-" + node).toString();
+            cluster.add(new SpringApplication(SpringBootCourseProjectMoneyTransferServiceApplication.class).run(
+                    "--server.port=" + ports[node - 1],
+                    "--transfer.node-id=" + node,
+                    "--cluster.enabled=true",
+                    "--cluster.members=" + members,
+                    "--cluster.secret=" + SECRET,
+                    "--confirmation.code.secret=" + CODE_SECRET,
+                    "--rate-limit.card.limit=0",
+                    "--rate-limit.confirmation.limit=0",
+                    "--rate-limit.client.limit=0",
+                    "--logger.path=" + logs + "/transfers.log",
+                    "--logger.async.spill-path=" + logs + "/spill.log"));
+        }
+        return cluster;
+    }
+
+    private static List<String> bases(List<ConfigurableApplicationContext> cluster) {
+        List<String> bases = new ArrayList<>();
+        for (ConfigurableApplicationContext node : cluster) {
+            bases.add("http://127.0.0.1:" + node.getEnvironment().getProperty("local.server.port"));
+        }
+        return bases;
+    }
+
+    private static int confirm(HttpClient client, String base, String id) throws IOException, InterruptedException {
+        HttpResponse<String> response = send(client, base + "/confirmOperation",
+                "{\"operationId\":\"" + id + "\",\"code\":\"0000\"}");
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("confirmation of " + id + " via " + base + " failed: "
+                    + response.statusCode() + " " + response.body());
+        }
+        return response.statusCode();
+    }
+
+    private static String random(List<String> bases) {
+        return bases.get(ThreadLocalRandom.current().nextInt(bases.size()));
+    }
+
+    private static String id(String body) {
+        return body.replaceAll(".*\"id\":\"([^\"]*)\".*", "$1");
+    }
+
+    private static HttpResponse<String> send(HttpClient client, String uri, String body)
+            throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(URI.create(uri))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
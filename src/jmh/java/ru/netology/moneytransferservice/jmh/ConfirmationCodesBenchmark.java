@@ -0,0 +1,73 @@
+package ru.netology.moneytransferservice.jmh;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import ru.netology.moneytransferservice.code.ConfirmationCodes;
+import ru.netology.moneytransferservice.code.RandomCodeGenerator;
+import ru.netology.moneytransferservice.id.TimeOrderedIdGenerator;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость выдачи кода (HMAC, запись в таблицу, постановка доставки в очередь), проверки кода
+ * на таблице из 100 000 операций и генерации случайного кода.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConfirmationCodesBenchmark {
+
+    private static final int OPERATIONS = 100_000;
+
+    private final TimeOrderedIdGenerator idGenerator = new TimeOrderedIdGenerator(1);
+    private final RandomCodeGenerator generator = new RandomCodeGenerator(6);
+    private ConfirmationCodes codes;
+    private TransferMoneyData[] operations;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+    }
+
+    @Setup
+    public void setUp() {
+        codes = new ConfirmationCodes(() -> "0000", (transferMoneyData, code) -> {
+        }, "", 3, 3_600_000, 1, 1_000_000, new SimpleMeterRegistry());
+        operations = new TransferMoneyData[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            TransferMoneyData data = BenchmarkData.transfer();
+            data.setId(idGenerator.nextId());
+            codes.issue(data);
+            operations[i] = data;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        codes.close();
+    }
+
+    // повторная выдача кода той же операции перезаписывает запись, размер таблицы не растёт
+    @Benchmark
+    public void issue(Cursor cursor) {
+        codes.issue(operations[cursor.next++ % OPERATIONS]);
+    }
+
+    @Benchmark
+    public ConfirmationCodes.Check checkValid(Cursor cursor) {
+        return codes.check(operations[cursor.next++ % OPERATIONS].getId(), "0000");
+    }
+
+    @Benchmark
+    public String randomCode() {
+        return generator.generate();
+    }
+}
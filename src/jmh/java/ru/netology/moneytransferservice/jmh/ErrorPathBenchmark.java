@@ -0,0 +1,91 @@
+package ru.netology.moneytransferservice.jmh;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import ru.netology.moneytransferservice.exception.ErrorInputData;
+import ru.netology.moneytransferservice.exception.ExceptionHandlerAdvice;
+import ru.netology.moneytransferservice.id.TimeOrderedIdGenerator;
+import ru.netology.moneytransferservice.logger.LoggerInterface;
+import ru.netology.moneytransferservice.metrics.TransferMetrics;
+import ru.netology.moneytransferservice.model.OperationStatus;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость пути ошибки в ExceptionHandlerAdvice: текущая реализация и прежняя (legacy*), воспроизведённая
+ * здесь дословно - исключение со стеком, DateTimeFormatter.ofPattern на каждый вызов, UUID.randomUUID().
+ * Логгер пустой, чтобы сравнивать только путь ошибки; метрики в обоих вариантах одинаковые. Аллокации на операцию:
+ * mvn -Pjmh test-compile exec:exec@jmh -Djmh.args="ErrorPathBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ErrorPathBenchmark {
+
+    private static final String MESSAGE = "Operation not found!";
+
+    private final LoggerInterface logger = logMessage -> { };
+    private TransferMetrics metrics;
+    private ExceptionHandlerAdvice advice;
+    private ConstraintViolationException violations;
+
+    @Setup
+    public void setUp() {
+        metrics = new TransferMetrics(new SimpleMeterRegistry());
+        advice = new ExceptionHandlerAdvice(logger, metrics, new TimeOrderedIdGenerator(1));
+        try (ValidatorFactory factory = Validation.buildDefaultValidatorFactory()) {
+            violations = new ConstraintViolationException(
+                    factory.getValidator().validate(BenchmarkData.invalidTransfer()));
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<OperationStatus> errorInputData() {
+        return advice.handleErrorInputData(new ErrorInputData(MESSAGE));
+    }
+
+    @Benchmark
+    public ResponseEntity<OperationStatus> legacyErrorInputData() {
+        Exception e = new Exception(MESSAGE);
+        logger.log("Date | " + LocalDateTime.now().format(
+                DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss")) + "\n"
+                + "Status | " + e.getMessage() + "\n");
+        metrics.error(e, TransferMetrics.Reason.INPUT);
+        return new ResponseEntity<>(new OperationStatus(
+                String.valueOf(UUID.randomUUID()), e.getMessage()), HttpStatus.BAD_REQUEST);
+    }
+
+    @Benchmark
+    public ResponseEntity<OperationStatus> validation() {
+        return advice.handleConstraintViolationException(violations);
+    }
+
+    @Benchmark
+    public ResponseEntity<OperationStatus> legacyValidation() {
+        String id = String.valueOf(UUID.randomUUID());
+        StringBuilder description = new StringBuilder();
+        for (var violation : violations.getConstraintViolations()) {
+            description.append(violation.getMessage()).append(" ");
+        }
+        logger.log("Date | " + LocalDateTime.now().format(
+                DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss")) + "\n"
+                + "Status | " + description + "\n");
+        metrics.transfers(TransferMetrics.Outcome.VALIDATION_FAILED, 1);
+        metrics.error(violations, TransferMetrics.Reason.VALIDATION);
+        return new ResponseEntity<>(new OperationStatus(id, description.toString()), HttpStatus.BAD_REQUEST);
+    }
+}
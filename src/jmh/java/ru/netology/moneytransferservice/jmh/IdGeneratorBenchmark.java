@@ -0,0 +1,63 @@
+package ru.netology.moneytransferservice.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import ru.netology.moneytransferservice.id.OperationIdGenerator;
+import ru.netology.moneytransferservice.id.RandomIdGenerator;
+import ru.netology.moneytransferservice.id.TimeOrderedIdGenerator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность генераторов id операций при 1, 4 и 16 потоках:
+ * UUID.randomUUID() (общий SecureRandom) против UUID версии 7 на общем счётчике.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IdGeneratorBenchmark {
+
+    private final OperationIdGenerator random = new RandomIdGenerator();
+    private final OperationIdGenerator timeOrdered = new TimeOrderedIdGenerator(1);
+
+    @Benchmark
+    @Threads(1)
+    public String random1() {
+        return random.nextId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String random4() {
+        return random.nextId();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String random16() {
+        return random.nextId();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String timeOrdered1() {
+        return timeOrdered.nextId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String timeOrdered4() {
+        return timeOrdered.nextId();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String timeOrdered16() {
+        return timeOrdered.nextId();
+    }
+}
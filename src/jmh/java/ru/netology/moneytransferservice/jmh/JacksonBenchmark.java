@@ -0,0 +1,63 @@
+package ru.netology.moneytransferservice.jmh;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.netology.moneytransferservice.model.ConfirmationData;
+import ru.netology.moneytransferservice.model.OperationStatus;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson: чтение тел запросов (TransferMoneyData, ConfirmationData) и запись ответа OperationStatus.
+ * Reader/Writer создаются один раз, как это делает Spring MVC.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JacksonBenchmark {
+
+    private ObjectReader transferReader;
+    private ObjectReader confirmationReader;
+    private ObjectWriter statusWriter;
+    private byte[] transferJson;
+    private byte[] confirmationJson;
+    private OperationStatus status;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        ObjectMapper mapper = new ObjectMapper();
+        transferReader = mapper.readerFor(TransferMoneyData.class);
+        confirmationReader = mapper.readerFor(ConfirmationData.class);
+        statusWriter = mapper.writerFor(OperationStatus.class);
+        transferJson = mapper.writeValueAsBytes(BenchmarkData.transfer());
+        confirmationJson = mapper.writeValueAsBytes(
+                new ConfirmationData("d3612e46-b254-495e-b5b1-b87ce6ca1ea8", "0000"));
+        status = new OperationStatus("d3612e46-b254-495e-b5b1-b87ce6ca1ea8", "Operation Transfer!");
+    }
+
+    @Benchmark
+    public TransferMoneyData readTransfer() throws IOException {
+        return transferReader.readValue(transferJson);
+    }
+
+    @Benchmark
+    public ConfirmationData readConfirmation() throws IOException {
+        return confirmationReader.readValue(confirmationJson);
+    }
+
+    @Benchmark
+    public byte[] writeStatus() throws JsonProcessingException {
+        return statusWriter.writeValueAsBytes(status);
+    }
+}
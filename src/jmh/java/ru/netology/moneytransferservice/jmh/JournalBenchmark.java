@@ -0,0 +1,90 @@
+package ru.netology.moneytransferservice.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import ru.netology.moneytransferservice.code.ConfirmationCodes;
+import ru.netology.moneytransferservice.id.TimeOrderedIdGenerator;
+import ru.netology.moneytransferservice.model.OperationStatus;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+import ru.netology.moneytransferservice.repository.TransferMoneyRepository;
+import ru.netology.moneytransferservice.repository.journal.DurabilityMode;
+import ru.netology.moneytransferservice.repository.journal.JournaledTransferMoneyRepository;
+import ru.netology.moneytransferservice.repository.ledger.Ledger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * saveTransferData в хранилище в памяти и в журнале в каждом режиме надёжности под конкуренцией 1/16 потоков.
+ * При BATCH вызов ждёт fsync своей пачки, поэтому пропускная способность растёт с числом потоков
+ * за счёт group commit. Журнал пишется во временный каталог и удаляется после каждой итерации.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JournalBenchmark {
+
+    // memory - TransferMoneyRepository, иначе DurabilityMode журнала
+    @Param({"memory", "NONE", "INTERVAL", "BATCH"})
+    public String storage;
+
+    private Path dir;
+    private TransferMoneyRepository repository;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        Ledger ledger = new Ledger(256, 1_000_000_000_000L, 100);
+        if ("memory".equals(storage)) {
+            repository = new TransferMoneyRepository(60_000, 60_000, 100_000, ledger, new TimeOrderedIdGenerator(1));
+            return;
+        }
+        dir = Files.createTempDirectory("journal-jmh");
+        repository = new JournaledTransferMoneyRepository(60_000, 60_000, 100_000, dir.toString(),
+                DurabilityMode.valueOf(storage), 10, 64L << 20, ledger, new TimeOrderedIdGenerator(1),
+                ConfirmationCodes.fixed("0000"));
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        if (repository instanceof JournaledTransferMoneyRepository journaled) {
+            journaled.close();
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public OperationStatus saveTransfer1() {
+        return saveTransfer();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public OperationStatus saveTransfer16() {
+        return saveTransfer();
+    }
+
+    private OperationStatus saveTransfer() {
+        TransferMoneyData data = BenchmarkData.transfer();
+        data.setId(String.valueOf(UUID.randomUUID()));
+        return repository.saveTransferData(data);
+    }
+}
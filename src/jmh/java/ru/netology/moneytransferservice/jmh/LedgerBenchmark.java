@@ -0,0 +1,93 @@
+package ru.netology.moneytransferservice.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import ru.netology.moneytransferservice.repository.ledger.Ledger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ledger.transfer на 1/4/16 потоках: у каждого потока свои карты (disjoint)
+ * и все потоки на одной паре карт (hot). Переводы идут по кругу туда-обратно, чтобы балансов хватало.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LedgerBenchmark {
+
+    private static final String HOT_FROM = "1111111111111111";
+    private static final String HOT_TO = "2222222222222222";
+
+    private final AtomicInteger threadIds = new AtomicInteger();
+    private Ledger ledger;
+
+    @State(Scope.Thread)
+    public static class Cards {
+        private String from;
+        private String to;
+        private boolean forward;
+
+        @Setup
+        public void setUp(LedgerBenchmark benchmark) {
+            int id = benchmark.threadIds.incrementAndGet();
+            from = String.format("1%015d", id);
+            to = String.format("2%015d", id);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        ledger = new Ledger(256, 1_000_000_000_000L, 100);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Ledger.Result disjoint1(Cards cards) {
+        return disjoint(cards);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Ledger.Result disjoint4(Cards cards) {
+        return disjoint(cards);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Ledger.Result disjoint16(Cards cards) {
+        return disjoint(cards);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Ledger.Result hot4(Cards cards) {
+        return hot(cards);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Ledger.Result hot16(Cards cards) {
+        return hot(cards);
+    }
+
+    private Ledger.Result disjoint(Cards cards) {
+        cards.forward = !cards.forward;
+        return cards.forward
+                ? ledger.transfer(cards.from, cards.to, 10_000, () -> true)
+                : ledger.transfer(cards.to, cards.from, 10_000, () -> true);
+    }
+
+    private Ledger.Result hot(Cards cards) {
+        cards.forward = !cards.forward;
+        return cards.forward
+                ? ledger.transfer(HOT_FROM, HOT_TO, 10_000, () -> true)
+                : ledger.transfer(HOT_TO, HOT_FROM, 10_000, () -> true);
+    }
+}
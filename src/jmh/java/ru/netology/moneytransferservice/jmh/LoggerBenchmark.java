@@ -0,0 +1,83 @@
+package ru.netology.moneytransferservice.jmh;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import ru.netology.moneytransferservice.logger.AsyncLogger;
+import ru.netology.moneytransferservice.logger.BackpressurePolicy;
+import ru.netology.moneytransferservice.logger.Logger;
+import ru.netology.moneytransferservice.logger.LoggerInterface;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Синхронный Logger и AsyncLogger с каждой политикой переполнения буфера.
+ * log() - стоимость одного вызова без конкуренции, contended() - пропускная способность 8 потоков,
+ * которые пишут в один логгер (при DROP и SPILL часть сообщений отбрасывается или уходит в spill-файл).
+ * Файлы пишутся во временный каталог и удаляются после каждой итерации; дозапись буфера AsyncLogger
+ * при close() в замер не входит.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LoggerBenchmark {
+
+    private static final String MESSAGE = "{\"ts\":1702380405000,\"event\":\"transfer\","
+            + "\"id\":\"d3612e46-b254-495e-b5b1-b87ce6ca1ea8\",\"from\":\"411111******1111\","
+            + "\"to\":\"523589******8951\",\"amount\":3232300,\"currency\":\"RUR\"}";
+
+    // sync - Logger, иначе политика BackpressurePolicy для AsyncLogger
+    @Param({"sync", "BLOCK", "DROP", "SPILL"})
+    public String type;
+
+    private Path dir;
+    private LoggerInterface logger;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("logger-jmh");
+        String path = dir.resolve("log.txt").toString();
+        logger = "sync".equals(type)
+                ? new Logger(path)
+                : new AsyncLogger(path, dir.resolve("spill.txt").toString(), 8192, 256, 50,
+                BackpressurePolicy.valueOf(type), new SimpleMeterRegistry());
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        if (logger instanceof AsyncLogger asyncLogger) {
+            asyncLogger.close();
+        }
+        try (var files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    @Benchmark
+    public void log() {
+        logger.log(MESSAGE);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(8)
+    public void contended() {
+        logger.log(MESSAGE);
+    }
+}
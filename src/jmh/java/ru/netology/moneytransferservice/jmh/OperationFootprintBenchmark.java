@@ -0,0 +1,129 @@
+package ru.netology.moneytransferservice.jmh;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.netology.moneytransferservice.model.Amount;
+import ru.netology.moneytransferservice.model.Operation;
+import ru.netology.moneytransferservice.model.OperationState;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+import ru.netology.moneytransferservice.repository.journal.JournalCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Память на операцию: прежний граф объектов (TransferMoneyData со строками, Amount, Integer) против
+ * упакованной Operation. Строки создаются заново для каждой операции, как при разборе JSON,
+ * id учитывается в обоих случаях (он же ключ хранилища).
+ * Время - полная сборка мусора с operations операциями в живом наборе; счётчики bytesPerOperation
+ * (байт на операцию в куче) и recordBytes (запись TRANSFER журнала: строковый формат для object,
+ * упакованный для packed) выводятся рядом с ним.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(jvmArgsAppend = "-Xmx2g")
+public class OperationFootprintBenchmark {
+
+    // прежний вид записи хранилища
+    private record ObjectOperation(TransferMoneyData transferMoneyData, long createdAt,
+                                   OperationState state, long finishedAt) {
+    }
+
+    @Param({"object", "packed"})
+    public String representation;
+
+    @Param({"1000000"})
+    public int operations;
+
+    private List<Object> live;
+    private long bytesPerOperation;
+    private long recordBytes;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+
+        public long bytesPerOperation;
+        public long recordBytes;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        boolean packed = "packed".equals(representation);
+        long before = usedAfterGc();
+        live = new ArrayList<>(operations);
+        long arrayBytes = usedAfterGc() - before;
+        for (int i = 0; i < operations; i++) {
+            TransferMoneyData data = transferMoneyData(i);
+            live.add(packed ? new Operation(data)
+                    : new ObjectOperation(data, System.currentTimeMillis(), OperationState.PENDING, 0));
+        }
+        bytesPerOperation = (usedAfterGc() - before - arrayBytes) / operations;
+        TransferMoneyData sample = transferMoneyData(42);
+        recordBytes = packed ? JournalCodec.transfer(new Operation(sample)).length : legacySize(sample);
+    }
+
+    @Benchmark
+    public int fullGc(Footprint footprint) {
+        System.gc();
+        footprint.bytesPerOperation = bytesPerOperation;
+        footprint.recordBytes = recordBytes;
+        return live.size();
+    }
+
+    private static TransferMoneyData transferMoneyData(int i) {
+        TransferMoneyData transferMoneyData = new TransferMoneyData();
+        transferMoneyData.setId(UUID.randomUUID().toString());
+        transferMoneyData.setCardFromNumber(String.format("%016d", 4_000_000_000_000_000L + i));
+        transferMoneyData.setCardFromValidTill(new String("12/30"));
+        transferMoneyData.setCardFromCVV(new String("123"));
+        transferMoneyData.setCardToNumber(String.format("%016d", 5_000_000_000_000_000L + i));
+        transferMoneyData.setAmount(new Amount(10_000 + i % 1000, new String("RUR")));
+        return transferMoneyData;
+    }
+
+    private static long usedAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // размер записи TRANSFER прежнего строкового формата
+    private static int legacySize(TransferMoneyData data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(JournalCodec.LEGACY_TRANSFER);
+            out.writeUTF(data.getId());
+            out.writeBoolean(false);
+            out.writeLong(0);
+            out.writeByte(0);
+            out.writeLong(0);
+            for (String value : new String[]{data.getCardFromNumber(), data.getCardFromValidTill(), data.getCardToNumber()}) {
+                out.writeBoolean(true);
+                out.writeUTF(value);
+            }
+            out.writeBoolean(true);
+            out.writeBoolean(true);
+            out.writeInt(data.getAmount().value());
+            out.writeBoolean(true);
+            out.writeUTF(data.getAmount().currency());
+        }
+        return bytes.size();
+    }
+}
@@ -0,0 +1,76 @@
+package ru.netology.moneytransferservice.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.netology.moneytransferservice.exception.ErrorInputData;
+import ru.netology.moneytransferservice.id.TimeOrderedIdGenerator;
+import ru.netology.moneytransferservice.model.OperationPage;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+import ru.netology.moneytransferservice.repository.TransferMoneyRepository;
+import ru.netology.moneytransferservice.repository.ledger.Ledger;
+import ru.netology.moneytransferservice.service.OperationHistoryService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время получения страницы истории (20 операций) в зависимости от числа операций в хранилище:
+ * по карте, по карте и состоянию и продолжение с курсора из середины истории карты.
+ * Каждая десятая операция - с одной "горячей" карты, остальные распределены по CARDS картам.
+ * При поиске по индексу время не должно расти вместе с operations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OperationHistoryBenchmark {
+
+    private static final int CARDS = 10_000;
+    private static final int PAGE = 20;
+
+    @Param({"10000", "100000", "1000000"})
+    private int operations;
+
+    private OperationHistoryService history;
+    private String card;
+    private String middleCursor;
+
+    @Setup
+    public void setUp() throws ErrorInputData {
+        TransferMoneyRepository repository = new TransferMoneyRepository(3_600_000, 3_600_000, 100_000,
+                new Ledger(256, 1_000_000_000_000L, 100), new TimeOrderedIdGenerator(1));
+        TimeOrderedIdGenerator idGenerator = new TimeOrderedIdGenerator(1);
+        for (int i = 0; i < operations; i++) {
+            TransferMoneyData data = BenchmarkData.transfer();
+            data.setCardFromNumber(String.format("%016d", i % 10 == 0 ? 0 : i % CARDS));
+            data.setId(idGenerator.nextId());
+            repository.saveTransferData(data);
+        }
+        history = new OperationHistoryService(repository);
+        card = String.format("%016d", 0);
+        String cursor = null;
+        for (int i = 0; i < operations / 10 / PAGE / 2; i++) {
+            cursor = history.history(card, null, null, null, cursor, PAGE).nextCursor();
+        }
+        middleCursor = cursor;
+    }
+
+    @Benchmark
+    public OperationPage byCard() throws ErrorInputData {
+        return history.history(card, null, null, null, null, PAGE);
+    }
+
+    @Benchmark
+    public OperationPage byCardFromCursor() throws ErrorInputData {
+        return history.history(card, null, null, null, middleCursor, PAGE);
+    }
+
+    @Benchmark
+    public OperationPage byCardAndState() throws ErrorInputData {
+        return history.history(card, "pending", null, null, null, PAGE);
+    }
+}
@@ -0,0 +1,66 @@
+package ru.netology.moneytransferservice.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import ru.netology.moneytransferservice.ratelimit.RateLimiter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Накладные расходы RateLimiter.acquire на запрос: один горячий ключ (все потоки на одном CAS)
+ * и 10 000 разных ключей. Лимит настолько большой, что запросы не отклоняются - меряется только учёт.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RateLimiterBenchmark {
+
+    private static final int KEYS = 10_000;
+
+    private RateLimiter limiter;
+    private String[] keys;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+    }
+
+    @Setup
+    public void setUp() {
+        limiter = new RateLimiter(Integer.MAX_VALUE, 1, 100_000);
+        keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = String.format("%016d", i);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long sameKey1() {
+        return limiter.acquire(keys[0]);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public long sameKey16() {
+        return limiter.acquire(keys[0]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long manyKeys1(Cursor cursor) {
+        return limiter.acquire(keys[cursor.next++ % KEYS]);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public long manyKeys16(Cursor cursor) {
+        return limiter.acquire(keys[cursor.next++ % KEYS]);
+    }
+}
@@ -0,0 +1,83 @@
+package ru.netology.moneytransferservice.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import ru.netology.moneytransferservice.id.TimeOrderedIdGenerator;
+import ru.netology.moneytransferservice.model.ConfirmationData;
+import ru.netology.moneytransferservice.model.OperationStatus;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+import ru.netology.moneytransferservice.repository.TransferMoneyRepository;
+import ru.netology.moneytransferservice.repository.ledger.Ledger;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * saveTransferData/saveConfirmationData под конкуренцией 1/4/16 потоков.
+ * Число потоков в JMH нельзя параметризовать через @Param, поэтому на каждое значение свой метод.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransferMoneyRepositoryBenchmark {
+
+    private TransferMoneyRepository repository;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        repository = new TransferMoneyRepository(60_000, 60_000, 100_000, new Ledger(256, 1_000_000_000_000L, 100), new TimeOrderedIdGenerator(1));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public OperationStatus saveTransfer1() {
+        return saveTransfer();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public OperationStatus saveTransfer4() {
+        return saveTransfer();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public OperationStatus saveTransfer16() {
+        return saveTransfer();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public OperationStatus saveConfirmation1() {
+        return saveConfirmation();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public OperationStatus saveConfirmation4() {
+        return saveConfirmation();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public OperationStatus saveConfirmation16() {
+        return saveConfirmation();
+    }
+
+    private OperationStatus saveTransfer() {
+        TransferMoneyData data = BenchmarkData.transfer();
+        data.setId(String.valueOf(UUID.randomUUID()));
+        return repository.saveTransferData(data);
+    }
+
+    private OperationStatus saveConfirmation() {
+        return repository.saveConfirmationData(new ConfirmationData(String.valueOf(UUID.randomUUID()), "0000"));
+    }
+}
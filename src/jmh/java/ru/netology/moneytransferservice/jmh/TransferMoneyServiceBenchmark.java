@@ -0,0 +1,65 @@
+package ru.netology.moneytransferservice.jmh;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.netology.moneytransferservice.code.ConfirmationCodes;
+import ru.netology.moneytransferservice.exception.ErrorInputData;
+import ru.netology.moneytransferservice.id.TimeOrderedIdGenerator;
+import ru.netology.moneytransferservice.metrics.TransferMetrics;
+import ru.netology.moneytransferservice.model.ConfirmationData;
+import ru.netology.moneytransferservice.model.OperationStatus;
+import ru.netology.moneytransferservice.ratelimit.RateLimits;
+import ru.netology.moneytransferservice.repository.TransferMoneyRepository;
+import ru.netology.moneytransferservice.repository.ledger.Ledger;
+import ru.netology.moneytransferservice.service.TransferMoneyService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TransferMoneyService.transfer/confirm с репозиторием в памяти.
+ * Логгер пустой, чтобы измерять только сервис и репозиторий (логгер меряет LoggerBenchmark).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TransferMoneyServiceBenchmark {
+
+    private TransferMoneyService service;
+
+    // новый репозиторий на каждую итерацию, чтобы карта операций не росла от итерации к итерации
+    @Setup(Level.Iteration)
+    public void setUp() {
+        TransferMoneyRepository repository = new TransferMoneyRepository(60_000, 60_000, 100_000, new Ledger(256, 1_000_000_000_000L, 100), new TimeOrderedIdGenerator(1));
+        service = new TransferMoneyService(repository, logMessage -> { },
+                new TransferMetrics(new SimpleMeterRegistry()), RateLimits.unlimited(),
+                new TimeOrderedIdGenerator(1), ConfirmationCodes.fixed("0000"));
+    }
+
+    @Benchmark
+    public OperationStatus transfer() {
+        return service.transfer(BenchmarkData.transfer());
+    }
+
+    // confirm требует операцию в статусе PENDING, поэтому меряется вместе с transfer
+    @Benchmark
+    public OperationStatus transferAndConfirm() throws ErrorInputData {
+        OperationStatus status = service.transfer(BenchmarkData.transfer());
+        return service.confirm(new ConfirmationData(status.id(), "0000"));
+    }
+
+    @Benchmark
+    public String confirmNotFound() {
+        try {
+            return service.confirm(new ConfirmationData("missing", "0000")).id();
+        } catch (ErrorInputData e) {
+            return e.getMessage();
+        }
+    }
+}
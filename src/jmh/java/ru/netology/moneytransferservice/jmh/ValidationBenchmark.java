@@ -0,0 +1,69 @@
+package ru.netology.moneytransferservice.jmh;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+import ru.netology.moneytransferservice.validation.FastTransferValidator;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверка TransferMoneyData: Bean Validation и FastTransferValidator (с проверками по Луну и срока действия),
+ * корректные данные и данные с тремя нарушениями.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ValidationBenchmark {
+
+    private ValidatorFactory factory;
+    private Validator validator;
+    private FastTransferValidator fast;
+    private TransferMoneyData valid;
+    private TransferMoneyData invalid;
+
+    @Setup
+    public void setUp() {
+        factory = Validation.buildDefaultValidatorFactory();
+        validator = factory.getValidator();
+        fast = new FastTransferValidator(true, true);
+        valid = BenchmarkData.transfer();
+        invalid = BenchmarkData.invalidTransfer();
+    }
+
+    @TearDown
+    public void tearDown() {
+        factory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<TransferMoneyData>> validateValid() {
+        return validator.validate(valid);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<TransferMoneyData>> validateInvalid() {
+        return validator.validate(invalid);
+    }
+
+    @Benchmark
+    public String fastValidateValid() {
+        return fast.validate(valid);
+    }
+
+    @Benchmark
+    public String fastValidateInvalid() {
+        return fast.validate(invalid);
+    }
+}
@@ -0,0 +1,59 @@
+package ru.netology.moneytransferservice.load;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Пул карт нагрузки: номера с верной контрольной цифрой Луна и неистёкшим сроком.
+ * Первые hotCards карт - "горячие": с них уходит доля hotShare переводов (зарплатный счёт,
+ * популярный магазин), остальные отправители выбираются равномерно. Получатель - любая другая карта.
+ */
+final class CardPool {
+
+    private final String[] numbers;
+    private final String[] validTill;
+    private final int hotCards;
+    private final double hotShare;
+
+    CardPool(int cards, int hotCards, double hotShare) {
+        this.numbers = new String[cards];
+        this.validTill = new String[cards];
+        for (int i = 0; i < cards; i++) {
+            String digits = String.format("4%014d", 27_000_000L + i * 7_919L);
+            numbers[i] = digits + checkDigit(digits);
+            validTill[i] = String.format("%02d/%02d", i % 12 + 1, 30 + i % 6);
+        }
+        this.hotCards = hotCards;
+        this.hotShare = hotCards == 0 ? 0 : hotShare;
+    }
+
+    // тело POST /transfer
+    String transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextDouble() < hotShare
+                ? random.nextInt(hotCards)
+                : hotCards + random.nextInt(numbers.length - hotCards);
+        int to = random.nextInt(numbers.length - 1);
+        if (to >= from) {
+            to++;
+        }
+        return "{\"cardFromNumber\":\"" + numbers[from] + "\",\"cardFromValidTill\":\"" + validTill[from]
+                + "\",\"cardFromCVV\":\"" + (100 + random.nextInt(900)) + "\",\"cardToNumber\":\"" + numbers[to]
+                + "\",\"amount\":{\"value\":" + (100 + random.nextInt(100_000)) + ",\"currency\":\"RUR\"}}";
+    }
+
+    private static int checkDigit(String digits) {
+        int sum = 0;
+        // справа налево, удваивается каждая вторая цифра начиная с последней: контрольная встанет после неё
+        for (int i = digits.length() - 1, position = 0; i >= 0; i--, position++) {
+            int digit = digits.charAt(i) - '0';
+            if (position % 2 == 0) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+        }
+        return (10 - sum % 10) % 10;
+    }
+}
@@ -0,0 +1,74 @@
+package ru.netology.moneytransferservice.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Задержки одного вида запросов в микросекундах, две гистограммы:
+ * corrected - от запланированного начала (с поправкой на coordinated omission: если генератор или
+ * сервер отстали от расписания, ожидание входит в задержку), service - от фактической отправки.
+ * record вызывается из любых потоков, interval и reset - только потоком отчёта.
+ */
+final class LatencyStats {
+
+    private static final long HIGHEST_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private final String name;
+    private final Recorder corrected = new Recorder(HIGHEST_MICROS, 3);
+    private final Recorder service = new Recorder(HIGHEST_MICROS, 3);
+    private final Histogram totalCorrected = new Histogram(HIGHEST_MICROS, 3);
+    private final Histogram totalService = new Histogram(HIGHEST_MICROS, 3);
+    private Histogram intervalCorrected;
+    private Histogram intervalService;
+
+    LatencyStats(String name) {
+        this.name = name;
+    }
+
+    String name() {
+        return name;
+    }
+
+    void record(long intendedNanos, long sentNanos, long receivedNanos) {
+        corrected.recordValue(micros(receivedNanos - intendedNanos));
+        service.recordValue(micros(receivedNanos - sentNanos));
+    }
+
+    // гистограмма corrected за интервал с прошлого вызова; оба интервала добавляются к итогам и в лог
+    Histogram interval(HistogramLogWriter log) {
+        intervalCorrected = corrected.getIntervalHistogram(intervalCorrected);
+        intervalService = service.getIntervalHistogram(intervalService);
+        totalCorrected.add(intervalCorrected);
+        totalService.add(intervalService);
+        if (log != null) {
+            intervalCorrected.setTag(name + ".corrected");
+            intervalService.setTag(name + ".service");
+            log.outputIntervalHistogram(intervalCorrected);
+            log.outputIntervalHistogram(intervalService);
+        }
+        return intervalCorrected;
+    }
+
+    // конец прогрева: накопленное отбрасывается
+    void reset() {
+        intervalCorrected = corrected.getIntervalHistogram(intervalCorrected);
+        intervalService = service.getIntervalHistogram(intervalService);
+        totalCorrected.reset();
+        totalService.reset();
+    }
+
+    Histogram totalCorrected() {
+        return totalCorrected;
+    }
+
+    Histogram totalService() {
+        return totalService;
+    }
+
+    private static long micros(long nanos) {
+        return Math.min(HIGHEST_MICROS, Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)));
+    }
+}
@@ -0,0 +1,219 @@
+package ru.netology.moneytransferservice.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.netology.moneytransferservice.SpringBootCourseProjectMoneyTransferServiceApplication;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Нагрузочный прогон пар /transfer + /confirmOperation против встроенного приложения или запущенного
+ * экземпляра. Рассчитан на многочасовые прогоны: каждые --report-interval печатает пропускную способность,
+ * перцентили и размеры коллекций сервера, пишет интервальные гистограммы в --histogram-log
+ * (HistogramLogProcessor, HdrHistogram Log Analyzer); в конце - итоговые перцентили и рост памяти за прогон.
+ *
+ * <pre>
+ * mvn -Pload test-compile exec:exec@load -Dload.args="--duration=2h --rate=300"
+ * mvn -Pload test-compile exec:exec@load -Dload.args="--target=http://localhost:5500 --mode=closed --concurrency=32"
+ * </pre>
+ *
+ * Open loop (по умолчанию) - запуск пар по расписанию, как приходят независимые клиенты: задержка
+ * считается от запланированного момента, поэтому остановка сервера видна в перцентилях целиком, а не
+ * одним медленным запросом (coordinated omission). Closed loop - фиксированное число клиентов,
+ * показывает предельную пропускную способность; его задержки занижены по той же причине.
+ */
+public class LoadGenerator {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private final LoadOptions options;
+    private final TransferScenario scenario;
+    private final ServerMetrics server;
+    private final Map<String, Long> totals = new TreeMap<>();
+    private volatile boolean running = true;
+
+    private LoadGenerator(LoadOptions options, String base) {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        this.options = options;
+        this.scenario = new TransferScenario(client, base,
+                new CardPool(options.cards(), options.hotCards(), options.hotShare()), options);
+        this.server = new ServerMetrics(client, base);
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options = LoadOptions.parse(args);
+        if (!"embedded".equals(options.target())) {
+            new LoadGenerator(options, options.target()).run();
+            return;
+        }
+        Path dir = Files.createTempDirectory("load");
+        List<String> arguments = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--logger.path=" + dir.resolve("audit.jsonl"),
+                "--logger.async.spill-path=" + dir.resolve("audit.spill.jsonl"),
+                // все запросы идут с одного адреса
+                "--rate-limit.client.limit=0"));
+        arguments.addAll(options.applicationArgs());
+        try (ConfigurableApplicationContext context = SpringApplication.run(
+                SpringBootCourseProjectMoneyTransferServiceApplication.class, arguments.toArray(new String[0]))) {
+            new LoadGenerator(options, "http://localhost:" + context.getEnvironment().getProperty("local.server.port"))
+                    .run();
+        }
+    }
+
+    private void run() throws InterruptedException, IOException {
+        System.out.printf("%s loop, rate %d/s, concurrency %d, warmup %ds, duration %ds%n",
+                options.mode().name().toLowerCase(), options.rate(), options.concurrency(),
+                TimeUnit.NANOSECONDS.toSeconds(options.warmupNanos()),
+                TimeUnit.NANOSECONDS.toSeconds(options.durationNanos()));
+        Semaphore permits = new Semaphore(options.concurrency());
+        List<Thread> clients = new ArrayList<>();
+        if (options.mode() == LoadOptions.Mode.OPEN) {
+            clients.add(new Thread(() -> dispatch(permits), "load-dispatcher"));
+        } else {
+            for (int i = 0; i < options.concurrency(); i++) {
+                clients.add(new Thread(this::client, "load-client-" + i));
+            }
+        }
+        clients.forEach(Thread::start);
+
+        TimeUnit.NANOSECONDS.sleep(options.warmupNanos());
+        HistogramLogWriter log = histogramLog();
+        List<LatencyStats> stats = List.of(scenario.transfer, scenario.confirm, scenario.pair);
+        stats.forEach(LatencyStats::reset);
+        scenario.outcomes(true);
+        server.reset();
+
+        long begin = System.nanoTime();
+        long end = begin + options.durationNanos();
+        long previous = begin;
+        while (System.nanoTime() < end) {
+            TimeUnit.NANOSECONDS.sleep(Math.min(options.reportNanos(), end - System.nanoTime()));
+            long now = System.nanoTime();
+            report(String.format("%6ds", TimeUnit.NANOSECONDS.toSeconds(now - begin)), now - previous, stats, log);
+            previous = now;
+        }
+
+        running = false;
+        for (Thread client : clients) {
+            client.join();
+        }
+        permits.acquire(options.concurrency());
+        // пары, начатые до конца замера и завершившиеся после
+        report(" drain", System.nanoTime() - previous, stats, log);
+        if (log != null) {
+            log.close();
+        }
+        summary(stats, System.nanoTime() - begin);
+    }
+
+    // open loop: i-я пара запланирована на start + i / rate независимо от того, ответил ли сервер на прежние
+    private void dispatch(Semaphore permits) {
+        long start = System.nanoTime();
+        for (long i = 0; running; i++) {
+            long intended = start + (long) (i * 1e9 / options.rate());
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            permits.acquireUninterruptibly();
+            scenario.run(intended).whenComplete((ignored, error) -> permits.release());
+        }
+    }
+
+    // closed loop: следующая пара после ответа на предыдущую, при rate > 0 - не чаще расписания клиента
+    private void client() {
+        long period = options.rate() > 0 ? (long) (options.concurrency() * 1e9 / options.rate()) : 0;
+        long intended = System.nanoTime();
+        while (running) {
+            scenario.run(intended).join();
+            long now = System.nanoTime();
+            if (period == 0) {
+                intended = now;
+            } else {
+                intended += period;
+                if (intended > now) {
+                    LockSupport.parkNanos(intended - now);
+                }
+            }
+        }
+    }
+
+    private HistogramLogWriter histogramLog() throws IOException {
+        if (options.histogramLog() == null) {
+            return null;
+        }
+        File file = new File(options.histogramLog());
+        if (file.getParentFile() != null) {
+            Files.createDirectories(file.getParentFile().toPath());
+        }
+        HistogramLogWriter log = new HistogramLogWriter(file);
+        long now = System.currentTimeMillis();
+        log.outputLogFormatVersion();
+        log.outputComment("transfer, confirm, pair: corrected and service latency, microseconds");
+        log.outputStartTime(now);
+        log.setBaseTime(now);
+        log.outputLegend();
+        return log;
+    }
+
+    private void report(String label, long intervalNanos, List<LatencyStats> stats, HistogramLogWriter log) {
+        StringBuilder line = new StringBuilder("[" + label + "]");
+        for (LatencyStats stat : stats) {
+            Histogram interval = stat.interval(log);
+            line.append(String.format(" %s %.1f/s p50=%.2f p99=%.2f p99.9=%.2f max=%.2f ms |", stat.name(),
+                    interval.getTotalCount() * 1e9 / Math.max(intervalNanos, 1),
+                    millis(interval.getValueAtPercentile(50)), millis(interval.getValueAtPercentile(99)),
+                    millis(interval.getValueAtPercentile(99.9)), millis(interval.getMaxValue())));
+        }
+        System.out.println(line);
+        Map<String, Long> outcomes = scenario.outcomes(true);
+        outcomes.forEach((name, count) -> totals.merge(name, count, Long::sum));
+        System.out.println("          " + outcomes);
+        System.out.println("          server:" + server.sample());
+    }
+
+    private void summary(List<LatencyStats> stats, long elapsedNanos) {
+        System.out.printf("%nTotal over %ds, ms%n", TimeUnit.NANOSECONDS.toSeconds(elapsedNanos));
+        StringBuilder header = new StringBuilder(String.format("%-20s %10s", "", "count"));
+        for (double percentile : PERCENTILES) {
+            header.append(String.format(" %9s", "p" + percentile));
+        }
+        System.out.println(header.append(String.format(" %9s", "max")));
+        for (LatencyStats stat : stats) {
+            System.out.println(row(stat.name() + " corrected", stat.totalCorrected()));
+            System.out.println(row(stat.name() + " service", stat.totalService()));
+        }
+        System.out.println("Outcomes after warmup:");
+        for (Map.Entry<String, Long> outcome : totals.entrySet()) {
+            System.out.printf("  %-22s %,d%n", outcome.getKey(), outcome.getValue());
+        }
+        System.out.println("Server growth (first vs last quarter of the run):");
+        System.out.print(server.growth());
+    }
+
+    private static String row(String name, Histogram histogram) {
+        StringBuilder row = new StringBuilder(String.format("%-20s %10d", name, histogram.getTotalCount()));
+        for (double percentile : PERCENTILES) {
+            row.append(String.format(" %9.2f", millis(histogram.getValueAtPercentile(percentile))));
+        }
+        return row.append(String.format(" %9.2f", millis(histogram.getMaxValue()))).toString();
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
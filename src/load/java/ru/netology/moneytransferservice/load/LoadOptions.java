@@ -0,0 +1,103 @@
+package ru.netology.moneytransferservice.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Параметры нагрузки из аргументов командной строки вида --name=value.
+ * Аргументы, не являющиеся параметрами нагрузки, передаются встроенному приложению (target=embedded).
+ *
+ * @param target           embedded - приложение в этом же процессе, иначе базовый URL (http://localhost:5500)
+ * @param mode             OPEN - пары запускаются по расписанию с частотой rate независимо от ответов,
+ *                         CLOSED - concurrency клиентов, каждый начинает следующую пару после ответа на предыдущую
+ * @param rate             пар /transfer + /confirmOperation в секунду; для CLOSED 0 - без ограничения
+ * @param concurrency      CLOSED - число клиентов, OPEN - предел одновременных пар
+ * @param durationNanos    длительность замера (после прогрева)
+ * @param warmupNanos      прогрев, не попадает в гистограммы
+ * @param reportNanos      интервал промежуточного отчёта и записи интервальных гистограмм
+ * @param cards            число карт в пуле
+ * @param hotCards         число "горячих" карт
+ * @param hotShare         доля переводов с горячей карты отправителя
+ * @param wrongCodeShare   доля операций, которые сначала подтверждаются неверным кодом
+ * @param retryShare       доля переводов, повторяемых клиентом с тем же Idempotency-Key
+ * @param code             верный код подтверждения (confirmation.code.generator=fixed)
+ * @param histogramLog     файл интервальных гистограмм HdrHistogram, null - не писать
+ * @param applicationArgs  аргументы встроенного приложения
+ */
+record LoadOptions(String target, Mode mode, int rate, int concurrency, long durationNanos, long warmupNanos,
+                   long reportNanos, int cards, int hotCards, double hotShare, double wrongCodeShare,
+                   double retryShare, String code, String histogramLog, List<String> applicationArgs) {
+
+    enum Mode {
+        OPEN,
+        CLOSED
+    }
+
+    static LoadOptions parse(String[] args) {
+        String target = "embedded";
+        Mode mode = Mode.OPEN;
+        int rate = 200;
+        int concurrency = 64;
+        long duration = TimeUnit.MINUTES.toNanos(1);
+        long warmup = TimeUnit.SECONDS.toNanos(10);
+        long report = TimeUnit.SECONDS.toNanos(10);
+        int cards = 10_000;
+        int hotCards = 10;
+        double hotShare = 0.2;
+        double wrongCodeShare = 0.05;
+        double retryShare = 0.02;
+        String code = "0000";
+        String histogramLog = "target/load/latency.hlog";
+        List<String> applicationArgs = new ArrayList<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String name = eq > 0 ? arg.substring(0, eq) : arg;
+            String value = eq > 0 ? arg.substring(eq + 1) : "";
+            switch (name) {
+                case "--target" -> target = value;
+                case "--mode" -> mode = Mode.valueOf(value.toUpperCase());
+                case "--rate" -> rate = Integer.parseInt(value);
+                case "--concurrency" -> concurrency = Integer.parseInt(value);
+                case "--duration" -> duration = duration(value);
+                case "--warmup" -> warmup = duration(value);
+                case "--report-interval" -> report = duration(value);
+                case "--cards" -> cards = Integer.parseInt(value);
+                case "--hot-cards" -> hotCards = Integer.parseInt(value);
+                case "--hot-share" -> hotShare = Double.parseDouble(value);
+                case "--wrong-code-share" -> wrongCodeShare = Double.parseDouble(value);
+                case "--retry-share" -> retryShare = Double.parseDouble(value);
+                case "--code" -> code = value;
+                case "--histogram-log" -> histogramLog = value.isEmpty() ? null : value;
+                default -> applicationArgs.add(arg);
+            }
+        }
+        if (mode == Mode.OPEN && rate <= 0) {
+            throw new IllegalArgumentException("Open-loop mode requires --rate > 0");
+        }
+        if (concurrency < 1 || cards < 2 || hotCards < 0 || hotCards > cards) {
+            throw new IllegalArgumentException("Invalid concurrency or card pool: "
+                    + concurrency + ", " + cards + ", " + hotCards);
+        }
+        if (!"embedded".equals(target) && !applicationArgs.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options: " + applicationArgs);
+        }
+        return new LoadOptions(target, mode, rate, concurrency, duration, warmup, report, cards, hotCards,
+                hotShare, wrongCodeShare, retryShare, code, histogramLog, List.copyOf(applicationArgs));
+    }
+
+    // 90, 90s, 30m, 2h
+    private static long duration(String value) {
+        char unit = value.charAt(value.length() - 1);
+        if (Character.isDigit(unit)) {
+            return TimeUnit.SECONDS.toNanos(Long.parseLong(value));
+        }
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        return switch (unit) {
+            case 's' -> TimeUnit.SECONDS.toNanos(amount);
+            case 'm' -> TimeUnit.MINUTES.toNanos(amount);
+            case 'h' -> TimeUnit.HOURS.toNanos(amount);
+            default -> throw new IllegalArgumentException("Invalid duration: " + value);
+        };
+    }
+}
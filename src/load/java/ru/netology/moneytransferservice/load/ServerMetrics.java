@@ -0,0 +1,126 @@
+package ru.netology.moneytransferservice.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Размеры коллекций хранилища и память сервера через /actuator/metrics. За долгий прогон по ним видно,
+ * растёт ли что-то без ограничения: операции, подтверждения, коды и ключи лимитов должны выходить
+ * на плато (TTL и retention), а jvm.gc.live.data.size (живые данные после полной сборки) - не расти.
+ * Недоступная метрика (сервер без actuator, другая версия) пропускается.
+ */
+final class ServerMetrics {
+
+    private record Metric(String label, String path, boolean bytes) {
+    }
+
+    private static final List<Metric> METRICS = List.of(
+            new Metric("heap", "jvm.memory.used?tag=area:heap", true),
+            new Metric("live", "jvm.gc.live.data.size", true),
+            new Metric("operations", "transfer.repository.size?tag=collection:operations", false),
+            new Metric("confirmations", "transfer.repository.size?tag=collection:confirmations", false),
+            new Metric("pending", "transfer.repository.pending", false),
+            new Metric("codes", "transfer.codes.size", false),
+            new Metric("idempotency", "transfer.idempotency.size", false),
+            new Metric("ratelimit", "transfer.ratelimit.keys", false));
+    private static final Pattern VALUE = Pattern.compile("\"statistic\":\"VALUE\",\"value\":([-+0-9.E]+)");
+    private static final double MB = 1024 * 1024;
+
+    private record Sample(long nanos, double[] values) {
+    }
+
+    private final HttpClient client;
+    private final String base;
+    private final List<Sample> samples = new ArrayList<>();
+
+    ServerMetrics(HttpClient client, String base) {
+        this.client = client;
+        this.base = base;
+    }
+
+    // снять значения и вернуть их строкой для промежуточного отчёта
+    String sample() {
+        double[] values = new double[METRICS.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = fetch(METRICS.get(i).path());
+        }
+        samples.add(new Sample(System.nanoTime(), values));
+        return format(values);
+    }
+
+    void reset() {
+        samples.clear();
+    }
+
+    /**
+     * Изменение каждой метрики между первой и последней четвертью замеров и в пересчёте на час.
+     * Сравниваются средние по четвертям, а не крайние точки: heap колеблется между сборками.
+     */
+    String growth() {
+        if (samples.size() < 4) {
+            return String.format("  not enough samples%n");
+        }
+        int quarter = samples.size() / 4;
+        double hours = (samples.get(samples.size() - 1).nanos() - samples.get(0).nanos()) / 3.6e12;
+        StringBuilder report = new StringBuilder();
+        for (int i = 0; i < METRICS.size(); i++) {
+            Metric metric = METRICS.get(i);
+            double first = average(0, quarter, i);
+            double last = average(samples.size() - quarter, samples.size(), i);
+            if (Double.isNaN(first) || Double.isNaN(last)) {
+                continue;
+            }
+            double scale = metric.bytes() ? MB : 1;
+            report.append(String.format("  %-13s %12.1f -> %12.1f%s  (%+.1f per hour)%n", metric.label(),
+                    first / scale, last / scale, metric.bytes() ? " MB" : "   ",
+                    (last - first) / scale / Math.max(hours, 1e-9)));
+        }
+        return report.toString();
+    }
+
+    private double average(int from, int to, int metric) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += samples.get(i).values()[metric];
+        }
+        return sum / (to - from);
+    }
+
+    private double fetch(String path) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/actuator/metrics/" + path))
+                    .timeout(Duration.ofSeconds(5))
+                    .GET()
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            Matcher matcher = VALUE.matcher(response.body());
+            return response.statusCode() == 200 && matcher.find() ? Double.parseDouble(matcher.group(1)) : Double.NaN;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Double.NaN;
+        } catch (IOException | RuntimeException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static String format(double[] values) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (Double.isNaN(values[i])) {
+                continue;
+            }
+            Metric metric = METRICS.get(i);
+            line.append(' ').append(metric.label()).append('=');
+            line.append(metric.bytes() ? String.format("%.0fMB", values[i] / MB) : String.format("%.0f", values[i]));
+        }
+        return line.toString();
+    }
+}
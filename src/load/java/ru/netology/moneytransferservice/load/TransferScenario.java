@@ -0,0 +1,132 @@
+package ru.netology.moneytransferservice.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Одна пара клиента: POST /transfer с Idempotency-Key, затем POST /confirmOperation.
+ * Часть переводов клиент повторяет с тем же ключом (ответ "потерялся") - сервер должен вернуть тот же id;
+ * часть операций сначала подтверждается неверным кодом, затем верным.
+ * Исходы считаются по виду запроса и HTTP-статусу: "transfer 200", "confirm 429", "confirm-wrong 400",
+ * "retry same-id", "transfer io-error".
+ */
+final class TransferScenario {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient client;
+    private final String base;
+    private final CardPool cards;
+    private final LoadOptions options;
+    private final String wrongCode;
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+
+    final LatencyStats transfer = new LatencyStats("transfer");
+    final LatencyStats confirm = new LatencyStats("confirm");
+    final LatencyStats pair = new LatencyStats("pair");
+
+    TransferScenario(HttpClient client, String base, CardPool cards, LoadOptions options) {
+        this.client = client;
+        this.base = base;
+        this.cards = cards;
+        this.options = options;
+        String code = options.code();
+        this.wrongCode = code.substring(0, code.length() - 1) + (code.endsWith("9") ? "0" : "9");
+    }
+
+    // intendedNanos - запланированное начало пары; задержки corrected считаются от него
+    CompletableFuture<Void> run(long intendedNanos) {
+        String body = cards.transfer();
+        String key = UUID.randomUUID().toString();
+        long sent = System.nanoTime();
+        return post("/transfer", body, key).thenCompose(response -> {
+            transfer.record(intendedNanos, sent, System.nanoTime());
+            count("transfer", response.statusCode());
+            if (response.statusCode() != 200) {
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+            String id = id(response.body());
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            CompletableFuture<Void> steps = CompletableFuture.completedFuture(null);
+            if (random.nextDouble() < options.retryShare()) {
+                steps = steps.thenCompose(ignored -> retry(body, key, id));
+            }
+            if (random.nextDouble() < options.wrongCodeShare()) {
+                steps = steps.thenCompose(ignored -> confirm(id, wrongCode, "confirm-wrong"));
+            }
+            return steps.thenCompose(ignored -> confirm(id, options.code(), "confirm"))
+                    .thenRun(() -> pair.record(intendedNanos, sent, System.nanoTime()));
+        }).exceptionally(error -> {
+            count("io-error");
+            return null;
+        });
+    }
+
+    // накопленные исходы, отсортированные по имени; reset - обнулить после снятия
+    Map<String, Long> outcomes(boolean reset) {
+        Map<String, Long> snapshot = new TreeMap<>();
+        outcomes.forEach((name, counter) -> {
+            long count = reset ? counter.sumThenReset() : counter.sum();
+            if (count > 0) {
+                snapshot.put(name, count);
+            }
+        });
+        return snapshot;
+    }
+
+    private CompletableFuture<Void> retry(String body, String key, String id) {
+        long sent = System.nanoTime();
+        return post("/transfer", body, key).thenAccept(response -> {
+            transfer.record(sent, sent, System.nanoTime());
+            count("retry", response.statusCode());
+            count(id.equals(id(response.body())) ? "retry same-id" : "retry different-id");
+        });
+    }
+
+    private CompletableFuture<Void> confirm(String id, String code, String kind) {
+        long sent = System.nanoTime();
+        return post("/confirmOperation", "{\"operationId\":\"" + id + "\",\"code\":\"" + code + "\"}", null)
+                .thenAccept(response -> {
+                    confirm.record(sent, sent, System.nanoTime());
+                    count(kind, response.statusCode());
+                });
+    }
+
+    private CompletableFuture<HttpResponse<String>> post(String path, String body, String idempotencyKey) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + path))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (idempotencyKey != null) {
+            request.header("Idempotency-Key", idempotencyKey);
+        }
+        return client.sendAsync(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void count(String kind, int status) {
+        count(kind + " " + status);
+    }
+
+    private void count(String outcome) {
+        outcomes.computeIfAbsent(outcome, ignored -> new LongAdder()).increment();
+    }
+
+    private static String id(String body) {
+        int start = body.indexOf("\"id\":\"");
+        if (start < 0) {
+            return "";
+        }
+        start += "\"id\":\"".length();
+        return body.substring(start, body.indexOf('"', start));
+    }
+}
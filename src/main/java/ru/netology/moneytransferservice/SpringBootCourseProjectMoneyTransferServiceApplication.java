@@ -2,7 +2,9 @@ package ru.netology.moneytransferservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
+@EnableScheduling
 @SpringBootApplication
 public class SpringBootCourseProjectMoneyTransferServiceApplication {
 
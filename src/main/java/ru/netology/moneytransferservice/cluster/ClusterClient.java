@@ -0,0 +1,158 @@
+package ru.netology.moneytransferservice.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.netology.moneytransferservice.exception.ErrorClusterAuthorization;
+import ru.netology.moneytransferservice.exception.ErrorInputData;
+import ru.netology.moneytransferservice.exception.ErrorNodeUnavailable;
+import ru.netology.moneytransferservice.exception.ErrorTooManyRequests;
+import ru.netology.moneytransferservice.model.ConfirmationData;
+import ru.netology.moneytransferservice.model.Operation;
+import ru.netology.moneytransferservice.model.OperationStatus;
+import ru.netology.moneytransferservice.repository.journal.JournalCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запросы к другим узлам кластера. Тела запросов - двоичные, в формате записей журнала (JournalCodec),
+ * ответ на подтверждение - тот же OperationStatus, что у /confirmOperation. Соединения HTTP/1.1
+ * переиспользуются HttpClient.
+ */
+@Component
+@ConditionalOnProperty(name = "cluster.enabled", havingValue = "true")
+public class ClusterClient {
+
+    public static final String TOKEN = "X-Cluster-Token";
+    public static final String FALLBACK = "X-Cluster-Fallback";
+    public static final String CONFIRM_PATH = "/internal/confirmOperation";
+    public static final String HANDOFF_PATH = "/internal/handoff";
+
+    // операция и запись её кода подтверждения (null - кода нет)
+    public record Handoff(Operation operation, long[] code) {
+    }
+
+    private final HttpClient client;
+    private final ObjectMapper objectMapper;
+    private final String secret;
+    private final Duration timeout;
+
+    public ClusterClient(ClusterMembership membership, ObjectMapper objectMapper,
+                         @Value("${cluster.request-timeout-ms:2000}") long timeoutMs) {
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+        this.objectMapper = objectMapper;
+        this.secret = membership.secret();
+    }
+
+    /**
+     * Подтвердить операцию на узле member. fallback - узел не должен пересылать запрос дальше,
+     * а при отсутствии операции искать её у прежнего владельца.
+     */
+    public OperationStatus confirm(ClusterMember member, ConfirmationData confirmationData, boolean fallback)
+            throws ErrorInputData {
+        byte[] body = encode(out -> JournalCodec.writeConfirmation(out, confirmationData, System.currentTimeMillis()));
+        HttpResponse<byte[]> response = send(member, CONFIRM_PATH, body, fallback);
+        // тело OperationStatus есть только у этих ответов; у 403 и ошибок прокси его нет
+        switch (response.statusCode()) {
+            case 200 -> {
+                return read(member, response.body());
+            }
+            case 400 -> throw new ErrorInputData(read(member, response.body()).description());
+            case 429 -> {
+                long retryAfter = response.headers().firstValueAsLong("Retry-After").orElse(1);
+                throw new ErrorTooManyRequests(read(member, response.body()).description(),
+                        TimeUnit.SECONDS.toNanos(retryAfter));
+            }
+            case 403 -> throw forbidden(member);
+            default -> throw unavailable(member);
+        }
+    }
+
+    // передать операции узлу member, false - узел не принял передачу; отказ в доступе - исключение, а не false
+    public boolean handoff(ClusterMember member, List<Handoff> handoffs) {
+        byte[] body = encode(out -> {
+            out.writeInt(handoffs.size());
+            for (Handoff handoff : handoffs) {
+                JournalCodec.writeOperation(out, handoff.operation());
+                out.writeBoolean(handoff.code() != null);
+                if (handoff.code() != null) {
+                    for (long word : handoff.code()) {
+                        out.writeLong(word);
+                    }
+                }
+            }
+        });
+        int status;
+        try {
+            status = send(member, HANDOFF_PATH, body, false).statusCode();
+        } catch (ErrorNodeUnavailable e) {
+            return false;
+        }
+        if (status == 403) {
+            throw forbidden(member);
+        }
+        return status == 200;
+    }
+
+    private HttpResponse<byte[]> send(ClusterMember member, String path, byte[] body, boolean fallback) {
+        HttpRequest request = HttpRequest.newBuilder(member.address().resolve(path))
+                .timeout(timeout)
+                .header("Content-Type", "application/octet-stream")
+                .header(TOKEN, secret)
+                .header(FALLBACK, String.valueOf(fallback))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            throw unavailable(member);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw unavailable(member);
+        }
+    }
+
+    private OperationStatus read(ClusterMember member, byte[] body) {
+        try {
+            return objectMapper.readValue(body, OperationStatus.class);
+        } catch (IOException e) {
+            throw unavailable(member);
+        }
+    }
+
+    private static ErrorClusterAuthorization forbidden(ClusterMember member) {
+        return new ErrorClusterAuthorization("Cluster node " + member.id() + " rejected " + TOKEN
+                + ": cluster.secret differs");
+    }
+
+    private static ErrorNodeUnavailable unavailable(ClusterMember member) {
+        return new ErrorNodeUnavailable("Cluster node " + member.id() + " is unavailable");
+    }
+
+    private interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] encode(Writer writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,85 @@
+package ru.netology.moneytransferservice.cluster;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import ru.netology.moneytransferservice.code.ConfirmationCodes;
+import ru.netology.moneytransferservice.exception.ErrorInputData;
+import ru.netology.moneytransferservice.model.ConfirmationData;
+import ru.netology.moneytransferservice.model.Operation;
+import ru.netology.moneytransferservice.model.OperationStatus;
+import ru.netology.moneytransferservice.repository.TransferMoneyRepository;
+import ru.netology.moneytransferservice.repository.journal.JournalCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Внутренние запросы узлов кластера. Доступны только с заголовком X-Cluster-Token, равным cluster.secret;
+ * снаружи кластера /internal/** закрывается балансировщиком.
+ */
+@RestController
+@ConditionalOnProperty(name = "cluster.enabled", havingValue = "true")
+public class ClusterController {
+
+    private final ClusteredTransferMoneyService transferMoneyService;
+    private final TransferMoneyRepository repository;
+    private final ConfirmationCodes confirmationCodes;
+    private final ClusterMembership membership;
+
+    public ClusterController(ClusteredTransferMoneyService transferMoneyService, TransferMoneyRepository repository,
+                             ConfirmationCodes confirmationCodes, ClusterMembership membership) {
+        this.transferMoneyService = transferMoneyService;
+        this.repository = repository;
+        this.confirmationCodes = confirmationCodes;
+        this.membership = membership;
+    }
+
+    @PostMapping(path = ClusterClient.CONFIRM_PATH, consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<OperationStatus> confirmOperation(@RequestHeader(name = ClusterClient.TOKEN, required = false) String token,
+                                                            @RequestHeader(name = ClusterClient.FALLBACK, defaultValue = "false") boolean fallback,
+                                                            @RequestBody byte[] body) throws ErrorInputData, IOException {
+        if (!membership.authorized(token)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        ConfirmationData confirmationData = JournalCodec.readConfirmation(new DataInputStream(new ByteArrayInputStream(body)));
+        return new ResponseEntity<>(transferMoneyService.confirmHere(confirmationData, fallback), HttpStatus.OK);
+    }
+
+    // операции, переданные прежним владельцем; уже известные операции не заменяются.
+    // Коды принимаются раньше операций, поэтому fsync операций в adopt покрывает и их
+    @PostMapping(path = ClusterClient.HANDOFF_PATH, consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Void> handoff(@RequestHeader(name = ClusterClient.TOKEN, required = false) String token,
+                                        @RequestBody byte[] body) throws IOException {
+        if (!membership.authorized(token)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        int count = in.readInt();
+        List<Operation> operations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Operation operation = JournalCodec.readOperation(in);
+            long[] code = null;
+            if (in.readBoolean()) {
+                code = new long[]{in.readLong(), in.readLong(), in.readLong()};
+            }
+            if (repository.getOperations().containsKey(operation.getId())) {
+                continue;
+            }
+            if (code != null) {
+                confirmationCodes.adopt(operation.getId(), code);
+            }
+            operations.add(operation);
+        }
+        repository.adopt(operations);
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+}
@@ -0,0 +1,39 @@
+package ru.netology.moneytransferservice.cluster;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.netology.moneytransferservice.id.OperationIdGenerator;
+import ru.netology.moneytransferservice.id.TimeOrderedIdGenerator;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Идентификаторы операций в режиме кластера: UUID версии 7, в поле node которого записан шард,
+ * принадлежащий этому узлу (шарды чередуются по кругу). Любой узел по id находит владельца операции
+ * без обращения к другим узлам. Узел, исключённый из кластера, выдаёт id чужих шардов -
+ * такие операции ClusterRebalancer передаёт владельцам.
+ * Генератор UUID свой, поэтому режим кластера не зависит от transfer.id-generator.
+ */
+@Primary
+@Component
+@ConditionalOnProperty(name = "cluster.enabled", havingValue = "true")
+public class ClusterIdGenerator implements OperationIdGenerator {
+
+    private final TimeOrderedIdGenerator generator;
+    private final ClusterMembership membership;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ClusterIdGenerator(ClusterMembership membership) {
+        this.generator = new TimeOrderedIdGenerator(membership.self());
+        this.membership = membership;
+    }
+
+    @Override
+    public String nextId() {
+        int[] shards = membership.ownedShards();
+        int i = next.getAndIncrement() & Integer.MAX_VALUE;
+        int shard = shards.length > 0 ? shards[i % shards.length] : i % HashRing.SHARDS;
+        return generator.nextClustered(membership.node(shard)).toString();
+    }
+}
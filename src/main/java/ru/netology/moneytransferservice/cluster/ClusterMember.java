@@ -0,0 +1,38 @@
+package ru.netology.moneytransferservice.cluster;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Узел кластера: номер (0..63, совпадает с transfer.node-id узла) и адрес его HTTP API.
+ */
+public record ClusterMember(int id, URI address) {
+
+    public ClusterMember {
+        if (id < 0 || id > ClusterMembership.MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + ClusterMembership.MAX_NODE_ID + ": " + id);
+        }
+    }
+
+    /**
+     * Список узлов в формате "1=http://host:5501, 2=http://host:5502": через запятую или по строке на узел,
+     * пустые строки и строки с # пропускаются.
+     */
+    public static List<ClusterMember> parse(String members) {
+        List<ClusterMember> parsed = new ArrayList<>();
+        for (String line : members.split("[,\\n]")) {
+            String member = line.strip();
+            if (member.isEmpty() || member.startsWith("#")) {
+                continue;
+            }
+            int separator = member.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected <id>=<address>: " + member);
+            }
+            parsed.add(new ClusterMember(Integer.parseInt(member.substring(0, separator).strip()),
+                    URI.create(member.substring(separator + 1).strip())));
+        }
+        return parsed;
+    }
+}
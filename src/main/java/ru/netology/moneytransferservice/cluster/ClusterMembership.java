@@ -0,0 +1,155 @@
+package ru.netology.moneytransferservice.cluster;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.netology.moneytransferservice.id.TimeOrderedIdGenerator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Состав кластера и владельцы шардов.
+ * <p>
+ * Узлы задаются списком cluster.members или файлом cluster.members-file (формат тот же, по узлу на строку),
+ * файл перечитывается каждые cluster.refresh-ms. Номер этого узла - transfer.node-id, от 0 до 63.
+ * Шард операции закодирован в её id: поле node UUID равно shard << 6 | номер узла, выдавшего id, и выставлен
+ * бит cluster (TimeOrderedIdGenerator.nextClustered). Id без этого бита (random, uuid7 вне кластера,
+ * UUID других версий) шарда не имеют и принадлежат узлу, на котором операция создана.
+ * Без cluster.secret узел не запускается: внутренние запросы подтверждают и принимают операции.
+ * <p>
+ * При смене состава строится новое кольцо, прежнее сохраняется: пока ClusterRebalancer не передал
+ * операции новым владельцам, подтверждение, не найденное у нового владельца, ищется у прежнего.
+ */
+@Component
+@ConditionalOnProperty(name = "cluster.enabled", havingValue = "true")
+public class ClusterMembership {
+
+    public static final int MAX_NODE_ID = 63;
+    private static final int NODE_BITS = 6;
+
+    // кольца и шарды этого узла меняются вместе
+    private record State(HashRing ring, HashRing previous, int[] ownedShards, long version) {
+    }
+
+    private final int self;
+    private final String members;
+    private final Path membersFile;
+    private final byte[] secret;
+    private volatile State state;
+
+    public ClusterMembership(@Value("${transfer.node-id}") int nodeId,
+                             @Value("${cluster.members:}") String members,
+                             @Value("${cluster.members-file:}") String membersFile,
+                             @Value("${cluster.secret:}") String secret) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("transfer.node-id must be between 0 and " + MAX_NODE_ID + " in cluster mode: " + nodeId);
+        }
+        this.self = nodeId;
+        this.members = members;
+        this.membersFile = membersFile.isBlank() ? null : Path.of(membersFile);
+        if (secret.isBlank()) {
+            throw new IllegalArgumentException("cluster.secret must be set in cluster mode");
+        }
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        HashRing ring = new HashRing(load());
+        this.state = new State(ring, null, ring.shardsOf(self), 0);
+    }
+
+    @Scheduled(fixedDelayString = "${cluster.refresh-ms:5000}")
+    public void refresh() {
+        if (membersFile != null) {
+            update(load());
+        }
+    }
+
+    // заменить состав кластера, false - состав не изменился
+    public synchronized boolean update(List<ClusterMember> members) {
+        State current = state;
+        if (new HashSet<>(members).equals(new HashSet<>(current.ring().members()))) {
+            return false;
+        }
+        HashRing ring = new HashRing(members);
+        state = new State(ring, current.ring(), ring.shardsOf(self), current.version() + 1);
+        return true;
+    }
+
+    public int self() {
+        return self;
+    }
+
+    // номер изменения состава, ClusterRebalancer по нему определяет, что владельцы шардов сменились
+    public long version() {
+        return state.version();
+    }
+
+    // шард операции, -1 - id выдан не в режиме кластера
+    public static int shard(String operationId) {
+        int node = TimeOrderedIdGenerator.clusterNode(operationId);
+        return node < 0 ? -1 : node >>> NODE_BITS;
+    }
+
+    // поле node UUID для операции шарда shard, выданной этим узлом
+    public long node(int shard) {
+        return (long) shard << NODE_BITS | self;
+    }
+
+    // владелец операции, null - операция этого узла (или id не кластерный)
+    public ClusterMember remoteOwner(String operationId) {
+        return remote(state.ring(), operationId);
+    }
+
+    // владелец операции до последней смены состава, null - этот узел, состав не менялся или узла больше нет
+    public ClusterMember previousOwner(String operationId) {
+        HashRing previous = state.previous();
+        return previous == null ? null : remote(previous, operationId);
+    }
+
+    public int owner(int shard) {
+        return state.ring().owner(shard);
+    }
+
+    public ClusterMember member(int id) {
+        return state.ring().member(id);
+    }
+
+    public int[] ownedShards() {
+        return state.ownedShards();
+    }
+
+    // сравнение за постоянное время
+    public boolean authorized(String token) {
+        return token != null && MessageDigest.isEqual(secret, token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String secret() {
+        return new String(secret, StandardCharsets.UTF_8);
+    }
+
+    private ClusterMember remote(HashRing ring, String operationId) {
+        int shard = shard(operationId);
+        if (shard < 0) {
+            return null;
+        }
+        int owner = ring.owner(shard);
+        return owner == self ? null : ring.member(owner);
+    }
+
+    private List<ClusterMember> load() {
+        if (membersFile == null) {
+            return ClusterMember.parse(members);
+        }
+        try {
+            return ClusterMember.parse(Files.readString(membersFile));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
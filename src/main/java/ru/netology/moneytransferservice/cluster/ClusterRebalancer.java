@@ -0,0 +1,123 @@
+package ru.netology.moneytransferservice.cluster;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.netology.moneytransferservice.code.ConfirmationCodes;
+import ru.netology.moneytransferservice.model.Operation;
+import ru.netology.moneytransferservice.model.OperationState;
+import ru.netology.moneytransferservice.repository.TransferMoneyRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Передача ожидающих операций новым владельцам после смены состава кластера.
+ * <p>
+ * Операция переводится в MOVED (после этого локально она не подтверждается), передаётся владельцу
+ * вместе с записью кода подтверждения и удаляется здесь после ответа 200. Если владелец недоступен,
+ * операция остаётся в MOVED и передаётся при следующем обходе; если шард снова стал своим -
+ * операция возвращается в PENDING. Обход повторяется, пока находятся чужие операции: переводы,
+ * созданные во время смены состава, могли получить id по прежнему кольцу.
+ * С repository.type=journal приём и удаление переданных операций журналируются до ответа 200 и до удаления
+ * кода, поэтому перезапуск любого из узлов не теряет и не возвращает операцию.
+ * Завершённые операции не передаются, история по ним остаётся на узле, где они завершились.
+ * <p>
+ * Хэш кода подтверждения проверяется ключом confirmation.code.secret, поэтому в кластере ключ обязателен
+ * и одинаков на всех узлах.
+ */
+@Component
+@ConditionalOnProperty(name = "cluster.enabled", havingValue = "true")
+public class ClusterRebalancer {
+
+    private final ClusterMembership membership;
+    private final ClusterClient client;
+    private final TransferMoneyRepository repository;
+    private final ConfirmationCodes confirmationCodes;
+    private long version;
+    private boolean unsettled;
+
+    public ClusterRebalancer(ClusterMembership membership, ClusterClient client,
+                             TransferMoneyRepository repository, ConfirmationCodes confirmationCodes,
+                             @Value("${confirmation.code.secret:}") String codeSecret) {
+        if (codeSecret.isEmpty()) {
+            throw new IllegalStateException("confirmation.code.secret must be set in cluster mode");
+        }
+        this.membership = membership;
+        this.client = client;
+        this.repository = repository;
+        this.confirmationCodes = confirmationCodes;
+        this.version = membership.version();
+    }
+
+    @Scheduled(fixedDelayString = "${cluster.refresh-ms:5000}")
+    public synchronized void rebalance() {
+        long current = membership.version();
+        if (current == version && !unsettled) {
+            return;
+        }
+        version = current;
+        unsettled = rebalanceOnce() > 0;
+    }
+
+    // один обход хранилища, возвращает число найденных чужих операций
+    synchronized int rebalanceOnce() {
+        Map<Integer, List<Operation>> moving = new HashMap<>();
+        int foreign = 0;
+        for (Operation operation : repository.getOperations().values()) {
+            OperationState state = operation.getState();
+            if (state != OperationState.PENDING && state != OperationState.MOVED) {
+                continue;
+            }
+            String operationId = operation.getId();
+            int shard = ClusterMembership.shard(operationId);
+            if (shard < 0) {
+                continue;
+            }
+            int owner = membership.owner(shard);
+            if (owner == membership.self()) {
+                if (state == OperationState.MOVED) {
+                    restore(operation);
+                }
+                continue;
+            }
+            foreign++;
+            if (state == OperationState.MOVED
+                    || repository.changeState(operation, OperationState.PENDING, OperationState.MOVED)) {
+                moving.computeIfAbsent(owner, ignored -> new ArrayList<>()).add(operation);
+            }
+        }
+        for (Map.Entry<Integer, List<Operation>> entry : moving.entrySet()) {
+            send(membership.member(entry.getKey()), entry.getValue());
+        }
+        return foreign;
+    }
+
+    private void send(ClusterMember owner, List<Operation> operations) {
+        List<ClusterClient.Handoff> handoffs = new ArrayList<>(operations.size());
+        for (Operation operation : operations) {
+            String operationId = operation.getId();
+            // владелец получает операцию в PENDING
+            Operation copy = operation.withState(OperationState.PENDING, 0);
+            handoffs.add(new ClusterClient.Handoff(copy, confirmationCodes.export(operationId)));
+        }
+        if (!client.handoff(owner, handoffs)) {
+            return;
+        }
+        List<String> operationIds = new ArrayList<>(operations.size());
+        for (Operation operation : operations) {
+            operationIds.add(operation.getId());
+        }
+        for (Operation operation : repository.release(operationIds)) {
+            confirmationCodes.remove(operation.getId());
+        }
+    }
+
+    // операция остаётся в хранилище и меняет состояние на месте
+    private void restore(Operation operation) {
+        repository.changeState(operation, OperationState.MOVED, OperationState.PENDING);
+    }
+}
@@ -0,0 +1,108 @@
+package ru.netology.moneytransferservice.cluster;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import ru.netology.moneytransferservice.exception.ErrorInputData;
+import ru.netology.moneytransferservice.exception.ErrorNodeUnavailable;
+import ru.netology.moneytransferservice.exception.ErrorTooManyRequests;
+import ru.netology.moneytransferservice.id.OperationIdGenerator;
+import ru.netology.moneytransferservice.model.ConfirmationData;
+import ru.netology.moneytransferservice.model.OperationStatus;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+import ru.netology.moneytransferservice.repository.TransferMoneyRepositoryInterface;
+import ru.netology.moneytransferservice.service.TransferMoneyService;
+import ru.netology.moneytransferservice.service.TransferMoneyServiceInterface;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Сервис переводов в режиме кластера. Перевод всегда создаётся на узле, принявшем запрос, - id операции
+ * из его шардов. Подтверждение выполняет владелец шарда операции: чужие подтверждения пересылаются ему.
+ * Если владелец операции не нашёл (состав кластера сменился, а передача ещё не дошла), он один раз
+ * пересылает подтверждение прежнему владельцу.
+ */
+@Primary
+@Service
+@ConditionalOnProperty(name = "cluster.enabled", havingValue = "true")
+public class ClusteredTransferMoneyService implements TransferMoneyServiceInterface {
+
+    private final TransferMoneyService local;
+    private final TransferMoneyRepositoryInterface repository;
+    private final ClusterMembership membership;
+    private final ClusterClient client;
+    private final OperationIdGenerator idGenerator;
+
+    public ClusteredTransferMoneyService(TransferMoneyService local, TransferMoneyRepositoryInterface repository,
+                                         ClusterMembership membership, ClusterClient client,
+                                         OperationIdGenerator idGenerator) {
+        this.local = local;
+        this.repository = repository;
+        this.membership = membership;
+        this.client = client;
+        this.idGenerator = idGenerator;
+    }
+
+    @Override
+    public OperationStatus transfer(TransferMoneyData transferMoneyData) {
+        return local.transfer(transferMoneyData);
+    }
+
+    @Override
+    public OperationStatus confirm(ConfirmationData confirmationData) throws ErrorInputData {
+        ClusterMember owner = membership.remoteOwner(confirmationData.operationId());
+        if (owner != null) {
+            return client.confirm(owner, confirmationData, false);
+        }
+        return confirmHere(confirmationData, false);
+    }
+
+    /**
+     * Подтверждение, пересланное другим узлом: выполняется здесь, даже если по кольцу этого узла
+     * владелец другой (кольца узлов на время обновления состава могут расходиться), поэтому
+     * пересылки не зацикливаются. fallback - запрос уже пришёл от нового владельца к прежнему.
+     */
+    public OperationStatus confirmHere(ConfirmationData confirmationData, boolean fallback) throws ErrorInputData {
+        if (!fallback && repository.getOperation(confirmationData.operationId()) == null) {
+            ClusterMember previous = membership.previousOwner(confirmationData.operationId());
+            if (previous != null) {
+                return client.confirm(previous, confirmationData, true);
+            }
+        }
+        return local.confirm(confirmationData);
+    }
+
+    @Override
+    public List<OperationStatus> transferBatch(List<TransferMoneyData> transfers) {
+        return local.transferBatch(transfers);
+    }
+
+    // свои подтверждения - одним пакетом (без поиска у прежнего владельца), чужие - по одному запросу к владельцу
+    @Override
+    public List<OperationStatus> confirmBatch(List<ConfirmationData> confirmations) {
+        OperationStatus[] results = new OperationStatus[confirmations.size()];
+        List<ConfirmationData> own = new ArrayList<>(confirmations.size());
+        int[] positions = new int[confirmations.size()];
+        for (int i = 0; i < confirmations.size(); i++) {
+            ConfirmationData confirmationData = confirmations.get(i);
+            ClusterMember owner = membership.remoteOwner(confirmationData.operationId());
+            if (owner == null) {
+                positions[own.size()] = i;
+                own.add(confirmationData);
+                continue;
+            }
+            try {
+                results[i] = client.confirm(owner, confirmationData, false);
+            } catch (ErrorInputData | ErrorTooManyRequests | ErrorNodeUnavailable e) {
+                results[i] = new OperationStatus(idGenerator.nextId(), e.getMessage());
+            }
+        }
+        List<OperationStatus> confirmed = local.confirmBatch(own);
+        for (int i = 0; i < confirmed.size(); i++) {
+            results[positions[i]] = confirmed.get(i);
+        }
+        return Arrays.asList(results);
+    }
+}
@@ -0,0 +1,80 @@
+package ru.netology.moneytransferservice.cluster;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Консистентное хэширование SHARDS шардов по узлам: у каждого узла POINTS точек на кольце, шард принадлежит
+ * узлу первой точки после хэша шарда. При добавлении или удалении узла меняют владельца только шарды,
+ * попавшие на его точки, - в среднем 1/N шардов. Владельцы всех шардов считаются при построении,
+ * поиск владельца - обращение к массиву.
+ */
+public final class HashRing {
+
+    public static final int SHARDS = 1024;
+    private static final int POINTS = 128;
+
+    private final Map<Integer, ClusterMember> members = new HashMap<>();
+    private final int[] owners = new int[SHARDS];
+
+    public HashRing(Collection<ClusterMember> members) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("Cluster has no members");
+        }
+        NavigableMap<Long, Integer> ring = new TreeMap<>();
+        for (ClusterMember member : members) {
+            if (this.members.put(member.id(), member) != null) {
+                throw new IllegalArgumentException("Duplicate node id: " + member.id());
+            }
+            for (int point = 0; point < POINTS; point++) {
+                ring.put(mix((long) member.id() << 32 | point), member.id());
+            }
+        }
+        for (int shard = 0; shard < SHARDS; shard++) {
+            Map.Entry<Long, Integer> owner = ring.ceilingEntry(mix(1L << 62 | shard));
+            owners[shard] = (owner != null ? owner : ring.firstEntry()).getValue();
+        }
+    }
+
+    public int owner(int shard) {
+        return owners[shard];
+    }
+
+    public ClusterMember member(int id) {
+        return members.get(id);
+    }
+
+    public boolean contains(int id) {
+        return members.containsKey(id);
+    }
+
+    public Collection<ClusterMember> members() {
+        return members.values();
+    }
+
+    // шарды узла в порядке возрастания
+    public int[] shardsOf(int id) {
+        int count = 0;
+        for (int owner : owners) {
+            if (owner == id) {
+                count++;
+            }
+        }
+        int[] shards = new int[count];
+        for (int shard = 0, i = 0; shard < SHARDS; shard++) {
+            if (owners[shard] == id) {
+                shards[i++] = shard;
+            }
+        }
+        return shards;
+    }
+
+    private static long mix(long h) {
+        h = (h ^ h >>> 33) * 0xff51afd7ed558ccdL;
+        h = (h ^ h >>> 33) * 0xc4ceb9fe1a85ec53L;
+        return h ^ h >>> 33;
+    }
+}
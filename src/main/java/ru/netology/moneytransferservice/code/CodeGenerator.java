@@ -0,0 +1,8 @@
+package ru.netology.moneytransferservice.code;
+
+/**
+ * Генератор кодов подтверждения (confirmation.code.generator: fixed - по умолчанию, random).
+ */
+public interface CodeGenerator {
+    String generate();
+}
@@ -0,0 +1,14 @@
+package ru.netology.moneytransferservice.code;
+
+/**
+ * Изменения записей кодов подтверждения: выдача кода и неверная попытка. JournaledTransferMoneyRepository
+ * пишет их в журнал, чтобы ожидающие операции можно было подтвердить после перезапуска.
+ */
+public interface CodeJournal {
+
+    CodeJournal NONE = (operationId, entry) -> {
+    };
+
+    // entry - запись {hash1, hash2, meta} после изменения
+    void changed(String operationId, long[] entry);
+}
@@ -0,0 +1,11 @@
+package ru.netology.moneytransferservice.code;
+
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+
+/**
+ * Доставка кода подтверждения владельцу карты (SMS, push и т.п.).
+ * Вызывается из пула ConfirmationCodes, а не из потока запроса, поэтому может блокироваться.
+ */
+public interface CodeNotifier {
+    void send(TransferMoneyData transferMoneyData, String code) throws Exception;
+}
@@ -0,0 +1,234 @@
+package ru.netology.moneytransferservice.code;
+
+import ru.netology.moneytransferservice.code.ConfirmationCodes.Check;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Хэши кодов подтверждения в открытой адресации на примитивных массивах: ключ - 128 бит (две long),
+ * значение - 128 бит хэша кода и слово meta = createdAt << 8 | оставшиеся попытки. Запись занимает
+ * 5 long (40 байт) в одном массиве без объектов на запись. Таблица разбита на полосы по ключу,
+ * у каждой полосы своя блокировка; заполнение полосы не больше 3/4, удаление - сдвигом назад
+ * без надгробий.
+ */
+final class CodeTable {
+
+    private static final int SLOT = 5;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long ATTEMPTS_MASK = 0xFF;
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        // [key1, key2, hash1, hash2, meta] на слот, meta == 0 - слот свободен
+        private long[] slots = new long[INITIAL_CAPACITY * SLOT];
+        private int capacity = INITIAL_CAPACITY;
+        private int size;
+    }
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    CodeTable(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.stripeMask = size - 1;
+    }
+
+    void put(long key1, long key2, long hash1, long hash2, long meta) {
+        Stripe stripe = stripe(key1, key2);
+        stripe.lock.lock();
+        try {
+            int slot = find(stripe, key1, key2);
+            if (slot < 0) {
+                if ((stripe.size + 1) * 4 > stripe.capacity * 3) {
+                    resize(stripe, stripe.capacity * 2);
+                    slot = find(stripe, key1, key2);
+                }
+                slot = -1 - slot;
+                stripe.size++;
+            }
+            int base = slot * SLOT;
+            long[] slots = stripe.slots;
+            slots[base] = key1;
+            slots[base + 1] = key2;
+            slots[base + 2] = hash1;
+            slots[base + 3] = hash2;
+            slots[base + 4] = meta;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Сравнить хэш кода с сохранённым. Сравнение без раннего выхода: время не зависит от того,
+     * в каком бите хэши различаются. Неверный код уменьшает число попыток.
+     */
+    Check check(long key1, long key2, long hash1, long hash2) {
+        Stripe stripe = stripe(key1, key2);
+        stripe.lock.lock();
+        try {
+            int slot = find(stripe, key1, key2);
+            if (slot < 0) {
+                return Check.UNKNOWN;
+            }
+            int base = slot * SLOT;
+            long[] slots = stripe.slots;
+            if (((slots[base + 2] ^ hash1) | (slots[base + 3] ^ hash2)) == 0) {
+                return Check.VALID;
+            }
+            long meta = slots[base + 4];
+            long attempts = (meta & ATTEMPTS_MASK) - 1;
+            if (attempts <= 0) {
+                delete(stripe, slot);
+                return Check.EXHAUSTED;
+            }
+            slots[base + 4] = meta & ~ATTEMPTS_MASK | attempts;
+            return Check.WRONG;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    // {hash1, hash2, meta} или null, если записи нет
+    long[] get(long key1, long key2) {
+        Stripe stripe = stripe(key1, key2);
+        stripe.lock.lock();
+        try {
+            int slot = find(stripe, key1, key2);
+            if (slot < 0) {
+                return null;
+            }
+            int base = slot * SLOT;
+            return new long[]{stripe.slots[base + 2], stripe.slots[base + 3], stripe.slots[base + 4]};
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    boolean remove(long key1, long key2) {
+        Stripe stripe = stripe(key1, key2);
+        stripe.lock.lock();
+        try {
+            int slot = find(stripe, key1, key2);
+            if (slot < 0) {
+                return false;
+            }
+            delete(stripe, slot);
+            return true;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    // удалить записи, созданные раньше cutoff, возвращает количество удалённых
+    int removeOlderThan(long cutoff) {
+        int removed = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                int expired = 0;
+                long[] slots = stripe.slots;
+                for (int base = 4; base < slots.length; base += SLOT) {
+                    if (slots[base] != 0 && slots[base] >>> 8 < cutoff) {
+                        expired++;
+                    }
+                }
+                if (expired > 0) {
+                    // перестроение без просроченных: проще и не дороже, чем удаление сдвигом в цикле
+                    rebuild(stripe, stripe.capacity, cutoff);
+                    removed += expired;
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return removed;
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                size += stripe.size;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    private Stripe stripe(long key1, long key2) {
+        return stripes[(int) (key1 >>> 40) & stripeMask];
+    }
+
+    private static int home(long key1, long key2, int capacity) {
+        return (int) (key2 ^ key1 >>> 20) & (capacity - 1);
+    }
+
+    // индекс слота с ключом или -1 - индекс свободного слота, куда ключ можно вставить
+    private static int find(Stripe stripe, long key1, long key2) {
+        long[] slots = stripe.slots;
+        int mask = stripe.capacity - 1;
+        int slot = home(key1, key2, stripe.capacity);
+        while (true) {
+            int base = slot * SLOT;
+            if (slots[base + 4] == 0) {
+                return -1 - slot;
+            }
+            if (slots[base] == key1 && slots[base + 1] == key2) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    // удаление со сдвигом назад следующих записей цепочки, чтобы поиск не останавливался на дыре
+    private static void delete(Stripe stripe, int slot) {
+        long[] slots = stripe.slots;
+        int mask = stripe.capacity - 1;
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            int base = next * SLOT;
+            if (slots[base + 4] == 0) {
+                break;
+            }
+            int home = home(slots[base], slots[base + 1], stripe.capacity);
+            // запись остаётся на месте, если её домашний слот циклически лежит в (hole, next]
+            boolean between = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if (!between) {
+                System.arraycopy(slots, base, slots, hole * SLOT, SLOT);
+                hole = next;
+            }
+        }
+        int base = hole * SLOT;
+        for (int i = 0; i < SLOT; i++) {
+            slots[base + i] = 0;
+        }
+        stripe.size--;
+    }
+
+    private static void resize(Stripe stripe, int capacity) {
+        rebuild(stripe, capacity, Long.MIN_VALUE);
+    }
+
+    private static void rebuild(Stripe stripe, int capacity, long cutoff) {
+        long[] old = stripe.slots;
+        stripe.slots = new long[capacity * SLOT];
+        stripe.capacity = capacity;
+        stripe.size = 0;
+        for (int base = 0; base < old.length; base += SLOT) {
+            long meta = old[base + 4];
+            if (meta != 0 && meta >>> 8 >= cutoff) {
+                int slot = -1 - find(stripe, old[base], old[base + 1]);
+                System.arraycopy(old, base, stripe.slots, slot * SLOT, SLOT);
+                stripe.size++;
+            }
+        }
+    }
+}
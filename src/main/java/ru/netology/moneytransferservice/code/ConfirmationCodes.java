@@ -0,0 +1,235 @@
+package ru.netology.moneytransferservice.code;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Коды подтверждения операций: выдача, доставка и проверка.
+ * <p>
+ * prepare генерирует код и сохраняет его хэш, deliver ставит доставку в очередь пула
+ * confirmation.notifier.threads: поток запроса /transfer не ждёт CodeNotifier. Сервис вызывает prepare
+ * до сохранения операции, а deliver - после, поэтому код не приходит раньше, чем операция сохранена. Если очередь заполнена, код не доставляется
+ * (счётчик transfer.codes.delivery{result=dropped}), операция истечёт по repository.operation-ttl-ms.
+ * <p>
+ * Код не хранится: в CodeTable лежит HMAC-SHA256(operationId, code) на ключе confirmation.code.secret
+ * (base64; если не задан - случайный ключ процесса), обрезанный до 128 бит. Узлы кластера должны
+ * использовать один ключ, чтобы хэши можно было передавать между ними. Ключ таблицы - 128-битный
+ * хэш operationId (id выдаёт сервер, случайное совпадение ключей на практике исключено). После confirmation.code.max-attempts неверных кодов
+ * запись удаляется, операцию отклоняет сервис. Записи старше repository.operation-ttl-ms удаляются
+ * периодически. Выдача кода, неверные попытки и коды, принятые от других узлов, передаются CodeJournal (repository.type=journal пишет их
+ * в журнал и снимок и восстанавливает через adopt), поэтому при том же confirmation.code.secret ожидающие
+ * операции можно подтвердить и после перезапуска.
+ */
+@Component
+public class ConfirmationCodes {
+
+    public enum Check {
+        VALID,
+        WRONG,
+        // неверный код, попытки исчерпаны, запись удалена
+        EXHAUSTED,
+        // кода для операции нет: не выдавался, уже удалён или просрочен
+        UNKNOWN
+    }
+
+    private static final String HMAC = "HmacSHA256";
+
+    private final CodeGenerator generator;
+    private final CodeNotifier notifier;
+    private final int maxAttempts;
+    private final long ttlMs;
+    private final CodeTable table = new CodeTable(64);
+    private final SecretKeySpec secret;
+    private final ThreadLocal<Mac> mac;
+    private final ThreadPoolExecutor delivery;
+    private volatile CodeJournal journal = CodeJournal.NONE;
+
+    private final Counter sent;
+    private final Counter failed;
+    private final Counter dropped;
+
+    public ConfirmationCodes(CodeGenerator generator, CodeNotifier notifier,
+                             @Value("${confirmation.code.secret:}") String secret,
+                             @Value("${confirmation.code.max-attempts:3}") int maxAttempts,
+                             @Value("${repository.operation-ttl-ms}") long ttlMs,
+                             @Value("${confirmation.notifier.threads:2}") int threads,
+                             @Value("${confirmation.notifier.queue-capacity:10000}") int queueCapacity,
+                             MeterRegistry meterRegistry) {
+        if (maxAttempts < 1 || maxAttempts > 255) {
+            throw new IllegalArgumentException("Max attempts must be between 1 and 255: " + maxAttempts);
+        }
+        this.generator = generator;
+        this.notifier = notifier;
+        this.maxAttempts = maxAttempts;
+        this.ttlMs = ttlMs;
+
+        byte[] key;
+        if (secret.isEmpty()) {
+            key = new byte[32];
+            new SecureRandom().nextBytes(key);
+        } else {
+            key = Base64.getDecoder().decode(secret);
+        }
+        this.secret = new SecretKeySpec(key, HMAC);
+        this.mac = ThreadLocal.withInitial(this::newMac);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.delivery = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "code-notifier-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, (runnable, executor) -> this.droppedDelivery());
+
+        this.sent = Counter.builder("transfer.codes.delivery").tag("result", "sent").register(meterRegistry);
+        this.failed = Counter.builder("transfer.codes.delivery").tag("result", "failed").register(meterRegistry);
+        this.dropped = Counter.builder("transfer.codes.delivery").tag("result", "dropped").register(meterRegistry);
+        Gauge.builder("transfer.codes.size", table, CodeTable::size).register(meterRegistry);
+    }
+
+    // фиксированный код без доставки, для тестов и бенчмарков
+    public static ConfirmationCodes fixed(String code) {
+        return new ConfirmationCodes(() -> code, (transferMoneyData, ignored) -> {
+        }, "", 3, Long.MAX_VALUE / 2, 1, 1, new SimpleMeterRegistry());
+    }
+
+    // выдать код операции transferMoneyData.getId(), доставка - асинхронно
+    public void issue(TransferMoneyData transferMoneyData) {
+        deliver(transferMoneyData, prepare(transferMoneyData.getId()));
+    }
+
+    // сгенерировать код операции и сохранить его хэш, возвращает код для deliver
+    public String prepare(String operationId) {
+        String code = generator.generate();
+        long[] hash = hash(operationId, code);
+        long meta = System.currentTimeMillis() << 8 | maxAttempts;
+        table.put(key1(operationId), key2(operationId), hash[0], hash[1], meta);
+        journal.changed(operationId, new long[]{hash[0], hash[1], meta});
+        return code;
+    }
+
+    public void deliver(TransferMoneyData transferMoneyData, String code) {
+        delivery.execute(() -> send(transferMoneyData, code));
+    }
+
+    public Check check(String operationId, String code) {
+        long[] hash = hash(operationId, code == null ? "" : code);
+        Check check = table.check(key1(operationId), key2(operationId), hash[0], hash[1]);
+        CodeJournal current = journal;
+        if (check == Check.WRONG && current != CodeJournal.NONE) {
+            long[] entry = export(operationId);
+            if (entry != null) {
+                current.changed(operationId, entry);
+            }
+        }
+        return check;
+    }
+
+    // код больше не нужен: операция завершена
+    public void remove(String operationId) {
+        table.remove(key1(operationId), key2(operationId));
+    }
+
+    // сохранённая запись кода {hash1, hash2, meta} для передачи операции другому узлу, null - кода нет
+    public long[] export(String operationId) {
+        return table.get(key1(operationId), key2(operationId));
+    }
+
+    // запись кода, принятая от другого узла кластера или из журнала при восстановлении
+    public void adopt(String operationId, long[] entry) {
+        table.put(key1(operationId), key2(operationId), entry[0], entry[1], entry[2]);
+        journal.changed(operationId, entry);
+    }
+
+    // куда передавать изменения записей; хранилище задаёт его после восстановления кодов
+    public void setJournal(CodeJournal journal) {
+        this.journal = journal;
+    }
+
+    public int size() {
+        return table.size();
+    }
+
+    @Scheduled(fixedDelayString = "${repository.sweep-interval-ms}")
+    public void evictExpired() {
+        table.removeOlderThan(System.currentTimeMillis() - ttlMs);
+    }
+
+    @PreDestroy
+    public void close() {
+        delivery.shutdown();
+    }
+
+    private void send(TransferMoneyData transferMoneyData, String code) {
+        try {
+            notifier.send(transferMoneyData, code);
+            sent.increment();
+        } catch (Exception e) {
+            failed.increment();
+        }
+    }
+
+    private void droppedDelivery() {
+        dropped.increment();
+    }
+
+    private long[] hash(String operationId, String code) {
+        Mac hmac = mac.get();
+        hmac.update(operationId.getBytes(StandardCharsets.UTF_8));
+        hmac.update((byte) 0);
+        ByteBuffer digest = ByteBuffer.wrap(hmac.doFinal(code.getBytes(StandardCharsets.UTF_8)));
+        return new long[]{digest.getLong(), digest.getLong()};
+    }
+
+    private Mac newMac() {
+        try {
+            Mac hmac = Mac.getInstance(HMAC);
+            hmac.init(secret);
+            return hmac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // две независимые 64-битные функции от operationId: FNV-1a и полиномиальный хэш, оба с перемешиванием
+    private static long key1(String operationId) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < operationId.length(); i++) {
+            h = (h ^ operationId.charAt(i)) * 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long key2(String operationId) {
+        long h = 0;
+        for (int i = 0; i < operationId.length(); i++) {
+            h = h * 0x9E3779B97F4A7C15L + operationId.charAt(i);
+        }
+        return mix(h ^ operationId.length());
+    }
+
+    private static long mix(long h) {
+        h = (h ^ h >>> 33) * 0xff51afd7ed558ccdL;
+        h = (h ^ h >>> 33) * 0xc4ceb9fe1a85ec53L;
+        return h ^ h >>> 33;
+    }
+}
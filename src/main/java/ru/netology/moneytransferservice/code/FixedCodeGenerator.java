@@ -0,0 +1,24 @@
+package ru.netology.moneytransferservice.code;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Один и тот же код для всех операций: FRONT из описания проекта всегда отправляет 0000.
+ */
+@Component
+@ConditionalOnProperty(name = "confirmation.code.generator", havingValue = "fixed", matchIfMissing = true)
+public class FixedCodeGenerator implements CodeGenerator {
+
+    private final String code;
+
+    public FixedCodeGenerator(@Value("${confirmation.code.fixed:0000}") String code) {
+        this.code = code;
+    }
+
+    @Override
+    public String generate() {
+        return code;
+    }
+}
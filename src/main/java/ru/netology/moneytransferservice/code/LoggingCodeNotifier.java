@@ -0,0 +1,26 @@
+package ru.netology.moneytransferservice.code;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.netology.moneytransferservice.logger.AuditRecord;
+import ru.netology.moneytransferservice.logger.LoggerInterface;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+
+/**
+ * Заглушка для локального запуска (confirmation.notifier=log): в лог переводов пишется только id операции,
+ * для которой код выдан, сам код не пишется никуда (локально он задаётся confirmation.code.fixed).
+ * В рабочем окружении заменяется реализацией CodeNotifier, отправляющей код владельцу карты.
+ */
+@RequiredArgsConstructor
+@Component
+@ConditionalOnProperty(name = "confirmation.notifier", havingValue = "log", matchIfMissing = true)
+public class LoggingCodeNotifier implements CodeNotifier {
+
+    private final LoggerInterface logger;
+
+    @Override
+    public void send(TransferMoneyData transferMoneyData, String code) {
+        logger.tryLog(AuditRecord.of("code").field("id", transferMoneyData.getId()).build());
+    }
+}
@@ -0,0 +1,36 @@
+package ru.netology.moneytransferservice.code;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+
+/**
+ * Случайный код из confirmation.code.length цифр. SecureRandom свой у каждого потока,
+ * чтобы выдача кодов не конкурировала за один генератор.
+ */
+@Component
+@ConditionalOnProperty(name = "confirmation.code.generator", havingValue = "random")
+public class RandomCodeGenerator implements CodeGenerator {
+
+    private final ThreadLocal<SecureRandom> random = ThreadLocal.withInitial(SecureRandom::new);
+    private final int length;
+
+    public RandomCodeGenerator(@Value("${confirmation.code.length:6}") int length) {
+        if (length < 1 || length > 18) {
+            throw new IllegalArgumentException("Code length must be between 1 and 18: " + length);
+        }
+        this.length = length;
+    }
+
+    @Override
+    public String generate() {
+        SecureRandom secureRandom = random.get();
+        char[] digits = new char[length];
+        for (int i = 0; i < length; i++) {
+            digits[i] = (char) ('0' + secureRandom.nextInt(10));
+        }
+        return new String(digits);
+    }
+}
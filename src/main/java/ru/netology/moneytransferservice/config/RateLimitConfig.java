@@ -0,0 +1,70 @@
+package ru.netology.moneytransferservice.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ru.netology.moneytransferservice.exception.ErrorTooManyRequests;
+import ru.netology.moneytransferservice.ratelimit.ClientKeyResolver;
+import ru.netology.moneytransferservice.ratelimit.RateLimiter;
+import ru.netology.moneytransferservice.ratelimit.RateLimits;
+
+/**
+ * Лимиты частоты запросов (rate-limit.*, limit=0 - без ограничения).
+ * Лимит по клиенту проверяется в HandlerInterceptor до чтения тела запроса; исключение из него
+ * обрабатывается ExceptionHandlerAdvice так же, как исключения контроллеров. По умолчанию он выключен:
+ * ключ клиента - адрес соединения, за прокси он у всех общий, и тогда нужен rate-limit.client.header
+ * (см. ClientKeyResolver).
+ * Лимиты по карте и по операции проверяет сервис.
+ */
+@Configuration
+public class RateLimitConfig implements WebMvcConfigurer {
+
+    private final RateLimits rateLimits;
+    private final ClientKeyResolver clientKeyResolver;
+
+    public RateLimitConfig(@Value("${rate-limit.card.limit:0}") int cardLimit,
+                           @Value("${rate-limit.card.period-ms:60000}") long cardPeriodMs,
+                           @Value("${rate-limit.confirmation.limit:0}") int confirmationLimit,
+                           @Value("${rate-limit.confirmation.period-ms:60000}") long confirmationPeriodMs,
+                           @Value("${rate-limit.client.limit:0}") int clientLimit,
+                           @Value("${rate-limit.client.period-ms:1000}") long clientPeriodMs,
+                           @Value("${rate-limit.client.header:}") String clientHeader,
+                           @Value("${rate-limit.max-keys:100000}") int maxKeys) {
+        this.rateLimits = new RateLimits(
+                new RateLimiter(cardLimit, cardPeriodMs, maxKeys),
+                new RateLimiter(confirmationLimit, confirmationPeriodMs, maxKeys),
+                new RateLimiter(clientLimit, clientPeriodMs, maxKeys));
+        this.clientKeyResolver = new ClientKeyResolver(clientHeader);
+    }
+
+    @Bean
+    public RateLimits rateLimits() {
+        return rateLimits;
+    }
+
+    @Bean
+    public ClientKeyResolver clientKeyResolver() {
+        return clientKeyResolver;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        RateLimiter client = rateLimits.getClient();
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                long retryAfter = client.acquire(clientKeyResolver.resolve(request));
+                if (retryAfter > 0) {
+                    throw new ErrorTooManyRequests("Too many requests!", retryAfter);
+                }
+                return true;
+            }
+        }).addPathPatterns("/transfer", "/confirmOperation", "/transfer/batch", "/confirmOperation/batch",
+                "/operations", "/operations/stream");
+    }
+}
@@ -0,0 +1,38 @@
+package ru.netology.moneytransferservice.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Обработка запросов Tomcat на виртуальных потоках (transfer.virtual-threads.enabled=true).
+ * Требует Java 21+ (сборка с профилем -Pjava21). Фабрика виртуальных потоков получается через reflection,
+ * чтобы сборка по умолчанию оставалась на Java 17.
+ * Блокирующие участки логгера и хранилища используют ReentrantLock/LockSupport, а не synchronized,
+ * поэтому не закрепляют виртуальный поток на потоке-носителе.
+ */
+@Configuration
+@ConditionalOnProperty(name = "transfer.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadsConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Virtual threads require Java 21+, current: "
+                    + Runtime.version().feature(), e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package ru.netology.moneytransferservice.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import ru.netology.moneytransferservice.model.ConfirmationData;
+import ru.netology.moneytransferservice.model.OperationStatus;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+import ru.netology.moneytransferservice.service.AsyncTransferMoneyServiceInterface;
+import ru.netology.moneytransferservice.validation.TransferValidator;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Тот же контракт /transfer и /confirmOperation на асинхронных запросах Servlet (transfer.stack=async):
+ * поток Tomcat освобождается сразу после вызова сервиса, ответ отправляется по завершении future.
+ * Валидация и ошибки (в том числе из future) обрабатываются ExceptionHandlerAdvice как и раньше.
+ */
+@RequiredArgsConstructor
+@CrossOrigin(origins = "${myapp.allowed.origin}")
+@RestController
+@ConditionalOnProperty(name = "transfer.stack", havingValue = "async")
+public class AsyncTransferMoneyController implements AsyncTransferMoneyControllerInterface {
+
+    private final AsyncTransferMoneyServiceInterface transferMoneyService;
+    private final TransferValidator validator;
+
+    @Override
+    @PostMapping("/transfer")
+    public CompletableFuture<ResponseEntity<OperationStatus>> transfer(
+            @RequestBody TransferMoneyData transferMoneyData) {
+        validator.check(transferMoneyData);
+        return transferMoneyService.transfer(transferMoneyData)
+                .thenApply(operationStatus -> new ResponseEntity<>(operationStatus, HttpStatus.OK));
+    }
+
+    @Override
+    @PostMapping("/confirmOperation")
+    public CompletableFuture<ResponseEntity<OperationStatus>> confirmOperation(
+            @RequestBody ConfirmationData confirmationData) {
+        return transferMoneyService.confirm(confirmationData)
+                .thenApply(operationStatus -> new ResponseEntity<>(operationStatus, HttpStatus.OK));
+    }
+}
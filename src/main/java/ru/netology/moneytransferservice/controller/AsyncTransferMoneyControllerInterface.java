@@ -0,0 +1,14 @@
+package ru.netology.moneytransferservice.controller;
+
+import org.springframework.http.ResponseEntity;
+import ru.netology.moneytransferservice.model.ConfirmationData;
+import ru.netology.moneytransferservice.model.OperationStatus;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface AsyncTransferMoneyControllerInterface {
+    CompletableFuture<ResponseEntity<OperationStatus>> transfer(TransferMoneyData transferMoneyData);
+
+    CompletableFuture<ResponseEntity<OperationStatus>> confirmOperation(ConfirmationData confirmationData);
+}
@@ -0,0 +1,174 @@
+package ru.netology.moneytransferservice.controller;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.netology.moneytransferservice.id.OperationIdGenerator;
+import ru.netology.moneytransferservice.metrics.TransferMetrics;
+import ru.netology.moneytransferservice.metrics.TransferMetrics.Outcome;
+import ru.netology.moneytransferservice.model.ConfirmationData;
+import ru.netology.moneytransferservice.model.OperationStatus;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+import ru.netology.moneytransferservice.model.ValidationMessages;
+import ru.netology.moneytransferservice.service.TransferMoneyServiceInterface;
+import ru.netology.moneytransferservice.validation.TransferValidator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Пакетные /transfer/batch и /confirmOperation/batch. Тело запроса - JSON-массив или NDJSON,
+ * читается потоком и обрабатывается порциями по CHUNK_SIZE элементов: проверка всей порции,
+ * одно сохранение порции в хранилище, запись результатов в ответ (NDJSON, по строке на элемент
+ * в исходном порядке). Ни запрос, ни ответ целиком в памяти не держатся.
+ */
+@CrossOrigin(origins = "${myapp.allowed.origin}")
+@RestController
+public class BatchTransferMoneyController implements BatchTransferMoneyControllerInterface {
+
+    private static final int CHUNK_SIZE = 1000;
+    private static final byte[] NEW_LINE = {'\n'};
+
+    private final TransferMoneyServiceInterface transferMoneyService;
+    private final TransferValidator validator;
+    private final TransferMetrics metrics;
+    private final OperationIdGenerator idGenerator;
+    private final ObjectReader transferReader;
+    private final ObjectReader confirmationReader;
+    private final ObjectWriter statusWriter;
+
+    public BatchTransferMoneyController(TransferMoneyServiceInterface transferMoneyService,
+                                        TransferValidator validator, ObjectMapper objectMapper, TransferMetrics metrics,
+                                        OperationIdGenerator idGenerator) {
+        this.transferMoneyService = transferMoneyService;
+        this.validator = validator;
+        this.metrics = metrics;
+        this.idGenerator = idGenerator;
+        this.transferReader = objectMapper.readerFor(TransferMoneyData.class);
+        this.confirmationReader = objectMapper.readerFor(ConfirmationData.class);
+        this.statusWriter = objectMapper.writerFor(OperationStatus.class);
+    }
+
+    @Override
+    @PostMapping(value = "/transfer/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> transferBatch(InputStream body) {
+        StreamingResponseBody response = out -> process(transferReader, body, out, this::transferChunk);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(response);
+    }
+
+    @Override
+    @PostMapping(value = "/confirmOperation/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> confirmOperationBatch(InputStream body) {
+        StreamingResponseBody response = out -> process(confirmationReader, body, out, this::confirmChunk);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(response);
+    }
+
+    // элементы читаются через ObjectReader.readValue: в отличие от MappingIterator, он превращает null в null,
+    // а не передаёт его десериализатору класса
+    private <T> void process(ObjectReader reader, InputStream body, OutputStream out,
+                             Function<List<T>, List<OperationStatus>> handler) throws IOException {
+        try (JsonParser parser = reader.createParser(body)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                token = parser.nextToken();
+            }
+            List<T> chunk = new ArrayList<>(CHUNK_SIZE);
+            while (token != null && token != JsonToken.END_ARRAY) {
+                chunk.add(reader.readValue(parser));
+                if (chunk.size() == CHUNK_SIZE) {
+                    write(handler.apply(chunk), out);
+                    chunk.clear();
+                }
+                token = parser.nextToken();
+            }
+            if (!chunk.isEmpty()) {
+                write(handler.apply(chunk), out);
+            }
+        }
+    }
+
+    private List<OperationStatus> transferChunk(List<TransferMoneyData> chunk) {
+        OperationStatus[] results = new OperationStatus[chunk.size()];
+        List<TransferMoneyData> valid = new ArrayList<>(chunk.size());
+        int[] positions = new int[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+            TransferMoneyData transferMoneyData = chunk.get(i);
+            String errors = transferMoneyData == null
+                    ? ValidationMessages.TRANSFER_EMPTY + " "
+                    : validator.validate(transferMoneyData);
+            if (errors.isEmpty()) {
+                positions[valid.size()] = i;
+                valid.add(transferMoneyData);
+            } else {
+                results[i] = new OperationStatus(idGenerator.nextId(), errors);
+            }
+        }
+        metrics.transfers(Outcome.VALIDATION_FAILED, chunk.size() - valid.size());
+        List<OperationStatus> saved = transferMoneyService.transferBatch(valid);
+        for (int i = 0; i < saved.size(); i++) {
+            results[positions[i]] = saved.get(i);
+        }
+        return List.of(results);
+    }
+
+    // пустое подтверждение или без полей не доходит до сервиса: иначе лимит частоты отклонил бы его без ключа
+    private List<OperationStatus> confirmChunk(List<ConfirmationData> chunk) {
+        OperationStatus[] results = new OperationStatus[chunk.size()];
+        List<ConfirmationData> valid = new ArrayList<>(chunk.size());
+        int[] positions = new int[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+            ConfirmationData confirmationData = chunk.get(i);
+            String errors = validate(confirmationData);
+            if (errors.isEmpty()) {
+                positions[valid.size()] = i;
+                valid.add(confirmationData);
+            } else {
+                results[i] = new OperationStatus(idGenerator.nextId(), errors);
+            }
+        }
+        metrics.confirms(Outcome.VALIDATION_FAILED, chunk.size() - valid.size());
+        List<OperationStatus> saved = transferMoneyService.confirmBatch(valid);
+        for (int i = 0; i < saved.size(); i++) {
+            results[positions[i]] = saved.get(i);
+        }
+        return List.of(results);
+    }
+
+    private static String validate(ConfirmationData confirmationData) {
+        if (confirmationData == null) {
+            return ValidationMessages.CONFIRMATION_EMPTY + " ";
+        }
+        StringBuilder errors = new StringBuilder();
+        if (confirmationData.operationId() == null || confirmationData.operationId().isBlank()) {
+            errors.append(ValidationMessages.OPERATION_ID_BLANK).append(" ");
+        }
+        if (confirmationData.code() == null || confirmationData.code().isBlank()) {
+            errors.append(ValidationMessages.CODE_BLANK).append(" ");
+        }
+        return errors.toString();
+    }
+
+    private void write(List<OperationStatus> statuses, OutputStream out) throws IOException {
+        for (OperationStatus status : statuses) {
+            out.write(statusWriter.writeValueAsBytes(status));
+            out.write(NEW_LINE);
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,12 @@
+package ru.netology.moneytransferservice.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+
+public interface BatchTransferMoneyControllerInterface {
+    ResponseEntity<StreamingResponseBody> transferBatch(InputStream body);
+
+    ResponseEntity<StreamingResponseBody> confirmOperationBatch(InputStream body);
+}
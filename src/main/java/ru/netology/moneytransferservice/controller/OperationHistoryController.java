@@ -0,0 +1,75 @@
+package ru.netology.moneytransferservice.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.netology.moneytransferservice.exception.ErrorInputData;
+import ru.netology.moneytransferservice.model.OperationPage;
+import ru.netology.moneytransferservice.model.OperationView;
+import ru.netology.moneytransferservice.service.OperationHistoryServiceInterface;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * История операций: GET /operations - страница JSON с курсором следующей страницы,
+ * GET /operations/stream - все подходящие операции построчно в NDJSON по мере обхода индекса,
+ * без сборки ответа в памяти. Условия: card (обязательно), status, from и to (мс, [from, to)), cursor.
+ */
+@CrossOrigin(origins = "${myapp.allowed.origin}")
+@RestController
+public class OperationHistoryController implements OperationHistoryControllerInterface {
+
+    private static final byte[] NEW_LINE = {'\n'};
+    private static final int FLUSH_EVERY = 1000;
+
+    private final OperationHistoryServiceInterface historyService;
+    private final ObjectWriter viewWriter;
+
+    public OperationHistoryController(OperationHistoryServiceInterface historyService, ObjectMapper objectMapper) {
+        this.historyService = historyService;
+        this.viewWriter = objectMapper.writerFor(OperationView.class);
+    }
+
+    @Override
+    @GetMapping(value = "/operations", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<OperationPage> operations(@RequestParam(required = false) String card,
+                                                    @RequestParam(required = false) String status,
+                                                    @RequestParam(required = false) Long from,
+                                                    @RequestParam(required = false) Long to,
+                                                    @RequestParam(required = false) String cursor,
+                                                    @RequestParam(required = false) Integer limit) throws ErrorInputData {
+        return ResponseEntity.ok(historyService.history(card, status, from, to, cursor, limit));
+    }
+
+    // условия проверяются до начала ответа, чтобы ошибка вернулась статусом 400, а не оборванным потоком
+    @Override
+    @GetMapping(value = "/operations/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> operationsStream(@RequestParam(required = false) String card,
+                                                                  @RequestParam(required = false) String status,
+                                                                  @RequestParam(required = false) Long from,
+                                                                  @RequestParam(required = false) Long to,
+                                                                  @RequestParam(required = false) String cursor)
+            throws ErrorInputData {
+        Stream<OperationView> operations = historyService.stream(card, status, from, to, cursor);
+        StreamingResponseBody response = out -> {
+            Iterator<OperationView> iterator = operations.iterator();
+            int written = 0;
+            while (iterator.hasNext()) {
+                out.write(viewWriter.writeValueAsBytes(iterator.next()));
+                out.write(NEW_LINE);
+                if (++written % FLUSH_EVERY == 0) {
+                    out.flush();
+                }
+            }
+            out.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(response);
+    }
+}
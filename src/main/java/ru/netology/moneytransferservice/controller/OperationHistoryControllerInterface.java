@@ -0,0 +1,14 @@
+package ru.netology.moneytransferservice.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.netology.moneytransferservice.exception.ErrorInputData;
+import ru.netology.moneytransferservice.model.OperationPage;
+
+public interface OperationHistoryControllerInterface {
+    ResponseEntity<OperationPage> operations(String card, String status, Long from, Long to, String cursor,
+                                             Integer limit) throws ErrorInputData;
+
+    ResponseEntity<StreamingResponseBody> operationsStream(String card, String status, Long from, Long to,
+                                                           String cursor) throws ErrorInputData;
+}
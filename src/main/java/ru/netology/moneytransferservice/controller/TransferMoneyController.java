@@ -1,33 +1,89 @@
 package ru.netology.moneytransferservice.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 import ru.netology.moneytransferservice.exception.ErrorInputData;
+import ru.netology.moneytransferservice.model.Amount;
 import ru.netology.moneytransferservice.model.ConfirmationData;
 import ru.netology.moneytransferservice.model.OperationStatus;
 import ru.netology.moneytransferservice.model.TransferMoneyData;
+import ru.netology.moneytransferservice.ratelimit.ClientKeyResolver;
+import ru.netology.moneytransferservice.service.IdempotencyCache;
 import ru.netology.moneytransferservice.service.TransferMoneyServiceInterface;
+import ru.netology.moneytransferservice.validation.TransferValidator;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 @RequiredArgsConstructor
 @CrossOrigin(origins = "${myapp.allowed.origin}")
 @RestController
+@ConditionalOnProperty(name = "transfer.stack", havingValue = "servlet", matchIfMissing = true)
 public class TransferMoneyController implements TransferMoneyControllerInterface {
 
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
     private final TransferMoneyServiceInterface transferMoneyService;
+    private final IdempotencyCache idempotencyCache;
+    private final TransferValidator validator;
+    private final ClientKeyResolver clientKeyResolver;
 
+    // валидация вручную, а не через @Validated: повтор по Idempotency-Key не должен валидироваться заново
     @Override
     @PostMapping("/transfer")
-    public ResponseEntity<OperationStatus> transfer(@Validated @RequestBody TransferMoneyData transferMoneyData) throws ErrorInputData {
-        OperationStatus operationStatus = transferMoneyService.transfer(transferMoneyData);
+    public ResponseEntity<OperationStatus> transfer(@RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                    @RequestBody TransferMoneyData transferMoneyData,
+                                                    HttpServletRequest request) throws ErrorInputData {
+        OperationStatus operationStatus = idempotencyKey == null
+                ? validateAndTransfer(transferMoneyData)
+                : idempotencyCache.execute(clientKeyResolver.resolve(request), idempotencyKey,
+                fingerprint(transferMoneyData), () -> validateAndTransfer(transferMoneyData));
         return new ResponseEntity<>(operationStatus, HttpStatus.OK);
     }
 
+    private OperationStatus validateAndTransfer(TransferMoneyData transferMoneyData) {
+        validator.check(transferMoneyData);
+        return transferMoneyService.transfer(transferMoneyData);
+    }
+
+    // SHA-256 полей тела запроса, каждое с длиной, чтобы значения не сливались; CVV в кэше есть только в хэше
+    private static byte[] fingerprint(TransferMoneyData transferMoneyData) {
+        MessageDigest digest = SHA_256.get();
+        update(digest, transferMoneyData.getCardFromNumber());
+        update(digest, transferMoneyData.getCardFromValidTill());
+        update(digest, transferMoneyData.getCardFromCVV());
+        update(digest, transferMoneyData.getCardToNumber());
+        Amount amount = transferMoneyData.getAmount();
+        update(digest, amount == null || amount.value() == null ? null : amount.value().toString());
+        update(digest, amount == null ? null : amount.currency());
+        return digest.digest();
+    }
+
+    // null и пустая строка различаются: длина -1 и 0
+    private static void update(MessageDigest digest, String field) {
+        byte[] bytes = field == null ? new byte[0] : field.getBytes(StandardCharsets.UTF_8);
+        int length = field == null ? -1 : bytes.length;
+        digest.update(new byte[]{(byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length});
+        digest.update(bytes);
+    }
+
     @Override
     @PostMapping("/confirmOperation")
     public ResponseEntity<OperationStatus> confirmOperation(@RequestBody ConfirmationData confirmationData) throws ErrorInputData {
@@ -1,5 +1,6 @@
 package ru.netology.moneytransferservice.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.ResponseEntity;
 import ru.netology.moneytransferservice.exception.ErrorInputData;
 import ru.netology.moneytransferservice.model.ConfirmationData;
@@ -7,7 +8,8 @@ import ru.netology.moneytransferservice.model.OperationStatus;
 import ru.netology.moneytransferservice.model.TransferMoneyData;
 
 public interface TransferMoneyControllerInterface {
-    ResponseEntity<OperationStatus> transfer(TransferMoneyData transferMoneyData) throws ErrorInputData;
+    ResponseEntity<OperationStatus> transfer(String idempotencyKey, TransferMoneyData transferMoneyData,
+                                             HttpServletRequest request) throws ErrorInputData;
 
     ResponseEntity<OperationStatus> confirmOperation(ConfirmationData confirmationData) throws ErrorInputData;
 }
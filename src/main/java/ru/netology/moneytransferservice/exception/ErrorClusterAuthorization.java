@@ -0,0 +1,11 @@
+package ru.netology.moneytransferservice.exception;
+
+/**
+ * Узел кластера отклонил X-Cluster-Token (403): cluster.secret на узлах не совпадает. Повтор не поможет,
+ * поэтому ExceptionHandlerAdvice отвечает 500, а не 503, как на недоступный узел.
+ */
+public class ErrorClusterAuthorization extends RuntimeException {
+    public ErrorClusterAuthorization(String message) {
+        super(message, null, false, false);
+    }
+}
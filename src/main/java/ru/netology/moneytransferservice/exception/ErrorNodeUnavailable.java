@@ -0,0 +1,11 @@
+package ru.netology.moneytransferservice.exception;
+
+/**
+ * Узел кластера, которому принадлежит операция, не ответил. ExceptionHandlerAdvice отвечает 503:
+ * запрос можно повторить, в том числе через другой узел.
+ */
+public class ErrorNodeUnavailable extends RuntimeException {
+    public ErrorNodeUnavailable(String message) {
+        super(message, null, false, false);
+    }
+}
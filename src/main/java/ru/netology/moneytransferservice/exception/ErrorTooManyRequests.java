@@ -0,0 +1,19 @@
+package ru.netology.moneytransferservice.exception;
+
+import lombok.Getter;
+
+/**
+ * Превышен лимит частоты запросов, ExceptionHandlerAdvice отвечает 429 с заголовком Retry-After.
+ * Непроверяемое: выбрасывается из transfer(), у которого в контракте нет проверяемых исключений.
+ * Как и остальные ошибки бизнес-логики, без стека вызовов.
+ */
+@Getter
+public class ErrorTooManyRequests extends RuntimeException {
+
+    private final long retryAfterNanos;
+
+    public ErrorTooManyRequests(String message, long retryAfterNanos) {
+        super(message, null, false, false);
+        this.retryAfterNanos = retryAfterNanos;
+    }
+}
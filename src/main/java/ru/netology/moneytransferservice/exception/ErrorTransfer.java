@@ -1,7 +1,8 @@
 package ru.netology.moneytransferservice.exception;
 
+// ожидаемая ошибка бизнес-логики: без стека вызовов, его заполнение дороже самой обработки
 public class ErrorTransfer extends Exception {
     public ErrorTransfer(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
@@ -0,0 +1,11 @@
+package ru.netology.moneytransferservice.exception;
+
+/**
+ * Перевод не прошёл TransferValidator, сообщение - тексты нарушений. ExceptionHandlerAdvice отвечает 400
+ * так же, как на нарушения Bean Validation.
+ */
+public class ErrorValidation extends RuntimeException {
+    public ErrorValidation(String message) {
+        super(message, null, false, false);
+    }
+}
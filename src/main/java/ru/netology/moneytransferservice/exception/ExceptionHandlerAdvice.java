@@ -1,58 +1,115 @@
 package ru.netology.moneytransferservice.exception;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
-import ru.netology.moneytransferservice.logger.Logger;
+import ru.netology.moneytransferservice.id.OperationIdGenerator;
+import ru.netology.moneytransferservice.logger.AuditRecord;
+import ru.netology.moneytransferservice.logger.LoggerInterface;
+import ru.netology.moneytransferservice.metrics.TransferMetrics;
+import ru.netology.moneytransferservice.metrics.TransferMetrics.Outcome;
+import ru.netology.moneytransferservice.metrics.TransferMetrics.Reason;
 import ru.netology.moneytransferservice.model.OperationStatus;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
+@RequiredArgsConstructor
 @RestControllerAdvice
 public class ExceptionHandlerAdvice {
 
-    private final String LOGGER_PATH = "logs/prgLogs.txt.";
-    private final Logger logger = new Logger(LOGGER_PATH);
+    private final LoggerInterface logger;
+    private final TransferMetrics metrics;
+    private final OperationIdGenerator idGenerator;
 
     @ExceptionHandler
     public ResponseEntity<OperationStatus> handleMethodArgumentNotValidException(MethodArgumentNotValidException e) {
-        String id = String.valueOf(UUID.randomUUID());
-
         StringBuilder description = new StringBuilder();
         for (FieldError fieldError : e.getFieldErrors()) {
             description.append(fieldError.getDefaultMessage()).append(" ");
         }
+        return validationFailed(e, description.toString());
+    }
+
+    // TransferValidator в контроллерах /transfer
+    @ExceptionHandler
+    public ResponseEntity<OperationStatus> handleErrorValidation(ErrorValidation e) {
+        return validationFailed(e, e.getMessage());
+    }
+
+    // Bean Validation вне контроллеров /transfer
+    @ExceptionHandler
+    public ResponseEntity<OperationStatus> handleConstraintViolationException(ConstraintViolationException e) {
+        StringBuilder description = new StringBuilder();
+        for (ConstraintViolation<?> violation : e.getConstraintViolations()) {
+            description.append(violation.getMessage()).append(" ");
+        }
+        return validationFailed(e, description.toString());
+    }
 
-        logger.log("Date | " + LocalDateTime.now().format(
-                DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss")) + "\n"
-                + "Status | " + description + "\n");
+    private ResponseEntity<OperationStatus> validationFailed(Exception e, String message) {
+        log(HttpStatus.BAD_REQUEST, message);
+        metrics.transfers(Outcome.VALIDATION_FAILED, 1);
+        metrics.error(e, Reason.VALIDATION);
 
-        return new ResponseEntity<>(new OperationStatus(id, description.toString()), HttpStatus.BAD_REQUEST);
+        return new ResponseEntity<>(new OperationStatus(idGenerator.nextId(), message), HttpStatus.BAD_REQUEST);
     }
 
     @ExceptionHandler
     public ResponseEntity<OperationStatus> handleErrorInputData(ErrorInputData e) {
-        logger.log("Date | " + LocalDateTime.now().format(
-                DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss")) + "\n"
-                + "Status | " + e.getMessage() + "\n");
+        log(HttpStatus.BAD_REQUEST, e.getMessage());
+        metrics.error(e, Reason.INPUT);
 
-        return new ResponseEntity<>(new OperationStatus(
-                String.valueOf(UUID.randomUUID()), e.getMessage()), HttpStatus.BAD_REQUEST);
+        return new ResponseEntity<>(new OperationStatus(idGenerator.nextId(), e.getMessage()), HttpStatus.BAD_REQUEST);
+    }
+
+    // лимит частоты: без записи в лог, чтобы поток отклонённых запросов не нагружал логгер
+    @ExceptionHandler
+    public ResponseEntity<OperationStatus> handleErrorTooManyRequests(ErrorTooManyRequests e) {
+        metrics.error(e, Reason.RATE_LIMIT);
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(e.getRetryAfterNanos() + 999_999_999));
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(new OperationStatus(idGenerator.nextId(), e.getMessage()));
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<OperationStatus> handleErrorNodeUnavailable(ErrorNodeUnavailable e) {
+        log(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        metrics.error(e, Reason.NODE_UNAVAILABLE);
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new OperationStatus(idGenerator.nextId(), e.getMessage()));
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<OperationStatus> handleErrorClusterAuthorization(ErrorClusterAuthorization e) {
+        log(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage());
+        metrics.error(e, Reason.CLUSTER_AUTHORIZATION);
+
+        return new ResponseEntity<>(new OperationStatus(idGenerator.nextId(), e.getMessage()),
+                HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
     @ExceptionHandler
     public ResponseEntity<OperationStatus> handleErrorTransfer(ErrorTransfer e) {
+        log(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage());
+        metrics.error(e, Reason.TRANSFER);
 
-        logger.log("Date | " + LocalDateTime.now().format(
-                DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss")) + "\n"
-                + "Status | " + e.getMessage() + "\n");
+        return new ResponseEntity<>(new OperationStatus(idGenerator.nextId(), e.getMessage()),
+                HttpStatus.INTERNAL_SERVER_ERROR);
+    }
 
-        return new ResponseEntity<>(new OperationStatus(
-                String.valueOf(UUID.randomUUID()), e.getMessage()), HttpStatus.INTERNAL_SERVER_ERROR);
+    // запись об ошибке подчиняется logger.async.backpressure, как и остальные: при BLOCK и SPILL не теряется
+    private void log(HttpStatus status, String message) {
+        logger.log(AuditRecord.of("error").field("status", status.value()).field("message", message).build());
     }
 }
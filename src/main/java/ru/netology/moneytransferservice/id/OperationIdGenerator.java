@@ -0,0 +1,8 @@
+package ru.netology.moneytransferservice.id;
+
+/**
+ * Генератор идентификаторов операций и ответов (transfer.id-generator: uuid7 - по умолчанию, random).
+ */
+public interface OperationIdGenerator {
+    String nextId();
+}
@@ -0,0 +1,19 @@
+package ru.netology.moneytransferservice.id;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Прежний вариант: UUID.randomUUID() (версия 4, общий SecureRandom).
+ */
+@Component
+@ConditionalOnProperty(name = "transfer.id-generator", havingValue = "random")
+public class RandomIdGenerator implements OperationIdGenerator {
+
+    @Override
+    public String nextId() {
+        return String.valueOf(UUID.randomUUID());
+    }
+}
@@ -0,0 +1,116 @@
+package ru.netology.moneytransferservice.id;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * UUID версии 7: 48 бит времени в миллисекундах, затем номер узла и последовательность.
+ * <pre>
+ * msb: unix_ms(48) | ver=7(4) | sequence[56..45](12)
+ * lsb: variant=10(2) | cluster(1) | node(16) | sequence[44..0](45)
+ * sequence: stripe(20) | counter(37)
+ * </pre>
+ * Бит cluster выставлен только у id, выданных в режиме кластера (nextClustered): по нему id с шардом
+ * в поле node отличаются от обычных id и от UUID других версий.
+ * Уникальность внутри узла даёт счётчик потока: каждый поток при первом вызове получает свою полосу stripe
+ * и дальше увеличивает только свой counter, без общей для потоков записи. Полоса выдаётся заново, когда
+ * счётчик потока исчерпан; номера полос повторяются только после 2^20 выдач. Между узлами уникальность даёт
+ * номер узла transfer.node-id. Если он не задан, номер выбирается случайно при старте: для нескольких
+ * узлов его нужно задать явно. Идентификаторы упорядочены по времени с точностью до миллисекунды,
+ * поэтому записи с соседними id попадают в соседние места индекса или журнала.
+ */
+@Component
+@ConditionalOnProperty(name = "transfer.id-generator", havingValue = "uuid7", matchIfMissing = true)
+public class TimeOrderedIdGenerator implements OperationIdGenerator {
+
+    private static final int SEQUENCE_LOW_BITS = 45;
+    private static final long SEQUENCE_LOW_MASK = (1L << SEQUENCE_LOW_BITS) - 1;
+    private static final int VERSION_7 = 7;
+    private static final long VERSION = 0x7000L;
+    private static final long VARIANT = 0x8000000000000000L;
+    private static final long CLUSTER = 1L << 61;
+    private static final int COUNTER_BITS = 37;
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+    private static final int STRIPE_MASK = (1 << 20) - 1;
+
+    private final long node;
+    // начальные значения случайные: после перезапуска узла в ту же миллисекунду id не повторятся
+    private final AtomicInteger stripes = new AtomicInteger(ThreadLocalRandom.current().nextInt());
+    // следующее значение sequence потока, в массиве - чтобы увеличивать без повторного set
+    private final ThreadLocal<long[]> sequences = ThreadLocal.withInitial(() -> new long[]{nextStripe()});
+
+    public TimeOrderedIdGenerator(@Value("${transfer.node-id:-1}") int nodeId) {
+        this.node = nodeId >= 0 ? nodeId & 0xFFFF : new SecureRandom().nextInt(1 << 16);
+    }
+
+    @Override
+    public String nextId() {
+        return next().toString();
+    }
+
+    public UUID next() {
+        return next(0, node);
+    }
+
+    // id режима кластера с другим значением поля node (в нём кодируется шард операции)
+    public UUID nextClustered(long node) {
+        return next(CLUSTER, node);
+    }
+
+    private UUID next(long cluster, long node) {
+        long seq = nextSequence();
+        long millis = System.currentTimeMillis();
+        long msb = millis << 16 | VERSION | (seq >>> SEQUENCE_LOW_BITS & 0xFFF);
+        long lsb = VARIANT | cluster | (node & 0xFFFF) << SEQUENCE_LOW_BITS | (seq & SEQUENCE_LOW_MASK);
+        return new UUID(msb, lsb);
+    }
+
+    private long nextSequence() {
+        long[] sequence = sequences.get();
+        long seq = sequence[0]++;
+        if ((sequence[0] & COUNTER_MASK) == 0) {
+            sequence[0] = nextStripe();
+        }
+        return seq;
+    }
+
+    private long nextStripe() {
+        long stripe = stripes.getAndIncrement() & STRIPE_MASK;
+        return stripe << COUNTER_BITS | ThreadLocalRandom.current().nextLong(1L << 32);
+    }
+
+    public int getNode() {
+        return (int) node;
+    }
+
+    // поле node из id этого генератора, -1 - строка не UUID версии 7
+    public static int node(String id) {
+        UUID uuid = parse(id);
+        return uuid == null ? -1 : (int) (uuid.getLeastSignificantBits() >>> SEQUENCE_LOW_BITS & 0xFFFF);
+    }
+
+    // поле node из id, выданного nextClustered, -1 - id выдан не в режиме кластера
+    public static int clusterNode(String id) {
+        UUID uuid = parse(id);
+        return uuid == null || (uuid.getLeastSignificantBits() & CLUSTER) == 0 ? -1
+                : (int) (uuid.getLeastSignificantBits() >>> SEQUENCE_LOW_BITS & 0xFFFF);
+    }
+
+    private static UUID parse(String id) {
+        if (id == null) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(id);
+            return uuid.version() == VERSION_7 && uuid.variant() == 2 ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package ru.netology.moneytransferservice.logger;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Асинхронный логгер переводов. Потоки запросов только кладут сообщение в кольцевой буфер,
+ * единственный поток-писатель держит открытым один FileChannel и сбрасывает сообщения пачками:
+ * по достижении batchSize сообщений или по истечении flushInterval с момента первого несброшенного.
+ * Без сообщений писатель спит, пока его не разбудит offer() (или до ротации по времени), а не опрашивает буфер.
+ * При остановке контекста (@PreDestroy) close() дожидается потоков, уже начавших запись, и дописывает буфер полностью.
+ * <p>
+ * Файл ротируется по размеру и времени (RollingFile, logger.rotation.*), закрытые сегменты сжимаются в фоне.
+ * Успешные записи проходят выборку (SuccessSampler, logger.sampling.*) через sampleSuccess().
+ */
+@Component
+public class AsyncLogger implements LoggerInterface {
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final RingBuffer<String> buffer;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final BackpressurePolicy backpressurePolicy;
+    private final RollingFile file;
+    private final SuccessSampler sampler;
+    private final Logger spillLogger;
+    private final Logger fallbackLogger;
+    private final Thread writer;
+    private final StringBuilder batch = new StringBuilder();
+    private final Timer writeTimer;
+    private final Timer blockTimer;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+
+    // потоки внутри log/tryLog: close() ждёт их, прежде чем остановить писателя
+    private final AtomicInteger producers = new AtomicInteger();
+
+    // running - приём сообщений в буфер, stopped - писатель дописывает буфер и завершается
+    private volatile boolean running = true;
+    private volatile boolean stopped;
+    private volatile boolean writerParked;
+
+    // без ротации и выборки
+    public AsyncLogger(String path, String spillPath, int capacity, int batchSize, long flushIntervalMs,
+                       BackpressurePolicy backpressurePolicy, MeterRegistry meterRegistry) throws IOException {
+        this(path, spillPath, capacity, batchSize, flushIntervalMs, backpressurePolicy,
+                Long.MAX_VALUE, 0, 0, 0, 1, meterRegistry);
+    }
+
+    @Autowired
+    public AsyncLogger(@Value("${logger.path}") String path,
+                       @Value("${logger.async.spill-path}") String spillPath,
+                       @Value("${logger.async.capacity:8192}") int capacity,
+                       @Value("${logger.async.batch-size:256}") int batchSize,
+                       @Value("${logger.async.flush-interval-ms:50}") long flushIntervalMs,
+                       @Value("${logger.async.backpressure:BLOCK}") BackpressurePolicy backpressurePolicy,
+                       @Value("${logger.rotation.max-bytes:67108864}") long rotationMaxBytes,
+                       @Value("${logger.rotation.interval-ms:3600000}") long rotationIntervalMs,
+                       @Value("${logger.rotation.max-segments:0}") int rotationMaxSegments,
+                       @Value("${logger.sampling.success-budget:1000}") int successBudget,
+                       @Value("${logger.sampling.success-every:10}") int successEvery,
+                       MeterRegistry meterRegistry)
+            throws IOException {
+        this.buffer = new RingBuffer<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.backpressurePolicy = backpressurePolicy;
+
+        this.file = new RollingFile(Path.of(path), rotationMaxBytes, rotationIntervalMs, rotationMaxSegments);
+        this.sampler = new SuccessSampler(successBudget, successEvery);
+        this.spillLogger = new Logger(spillPath);
+        this.fallbackLogger = new Logger(path);
+
+        this.writeTimer = Timer.builder("transfer.logger.write")
+                .description("Time to write one batch of log messages")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.blockTimer = Timer.builder("transfer.logger.blocked")
+                .description("Time a caller waited for free space in the buffer (BLOCK policy)")
+                .register(meterRegistry);
+        Gauge.builder("transfer.logger.queue", buffer, RingBuffer::size).register(meterRegistry);
+        FunctionCounter.builder("transfer.logger.messages", written, AtomicLong::get)
+                .tag("result", "written").register(meterRegistry);
+        FunctionCounter.builder("transfer.logger.messages", dropped, AtomicLong::get)
+                .tag("result", "dropped").register(meterRegistry);
+        FunctionCounter.builder("transfer.logger.messages", spilled, AtomicLong::get)
+                .tag("result", "spilled").register(meterRegistry);
+        FunctionCounter.builder("transfer.logger.messages", sampler, SuccessSampler::getSkipped)
+                .tag("result", "sampled").register(meterRegistry);
+
+        this.writer = new Thread(this::writeLoop, "async-logger-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void log(String logMessage) {
+        producers.incrementAndGet();
+        try {
+            if (!running) {
+                // после close() пишем синхронно, чтобы не потерять запись
+                fallbackLogger.log(logMessage);
+                return;
+            }
+            if (offer(logMessage)) {
+                return;
+            }
+            switch (backpressurePolicy) {
+                case DROP -> dropped.incrementAndGet();
+                case SPILL -> {
+                    spilled.incrementAndGet();
+                    spillLogger.log(logMessage);
+                }
+                case BLOCK -> {
+                    // писатель освобождает буфер и во время close(): он ждёт этот поток
+                    long start = System.nanoTime();
+                    while (!offer(logMessage)) {
+                        LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                    }
+                    blockTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            }
+        } finally {
+            producers.decrementAndGet();
+        }
+    }
+
+    // никогда не блокирует: при заполненном буфере сообщение отбрасывается независимо от backpressurePolicy
+    @Override
+    public boolean tryLog(String logMessage) {
+        producers.incrementAndGet();
+        try {
+            if (running && offer(logMessage)) {
+                return true;
+            }
+            dropped.incrementAndGet();
+            return false;
+        } finally {
+            producers.decrementAndGet();
+        }
+    }
+
+    @Override
+    public int sampleSuccess() {
+        return sampler.sample();
+    }
+
+    private boolean offer(String logMessage) {
+        if (!buffer.offer(logMessage)) {
+            return false;
+        }
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    private void writeLoop() {
+        int pending = 0;
+        long firstPendingAt = 0;
+        while (!stopped || !buffer.isEmpty()) {
+            String message = buffer.poll();
+            if (message != null) {
+                if (pending == 0) {
+                    firstPendingAt = System.nanoTime();
+                }
+                batch.append(message).append(LINE_SEPARATOR);
+                if (++pending >= batchSize) {
+                    flush(pending);
+                    pending = 0;
+                }
+            } else if (pending > 0) {
+                long wait = firstPendingAt + flushIntervalNanos - System.nanoTime();
+                if (wait > 0) {
+                    park(wait);
+                } else {
+                    flush(pending);
+                    pending = 0;
+                }
+            } else {
+                rollIfDue();
+                long nextRollAt = file.nextRollAt();
+                park(nextRollAt == Long.MAX_VALUE ? Long.MAX_VALUE
+                        : TimeUnit.MILLISECONDS.toNanos(Math.max(1, nextRollAt - System.currentTimeMillis())));
+            }
+        }
+        if (pending > 0) {
+            flush(pending);
+        }
+    }
+
+    // флаг writerParked ставится до повторной проверки буфера: offer() после неё увидит флаг и разбудит писателя
+    private void park(long nanos) {
+        writerParked = true;
+        if (buffer.isEmpty() && !stopped) {
+            if (nanos == Long.MAX_VALUE) {
+                LockSupport.park(this);
+            } else {
+                LockSupport.parkNanos(this, nanos);
+            }
+        }
+        writerParked = false;
+    }
+
+    private void flush(int messages) {
+        long start = System.nanoTime();
+        ByteBuffer bytes = ByteBuffer.wrap(batch.toString().getBytes(StandardCharsets.UTF_8));
+        batch.setLength(0);
+        try {
+            file.write(bytes, System.currentTimeMillis());
+            written.addAndGet(messages);
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+        writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void rollIfDue() {
+        try {
+            file.rollIfDue(System.currentTimeMillis());
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        // поток, прошедший проверку running до её сброса, ещё может положить сообщение в буфер
+        while (producers.get() > 0) {
+            Thread.yield();
+        }
+        stopped = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            file.close();
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getSpilled() {
+        return spilled.get();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public int getQueueSize() {
+        return buffer.size();
+    }
+}
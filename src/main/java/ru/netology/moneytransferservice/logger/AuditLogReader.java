@@ -0,0 +1,217 @@
+package ru.netology.moneytransferservice.logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Офлайн-поиск по логу аудита: активный файл и все его сегменты, сжатые и нет.
+ * Файлы читаются потоком построчно, в памяти - только текущая строка. Сегменты, которые по времени
+ * закрытия не пересекаются с --from/--to, не открываются. Строка проверяется по ts и event
+ * в её начале и подстрокам "id":"..." и маскированного номера карты, без разбора JSON.
+ * <pre>
+ * java -cp target/classes ru.netology.moneytransferservice.logger.AuditLogReader logs/audit.jsonl \
+ *     [--event=transfer] [--id=&lt;operationId&gt;] [--card=&lt;номер карты&gt;] \
+ *     [--from=&lt;ISO-8601 или epoch ms&gt;] [--to=...] [--count]
+ * </pre>
+ * --count вместо строк печатает число записей и число событий с учётом веса выборки.
+ */
+public final class AuditLogReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String TS_PREFIX = "{\"ts\":";
+    // запись попадает в сегмент после своего ts: между созданием и записью она ждёт в буфере AsyncLogger
+    private static final long WRITE_DELAY_MS = TimeUnit.MINUTES.toMillis(1);
+
+    // условия поиска; null и границы Long.MIN_VALUE/MAX_VALUE - без условия
+    public static final class Filter {
+
+        private final String event;
+        private final String id;
+        private final String card;
+        private final long fromMs;
+        private final long toMs;
+
+        public Filter(String event, String id, String card, long fromMs, long toMs) {
+            this.event = event == null ? null : ",\"event\":\"" + event + '"';
+            this.id = id == null ? null : "\"id\":\"" + id + '"';
+            this.card = card == null ? null : '"' + AuditRecord.maskCard(card) + '"';
+            this.fromMs = fromMs;
+            this.toMs = toMs;
+        }
+
+        public static Filter all() {
+            return new Filter(null, null, null, Long.MIN_VALUE, Long.MAX_VALUE);
+        }
+
+        boolean matches(String line) {
+            if (!line.startsWith(TS_PREFIX)) {
+                return false;
+            }
+            int end = line.indexOf(',', TS_PREFIX.length());
+            if (end < 0) {
+                return false;
+            }
+            long ts = parseLong(line, TS_PREFIX.length(), end);
+            if (ts < fromMs || ts >= toMs) {
+                return false;
+            }
+            if (event != null && !line.startsWith(event, end)) {
+                return false;
+            }
+            if (id != null && !line.contains(id)) {
+                return false;
+            }
+            return card == null || line.contains(card);
+        }
+    }
+
+    private AuditLogReader() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        String path = "logs/audit.jsonl";
+        String event = null;
+        String id = null;
+        String card = null;
+        long fromMs = Long.MIN_VALUE;
+        long toMs = Long.MAX_VALUE;
+        boolean count = false;
+        for (String arg : args) {
+            if (arg.startsWith("--event=")) {
+                event = value(arg);
+            } else if (arg.startsWith("--id=")) {
+                id = value(arg);
+            } else if (arg.startsWith("--card=")) {
+                card = value(arg);
+            } else if (arg.startsWith("--from=")) {
+                fromMs = time(value(arg));
+            } else if (arg.startsWith("--to=")) {
+                toMs = time(value(arg));
+            } else if (arg.equals("--count")) {
+                count = true;
+            } else if (arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            } else {
+                path = arg;
+            }
+        }
+        Filter filter = new Filter(event, id, card, fromMs, toMs);
+
+        PrintStream out = new PrintStream(System.out, false, StandardCharsets.UTF_8);
+        if (count) {
+            long[] totals = new long[2];
+            scan(Path.of(path), filter, line -> {
+                totals[0]++;
+                totals[1] += weight(line);
+            });
+            out.println("records: " + totals[0] + ", events: " + totals[1]);
+        } else {
+            scan(Path.of(path), filter, out::println);
+        }
+        out.flush();
+    }
+
+    // передать sink подходящие строки всех сегментов лога path и самого path, от старых к новым
+    public static void scan(Path path, Filter filter, Consumer<String> sink) throws IOException {
+        Path active = path.toAbsolutePath();
+        String name = active.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        Pattern segmentName = RollingFile.segmentPattern(dot > 0 ? name.substring(0, dot) : name,
+                dot > 0 ? name.substring(dot) : "");
+
+        List<Path> files = new ArrayList<>();
+        List<Long> closedAt = new ArrayList<>();
+        if (Files.isDirectory(active.getParent())) {
+            for (Path segment : RollingFile.segments(active.getParent(), segmentName)) {
+                String segmentFile = segment.getFileName().toString();
+                // сегмент сжимается прямо сейчас: .gz уже готов, исходный ещё не удалён
+                boolean compressed = !segmentFile.endsWith(".gz") && Files.exists(Path.of(segment + ".gz"));
+                if (!segmentFile.endsWith(".tmp") && !compressed) {
+                    files.add(segment);
+                    closedAt.add(RollingFile.closedAt(segment, segmentName));
+                }
+            }
+        }
+        if (Files.exists(active)) {
+            files.add(active);
+            closedAt.add(Long.MAX_VALUE);
+        }
+
+        long previousClosedAt = Long.MIN_VALUE;
+        for (int i = 0; i < files.size(); i++) {
+            long segmentClosedAt = closedAt.get(i);
+            boolean overlaps = segmentClosedAt >= filter.fromMs
+                    && (previousClosedAt == Long.MIN_VALUE || previousClosedAt - WRITE_DELAY_MS < filter.toMs);
+            previousClosedAt = segmentClosedAt;
+            if (overlaps) {
+                scanFile(files.get(i), filter, sink);
+            }
+        }
+    }
+
+    private static void scanFile(Path file, Filter filter, Consumer<String> sink) throws IOException {
+        if (!Files.exists(file) && Files.exists(Path.of(file + ".gz"))) {
+            file = Path.of(file + ".gz");
+        }
+        InputStream in = Files.newInputStream(file);
+        if (file.getFileName().toString().endsWith(".gz")) {
+            in = new GZIPInputStream(in, BUFFER_SIZE);
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (filter.matches(line)) {
+                    sink.accept(line);
+                }
+            }
+        }
+    }
+
+    // вес записи после выборки успешных событий, без поля weight - 1
+    static long weight(String line) {
+        int start = line.indexOf(",\"weight\":");
+        if (start < 0) {
+            return 1;
+        }
+        start += ",\"weight\":".length();
+        int end = start;
+        while (end < line.length() && Character.isDigit(line.charAt(end))) {
+            end++;
+        }
+        return parseLong(line, start, end);
+    }
+
+    private static long parseLong(String line, int start, int end) {
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static String value(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+
+    private static long time(String value) {
+        return value.chars().allMatch(Character::isDigit) ? Long.parseLong(value) : Instant.parse(value).toEpochMilli();
+    }
+}
@@ -0,0 +1,81 @@
+package ru.netology.moneytransferservice.logger;
+
+/**
+ * Запись аудита в одну строку JSON: {"ts":<epoch ms>,"event":"...",...}. ts всегда первое поле,
+ * event - второе: AuditLogReader фильтрует по ним, не разбирая строку целиком.
+ * Номера карт пишутся маскированными: первые 6 и последние 4 цифры.
+ */
+public final class AuditRecord {
+
+    private final StringBuilder json = new StringBuilder(192);
+
+    private AuditRecord(long timestamp, String event) {
+        json.append("{\"ts\":").append(timestamp).append(",\"event\":\"").append(event).append('"');
+    }
+
+    public static AuditRecord of(String event) {
+        return new AuditRecord(System.currentTimeMillis(), event);
+    }
+
+    public AuditRecord field(String name, String value) {
+        name(name);
+        if (value == null) {
+            json.append("null");
+        } else {
+            quote(json, value);
+        }
+        return this;
+    }
+
+    public AuditRecord field(String name, long value) {
+        name(name);
+        json.append(value);
+        return this;
+    }
+
+    public AuditRecord card(String name, String cardNumber) {
+        return field(name, maskCard(cardNumber));
+    }
+
+    public String build() {
+        return json.append('}').toString();
+    }
+
+    // 4111111111111111 -> 411111******1111; короткие номера скрываются целиком
+    public static String maskCard(String cardNumber) {
+        if (cardNumber == null) {
+            return null;
+        }
+        int length = cardNumber.length();
+        if (length <= 10) {
+            return "*".repeat(length);
+        }
+        return cardNumber.substring(0, 6) + "*".repeat(length - 10) + cardNumber.substring(length - 4);
+    }
+
+    private static void quote(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    private void name(String name) {
+        json.append(",\"").append(name).append("\":");
+    }
+}
@@ -0,0 +1,13 @@
+package ru.netology.moneytransferservice.logger;
+
+/**
+ * Поведение AsyncLogger при переполненном кольцевом буфере:
+ * BLOCK - вызывающий поток ждёт освобождения места,
+ * DROP - сообщение отбрасывается (учитывается в счётчике),
+ * SPILL - сообщение синхронно дописывается в отдельный spill-файл.
+ */
+public enum BackpressurePolicy {
+    BLOCK,
+    DROP,
+    SPILL
+}
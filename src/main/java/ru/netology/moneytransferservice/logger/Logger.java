@@ -9,12 +9,13 @@ import java.io.IOException;
 import java.util.concurrent.locks.ReentrantLock;
 
 @RequiredArgsConstructor
-public class Logger {
+public class Logger implements LoggerInterface {
 
     private final ReentrantLock lock = new ReentrantLock();
     private final String path;
 
-    public synchronized void log(String logMessage) {
+    @Override
+    public void log(String logMessage) {
         lock.lock();
         try (BufferedWriter logWriter = new BufferedWriter(new FileWriter(path, true))) {
             logWriter.write(logMessage);
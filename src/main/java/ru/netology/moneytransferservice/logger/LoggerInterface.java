@@ -0,0 +1,16 @@
+package ru.netology.moneytransferservice.logger;
+
+public interface LoggerInterface {
+    void log(String logMessage);
+
+    // запись без блокировки вызывающего потока, false - сообщение не принято
+    default boolean tryLog(String logMessage) {
+        log(logMessage);
+        return true;
+    }
+
+    // выборка успешной записи: 0 - не писать, иначе вес записи (сколько событий она представляет)
+    default int sampleSuccess() {
+        return 1;
+    }
+}
@@ -0,0 +1,195 @@
+package ru.netology.moneytransferservice.logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Файл лога с ротацией. Активный сегмент пишется по пути logger.path; когда он дорастает до maxBytes
+ * или проходит interval с его открытия, он закрывается и переименовывается в
+ * <имя>-<время закрытия UTC yyyyMMdd-HHmmss-SSS><расширение>, после чего фоновый поток сжимает его в .gz.
+ * Имена закрытых сегментов сортируются по времени, сегмент содержит записи между закрытием
+ * предыдущего и своим. Хранится не больше maxSegments сжатых сегментов, 0 - без ограничения.
+ * <p>
+ * write, rollIfDue и close вызываются только потоком-писателем AsyncLogger.
+ */
+final class RollingFile {
+
+    private static final DateTimeFormatter SEGMENT_TIME =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS").withZone(ZoneOffset.UTC);
+    private static final String GZ = ".gz";
+
+    private final Path active;
+    private final String stem;
+    private final String extension;
+    private final Pattern segmentName;
+    private final long maxBytes;
+    private final long intervalMs;
+    private final int maxSegments;
+    private final ExecutorService compressor;
+
+    private FileChannel channel;
+    private long size;
+    private long openedAt;
+
+    RollingFile(Path path, long maxBytes, long intervalMs, int maxSegments) throws IOException {
+        this.active = path.toAbsolutePath();
+        String name = active.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        this.stem = dot > 0 ? name.substring(0, dot) : name;
+        this.extension = dot > 0 ? name.substring(dot) : "";
+        this.segmentName = segmentPattern(stem, extension);
+        this.maxBytes = maxBytes;
+        this.intervalMs = intervalMs;
+        this.maxSegments = maxSegments;
+        this.compressor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "audit-log-compressor");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Files.createDirectories(active.getParent());
+        open(System.currentTimeMillis());
+        // сегменты, не сжатые до остановки процесса
+        for (Path segment : segments(active.getParent(), segmentName)) {
+            String segmentFile = segment.getFileName().toString();
+            if (segmentFile.endsWith(GZ + ".tmp")) {
+                Files.deleteIfExists(segment);
+            } else if (!segmentFile.endsWith(GZ)) {
+                compressor.execute(() -> compress(segment));
+            }
+        }
+    }
+
+    static Pattern segmentPattern(String stem, String extension) {
+        return Pattern.compile(Pattern.quote(stem) + "-(\\d{8}-\\d{6}-\\d{3})" + Pattern.quote(extension)
+                + "(\\.gz(\\.tmp)?)?");
+    }
+
+    // закрытые сегменты в порядке времени закрытия
+    static List<Path> segments(Path dir, Pattern segmentName) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(file -> segmentName.matcher(file.getFileName().toString()).matches())
+                    .sorted()
+                    .forEach(segments::add);
+        }
+        return segments;
+    }
+
+    // время закрытия сегмента по имени, epoch ms
+    static long closedAt(Path segment, Pattern segmentName) {
+        Matcher matcher = segmentName.matcher(segment.getFileName().toString());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Not a log segment: " + segment);
+        }
+        return Instant.from(SEGMENT_TIME.parse(matcher.group(1))).toEpochMilli();
+    }
+
+    void write(ByteBuffer bytes, long now) throws IOException {
+        while (bytes.hasRemaining()) {
+            size += channel.write(bytes);
+        }
+        if (size >= maxBytes) {
+            roll(now);
+        } else {
+            rollIfDue(now);
+        }
+    }
+
+    // ротация по времени; пустой сегмент не закрывается
+    void rollIfDue(long now) throws IOException {
+        if (intervalMs > 0 && size > 0 && now - openedAt >= intervalMs) {
+            roll(now);
+        }
+    }
+
+    // момент следующей ротации по времени, Long.MAX_VALUE - не ожидается (ротация выключена или сегмент пуст)
+    long nextRollAt() {
+        return intervalMs > 0 && size > 0 ? openedAt + intervalMs : Long.MAX_VALUE;
+    }
+
+    void close() throws IOException {
+        channel.close();
+        compressor.shutdown();
+        try {
+            compressor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void open(long now) throws IOException {
+        channel = FileChannel.open(active,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        size = channel.size();
+        openedAt = now;
+    }
+
+    private void roll(long now) throws IOException {
+        channel.close();
+        Path segment = segmentPath(now);
+        try {
+            Files.move(active, segment, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            open(now);
+        }
+        compressor.execute(() -> compress(segment));
+    }
+
+    private Path segmentPath(long closedAt) {
+        Path segment;
+        // два закрытия в одну миллисекунду: имя следующего сдвигается вперёд, порядок сохраняется
+        do {
+            String time = SEGMENT_TIME.format(Instant.ofEpochMilli(closedAt++));
+            segment = active.resolveSibling(stem + "-" + time + extension);
+        } while (Files.exists(segment) || Files.exists(Path.of(segment + GZ)));
+        return segment;
+    }
+
+    private void compress(Path segment) {
+        Path tmp = Path.of(segment + GZ + ".tmp");
+        try {
+            try (InputStream in = Files.newInputStream(segment);
+                 OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp), 64 * 1024)) {
+                in.transferTo(out);
+            }
+            Files.move(tmp, Path.of(segment + GZ), StandardCopyOption.ATOMIC_MOVE);
+            Files.delete(segment);
+            removeOldSegments();
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    private void removeOldSegments() throws IOException {
+        if (maxSegments <= 0) {
+            return;
+        }
+        // считаются только сжатые: несжатые ещё ждут своей очереди в compressor
+        List<Path> segments = segments(active.getParent(), segmentName).stream()
+                .filter(segment -> segment.getFileName().toString().endsWith(GZ))
+                .toList();
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package ru.netology.moneytransferservice.logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Выборка успешных записей аудита. В каждую секунду первые budget записей пишутся полностью,
+ * сверх бюджета - каждая every-я, с весом every: сумма весов равна числу успешных событий.
+ * Ошибки через выборку не проходят и пишутся всегда. every = 1 - выборка выключена.
+ * Смена секунды не синхронизирована: на границе в бюджет может попасть несколько лишних записей.
+ */
+public class SuccessSampler {
+
+    private final int budget;
+    private final int every;
+    private final AtomicLong seen = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private volatile long second;
+
+    public SuccessSampler(int budget, int every) {
+        if (budget < 0 || every < 1) {
+            throw new IllegalArgumentException("Sampling budget must be >= 0 and every >= 1: " + budget + ", " + every);
+        }
+        this.budget = budget;
+        this.every = every;
+    }
+
+    // 0 - запись не пишется, иначе вес записи
+    public int sample() {
+        if (every == 1) {
+            return 1;
+        }
+        long now = System.currentTimeMillis() / 1000;
+        if (now != second) {
+            second = now;
+            seen.set(0);
+        }
+        long n = seen.incrementAndGet() - budget;
+        if (n <= 0) {
+            return 1;
+        }
+        if (n % every == 0) {
+            return every;
+        }
+        skipped.incrementAndGet();
+        return 0;
+    }
+
+    public long getSkipped() {
+        return skipped.get();
+    }
+}
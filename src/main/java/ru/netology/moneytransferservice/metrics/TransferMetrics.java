@@ -0,0 +1,127 @@
+package ru.netology.moneytransferservice.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Метрики переводов и подтверждений:
+ * transfer.service{operation, outcome} - время обработки одиночного запроса (с гистограммой перцентилей),
+ * transfer.requests{operation, outcome} - количество обработанных переводов/подтверждений, включая пакетные,
+ * transfer.errors{exception, reason} - сработавшие обработчики ExceptionHandlerAdvice; reason - значение Reason,
+ * сообщение исключения в теги не попадает (в нём id операций и ответы других узлов).
+ * Все таймеры и счётчики регистрируются заранее, на горячем пути поиска в реестре нет.
+ */
+@Component
+public class TransferMetrics {
+
+    public enum Outcome {
+        SUCCESS,
+        VALIDATION_FAILED,
+        NOT_FOUND,
+        WRONG_CODE,
+        ALREADY_FINISHED,
+        INSUFFICIENT_FUNDS,
+        RATE_LIMITED,
+        ERROR;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    public enum Reason {
+        VALIDATION,
+        INPUT,
+        RATE_LIMIT,
+        NODE_UNAVAILABLE,
+        CLUSTER_AUTHORIZATION,
+        TRANSFER;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private static final Outcome[] OUTCOMES = Outcome.values();
+    private static final Reason[] REASONS = Reason.values();
+
+    private final MeterRegistry registry;
+    private final Timer[] transferTimers;
+    private final Timer[] confirmTimers;
+    private final Counter[] transferCounters;
+    private final Counter[] confirmCounters;
+    private final Map<Class<?>, Counter[]> errorCounters = new ConcurrentHashMap<>();
+
+    public TransferMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.transferTimers = timers("transfer");
+        this.confirmTimers = timers("confirm");
+        this.transferCounters = counters("transfer");
+        this.confirmCounters = counters("confirm");
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    public void transfer(Timer.Sample sample, Outcome outcome) {
+        sample.stop(transferTimers[outcome.ordinal()]);
+        transferCounters[outcome.ordinal()].increment();
+    }
+
+    public void confirm(Timer.Sample sample, Outcome outcome) {
+        sample.stop(confirmTimers[outcome.ordinal()]);
+        confirmCounters[outcome.ordinal()].increment();
+    }
+
+    // пакетные запросы и ошибки валидации, у которых нет замера времени
+    public void transfers(Outcome outcome, int count) {
+        transferCounters[outcome.ordinal()].increment(count);
+    }
+
+    public void confirms(Outcome outcome, int count) {
+        confirmCounters[outcome.ordinal()].increment(count);
+    }
+
+    // счётчики класса исключения регистрируются при первой его ошибке, по одному на Reason
+    public void error(Exception exception, Reason reason) {
+        errorCounters.computeIfAbsent(exception.getClass(), this::errorCounters)[reason.ordinal()].increment();
+    }
+
+    private Counter[] errorCounters(Class<?> type) {
+        Counter[] counters = new Counter[REASONS.length];
+        for (Reason reason : REASONS) {
+            counters[reason.ordinal()] = Counter.builder("transfer.errors")
+                    .tag("exception", type.getSimpleName())
+                    .tag("reason", reason.tag)
+                    .register(registry);
+        }
+        return counters;
+    }
+
+    private Timer[] timers(String operation) {
+        Timer[] timers = new Timer[OUTCOMES.length];
+        for (Outcome outcome : OUTCOMES) {
+            timers[outcome.ordinal()] = Timer.builder("transfer.service")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome.tag)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+        return timers;
+    }
+
+    private Counter[] counters(String operation) {
+        Counter[] counters = new Counter[OUTCOMES.length];
+        for (Outcome outcome : OUTCOMES) {
+            counters[outcome.ordinal()] = Counter.builder("transfer.requests")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome.tag)
+                    .register(registry);
+        }
+        return counters;
+    }
+}
@@ -1,10 +1,12 @@
 package ru.netology.moneytransferservice.model;
 
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 
-public record Amount(@Positive(message = "The amount cannot be zero or negative") Integer value,
-                     @NotBlank(message = "Enter currency") String currency) {
+public record Amount(@NotNull(message = ValidationMessages.AMOUNT_BLANK)
+                     @Positive(message = ValidationMessages.AMOUNT_POSITIVE) Integer value,
+                     @NotBlank(message = ValidationMessages.CURRENCY_BLANK) String currency) {
 
     @Override
     public String toString() {
@@ -0,0 +1,166 @@
+package ru.netology.moneytransferservice.model;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Запись хранилища операций: ожидающий перевод и его текущее состояние.
+ * Код подтверждения хранится отдельно, в ConfirmationCodes.
+ * Переходы состояний выполняются через CAS, поэтому из двух параллельных подтверждений
+ * одной операции успешным будет ровно одно.
+ * <p>
+ * Поля перевода хранятся упакованными в примитивы (TransferCodec), а не графом из TransferMoneyData, Amount
+ * и шести строк; сколько байт занимает операция в хранилище вместе с id, показывает
+ * OperationFootprintBenchmark. id - та же строка, что ключ хранилища. CVV не хранится.
+ * Перевод с полями вне формата (не 16 цифр карты, пустая сумма и т.п.) хранится объектом, как получен.
+ */
+@Getter
+public class Operation {
+
+    private static final AtomicReferenceFieldUpdater<Operation, OperationState> STATE =
+            AtomicReferenceFieldUpdater.newUpdater(Operation.class, OperationState.class, "state");
+
+    private final String id;
+    @Getter(AccessLevel.NONE)
+    private final long cardFrom;
+    @Getter(AccessLevel.NONE)
+    private final long cardTo;
+    @Getter(AccessLevel.NONE)
+    private final long amount;
+    @Getter(AccessLevel.NONE)
+    private final short validTill;
+    @Getter(AccessLevel.NONE)
+    private final short currency;
+    // перевод, не укладывающийся в упакованный формат, иначе null
+    @Getter(AccessLevel.NONE)
+    private final TransferMoneyData unpacked;
+    private final long createdAt;
+    private volatile OperationState state = OperationState.PENDING;
+    // время перехода в конечное состояние, 0 - операция ещё ожидает подтверждения
+    private volatile long finishedAt;
+
+    public Operation(TransferMoneyData transferMoneyData) {
+        this(transferMoneyData, System.currentTimeMillis());
+    }
+
+    public Operation(TransferMoneyData transferMoneyData, long createdAt) {
+        Amount amount = transferMoneyData.getAmount();
+        long cardFrom = TransferCodec.packCard(transferMoneyData.getCardFromNumber());
+        long cardTo = TransferCodec.packCard(transferMoneyData.getCardToNumber());
+        short validTill = TransferCodec.packValidTill(transferMoneyData.getCardFromValidTill());
+        short currency = amount == null ? TransferCodec.INVALID : TransferCodec.packCurrency(amount.currency());
+        boolean packable = cardFrom != TransferCodec.INVALID && cardTo != TransferCodec.INVALID
+                && validTill != TransferCodec.INVALID && currency != TransferCodec.INVALID && amount.value() != null;
+
+        this.id = transferMoneyData.getId();
+        this.cardFrom = cardFrom;
+        this.cardTo = cardTo;
+        this.validTill = validTill;
+        this.currency = currency;
+        this.amount = packable ? amount.value() : 0;
+        this.unpacked = packable ? null : transferMoneyData;
+        this.createdAt = createdAt;
+    }
+
+    // восстановление операции в сохранённом состоянии
+    public Operation(TransferMoneyData transferMoneyData, long createdAt, OperationState state, long finishedAt) {
+        this(transferMoneyData, createdAt);
+        this.state = state;
+        this.finishedAt = finishedAt;
+    }
+
+    // упакованная операция из журнала или от другого узла кластера
+    public Operation(String id, long cardFrom, long cardTo, short validTill, short currency, long amount,
+                     long createdAt, OperationState state, long finishedAt) {
+        this.id = id;
+        this.cardFrom = cardFrom;
+        this.cardTo = cardTo;
+        this.validTill = validTill;
+        this.currency = currency;
+        this.amount = amount;
+        this.unpacked = null;
+        this.createdAt = createdAt;
+        this.state = state;
+        this.finishedAt = finishedAt;
+    }
+
+    private Operation(Operation operation, OperationState state, long finishedAt) {
+        this.id = operation.id;
+        this.cardFrom = operation.cardFrom;
+        this.cardTo = operation.cardTo;
+        this.validTill = operation.validTill;
+        this.currency = operation.currency;
+        this.amount = operation.amount;
+        this.unpacked = operation.unpacked;
+        this.createdAt = operation.createdAt;
+        this.state = state;
+        this.finishedAt = finishedAt;
+    }
+
+    // копия операции в другом состоянии, без распаковки полей
+    public Operation withState(OperationState state, long finishedAt) {
+        return new Operation(this, state, finishedAt);
+    }
+
+    public boolean transition(OperationState from, OperationState to) {
+        if (STATE.compareAndSet(this, from, to)) {
+            // MOVED -> PENDING: операция снова ожидает подтверждения
+            finishedAt = to == OperationState.PENDING ? 0 : System.currentTimeMillis();
+            return true;
+        }
+        return false;
+    }
+
+    public boolean isPacked() {
+        return unpacked == null;
+    }
+
+    public String getCardFromNumber() {
+        return unpacked != null ? unpacked.getCardFromNumber() : TransferCodec.unpackCard(cardFrom);
+    }
+
+    public String getCardToNumber() {
+        return unpacked != null ? unpacked.getCardToNumber() : TransferCodec.unpackCard(cardTo);
+    }
+
+    public Amount getAmount() {
+        return unpacked != null ? unpacked.getAmount() : new Amount((int) amount, TransferCodec.unpackCurrency(currency));
+    }
+
+    // упакованные поля, только для isPacked()
+    public long getPackedCardFrom() {
+        return cardFrom;
+    }
+
+    public long getPackedCardTo() {
+        return cardTo;
+    }
+
+    public short getPackedValidTill() {
+        return validTill;
+    }
+
+    public short getPackedCurrency() {
+        return currency;
+    }
+
+    public long getPackedAmount() {
+        return amount;
+    }
+
+    // перевод в исходном виде; для упакованной операции - новый объект без CVV
+    public TransferMoneyData getTransferMoneyData() {
+        if (unpacked != null) {
+            return unpacked;
+        }
+        TransferMoneyData transferMoneyData = new TransferMoneyData();
+        transferMoneyData.setId(id);
+        transferMoneyData.setCardFromNumber(TransferCodec.unpackCard(cardFrom));
+        transferMoneyData.setCardFromValidTill(TransferCodec.unpackValidTill(validTill));
+        transferMoneyData.setCardToNumber(TransferCodec.unpackCard(cardTo));
+        transferMoneyData.setAmount(getAmount());
+        return transferMoneyData;
+    }
+}
@@ -0,0 +1,7 @@
+package ru.netology.moneytransferservice.model;
+
+import java.util.List;
+
+// страница истории операций, nextCursor == null - страница последняя
+public record OperationPage(List<OperationView> operations, String nextCursor) {
+}
@@ -0,0 +1,15 @@
+package ru.netology.moneytransferservice.model;
+
+/**
+ * Состояния операции перевода. Из PENDING возможен переход в любое из остальных состояний,
+ * CONFIRMED, REJECTED и EXPIRED - конечные. MOVED - операция передана другому узлу кластера
+ * и на этом узле больше не подтверждается; если шард снова стал своим до передачи, операция возвращается
+ * из MOVED в PENDING.
+ */
+public enum OperationState {
+    PENDING,
+    CONFIRMED,
+    REJECTED,
+    EXPIRED,
+    MOVED
+}
@@ -0,0 +1,10 @@
+package ru.netology.moneytransferservice.model;
+
+/**
+ * Операция в ответе истории. Номера карт маскированы (AuditRecord.maskCard), код подтверждения, CVV
+ * и срок действия карты не передаются.
+ * cursor - позиция операции: запрос с ним продолжит историю со следующей, более старой операции.
+ */
+public record OperationView(String operationId, String cardFromNumber, String cardToNumber, Amount amount,
+                            OperationState state, long createdAt, long finishedAt, String cursor) {
+}
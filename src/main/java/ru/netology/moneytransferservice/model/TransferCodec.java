@@ -0,0 +1,100 @@
+package ru.netology.moneytransferservice.model;
+
+/**
+ * Компактное представление полей перевода: номер карты (16 цифр) - в long, срок действия "MM/YY" - в short
+ * (год << 4 | месяц), код валюты из трёх латинских букв - в short (по 5 бит на букву), сумма - в long.
+ * Значение, которое не укладывается в формат, кодируется как -1: такой перевод хранится без упаковки.
+ * Раскодированные сроки и валюты кэшируются, поэтому чтение их не создаёт новых строк.
+ */
+public final class TransferCodec {
+
+    public static final int INVALID = -1;
+
+    private static final int CARD_LENGTH = 16;
+    private static final String[] VALID_TILL = new String[100 << 4];
+    private static final String[] CURRENCIES = new String[1 << 15];
+
+    private TransferCodec() {
+    }
+
+    public static long packCard(String card) {
+        if (card == null || card.length() != CARD_LENGTH) {
+            return INVALID;
+        }
+        long packed = 0;
+        for (int i = 0; i < CARD_LENGTH; i++) {
+            int digit = card.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID;
+            }
+            packed = packed * 10 + digit;
+        }
+        return packed;
+    }
+
+    public static String unpackCard(long packed) {
+        char[] digits = new char[CARD_LENGTH];
+        for (int i = CARD_LENGTH - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + packed % 10);
+            packed /= 10;
+        }
+        return new String(digits);
+    }
+
+    public static short packValidTill(String validTill) {
+        if (validTill == null || validTill.length() != 5 || validTill.charAt(2) != '/') {
+            return INVALID;
+        }
+        int month = twoDigits(validTill, 0);
+        int year = twoDigits(validTill, 3);
+        if (month < 1 || month > 12 || year < 0) {
+            return INVALID;
+        }
+        return (short) (year << 4 | month);
+    }
+
+    public static String unpackValidTill(short packed) {
+        String validTill = VALID_TILL[packed];
+        if (validTill == null) {
+            int month = packed & 0xF;
+            int year = packed >>> 4;
+            validTill = (month < 10 ? "0" : "") + month + "/" + (year < 10 ? "0" : "") + year;
+            // гонка безопасна: строки равны, какая из них останется в кэше - неважно
+            VALID_TILL[packed] = validTill;
+        }
+        return validTill;
+    }
+
+    public static short packCurrency(String currency) {
+        if (currency == null || currency.length() != 3) {
+            return INVALID;
+        }
+        int packed = 0;
+        for (int i = 0; i < 3; i++) {
+            int letter = currency.charAt(i) - 'A';
+            if (letter < 0 || letter >= 26) {
+                return INVALID;
+            }
+            packed = packed << 5 | letter;
+        }
+        return (short) packed;
+    }
+
+    public static String unpackCurrency(short packed) {
+        String currency = CURRENCIES[packed];
+        if (currency == null) {
+            currency = new String(new char[]{
+                    (char) ('A' + (packed >>> 10 & 0x1F)),
+                    (char) ('A' + (packed >>> 5 & 0x1F)),
+                    (char) ('A' + (packed & 0x1F))});
+            CURRENCIES[packed] = currency;
+        }
+        return currency;
+    }
+
+    private static int twoDigits(String value, int offset) {
+        int high = value.charAt(offset) - '0';
+        int low = value.charAt(offset + 1) - '0';
+        return high < 0 || high > 9 || low < 0 || low > 9 ? INVALID : high * 10 + low;
+    }
+}
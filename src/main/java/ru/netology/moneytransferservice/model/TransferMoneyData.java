@@ -3,6 +3,7 @@ package ru.netology.moneytransferservice.model;
 
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import lombok.Getter;
@@ -12,24 +13,25 @@ import lombok.Setter;
 @Getter
 @Setter
 public class TransferMoneyData {
-    @NotBlank(message = "Enter card number")
-    @Size(min = 16, max = 16, message = "Length of card number must be 16")
+    @NotBlank(message = ValidationMessages.CARD_NUMBER_BLANK)
+    @Size(min = 16, max = 16, message = ValidationMessages.CARD_NUMBER_LENGTH)
     private String cardFromNumber;
 
-    @NotBlank(message = "Enter card expiration date")
+    @NotBlank(message = ValidationMessages.VALID_TILL_BLANK)
     // Регулярное выражение ("(0[1-9]|1[0-2])" - месяц от "01" до "12") ("/([0-9]{2})" -  год в формате "00" до "99")
-    @Pattern(regexp = "(0[1-9]|1[0-2])/([0-9]{2})", message = "Incorrect date")
+    @Pattern(regexp = "(0[1-9]|1[0-2])/([0-9]{2})", message = ValidationMessages.VALID_TILL_PATTERN)
     private String cardFromValidTill;
 
-    @NotBlank(message = "Enter card cvv")
-    @Size(min = 3, max = 3, message = "CVV's length must be 3")
+    @NotBlank(message = ValidationMessages.CVV_BLANK)
+    @Size(min = 3, max = 3, message = ValidationMessages.CVV_LENGTH)
     private String cardFromCVV;
 
-    @NotBlank(message = "Enter card number")
-    @Size(min = 16, max = 16, message = "Length of card number must be 16")
+    @NotBlank(message = ValidationMessages.CARD_NUMBER_BLANK)
+    @Size(min = 16, max = 16, message = ValidationMessages.CARD_NUMBER_LENGTH)
     private String cardToNumber;
 
     @Valid
+    @NotNull(message = ValidationMessages.AMOUNT_BLANK)
     private Amount amount;
     private String id;
 
@@ -0,0 +1,29 @@
+package ru.netology.moneytransferservice.model;
+
+/**
+ * Тексты ошибок проверки перевода: общие для аннотаций Bean Validation и FastTransferValidator,
+ * поэтому оба способа проверки отвечают одинаково.
+ */
+public final class ValidationMessages {
+
+    public static final String CARD_NUMBER_BLANK = "Enter card number";
+    public static final String CARD_NUMBER_LENGTH = "Length of card number must be 16";
+    public static final String VALID_TILL_BLANK = "Enter card expiration date";
+    public static final String VALID_TILL_PATTERN = "Incorrect date";
+    public static final String CVV_BLANK = "Enter card cvv";
+    public static final String CVV_LENGTH = "CVV's length must be 3";
+    public static final String AMOUNT_BLANK = "Enter amount";
+    public static final String AMOUNT_POSITIVE = "The amount cannot be zero or negative";
+    public static final String CURRENCY_BLANK = "Enter currency";
+    // только FastTransferValidator
+    public static final String CARD_NUMBER_CHECKSUM = "Invalid card number";
+    public static final String CARD_EXPIRED = "Card is expired";
+    // только пакетные запросы: пустой элемент массива или NDJSON и подтверждение без полей
+    public static final String TRANSFER_EMPTY = "Empty transfer";
+    public static final String CONFIRMATION_EMPTY = "Empty confirmation";
+    public static final String OPERATION_ID_BLANK = "Enter operation id";
+    public static final String CODE_BLANK = "Enter verification code";
+
+    private ValidationMessages() {
+    }
+}
@@ -0,0 +1,32 @@
+package ru.netology.moneytransferservice.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Ключ клиента для лимита по клиенту и области ключей идемпотентности.
+ * Без заголовка (rate-limit.client.header пуст) - адрес соединения. За обратным прокси у всех запросов
+ * один адрес, поэтому задаётся заголовок, который прокси дописывает сам (например, X-Forwarded-For):
+ * берётся последнее значение - его добавил ближайший прокси, а не клиент. Заголовок задаётся только если
+ * приложение недоступно в обход прокси, иначе клиент подставит любой ключ.
+ */
+public class ClientKeyResolver {
+
+    private final String header;
+
+    public ClientKeyResolver(String header) {
+        this.header = header == null || header.isBlank() ? null : header.trim();
+    }
+
+    public String resolve(HttpServletRequest request) {
+        if (header != null) {
+            String value = request.getHeader(header);
+            if (value != null) {
+                String last = value.substring(value.lastIndexOf(',') + 1).trim();
+                if (!last.isEmpty()) {
+                    return last;
+                }
+            }
+        }
+        return request.getRemoteAddr();
+    }
+}
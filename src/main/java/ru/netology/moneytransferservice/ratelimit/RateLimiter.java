@@ -0,0 +1,111 @@
+package ru.netology.moneytransferservice.ratelimit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограничитель частоты по ключу: не более limit запросов за periodMs с допустимым всплеском до limit.
+ * Алгоритм GCRA (эквивалент token bucket): на ключ хранится одно число - теоретическое время прихода
+ * следующего запроса (TAT), которое обновляется CAS без блокировок.
+ * <p>
+ * Количество ключей ограничено maxKeys. Когда таблица заполнена, новый ключ сначала вытесняет полностью
+ * восстановившиеся ключи (sweep(), их состояние не отличается от нового ключа), а если места так и не нашлось -
+ * запрос отклоняется. Общего лимита для "лишних" ключей нет: поток новых ключей не может исчерпать лимит
+ * уже известных клиентов. Запрос без ключа всегда отклоняется.
+ */
+public class RateLimiter {
+
+    // вытеснение при заполненной таблице - не чаще раза в SWEEP_GAP, чтобы поток новых ключей не занял им CPU
+    private static final long SWEEP_GAP = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep = new AtomicLong(System.nanoTime() - SWEEP_GAP);
+    private final LongAdder rejected = new LongAdder();
+    // интервал между запросами и допустимое опережение, нс; interval = 0 - без ограничения
+    private final long interval;
+    private final long tolerance;
+    private final int maxKeys;
+
+    public RateLimiter(int limit, long periodMs, int maxKeys) {
+        long period = TimeUnit.MILLISECONDS.toNanos(periodMs);
+        this.interval = limit > 0 && period > 0 ? Math.max(1, period / limit) : 0;
+        this.tolerance = interval * (Math.max(limit, 1) - 1);
+        this.maxKeys = maxKeys;
+    }
+
+    public static RateLimiter unlimited() {
+        return new RateLimiter(0, 0, 0);
+    }
+
+    /**
+     * Учесть запрос по ключу. 0 - запрос разрешён, иначе через сколько наносекунд он был бы разрешён.
+     */
+    public long acquire(String key) {
+        if (interval == 0) {
+            return 0;
+        }
+        AtomicLong bucket = bucket(key);
+        if (bucket == null) {
+            rejected.increment();
+            return Math.max(interval, SWEEP_GAP);
+        }
+        long now = System.nanoTime();
+        while (true) {
+            long tat = bucket.get();
+            long start = tat - now > 0 ? tat : now;
+            long ahead = start - now;
+            if (ahead > tolerance) {
+                rejected.increment();
+                return ahead - tolerance;
+            }
+            if (bucket.compareAndSet(tat, start + interval)) {
+                return 0;
+            }
+        }
+    }
+
+    // null - ключа нет или для него нет места
+    private AtomicLong bucket(String key) {
+        if (key == null) {
+            return null;
+        }
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxKeys) {
+            sweepIfDue();
+            if (buckets.size() >= maxKeys) {
+                return null;
+            }
+        }
+        return buckets.computeIfAbsent(key, ignored -> new AtomicLong(System.nanoTime()));
+    }
+
+    private void sweepIfDue() {
+        long now = System.nanoTime();
+        long last = lastSweep.get();
+        if (now - last >= SWEEP_GAP && lastSweep.compareAndSet(last, now)) {
+            sweep();
+        }
+    }
+
+    // удалить ключи, у которых лимит полностью восстановился, возвращает количество удалённых
+    public int sweep() {
+        long now = System.nanoTime();
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+        return before - buckets.size();
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
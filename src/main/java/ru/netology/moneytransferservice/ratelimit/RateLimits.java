@@ -0,0 +1,50 @@
+package ru.netology.moneytransferservice.ratelimit;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.Map;
+
+/**
+ * Ограничители запросов на пути перевода:
+ * card - переводы с одной карты (cardFromNumber),
+ * confirmation - попытки подтверждения одной операции (operationId),
+ * client - все запросы с одного IP-адреса клиента.
+ */
+@Getter
+@RequiredArgsConstructor
+public class RateLimits implements MeterBinder {
+
+    private final RateLimiter card;
+    private final RateLimiter confirmation;
+    private final RateLimiter client;
+
+    public static RateLimits unlimited() {
+        return new RateLimits(RateLimiter.unlimited(), RateLimiter.unlimited(), RateLimiter.unlimited());
+    }
+
+    @Scheduled(fixedDelayString = "${repository.sweep-interval-ms}")
+    public void sweep() {
+        card.sweep();
+        confirmation.sweep();
+        client.sweep();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Map.Entry<String, RateLimiter> limiter : Map.of(
+                "card", card, "confirmation", confirmation, "client", client).entrySet()) {
+            Gauge.builder("transfer.ratelimit.keys", limiter.getValue(), RateLimiter::size)
+                    .tag("limit", limiter.getKey())
+                    .register(registry);
+            FunctionCounter.builder("transfer.ratelimit.rejected", limiter.getValue(), RateLimiter::getRejected)
+                    .tag("limit", limiter.getKey())
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ru.netology.moneytransferservice.repository;
+
+import ru.netology.moneytransferservice.model.ConfirmationData;
+import ru.netology.moneytransferservice.model.Operation;
+import ru.netology.moneytransferservice.model.OperationState;
+import ru.netology.moneytransferservice.model.OperationStatus;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Неблокирующий вариант TransferMoneyRepositoryInterface: результат возвращается через CompletableFuture,
+ * вызывающий поток никогда не ждёт записи на диск.
+ */
+public interface AsyncTransferMoneyRepositoryInterface {
+    CompletableFuture<OperationStatus> saveTransferDataAsync(TransferMoneyData transferMoneyData);
+
+    CompletableFuture<OperationStatus> saveConfirmationDataAsync(ConfirmationData confirmationData);
+
+    CompletableFuture<Operation> findOperation(String operationId);
+
+    CompletableFuture<Boolean> changeStateAsync(Operation operation, OperationState from, OperationState to);
+
+    CompletableFuture<ConfirmResult> confirmAsync(Operation operation);
+}
@@ -0,0 +1,12 @@
+package ru.netology.moneytransferservice.repository;
+
+/**
+ * Результат подтверждения операции в хранилище.
+ */
+public enum ConfirmResult {
+    CONFIRMED,
+    // операция переведена в REJECTED, балансы не изменены
+    INSUFFICIENT_FUNDS,
+    // операция уже не в PENDING
+    ALREADY_FINISHED
+}
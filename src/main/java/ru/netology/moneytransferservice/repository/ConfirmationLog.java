@@ -0,0 +1,70 @@
+package ru.netology.moneytransferservice.repository;
+
+import ru.netology.moneytransferservice.model.ConfirmationData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Журнал выполненных подтверждений с ограничением по количеству и возрасту записей.
+ * Добавление - O(1) без копирования (в отличие от CopyOnWriteArrayList), старейшие записи
+ * вытесняются с головы очереди при превышении maxEntries или по истечении срока хранения.
+ */
+public class ConfirmationLog {
+
+    private record Entry(ConfirmationData confirmationData, long confirmedAt) {
+    }
+
+    private final Queue<Entry> entries = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int maxEntries;
+
+    public ConfirmationLog(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    // возвращает количество вытесненных записей
+    public int add(ConfirmationData confirmationData, long confirmedAt) {
+        entries.add(new Entry(confirmationData, confirmedAt));
+        if (size.incrementAndGet() > maxEntries && entries.poll() != null) {
+            size.decrementAndGet();
+            return 1;
+        }
+        return 0;
+    }
+
+    // удалить записи старше cutoff, возвращает количество удалённых
+    public int evictOlderThan(long cutoff) {
+        int evicted = 0;
+        Entry head;
+        while ((head = entries.peek()) != null && head.confirmedAt() < cutoff) {
+            if (entries.remove(head)) {
+                size.decrementAndGet();
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public void forEach(ObjLongConsumer<ConfirmationData> action) {
+        for (Entry entry : entries) {
+            action.accept(entry.confirmationData(), entry.confirmedAt());
+        }
+    }
+
+    public List<ConfirmationData> snapshot() {
+        List<ConfirmationData> snapshot = new ArrayList<>(size());
+        for (Entry entry : entries) {
+            snapshot.add(entry.confirmationData());
+        }
+        return snapshot;
+    }
+}
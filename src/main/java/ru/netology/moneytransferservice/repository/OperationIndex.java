@@ -0,0 +1,143 @@
+package ru.netology.moneytransferservice.repository;
+
+import ru.netology.moneytransferservice.model.Operation;
+import ru.netology.moneytransferservice.model.OperationState;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Вторичные индексы хранилища операций для запросов истории: все операции, операции по карте
+ * (отправителя и получателя) и операции по состоянию. Каждый индекс - отсортированное множество
+ * ключей (createdAt, operationId) от новых к старым, поэтому диапазон времени и продолжение с курсора -
+ * это поиск в skip list за O(log n), а не обход всего хранилища.
+ * <p>
+ * Индекс по состоянию обновляется после смены состояния операции, поэтому при чтении состояние
+ * операции проверяется ещё раз.
+ */
+public class OperationIndex {
+
+    // символ больше любого символа operationId: граница "после всех операций этой миллисекунды"
+    private static final String MAX_ID = "\uffff";
+
+    public record Key(long createdAt, String operationId) implements Comparable<Key> {
+
+        public static Key of(Operation operation) {
+            return new Key(operation.getCreatedAt(), operation.getId());
+        }
+
+        // новые раньше старых, при равном времени - по убыванию id
+        @Override
+        public int compareTo(Key other) {
+            int byTime = Long.compare(other.createdAt, createdAt);
+            return byTime != 0 ? byTime : other.operationId.compareTo(operationId);
+        }
+    }
+
+    private final NavigableSet<Key> all = new ConcurrentSkipListSet<>();
+    private final Map<String, NavigableSet<Key>> byCard = new ConcurrentHashMap<>();
+    private final Map<OperationState, NavigableSet<Key>> byState = new EnumMap<>(OperationState.class);
+
+    public OperationIndex() {
+        for (OperationState state : OperationState.values()) {
+            byState.put(state, new ConcurrentSkipListSet<>());
+        }
+    }
+
+    public void add(Operation operation) {
+        Key key = Key.of(operation);
+        all.add(key);
+        addToCard(operation.getCardFromNumber(), key);
+        addToCard(operation.getCardToNumber(), key);
+        byState.get(operation.getState()).add(key);
+    }
+
+    public void remove(Operation operation) {
+        Key key = Key.of(operation);
+        all.remove(key);
+        removeFromCard(operation.getCardFromNumber(), key);
+        removeFromCard(operation.getCardToNumber(), key);
+        for (NavigableSet<Key> keys : byState.values()) {
+            keys.remove(key);
+        }
+    }
+
+    public void changeState(Operation operation, OperationState from, OperationState to) {
+        Key key = Key.of(operation);
+        byState.get(to).add(key);
+        byState.get(from).remove(key);
+    }
+
+    public void clear() {
+        all.clear();
+        byCard.clear();
+        for (NavigableSet<Key> keys : byState.values()) {
+            keys.clear();
+        }
+    }
+
+    /**
+     * Ключи операций, подходящих под карту, состояние и диапазон времени запроса, от новых к старым,
+     * начиная после курсора. Из нескольких условий выбирается одно множество (карта, иначе состояние),
+     * остальные условия проверяет вызывающий по самой операции.
+     */
+    public NavigableSet<Key> find(OperationQuery query) {
+        NavigableSet<Key> keys;
+        if (query.card() != null) {
+            keys = byCard.getOrDefault(query.card(), Collections.emptyNavigableSet());
+        } else if (query.state() != null) {
+            keys = byState.get(query.state());
+        } else {
+            keys = all;
+        }
+        if (query.fromMs() >= query.toMs()) {
+            return Collections.emptyNavigableSet();
+        }
+        // [fromMs, toMs): первый ключ - самый новый с createdAt < toMs, граница - первый с createdAt < fromMs
+        Key first = new Key(query.toMs() - 1, MAX_ID);
+        Key end = new Key(query.fromMs() - 1, MAX_ID);
+        Key after = query.after();
+        if (after == null || after.compareTo(first) < 0) {
+            return keys.subSet(first, true, end, false);
+        }
+        if (after.compareTo(end) >= 0) {
+            return Collections.emptyNavigableSet();
+        }
+        return keys.subSet(after, false, end, false);
+    }
+
+    // ключи операций в состоянии state, созданных раньше before; более новые ключи не обходятся
+    public NavigableSet<Key> createdBefore(OperationState state, long before) {
+        return byState.get(state).tailSet(new Key(before - 1, MAX_ID), true);
+    }
+
+    public int size() {
+        return all.size();
+    }
+
+    // compute выполняется под блокировкой ключа map, поэтому пустое множество не удалится одновременно с добавлением
+    private void addToCard(String card, Key key) {
+        if (card == null) {
+            return;
+        }
+        byCard.compute(card, (ignored, keys) -> {
+            NavigableSet<Key> cardKeys = keys != null ? keys : new ConcurrentSkipListSet<>();
+            cardKeys.add(key);
+            return cardKeys;
+        });
+    }
+
+    private void removeFromCard(String card, Key key) {
+        if (card == null) {
+            return;
+        }
+        byCard.computeIfPresent(card, (ignored, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+}
@@ -0,0 +1,11 @@
+package ru.netology.moneytransferservice.repository;
+
+import ru.netology.moneytransferservice.model.OperationState;
+
+/**
+ * Условия запроса истории операций: карта (отправителя или получателя), состояние, диапазон времени
+ * создания [fromMs, toMs) и позиция, после которой продолжить (null - с самой новой операции).
+ * card и state могут быть null - без ограничения.
+ */
+public record OperationQuery(String card, OperationState state, long fromMs, long toMs, OperationIndex.Key after) {
+}
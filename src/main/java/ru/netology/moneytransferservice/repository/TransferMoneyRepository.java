@@ -1,45 +1,346 @@
 package ru.netology.moneytransferservice.repository;
 
+import lombok.AccessLevel;
 import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Repository;
+import ru.netology.moneytransferservice.id.OperationIdGenerator;
 import ru.netology.moneytransferservice.model.ConfirmationData;
+import ru.netology.moneytransferservice.model.Operation;
+import ru.netology.moneytransferservice.model.OperationState;
 import ru.netology.moneytransferservice.model.OperationStatus;
 import ru.netology.moneytransferservice.model.TransferMoneyData;
+import ru.netology.moneytransferservice.repository.ledger.Ledger;
 
-import java.util.Deque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.CopyOnWriteArrayList;
-
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.Stream;
 
+/**
+ * Хранилище операций в памяти. Неподтверждённые операции переводятся в EXPIRED по истечении
+ * operationTtlMs (сразу при обращении и периодическим обходом evictExpired), завершённые операции
+ * и подтверждения удаляются через retentionMs, журнал подтверждений ограничен по количеству записей.
+ * evictExpired обходит не всё хранилище, а только старые ключи индекса по состоянию: операция,
+ * созданная позже границы, не могла ни истечь, ни завершиться раньше неё.
+ * Подтверждение проводит перевод по балансам карт в Ledger.
+ * Для запросов истории операции дополнительно индексируются в OperationIndex.
+ */
 @Getter
 @Repository
-public class TransferMoneyRepository implements TransferMoneyRepositoryInterface {
+@ConditionalOnProperty(name = "repository.type", havingValue = "memory", matchIfMissing = true)
+public class TransferMoneyRepository implements TransferMoneyRepositoryInterface,
+        AsyncTransferMoneyRepositoryInterface {
 
-    private final String ZERO = "0000";
+    private static final OperationState[] FINISHED_STATES = Arrays.stream(OperationState.values())
+            .filter(state -> state != OperationState.PENDING)
+            .toArray(OperationState[]::new);
 
-    // Map операции
-    private final Map<String, String> operations = new ConcurrentHashMap<>();
-    // переводы
-    private final Deque<TransferMoneyData> transfers = new ConcurrentLinkedDeque<>();
+    // операции по operationId: перевод, код и состояние
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
     // подтверждения
-    private final List<ConfirmationData> confirmations = new CopyOnWriteArrayList<>();
+    @Getter(AccessLevel.NONE)
+    private final ConfirmationLog confirmationLog;
+    // вторичные индексы по времени, карте и состоянию
+    @Getter(AccessLevel.NONE)
+    private final OperationIndex index = new OperationIndex();
+
+    private final long operationTtlMs;
+    private final long retentionMs;
+    private final Ledger ledger;
+    @Getter(AccessLevel.NONE)
+    private final OperationIdGenerator idGenerator;
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong pendingOperations = new AtomicLong();
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong expiredOperations = new AtomicLong();
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong evictedOperations = new AtomicLong();
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong evictedConfirmationsByAge = new AtomicLong();
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong evictedConfirmationsByCapacity = new AtomicLong();
+
+    public TransferMoneyRepository(@Value("${repository.operation-ttl-ms}") long operationTtlMs,
+                                   @Value("${repository.retention-ms}") long retentionMs,
+                                   @Value("${repository.confirmations.max-entries}") int maxConfirmations,
+                                   Ledger ledger,
+                                   OperationIdGenerator idGenerator) {
+        this.operationTtlMs = operationTtlMs;
+        this.ledger = ledger;
+        this.idGenerator = idGenerator;
+        this.retentionMs = retentionMs;
+        this.confirmationLog = new ConfirmationLog(maxConfirmations);
+    }
 
     // сохранить данные передачи
     @Override
     public OperationStatus saveTransferData(TransferMoneyData transferMoneyData) {
-        operations.put(transferMoneyData.getId(), ZERO);
-        transfers.push(transferMoneyData);
-        return new OperationStatus(transferMoneyData.getId(), "Operation Transfer!");
+        return putTransfer(transferMoneyData);
     }
 
     // сохранить данные подтверждения
     @Override
     public OperationStatus saveConfirmationData(ConfirmationData confirmationData) {
-        confirmations.add(confirmationData);
-        return new OperationStatus(String.valueOf(UUID.randomUUID()), "Operation Confirmed!");
+        return addConfirmation(confirmationData, System.currentTimeMillis());
+    }
+
+    // сохранить пачку переводов за один проход
+    @Override
+    public List<OperationStatus> saveTransferDataBatch(List<TransferMoneyData> transfers) {
+        List<OperationStatus> statuses = new ArrayList<>(transfers.size());
+        for (TransferMoneyData transferMoneyData : transfers) {
+            statuses.add(putTransfer(transferMoneyData));
+        }
+        return statuses;
+    }
+
+    // сохранить пачку подтверждений за один проход
+    @Override
+    public List<OperationStatus> saveConfirmationDataBatch(List<ConfirmationData> confirmations) {
+        List<OperationStatus> statuses = new ArrayList<>(confirmations.size());
+        long now = System.currentTimeMillis();
+        for (ConfirmationData confirmationData : confirmations) {
+            statuses.add(addConfirmation(confirmationData, now));
+        }
+        return statuses;
+    }
+
+    private OperationStatus putTransfer(TransferMoneyData transferMoneyData) {
+        Operation operation = new Operation(transferMoneyData);
+        Operation previous = operations.put(transferMoneyData.getId(), operation);
+        if (previous == null || previous.getState() != OperationState.PENDING) {
+            pendingOperations.incrementAndGet();
+        }
+        if (previous != null) {
+            index.remove(previous);
+        }
+        index.add(operation);
+        return new OperationStatus(transferMoneyData.getId(), "Operation Transfer!");
+    }
+
+    private OperationStatus addConfirmation(ConfirmationData confirmationData, long confirmedAt) {
+        evictedConfirmationsByCapacity.addAndGet(confirmationLog.add(confirmationData, confirmedAt));
+        return new OperationStatus(idGenerator.nextId(), "Operation Confirmed!");
+    }
+
+    // найти операцию по её id, просроченная операция сразу переводится в EXPIRED
+    @Override
+    public Operation getOperation(String operationId) {
+        Operation operation = operationId == null ? null : operations.get(operationId);
+        if (operation != null && operation.getCreatedAt() < System.currentTimeMillis() - operationTtlMs) {
+            expire(operation);
+        }
+        return operation;
+    }
+
+    // перевести операцию из состояния from в to, false - состояние уже изменено другим потоком
+    @Override
+    public boolean changeState(Operation operation, OperationState from, OperationState to) {
+        if (!operation.transition(from, to)) {
+            return false;
+        }
+        index.changeState(operation, from, to);
+        if (from == OperationState.PENDING) {
+            pendingOperations.decrementAndGet();
+        }
+        if (to == OperationState.PENDING) {
+            pendingOperations.incrementAndGet();
+        }
+        if (to == OperationState.EXPIRED) {
+            expiredOperations.incrementAndGet();
+        }
+        return true;
+    }
+
+    // проводка и смена состояния PENDING -> CONFIRMED выполняются под блокировками карт отправителя и получателя
+    @Override
+    public ConfirmResult confirm(Operation operation) {
+        Ledger.Result posted = post(operation);
+        if (posted == Ledger.Result.INSUFFICIENT_FUNDS) {
+            return changeState(operation, OperationState.PENDING, OperationState.REJECTED)
+                    ? ConfirmResult.INSUFFICIENT_FUNDS : ConfirmResult.ALREADY_FINISHED;
+        }
+        return posted == Ledger.Result.APPLIED ? ConfirmResult.CONFIRMED : ConfirmResult.ALREADY_FINISHED;
+    }
+
+    @Override
+    public CompletableFuture<ConfirmResult> confirmAsync(Operation operation) {
+        Ledger.Result posted = post(operation);
+        if (posted == Ledger.Result.INSUFFICIENT_FUNDS) {
+            return changeStateAsync(operation, OperationState.PENDING, OperationState.REJECTED)
+                    .thenApply(rejected -> rejected ? ConfirmResult.INSUFFICIENT_FUNDS : ConfirmResult.ALREADY_FINISHED);
+        }
+        return CompletableFuture.completedFuture(
+                posted == Ledger.Result.APPLIED ? ConfirmResult.CONFIRMED : ConfirmResult.ALREADY_FINISHED);
+    }
+
+    private Ledger.Result post(Operation operation) {
+        return ledger.transfer(operation.getCardFromNumber(), operation.getCardToNumber(),
+                operation.getAmount().value(),
+                () -> changeState(operation, OperationState.PENDING, OperationState.CONFIRMED));
+    }
+
+    // хранилище в памяти не блокируется, поэтому неблокирующие варианты сразу возвращают результат
+    @Override
+    public CompletableFuture<OperationStatus> saveTransferDataAsync(TransferMoneyData transferMoneyData) {
+        return CompletableFuture.completedFuture(saveTransferData(transferMoneyData));
+    }
+
+    @Override
+    public CompletableFuture<OperationStatus> saveConfirmationDataAsync(ConfirmationData confirmationData) {
+        return CompletableFuture.completedFuture(saveConfirmationData(confirmationData));
+    }
+
+    @Override
+    public CompletableFuture<Operation> findOperation(String operationId) {
+        return CompletableFuture.completedFuture(getOperation(operationId));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> changeStateAsync(Operation operation, OperationState from, OperationState to) {
+        return CompletableFuture.completedFuture(changeState(operation, from, to));
+    }
+
+    // операции в порядке от новых к старым; обход ленивый и не копирует индекс,
+    // операции, добавленные во время обхода, могут как попасть, так и не попасть в результат
+    @Override
+    public Stream<Operation> findOperations(OperationQuery query) {
+        return index.find(query).stream()
+                .map(key -> operations.get(key.operationId()))
+                .filter(Objects::nonNull)
+                .filter(operation -> query.state() == null || operation.getState() == query.state());
+    }
+
+    @Override
+    public List<ConfirmationData> getConfirmations() {
+        return confirmationLog.snapshot();
+    }
+
+    // периодическая очистка: просрочка ожидающих операций и удаление старых завершённых
+    @Scheduled(fixedDelayString = "${repository.sweep-interval-ms}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        long removeBefore = now - retentionMs;
+
+        for (OperationIndex.Key key : index.createdBefore(OperationState.PENDING, now - operationTtlMs)) {
+            Operation operation = operations.get(key.operationId());
+            if (operation != null) {
+                expire(operation);
+            }
+        }
+        // завершённая операция создана не позже, чем завершена
+        for (OperationState state : FINISHED_STATES) {
+            for (OperationIndex.Key key : index.createdBefore(state, removeBefore)) {
+                Operation operation = operations.get(key.operationId());
+                if (operation == null || operation.getState() != state) {
+                    continue;
+                }
+                long finishedAt = operation.getFinishedAt();
+                if (finishedAt != 0 && finishedAt < removeBefore && operations.remove(key.operationId(), operation)) {
+                    index.remove(operation);
+                    evictedOperations.incrementAndGet();
+                    evicted(operation);
+                }
+            }
+        }
+        evictedConfirmationsByAge.addAndGet(confirmationLog.evictOlderThan(removeBefore));
+    }
+
+    // операция удалена по retentionMs
+    protected void evicted(Operation operation) {
+    }
+
+    private void expire(Operation operation) {
+        changeState(operation, OperationState.PENDING, OperationState.EXPIRED);
+    }
+
+    // принять операции другого узла кластера, существующие операции с теми же id не заменяются;
+    // возвращает принятые
+    public List<Operation> adopt(List<Operation> adopted) {
+        List<Operation> accepted = new ArrayList<>(adopted.size());
+        for (Operation operation : adopted) {
+            if (operations.putIfAbsent(operation.getId(), operation) != null) {
+                continue;
+            }
+            if (operation.getState() == OperationState.PENDING) {
+                pendingOperations.incrementAndGet();
+            }
+            index.add(operation);
+            accepted.add(operation);
+        }
+        return accepted;
+    }
+
+    // удалить операции, переданные другому узлу кластера; возвращает удалённые
+    public List<Operation> release(List<String> operationIds) {
+        List<Operation> released = new ArrayList<>(operationIds.size());
+        for (String operationId : operationIds) {
+            Operation operation = operations.remove(operationId);
+            if (operation == null) {
+                continue;
+            }
+            index.remove(operation);
+            if (operation.getState() == OperationState.PENDING) {
+                pendingOperations.decrementAndGet();
+            }
+            released.add(operation);
+        }
+        return released;
+    }
+
+    // восстановление подтверждения с исходным временем (используется при загрузке журнала)
+    protected void restoreConfirmation(ConfirmationData confirmationData, long confirmedAt) {
+        confirmationLog.add(confirmationData, confirmedAt);
+    }
+
+    // пересчёт ожидающих операций и индексов после загрузки состояния в обход saveTransferData
+    protected void recountPending() {
+        long pending = 0;
+        index.clear();
+        for (Operation operation : operations.values()) {
+            if (operation.getState() == OperationState.PENDING) {
+                pending++;
+            }
+            index.add(operation);
+        }
+        pendingOperations.set(pending);
+    }
+
+    protected void forEachConfirmation(ObjLongConsumer<ConfirmationData> action) {
+        confirmationLog.forEach(action);
+    }
+
+    public int getConfirmationsSize() {
+        return confirmationLog.size();
+    }
+
+    public long getPendingOperations() {
+        return pendingOperations.get();
+    }
+
+    public long getExpiredOperations() {
+        return expiredOperations.get();
+    }
+
+    public long getEvictedOperations() {
+        return evictedOperations.get();
+    }
+
+    public long getEvictedConfirmationsByAge() {
+        return evictedConfirmationsByAge.get();
+    }
+
+    public long getEvictedConfirmationsByCapacity() {
+        return evictedConfirmationsByCapacity.get();
     }
-}
\ No newline at end of file
+}
@@ -1,21 +1,35 @@
 package ru.netology.moneytransferservice.repository;
 
 import ru.netology.moneytransferservice.model.ConfirmationData;
+import ru.netology.moneytransferservice.model.Operation;
+import ru.netology.moneytransferservice.model.OperationState;
 import ru.netology.moneytransferservice.model.OperationStatus;
 import ru.netology.moneytransferservice.model.TransferMoneyData;
 
-import java.util.Deque;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 public interface TransferMoneyRepositoryInterface {
     OperationStatus saveTransferData(TransferMoneyData transferMoneyData);
 
     OperationStatus saveConfirmationData(ConfirmationData confirmationData);
 
-    Map<String, String> getOperations();
+    List<OperationStatus> saveTransferDataBatch(List<TransferMoneyData> transfers);
 
-    Deque<TransferMoneyData> getTransfers();
+    List<OperationStatus> saveConfirmationDataBatch(List<ConfirmationData> confirmations);
+
+    Operation getOperation(String operationId);
+
+    boolean changeState(Operation operation, OperationState from, OperationState to);
+
+    // перевести операцию в CONFIRMED с проводкой по балансам карт
+    ConfirmResult confirm(Operation operation);
+
+    Map<String, Operation> getOperations();
+
+    // операции, подходящие под query, от новых к старым; поток ленивый и не копирует хранилище
+    Stream<Operation> findOperations(OperationQuery query);
 
     List<ConfirmationData> getConfirmations();
 }
@@ -0,0 +1,51 @@
+package ru.netology.moneytransferservice.repository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Размеры коллекций хранилища и счётчики вытеснения, доступны через /actuator/metrics.
+ */
+@RequiredArgsConstructor
+@Component
+public class TransferMoneyRepositoryMetrics implements MeterBinder {
+
+    private final TransferMoneyRepository transferMoneyRepository;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("transfer.repository.size", transferMoneyRepository, r -> r.getOperations().size())
+                .tag("collection", "operations")
+                .register(registry);
+        Gauge.builder("transfer.repository.size", transferMoneyRepository,
+                        TransferMoneyRepository::getConfirmationsSize)
+                .tag("collection", "confirmations")
+                .register(registry);
+
+        Gauge.builder("transfer.repository.pending", transferMoneyRepository,
+                        TransferMoneyRepository::getPendingOperations)
+                .description("Operations waiting for confirmation")
+                .register(registry);
+
+        FunctionCounter.builder("transfer.repository.expired", transferMoneyRepository,
+                        TransferMoneyRepository::getExpiredOperations)
+                .description("Pending operations moved to EXPIRED")
+                .register(registry);
+        FunctionCounter.builder("transfer.repository.evictions", transferMoneyRepository,
+                        TransferMoneyRepository::getEvictedOperations)
+                .tags("collection", "operations", "reason", "retention")
+                .register(registry);
+        FunctionCounter.builder("transfer.repository.evictions", transferMoneyRepository,
+                        TransferMoneyRepository::getEvictedConfirmationsByAge)
+                .tags("collection", "confirmations", "reason", "retention")
+                .register(registry);
+        FunctionCounter.builder("transfer.repository.evictions", transferMoneyRepository,
+                        TransferMoneyRepository::getEvictedConfirmationsByCapacity)
+                .tags("collection", "confirmations", "reason", "capacity")
+                .register(registry);
+    }
+}
@@ -0,0 +1,13 @@
+package ru.netology.moneytransferservice.repository.journal;
+
+/**
+ * Режимы надёжности журнала:
+ * BATCH - fsync после каждой пачки записей, вызов ждёт fsync своей пачки (group commit),
+ * INTERVAL - fsync не чаще раза в fsyncInterval, вызов не ждёт записи на диск,
+ * NONE - без fsync, данные остаются в кэше ОС.
+ */
+public enum DurabilityMode {
+    BATCH,
+    INTERVAL,
+    NONE
+}
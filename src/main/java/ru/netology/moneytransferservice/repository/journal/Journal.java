@@ -0,0 +1,388 @@
+package ru.netology.moneytransferservice.repository.journal;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only журнал из сегментных файлов segment-NNNNNNNN.log.
+ * Запись: [int длина][int crc32][payload], payload не длиннее MAX_RECORD_BYTES. Вызывающие потоки только добавляют запись в общую пачку,
+ * единственный поток-писатель пишет пачку одним gathering write и делает один fsync на всю пачку.
+ * Сегмент сменяется по достижении segmentMaxBytes или по запросу rotate() перед снимком.
+ */
+public class Journal implements Closeable {
+
+    private static final byte[] ROTATE = new byte[0];
+    private static final int HEADER_BYTES = 8;
+    // с запасом больше любой записи JournalCodec; длина сверх него при чтении означает повреждённый хвост
+    public static final int MAX_RECORD_BYTES = 1 << 20;
+
+    private final Path directory;
+    private final DurabilityMode durabilityMode;
+    private final long fsyncIntervalNanos;
+    private final long segmentMaxBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition completed = lock.newCondition();
+    private List<byte[]> pending = new ArrayList<>();
+    private List<byte[]> writing = new ArrayList<>();
+    private long appendedSequence;
+    private long completedSequence;
+    private boolean running = true;
+    private IOException failure;
+
+    // используются только потоком-писателем
+    private FileChannel channel;
+    private int segmentIndex;
+    private volatile int rotatedSegmentIndex;
+
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>(Comparator.comparingLong(Waiter::sequence));
+
+    private final Thread writer;
+
+    private record Waiter(long sequence, CompletableFuture<Void> future) {
+    }
+
+    public Journal(Path directory, int firstSegmentIndex, DurabilityMode durabilityMode,
+                   long fsyncIntervalMs, long segmentMaxBytes) throws IOException {
+        this.directory = directory;
+        this.durabilityMode = durabilityMode;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMs);
+        this.segmentMaxBytes = segmentMaxBytes;
+        Files.createDirectories(directory);
+        this.segmentIndex = firstSegmentIndex;
+        this.channel = openSegment(firstSegmentIndex);
+
+        this.writer = new Thread(this::writeLoop, "journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public static Path segmentPath(Path directory, int index) {
+        return directory.resolve(String.format("segment-%08d.log", index));
+    }
+
+    // номера существующих сегментов по возрастанию
+    public static List<Integer> segmentIndexes(Path directory) throws IOException {
+        List<Integer> indexes = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return indexes;
+        }
+        try (var files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith("segment-") && name.endsWith(".log"))
+                    .map(name -> Integer.parseInt(name.substring(8, name.length() - 4)))
+                    .sorted()
+                    .forEach(indexes::add);
+        }
+        return indexes;
+    }
+
+    // последовательное чтение записей сегмента; оборванная или повреждённая запись в хвосте завершает чтение.
+    // Длина из заголовка проверяется до выделения буфера: мусор в хвосте не должен запрашивать гигабайты
+    public static void read(Path segment, Consumer<byte[]> consumer) throws IOException {
+        long remaining = Files.size(segment);
+        try (InputStream stream = Files.newInputStream(segment);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16))) {
+            CRC32 crc = new CRC32();
+            while (true) {
+                int length;
+                int checksum;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    remaining -= HEADER_BYTES;
+                    if (length <= 0 || length > MAX_RECORD_BYTES || length > remaining) {
+                        return;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    remaining -= length;
+                } catch (EOFException e) {
+                    return;
+                }
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    return;
+                }
+                consumer.accept(payload);
+            }
+        }
+    }
+
+    // добавить запись, возвращает её порядковый номер для awaitDurable
+    public long append(byte[] payload) {
+        byte[] record = frame(payload);
+        lock.lock();
+        try {
+            if (!running) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            pending.add(record);
+            notEmpty.signal();
+            return ++appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // добавить несколько записей одной операцией, возвращает номер последней
+    public long appendAll(List<byte[]> payloads) {
+        List<byte[]> records = new ArrayList<>(payloads.size());
+        for (byte[] payload : payloads) {
+            records.add(frame(payload));
+        }
+        lock.lock();
+        try {
+            if (!running) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            pending.addAll(records);
+            notEmpty.signal();
+            appendedSequence += records.size();
+            return appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // в режиме BATCH ждёт fsync пачки с записью sequence, в остальных режимах возвращается сразу
+    public void awaitDurable(long sequence) {
+        if (durabilityMode == DurabilityMode.BATCH) {
+            awaitCompleted(sequence);
+        }
+    }
+
+    // закрыть текущий сегмент; все ранее добавленные записи гарантированно лежат в сегментах
+    // с номером меньше возвращаемого
+    public int rotate() {
+        long sequence;
+        lock.lock();
+        try {
+            pending.add(ROTATE);
+            notEmpty.signal();
+            sequence = ++appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+        awaitCompleted(sequence);
+        return rotatedSegmentIndex;
+    }
+
+    // неблокирующий вариант awaitDurable: future завершается потоком-писателем после fsync пачки
+    public CompletableFuture<Void> whenDurable(long sequence) {
+        if (durabilityMode != DurabilityMode.BATCH) {
+            return CompletableFuture.completedFuture(null);
+        }
+        lock.lock();
+        try {
+            if (failure != null) {
+                return CompletableFuture.failedFuture(new UncheckedIOException(failure));
+            }
+            if (completedSequence >= sequence) {
+                return CompletableFuture.completedFuture(null);
+            }
+            Waiter waiter = new Waiter(sequence, new CompletableFuture<>());
+            waiters.add(waiter);
+            return waiter.future();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitCompleted(long sequence) {
+        lock.lock();
+        try {
+            while (completedSequence < sequence && failure == null) {
+                completed.awaitUninterruptibly();
+            }
+            if (failure != null) {
+                throw new UncheckedIOException(failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeLoop() {
+        long lastForce = System.nanoTime();
+        boolean dirty = false;
+        while (true) {
+            List<byte[]> batch;
+            long batchSequence;
+            lock.lock();
+            try {
+                while (pending.isEmpty() && running) {
+                    if (dirty && durabilityMode == DurabilityMode.INTERVAL) {
+                        long wait = fsyncIntervalNanos - (System.nanoTime() - lastForce);
+                        if (wait <= 0) {
+                            break;
+                        }
+                        notEmpty.awaitNanos(wait);
+                    } else {
+                        notEmpty.awaitUninterruptibly();
+                    }
+                }
+                if (pending.isEmpty() && !running) {
+                    break;
+                }
+                batch = pending;
+                pending = writing;
+                writing = batch;
+                batchSequence = appendedSequence;
+            } catch (InterruptedException e) {
+                continue;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                    dirty = true;
+                }
+                long now = System.nanoTime();
+                if (dirty && (durabilityMode == DurabilityMode.BATCH
+                        || durabilityMode == DurabilityMode.INTERVAL && now - lastForce >= fsyncIntervalNanos)) {
+                    channel.force(false);
+                    lastForce = now;
+                    dirty = false;
+                }
+                if (channel.position() >= segmentMaxBytes) {
+                    nextSegment();
+                    dirty = false;
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+
+            List<Waiter> ready = new ArrayList<>();
+            IOException result;
+            lock.lock();
+            try {
+                batch.clear();
+                if (error != null && failure == null) {
+                    failure = error;
+                }
+                result = failure;
+                completedSequence = batchSequence;
+                completed.signalAll();
+                while (!waiters.isEmpty() && (result != null || waiters.peek().sequence() <= batchSequence)) {
+                    ready.add(waiters.poll());
+                }
+            } finally {
+                lock.unlock();
+            }
+            for (Waiter waiter : ready) {
+                if (result != null) {
+                    waiter.future().completeExceptionally(new UncheckedIOException(result));
+                } else {
+                    waiter.future().complete(null);
+                }
+            }
+        }
+        try {
+            if (durabilityMode != DurabilityMode.NONE) {
+                channel.force(false);
+            }
+            channel.close();
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    private void writeBatch(List<byte[]> batch) throws IOException {
+        List<ByteBuffer> buffers = new ArrayList<>(batch.size());
+        for (byte[] record : batch) {
+            if (record == ROTATE) {
+                write(buffers);
+                nextSegment();
+                rotatedSegmentIndex = segmentIndex;
+            } else {
+                buffers.add(ByteBuffer.wrap(record));
+            }
+        }
+        write(buffers);
+    }
+
+    private void write(List<ByteBuffer> buffers) throws IOException {
+        if (buffers.isEmpty()) {
+            return;
+        }
+        ByteBuffer[] array = buffers.toArray(new ByteBuffer[0]);
+        ByteBuffer last = array[array.length - 1];
+        while (last.hasRemaining()) {
+            channel.write(array);
+        }
+        buffers.clear();
+    }
+
+    private void nextSegment() throws IOException {
+        if (durabilityMode != DurabilityMode.NONE) {
+            channel.force(false);
+        }
+        channel.close();
+        segmentIndex++;
+        channel = openSegment(segmentIndex);
+    }
+
+    private FileChannel openSegment(int index) throws IOException {
+        return FileChannel.open(segmentPath(directory, index),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static byte[] frame(byte[] payload) {
+        if (payload.length > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Journal record too large: " + payload.length + " bytes");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return ByteBuffer.allocate(HEADER_BYTES + payload.length)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .put(payload)
+                .array();
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (!running) {
+                return;
+            }
+            running = false;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package ru.netology.moneytransferservice.repository.journal;
+
+import ru.netology.moneytransferservice.model.Amount;
+import ru.netology.moneytransferservice.model.ConfirmationData;
+import ru.netology.moneytransferservice.model.Operation;
+import ru.netology.moneytransferservice.model.OperationState;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.UUID;
+
+/**
+ * Двоичный формат записей журнала, снимка и передачи операций между узлами кластера. CVV карты не сохраняется.
+ * <p>
+ * Операция пишется в упакованном виде (см. Operation и TransferCodec): id в формате UUID - двумя long,
+ * номера карт, сумма, срок и валюта - примитивами, около 60 байт вместо ~120 в строковом формате.
+ * Записи TRANSFER и снимки прежнего строкового формата (LEGACY_TRANSFER) по-прежнему читаются.
+ * CODE - запись кода подтверждения из ConfirmationCodes (хэш и meta, сам код не хранится).
+ * RELEASE - операция передана другому узлу кластера и удалена из хранилища; принятая от другого узла
+ * операция пишется записью TRANSFER.
+ * Записи кодируются в буфер потока, который переиспользуется между вызовами: на запись создаётся
+ * только итоговый массив.
+ */
+public final class JournalCodec {
+
+    public static final byte LEGACY_TRANSFER = 1;
+    public static final byte STATE = 2;
+    public static final byte CONFIRMATION = 3;
+    public static final byte TRANSFER = 4;
+    public static final byte CODE = 5;
+    public static final byte RELEASE = 6;
+
+    private static final int PACKED = 1;
+    private static final int UUID_ID = 2;
+    private static final int MAX_POOLED_BUFFER = 1 << 16;
+    private static final OperationState[] STATES = OperationState.values();
+    private static final ThreadLocal<Buffer> BUFFERS = ThreadLocal.withInitial(Buffer::new);
+
+    private JournalCodec() {
+    }
+
+    public static byte[] transfer(Operation operation) {
+        return encode(out -> {
+            out.writeByte(TRANSFER);
+            writeOperation(out, operation);
+        });
+    }
+
+    public static byte[] state(String operationId, OperationState state, long finishedAt) {
+        return encode(out -> {
+            out.writeByte(STATE);
+            out.writeUTF(operationId);
+            out.writeByte(state.ordinal());
+            out.writeLong(finishedAt);
+        });
+    }
+
+    public static byte[] confirmation(ConfirmationData confirmationData, long confirmedAt) {
+        return encode(out -> {
+            out.writeByte(CONFIRMATION);
+            writeConfirmation(out, confirmationData, confirmedAt);
+        });
+    }
+
+    public static byte[] release(String operationId) {
+        return encode(out -> {
+            out.writeByte(RELEASE);
+            out.writeUTF(operationId);
+        });
+    }
+
+    public static byte[] code(String operationId, long[] entry) {
+        return encode(out -> {
+            out.writeByte(CODE);
+            writeCode(out, operationId, entry);
+        });
+    }
+
+    // запись кода {hash1, hash2, meta} операции operationId
+    public static void writeCode(DataOutput out, String operationId, long[] entry) throws IOException {
+        out.writeUTF(operationId);
+        for (long word : entry) {
+            out.writeLong(word);
+        }
+    }
+
+    // {hash1, hash2, meta} после id, прочитанного readUTF
+    public static long[] readCodeEntry(DataInput in) throws IOException {
+        return new long[]{in.readLong(), in.readLong(), in.readLong()};
+    }
+
+    // операция целиком, включая состояние (для снимка и передачи другому узлу)
+    public static void writeOperation(DataOutput out, Operation operation) throws IOException {
+        UUID uuid = uuid(operation.getId());
+        out.writeByte((operation.isPacked() ? PACKED : 0) | (uuid != null ? UUID_ID : 0));
+        if (uuid != null) {
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        } else {
+            writeString(out, operation.getId());
+        }
+        out.writeLong(operation.getCreatedAt());
+        out.writeByte(operation.getState().ordinal());
+        out.writeLong(operation.getFinishedAt());
+        if (operation.isPacked()) {
+            out.writeLong(operation.getPackedCardFrom());
+            out.writeLong(operation.getPackedCardTo());
+            out.writeShort(operation.getPackedValidTill());
+            out.writeShort(operation.getPackedCurrency());
+            out.writeLong(operation.getPackedAmount());
+        } else {
+            writeFields(out, operation.getTransferMoneyData());
+        }
+    }
+
+    public static Operation readOperation(DataInput in) throws IOException {
+        int flags = in.readByte();
+        String id = (flags & UUID_ID) != 0 ? new UUID(in.readLong(), in.readLong()).toString() : readString(in);
+        long createdAt = in.readLong();
+        OperationState state = STATES[in.readByte()];
+        long finishedAt = in.readLong();
+        if ((flags & PACKED) != 0) {
+            return new Operation(id, in.readLong(), in.readLong(), in.readShort(), in.readShort(), in.readLong(),
+                    createdAt, state, finishedAt);
+        }
+        TransferMoneyData data = readFields(in);
+        data.setId(id);
+        return new Operation(data, createdAt, state, finishedAt);
+    }
+
+    // операция в строковом формате записей LEGACY_TRANSFER и снимков прежней версии
+    public static Operation readLegacyOperation(DataInput in) throws IOException {
+        String id = in.readUTF();
+        // место прежнего кода подтверждения
+        readString(in);
+        long createdAt = in.readLong();
+        OperationState state = STATES[in.readByte()];
+        long finishedAt = in.readLong();
+        TransferMoneyData data = readFields(in);
+        data.setId(id);
+        return new Operation(data, createdAt, state, finishedAt);
+    }
+
+    private static void writeFields(DataOutput out, TransferMoneyData data) throws IOException {
+        writeString(out, data.getCardFromNumber());
+        writeString(out, data.getCardFromValidTill());
+        writeString(out, data.getCardToNumber());
+        Amount amount = data.getAmount();
+        out.writeBoolean(amount != null);
+        if (amount != null) {
+            out.writeBoolean(amount.value() != null);
+            if (amount.value() != null) {
+                out.writeInt(amount.value());
+            }
+            writeString(out, amount.currency());
+        }
+    }
+
+    private static TransferMoneyData readFields(DataInput in) throws IOException {
+        TransferMoneyData data = new TransferMoneyData();
+        data.setCardFromNumber(readString(in));
+        data.setCardFromValidTill(readString(in));
+        data.setCardToNumber(readString(in));
+        if (in.readBoolean()) {
+            Integer value = in.readBoolean() ? in.readInt() : null;
+            data.setAmount(new Amount(value, readString(in)));
+        }
+        return data;
+    }
+
+    // UUID, если id - его каноническая запись (тогда id восстанавливается из двух long без потерь)
+    private static UUID uuid(String id) {
+        if (id == null || id.length() != 36) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(id);
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public static void writeConfirmation(DataOutput out, ConfirmationData confirmationData, long confirmedAt)
+            throws IOException {
+        writeString(out, confirmationData.operationId());
+        writeString(out, confirmationData.code());
+        out.writeLong(confirmedAt);
+    }
+
+    public static ConfirmationData readConfirmation(DataInput in) throws IOException {
+        return new ConfirmationData(readString(in), readString(in));
+    }
+
+    public static OperationState readState(DataInput in) throws IOException {
+        return STATES[in.readByte()];
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    // ByteArrayOutputStream с доступом к reset без пересоздания DataOutputStream
+    private static final class Buffer extends ByteArrayOutputStream {
+        private final DataOutputStream out = new DataOutputStream(this);
+
+        private Buffer() {
+            super(256);
+        }
+
+        private void clear() {
+            // разросшийся на крупной записи буфер не удерживаем
+            if (buf.length > MAX_POOLED_BUFFER) {
+                buf = new byte[256];
+            }
+            reset();
+        }
+    }
+
+    private static byte[] encode(Writer writer) {
+        Buffer buffer = BUFFERS.get();
+        buffer.clear();
+        try {
+            writer.write(buffer.out);
+            buffer.out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+}
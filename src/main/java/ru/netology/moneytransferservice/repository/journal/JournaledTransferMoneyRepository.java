@@ -0,0 +1,508 @@
+package ru.netology.moneytransferservice.repository.journal;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+import ru.netology.moneytransferservice.code.CodeJournal;
+import ru.netology.moneytransferservice.code.ConfirmationCodes;
+import ru.netology.moneytransferservice.id.OperationIdGenerator;
+import ru.netology.moneytransferservice.model.ConfirmationData;
+import ru.netology.moneytransferservice.model.Operation;
+import ru.netology.moneytransferservice.model.OperationState;
+import ru.netology.moneytransferservice.model.OperationStatus;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+import ru.netology.moneytransferservice.repository.TransferMoneyRepository;
+import ru.netology.moneytransferservice.repository.ledger.Ledger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Хранилище операций с журналом предзаписи (repository.type=journal).
+ * Состояние в памяти то же, что у TransferMoneyRepository; каждое изменение дополнительно пишется в Journal,
+ * периодически сохраняется снимок snapshot.bin, после чего старые сегменты удаляются.
+ * При старте загружается снимок и проигрываются сегменты после него.
+ * <p>
+ * Изменения выполняются под read-блокировкой, смена сегмента перед снимком - под write-блокировкой:
+ * так каждое изменение из сегментов до снимка уже видно в памяти в момент обхода.
+ * Проигрывание записей поверх снимка идемпотентно.
+ * Операции, принятые от другого узла кластера и переданные ему (adopt/release), тоже журналируются, и ответ
+ * узлу или удаление кода выполняются только после fsync: принятая операция не теряется при падении узла,
+ * а переданная не возвращается при проигрывании. Записи кодов подтверждения (CodeJournal) тоже журналируются и попадают в снимок; при старте коды ожидающих
+ * операций возвращаются в ConfirmationCodes. Код пишется в журнал до перевода, поэтому ожидание fsync перевода
+ * покрывает и его.
+ * Балансы Ledger отдельно не журналируются: при старте они пересчитываются проводками всех восстановленных
+ * операций в состоянии CONFIRMED. Итоги проводок операций, удалённых по retentionMs, хранятся в снимке
+ * (settled); удаление и запись снимка не выполняются одновременно, поэтому каждая проводка учитывается
+ * ровно один раз - либо операцией, либо итогом.
+ */
+@Repository
+@ConditionalOnProperty(name = "repository.type", havingValue = "journal")
+public class JournaledTransferMoneyRepository extends TransferMoneyRepository {
+
+    private static final String SNAPSHOT = "snapshot.bin";
+    private static final int SNAPSHOT_MAGIC = 0x544D5334;
+    // снимок без итогов проводок удалённых операций
+    private static final int NO_SETTLED_SNAPSHOT_MAGIC = 0x544D5333;
+    // снимок без кодов подтверждения
+    private static final int NO_CODES_SNAPSHOT_MAGIC = 0x544D5332;
+    // снимок со строковым форматом операций
+    private static final int LEGACY_SNAPSHOT_MAGIC = 0x544D5331;
+
+    private final Path directory;
+    private final Journal journal;
+    private final ConfirmationCodes confirmationCodes;
+    private final ReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    // итоги проводок удалённых подтверждённых операций: изменение баланса по картам и комиссия
+    private final Map<String, Long> settled = new ConcurrentHashMap<>();
+    private final AtomicLong settledCommission = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    public JournaledTransferMoneyRepository(@Value("${repository.operation-ttl-ms}") long operationTtlMs,
+                                            @Value("${repository.retention-ms}") long retentionMs,
+                                            @Value("${repository.confirmations.max-entries}") int maxConfirmations,
+                                            @Value("${repository.journal.dir}") String directory,
+                                            @Value("${repository.journal.durability}") DurabilityMode durabilityMode,
+                                            @Value("${repository.journal.fsync-interval-ms}") long fsyncIntervalMs,
+                                            @Value("${repository.journal.segment-max-bytes}") long segmentMaxBytes,
+                                            Ledger ledger,
+                                            OperationIdGenerator idGenerator,
+                                            ConfirmationCodes confirmationCodes)
+            throws IOException {
+        super(operationTtlMs, retentionMs, maxConfirmations, ledger, idGenerator);
+        this.directory = Path.of(directory);
+        this.confirmationCodes = confirmationCodes;
+        int nextSegment = recover();
+        recountPending();
+        restoreBalances();
+        this.journal = new Journal(this.directory, nextSegment, durabilityMode, fsyncIntervalMs, segmentMaxBytes);
+        confirmationCodes.setJournal(this::appendCode);
+    }
+
+    @Override
+    public OperationStatus saveTransferData(TransferMoneyData transferMoneyData) {
+        Appended<OperationStatus> appended = appendTransfer(transferMoneyData);
+        journal.awaitDurable(appended.sequence());
+        return appended.value();
+    }
+
+    @Override
+    public CompletableFuture<OperationStatus> saveTransferDataAsync(TransferMoneyData transferMoneyData) {
+        Appended<OperationStatus> appended = appendTransfer(transferMoneyData);
+        return journal.whenDurable(appended.sequence()).thenApply(ignored -> appended.value());
+    }
+
+    @Override
+    public OperationStatus saveConfirmationData(ConfirmationData confirmationData) {
+        Appended<OperationStatus> appended = appendConfirmation(confirmationData);
+        journal.awaitDurable(appended.sequence());
+        return appended.value();
+    }
+
+    @Override
+    public CompletableFuture<OperationStatus> saveConfirmationDataAsync(ConfirmationData confirmationData) {
+        Appended<OperationStatus> appended = appendConfirmation(confirmationData);
+        return journal.whenDurable(appended.sequence()).thenApply(ignored -> appended.value());
+    }
+
+    // вся пачка записывается в журнал одной операцией и ждёт одного fsync
+    @Override
+    public List<OperationStatus> saveTransferDataBatch(List<TransferMoneyData> transfers) {
+        List<OperationStatus> statuses;
+        long sequence;
+        snapshotLock.readLock().lock();
+        try {
+            statuses = super.saveTransferDataBatch(transfers);
+            List<byte[]> records = new ArrayList<>(transfers.size());
+            for (TransferMoneyData transferMoneyData : transfers) {
+                records.add(JournalCodec.transfer(getOperations().get(transferMoneyData.getId())));
+            }
+            sequence = journal.appendAll(records);
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+        journal.awaitDurable(sequence);
+        return statuses;
+    }
+
+    @Override
+    public List<OperationStatus> saveConfirmationDataBatch(List<ConfirmationData> confirmations) {
+        List<OperationStatus> statuses;
+        long sequence;
+        snapshotLock.readLock().lock();
+        try {
+            statuses = super.saveConfirmationDataBatch(confirmations);
+            long now = System.currentTimeMillis();
+            List<byte[]> records = new ArrayList<>(confirmations.size());
+            for (ConfirmationData confirmationData : confirmations) {
+                records.add(JournalCodec.confirmation(confirmationData, now));
+            }
+            sequence = journal.appendAll(records);
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+        journal.awaitDurable(sequence);
+        return statuses;
+    }
+
+    // ждёт fsync только переход в REJECTED: EXPIRED при проигрывании вычисляется заново по времени создания,
+    // а за CONFIRMED всегда следует запись подтверждения, fsync которой покрывает и эту запись
+    @Override
+    public boolean changeState(Operation operation, OperationState from, OperationState to) {
+        Appended<Boolean> appended = appendState(operation, from, to);
+        if (to == OperationState.REJECTED) {
+            journal.awaitDurable(appended.sequence());
+        }
+        return appended.value();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> changeStateAsync(Operation operation, OperationState from, OperationState to) {
+        Appended<Boolean> appended = appendState(operation, from, to);
+        return journal.whenDurable(appended.sequence()).thenApply(ignored -> appended.value());
+    }
+
+    // одна запись на операцию и один fsync на всю передачу
+    @Override
+    public List<Operation> adopt(List<Operation> adopted) {
+        List<Operation> accepted;
+        long sequence;
+        snapshotLock.readLock().lock();
+        try {
+            accepted = super.adopt(adopted);
+            List<byte[]> records = new ArrayList<>(accepted.size());
+            for (Operation operation : accepted) {
+                records.add(JournalCodec.transfer(operation));
+            }
+            sequence = journal.appendAll(records);
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+        journal.awaitDurable(sequence);
+        return accepted;
+    }
+
+    @Override
+    public List<Operation> release(List<String> operationIds) {
+        List<Operation> released;
+        long sequence;
+        snapshotLock.readLock().lock();
+        try {
+            released = super.release(operationIds);
+            List<byte[]> records = new ArrayList<>(released.size());
+            for (Operation operation : released) {
+                records.add(JournalCodec.release(operation.getId()));
+            }
+            sequence = journal.appendAll(records);
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+        journal.awaitDurable(sequence);
+        return released;
+    }
+
+    private record Appended<T>(T value, long sequence) {
+    }
+
+    private Appended<OperationStatus> appendTransfer(TransferMoneyData transferMoneyData) {
+        snapshotLock.readLock().lock();
+        try {
+            OperationStatus status = super.saveTransferData(transferMoneyData);
+            return new Appended<>(status,
+                    journal.append(JournalCodec.transfer(getOperations().get(transferMoneyData.getId()))));
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    private Appended<OperationStatus> appendConfirmation(ConfirmationData confirmationData) {
+        snapshotLock.readLock().lock();
+        try {
+            OperationStatus status = super.saveConfirmationData(confirmationData);
+            return new Appended<>(status,
+                    journal.append(JournalCodec.confirmation(confirmationData, System.currentTimeMillis())));
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    private void appendCode(String operationId, long[] entry) {
+        snapshotLock.readLock().lock();
+        try {
+            journal.append(JournalCodec.code(operationId, entry));
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    private Appended<Boolean> appendState(Operation operation, OperationState from, OperationState to) {
+        snapshotLock.readLock().lock();
+        try {
+            if (!super.changeState(operation, from, to)) {
+                return new Appended<>(false, 0);
+            }
+            return new Appended<>(true, journal.append(JournalCodec.state(
+                    operation.getId(), to, operation.getFinishedAt())));
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${repository.sweep-interval-ms}")
+    public void evictExpired() {
+        evictionLock.lock();
+        try {
+            super.evictExpired();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    protected void evicted(Operation operation) {
+        if (operation.getState() == OperationState.CONFIRMED) {
+            long amount = operation.getAmount().value();
+            long fee = getLedger().commission(amount);
+            settled.merge(operation.getCardFromNumber(), -(amount + fee), Long::sum);
+            settled.merge(operation.getCardToNumber(), amount, Long::sum);
+            settledCommission.addAndGet(fee);
+        }
+    }
+
+    // снимок состояния: смена сегмента, запись snapshot.bin, удаление сегментов до снимка
+    @Scheduled(fixedDelayString = "${repository.journal.snapshot-interval-ms}",
+            initialDelayString = "${repository.journal.snapshot-interval-ms}")
+    public void snapshot() {
+        int firstSegment;
+        snapshotLock.writeLock().lock();
+        try {
+            firstSegment = journal.rotate();
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+        // удаление операций по retentionMs ждёт записи снимка, иначе проводка могла бы попасть и в итог, и в снимок
+        evictionLock.lock();
+        try {
+            writeSnapshot(firstSegment);
+            for (int index : Journal.segmentIndexes(directory)) {
+                if (index < firstSegment) {
+                    Files.deleteIfExists(Journal.segmentPath(directory, index));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void writeSnapshot(int firstSegment) throws IOException {
+        Path temporary = directory.resolve(SNAPSHOT + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(firstSegment);
+            for (Operation operation : getOperations().values()) {
+                out.writeBoolean(true);
+                JournalCodec.writeOperation(out, operation);
+            }
+            out.writeBoolean(false);
+            IOException[] error = new IOException[1];
+            forEachConfirmation((confirmationData, confirmedAt) -> {
+                try {
+                    out.writeBoolean(true);
+                    JournalCodec.writeConfirmation(out, confirmationData, confirmedAt);
+                } catch (IOException e) {
+                    error[0] = e;
+                }
+            });
+            if (error[0] != null) {
+                throw error[0];
+            }
+            out.writeBoolean(false);
+            for (Operation operation : getOperations().values()) {
+                long[] entry = operation.getState() == OperationState.PENDING
+                        ? confirmationCodes.export(operation.getId()) : null;
+                if (entry != null) {
+                    out.writeBoolean(true);
+                    JournalCodec.writeCode(out, operation.getId(), entry);
+                }
+            }
+            out.writeBoolean(false);
+            for (Map.Entry<String, Long> entry : settled.entrySet()) {
+                out.writeBoolean(true);
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+            out.writeBoolean(false);
+            out.writeLong(settledCommission.get());
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // загрузка снимка и проигрывание сегментов, возвращает номер сегмента для новых записей
+    private int recover() throws IOException {
+        Set<String> confirmed = new HashSet<>();
+        Map<String, long[]> codes = new HashMap<>();
+        int firstSegment = 0;
+        Path snapshot = directory.resolve(SNAPSHOT);
+        if (Files.exists(snapshot)) {
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(snapshot), 1 << 16))) {
+                int magic = in.readInt();
+                if (magic != SNAPSHOT_MAGIC && magic != NO_SETTLED_SNAPSHOT_MAGIC
+                        && magic != NO_CODES_SNAPSHOT_MAGIC && magic != LEGACY_SNAPSHOT_MAGIC) {
+                    throw new IOException("Unknown snapshot format: " + snapshot);
+                }
+                firstSegment = in.readInt();
+                while (in.readBoolean()) {
+                    Operation operation = magic == LEGACY_SNAPSHOT_MAGIC
+                            ? JournalCodec.readLegacyOperation(in) : JournalCodec.readOperation(in);
+                    getOperations().put(operation.getId(), operation);
+                }
+                while (in.readBoolean()) {
+                    ConfirmationData confirmationData = JournalCodec.readConfirmation(in);
+                    long confirmedAt = in.readLong();
+                    confirmed.add(confirmationData.operationId());
+                    restoreConfirmation(confirmationData, confirmedAt);
+                }
+                boolean withCodes = magic == SNAPSHOT_MAGIC || magic == NO_SETTLED_SNAPSHOT_MAGIC;
+                while (withCodes && in.readBoolean()) {
+                    String operationId = in.readUTF();
+                    codes.put(operationId, JournalCodec.readCodeEntry(in));
+                }
+                if (magic == SNAPSHOT_MAGIC) {
+                    while (in.readBoolean()) {
+                        String card = in.readUTF();
+                        settled.put(card, in.readLong());
+                    }
+                    settledCommission.set(in.readLong());
+                }
+            }
+        }
+
+        int lastSegment = firstSegment - 1;
+        List<Integer> segments = Journal.segmentIndexes(directory);
+        for (int index : segments) {
+            if (index >= firstSegment) {
+                Journal.read(Journal.segmentPath(directory, index), payload -> replay(payload, confirmed, codes));
+            }
+            lastSegment = Math.max(lastSegment, index);
+        }
+        // коды завершённых и не восстановленных операций не нужны
+        codes.forEach((operationId, entry) -> {
+            Operation operation = getOperations().get(operationId);
+            if (operation != null && operation.getState() == OperationState.PENDING) {
+                confirmationCodes.adopt(operationId, entry);
+            }
+        });
+        return lastSegment + 1;
+    }
+
+    // балансы: итоги удалённых операций и проводки восстановленных подтверждённых
+    private void restoreBalances() {
+        Ledger ledger = getLedger();
+        settled.forEach(ledger::adjust);
+        ledger.addCommission(settledCommission.get());
+        for (Operation operation : getOperations().values()) {
+            if (operation.getState() == OperationState.CONFIRMED) {
+                ledger.restore(operation.getCardFromNumber(), operation.getCardToNumber(),
+                        operation.getAmount().value());
+            }
+        }
+    }
+
+    private void replay(byte[] payload, Set<String> confirmed, Map<String, long[]> codes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            switch (in.readByte()) {
+                case JournalCodec.TRANSFER -> {
+                    Operation operation = JournalCodec.readOperation(in);
+                    getOperations().putIfAbsent(operation.getId(), operation);
+                }
+                case JournalCodec.LEGACY_TRANSFER -> {
+                    Operation operation = JournalCodec.readLegacyOperation(in);
+                    getOperations().putIfAbsent(operation.getId(), operation);
+                }
+                case JournalCodec.STATE -> {
+                    String operationId = in.readUTF();
+                    OperationState state = JournalCodec.readState(in);
+                    long finishedAt = in.readLong();
+                    getOperations().computeIfPresent(operationId, (id, operation) ->
+                            replayable(operation.getState(), state) ? operation.withState(state, finishedAt)
+                                    : operation);
+                }
+                case JournalCodec.RELEASE -> {
+                    String operationId = in.readUTF();
+                    getOperations().remove(operationId);
+                    codes.remove(operationId);
+                }
+                case JournalCodec.CONFIRMATION -> {
+                    ConfirmationData confirmationData = JournalCodec.readConfirmation(in);
+                    long confirmedAt = in.readLong();
+                    if (confirmed.add(String.valueOf(confirmationData.operationId()))) {
+                        restoreConfirmation(confirmationData, confirmedAt);
+                    }
+                }
+                case JournalCodec.CODE -> {
+                    String operationId = in.readUTF();
+                    codes.merge(operationId, JournalCodec.readCodeEntry(in), JournaledTransferMoneyRepository::laterCode);
+                }
+                default -> throw new IOException("Unknown journal record type");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // из PENDING - в любое состояние, из MOVED - только обратно в PENDING; конечные состояния не меняются
+    private static boolean replayable(OperationState current, OperationState next) {
+        return current == OperationState.PENDING
+                || current == OperationState.MOVED && next == OperationState.PENDING;
+    }
+
+    // записи одного кода отличаются только числом попыток, а при одновременных неверных попытках
+    // могут попасть в журнал не по порядку: остаётся меньшее число попыток
+    private static long[] laterCode(long[] previous, long[] next) {
+        if (previous[0] == next[0] && previous[1] == next[1] && previous[2] < next[2]) {
+            return previous;
+        }
+        return next;
+    }
+
+    @PreDestroy
+    public void close() {
+        confirmationCodes.setJournal(CodeJournal.NONE);
+        journal.close();
+    }
+}
@@ -0,0 +1,168 @@
+package ru.netology.moneytransferservice.repository.ledger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Балансы карт в памяти в минимальных единицах валюты (копейках).
+ * Карты распределены по полосам (stripes) по хэшу номера, у каждой полосы своя блокировка:
+ * переводы между картами разных полос идут параллельно. Перевод берёт блокировки полос отправителя
+ * и получателя в порядке возрастания индекса, поэтому взаимных блокировок нет.
+ * <p>
+ * Комиссия не зачисляется на отдельную карту (её полоса стала бы общей точкой конкуренции),
+ * а накапливается в LongAdder. Инвариант: сумма балансов + комиссия = сумма начальных балансов открытых карт.
+ * Карта открывается при первом обращении с балансом repository.ledger.opening-balance.
+ */
+@Component
+public class Ledger {
+
+    public enum Result {
+        APPLIED,
+        INSUFFICIENT_FUNDS,
+        // commit вернул false, балансы не изменены
+        NOT_COMMITTED
+    }
+
+    // баланс изменяется только под блокировкой полосы карты
+    private static final class Account {
+        private long balance;
+
+        private Account(long balance) {
+            this.balance = balance;
+        }
+    }
+
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    private final long openingBalance;
+    private final int commissionBasisPoints;
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder commission = new LongAdder();
+
+    public Ledger(@Value("${repository.ledger.stripes:256}") int stripes,
+                  @Value("${repository.ledger.opening-balance:100000000}") long openingBalance,
+                  @Value("${repository.ledger.commission-bps:100}") int commissionBasisPoints) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+        this.openingBalance = openingBalance;
+        this.commissionBasisPoints = commissionBasisPoints;
+    }
+
+    // комиссия с суммы перевода, округление вниз
+    public long commission(long amount) {
+        return amount * commissionBasisPoints / 10_000;
+    }
+
+    /**
+     * Списать amount + комиссию с from и зачислить amount на to.
+     * commit выполняется под блокировками обеих карт после проверки средств: если он вернул false
+     * (например, операция уже подтверждена другим потоком), балансы не меняются.
+     */
+    public Result transfer(String from, String to, long amount, BooleanSupplier commit) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive: " + amount);
+        }
+        long fee = commission(amount);
+        Account source = account(from);
+        Account target = account(to);
+
+        int first = stripe(from);
+        int second = stripe(to);
+        if (first > second) {
+            int swap = first;
+            first = second;
+            second = swap;
+        }
+        stripes[first].lock();
+        if (second != first) {
+            stripes[second].lock();
+        }
+        try {
+            if (source.balance < amount + fee) {
+                return Result.INSUFFICIENT_FUNDS;
+            }
+            if (!commit.getAsBoolean()) {
+                return Result.NOT_COMMITTED;
+            }
+            source.balance -= amount + fee;
+            target.balance += amount;
+            commission.add(fee);
+            return Result.APPLIED;
+        } finally {
+            if (second != first) {
+                stripes[second].unlock();
+            }
+            stripes[first].unlock();
+        }
+    }
+
+    // проводка уже подтверждённой операции при загрузке журнала: средства не проверяются
+    public void restore(String from, String to, long amount) {
+        long fee = commission(amount);
+        adjust(from, -(amount + fee));
+        adjust(to, amount);
+        commission.add(fee);
+    }
+
+    // изменить баланс карты без проверки средств (итоги проводок из снимка)
+    public void adjust(String card, long delta) {
+        ReentrantLock lock = stripes[stripe(card)];
+        lock.lock();
+        try {
+            account(card).balance += delta;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void addCommission(long fee) {
+        commission.add(fee);
+    }
+
+    public long balance(String card) {
+        ReentrantLock lock = stripes[stripe(card)];
+        lock.lock();
+        try {
+            return account(card).balance;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // сумма комиссий
+    public long getCommission() {
+        return commission.sum();
+    }
+
+    // сумма начальных балансов всех открытых карт
+    public long getIssued() {
+        return issued.sum();
+    }
+
+    public int getAccounts() {
+        return accounts.size();
+    }
+
+    private Account account(String card) {
+        return accounts.computeIfAbsent(card, ignored -> {
+            issued.add(openingBalance);
+            return new Account(openingBalance);
+        });
+    }
+
+    private int stripe(String card) {
+        int h = card.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
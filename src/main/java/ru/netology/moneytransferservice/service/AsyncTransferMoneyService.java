@@ -0,0 +1,141 @@
+package ru.netology.moneytransferservice.service;
+
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import ru.netology.moneytransferservice.code.ConfirmationCodes;
+import ru.netology.moneytransferservice.exception.ErrorInputData;
+import ru.netology.moneytransferservice.exception.ErrorTooManyRequests;
+import ru.netology.moneytransferservice.id.OperationIdGenerator;
+import ru.netology.moneytransferservice.logger.LoggerInterface;
+import ru.netology.moneytransferservice.metrics.TransferMetrics;
+import ru.netology.moneytransferservice.metrics.TransferMetrics.Outcome;
+import ru.netology.moneytransferservice.model.ConfirmationData;
+import ru.netology.moneytransferservice.model.Operation;
+import ru.netology.moneytransferservice.model.OperationState;
+import ru.netology.moneytransferservice.model.OperationStatus;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+import ru.netology.moneytransferservice.ratelimit.RateLimits;
+import ru.netology.moneytransferservice.repository.AsyncTransferMoneyRepositoryInterface;
+import ru.netology.moneytransferservice.repository.ConfirmResult;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Неблокирующий вариант TransferMoneyService для transfer.stack=async.
+ * Поток запроса не ждёт ни хранилища, ни лога: хранилище возвращает CompletableFuture,
+ * а записи лога передаются через tryLog, который при заполненном буфере сообщение отбрасывает.
+ */
+@RequiredArgsConstructor
+@Service
+@ConditionalOnProperty(name = "transfer.stack", havingValue = "async")
+public class AsyncTransferMoneyService implements AsyncTransferMoneyServiceInterface {
+
+    private final AsyncTransferMoneyRepositoryInterface transferMoneyRepository;
+    private final LoggerInterface logger;
+    private final TransferMetrics metrics;
+    private final RateLimits rateLimits;
+    private final OperationIdGenerator idGenerator;
+    private final ConfirmationCodes confirmationCodes;
+
+    private static final String TOO_MANY_REQUESTS = "Too many requests!";
+    private static final String WRONG_CODE = "Wrong verification code!";
+
+    @Override
+    public CompletableFuture<OperationStatus> transfer(TransferMoneyData transferMoneyData) {
+        Timer.Sample sample = metrics.start();
+        long retryAfter = rateLimits.getCard().acquire(transferMoneyData.getCardFromNumber());
+        if (retryAfter > 0) {
+            metrics.transfer(sample, Outcome.RATE_LIMITED);
+            return CompletableFuture.failedFuture(new ErrorTooManyRequests(TOO_MANY_REQUESTS, retryAfter));
+        }
+        transferMoneyData.setId(idGenerator.nextId());
+        int weight = logger.sampleSuccess();
+        if (weight > 0) {
+            logger.tryLog(AuditMessages.transfer(transferMoneyData, weight));
+        }
+        // как в TransferMoneyService: хэш кода до сохранения, доставка после
+        String code = confirmationCodes.prepare(transferMoneyData.getId());
+        return transferMoneyRepository.saveTransferDataAsync(transferMoneyData)
+                .whenComplete((operationStatus, error) -> {
+                    if (error == null) {
+                        confirmationCodes.deliver(transferMoneyData, code);
+                    } else {
+                        confirmationCodes.remove(transferMoneyData.getId());
+                    }
+                })
+                .whenComplete((operationStatus, error) ->
+                        metrics.transfer(sample, error == null ? Outcome.SUCCESS : Outcome.ERROR));
+    }
+
+    @Override
+    public CompletableFuture<OperationStatus> confirm(ConfirmationData confirmationData) {
+        Timer.Sample sample = metrics.start();
+        // исход отказа, выставляется веткой, которая его определила
+        Outcome[] rejection = {Outcome.ERROR};
+        String operationId = confirmationData.operationId();
+        long retryAfter = rateLimits.getConfirmation().acquire(operationId);
+        if (retryAfter > 0) {
+            metrics.confirm(sample, Outcome.RATE_LIMITED);
+            return CompletableFuture.failedFuture(new ErrorTooManyRequests(TOO_MANY_REQUESTS, retryAfter));
+        }
+        return transferMoneyRepository.findOperation(operationId).thenCompose(operation -> {
+            if (operation == null) {
+                rejection[0] = Outcome.NOT_FOUND;
+                logger.tryLog(AuditMessages.notFound(operationId));
+                return CompletableFuture.<OperationStatus>failedFuture(new ErrorInputData("Operation not found!"));
+            }
+            ConfirmationCodes.Check check = confirmationCodes.check(operationId, confirmationData.code());
+            if (check == ConfirmationCodes.Check.UNKNOWN && operation.getState() != OperationState.PENDING) {
+                rejection[0] = Outcome.ALREADY_FINISHED;
+                return alreadyFinished(operation);
+            }
+            if (check == ConfirmationCodes.Check.EXHAUSTED) {
+                return transferMoneyRepository
+                        .changeStateAsync(operation, OperationState.PENDING, OperationState.REJECTED)
+                        .thenCompose(ignored -> wrongCode(operationId, rejection));
+            }
+            if (check != ConfirmationCodes.Check.VALID) {
+                return wrongCode(operationId, rejection);
+            }
+            return transferMoneyRepository.confirmAsync(operation).thenCompose(result -> {
+                // как в TransferMoneyService: код операции в MOVED остаётся для передачи
+                if (result != ConfirmResult.ALREADY_FINISHED) {
+                    confirmationCodes.remove(operationId);
+                }
+                if (result == ConfirmResult.CONFIRMED) {
+                    return confirmed(confirmationData);
+                }
+                if (result == ConfirmResult.INSUFFICIENT_FUNDS) {
+                    rejection[0] = Outcome.INSUFFICIENT_FUNDS;
+                    logger.tryLog(AuditMessages.insufficientFunds(operationId));
+                    return CompletableFuture.failedFuture(new ErrorInputData("Insufficient funds!"));
+                }
+                rejection[0] = Outcome.ALREADY_FINISHED;
+                return alreadyFinished(operation);
+            });
+        }).whenComplete((operationStatus, error) ->
+                metrics.confirm(sample, error == null ? Outcome.SUCCESS : rejection[0]));
+    }
+
+    private CompletableFuture<OperationStatus> confirmed(ConfirmationData confirmationData) {
+        int weight = logger.sampleSuccess();
+        if (weight > 0) {
+            logger.tryLog(AuditMessages.confirmed(confirmationData.operationId(), weight));
+        }
+        return transferMoneyRepository.saveConfirmationDataAsync(confirmationData);
+    }
+
+    private CompletableFuture<OperationStatus> wrongCode(String operationId, Outcome[] rejection) {
+        rejection[0] = Outcome.WRONG_CODE;
+        logger.tryLog(AuditMessages.wrongCode(operationId));
+        return CompletableFuture.failedFuture(new ErrorInputData(WRONG_CODE));
+    }
+
+    private CompletableFuture<OperationStatus> alreadyFinished(Operation operation) {
+        OperationState state = operation.getState();
+        logger.tryLog(AuditMessages.alreadyFinished(operation.getId(), state));
+        return CompletableFuture.failedFuture(new ErrorInputData("Operation is already " + state + "!"));
+    }
+}
@@ -0,0 +1,14 @@
+package ru.netology.moneytransferservice.service;
+
+import ru.netology.moneytransferservice.model.ConfirmationData;
+import ru.netology.moneytransferservice.model.OperationStatus;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface AsyncTransferMoneyServiceInterface {
+    CompletableFuture<OperationStatus> transfer(TransferMoneyData transferMoneyData);
+
+    // ошибки подтверждения (ErrorInputData) возвращаются через исключительно завершённый future
+    CompletableFuture<OperationStatus> confirm(ConfirmationData confirmationData);
+}
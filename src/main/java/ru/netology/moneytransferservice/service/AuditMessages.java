@@ -0,0 +1,49 @@
+package ru.netology.moneytransferservice.service;
+
+import ru.netology.moneytransferservice.logger.AuditRecord;
+import ru.netology.moneytransferservice.model.OperationState;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+
+/**
+ * Записи лога переводов, общие для синхронного и асинхронного сервисов.
+ * transfer и confirmed - успешные события, пишутся с весом из LoggerInterface.sampleSuccess().
+ */
+final class AuditMessages {
+
+    private AuditMessages() {
+    }
+
+    static String transfer(TransferMoneyData transferMoneyData, int weight) {
+        AuditRecord record = AuditRecord.of("transfer")
+                .field("id", transferMoneyData.getId())
+                .card("from", transferMoneyData.getCardFromNumber())
+                .card("to", transferMoneyData.getCardToNumber())
+                .field("amount", transferMoneyData.getAmount().value())
+                .field("currency", transferMoneyData.getAmount().currency());
+        return weighted(record, weight);
+    }
+
+    static String notFound(String operationId) {
+        return AuditRecord.of("not_found").field("id", operationId).build();
+    }
+
+    static String wrongCode(String operationId) {
+        return AuditRecord.of("wrong_code").field("id", operationId).build();
+    }
+
+    static String alreadyFinished(String operationId, OperationState state) {
+        return AuditRecord.of("already_finished").field("id", operationId).field("state", state.name()).build();
+    }
+
+    static String insufficientFunds(String operationId) {
+        return AuditRecord.of("insufficient_funds").field("id", operationId).build();
+    }
+
+    static String confirmed(String operationId, int weight) {
+        return weighted(AuditRecord.of("confirmed").field("id", operationId), weight);
+    }
+
+    private static String weighted(AuditRecord record, int weight) {
+        return (weight > 1 ? record.field("weight", weight) : record).build();
+    }
+}
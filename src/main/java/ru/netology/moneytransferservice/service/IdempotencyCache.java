@@ -0,0 +1,185 @@
+package ru.netology.moneytransferservice.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.netology.moneytransferservice.exception.ErrorInputData;
+import ru.netology.moneytransferservice.model.OperationStatus;
+
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Результаты запросов с заголовком Idempotency-Key.
+ * Повтор с тем же ключом получает исходный OperationStatus без повторной валидации, логирования и сохранения.
+ * Ключи действуют в пределах клиента: одинаковые ключи разных клиентов не пересекаются.
+ * Одновременные запросы с одним ключом выполняются один раз: первый выполняет действие,
+ * остальные ждут его результат. Если действие завершилось ошибкой, ключ освобождается и ожидающие
+ * получают ту же ошибку, а следующий повтор выполнится заново.
+ * Записи вытесняются в порядке добавления по истечении ttl-ms или при превышении max-entries;
+ * неудачные запросы перестают учитываться в max-entries сразу.
+ */
+@Component
+public class IdempotencyCache {
+
+    // очередь order очищается от неудачных записей, когда их больше живых и не меньше PURGE_MIN
+    private static final int PURGE_MIN = 1024;
+
+    private record Key(String client, String key) {
+    }
+
+    private static final class Entry {
+        private final Key key;
+        private final byte[] fingerprint;
+        private final CompletableFuture<OperationStatus> result = new CompletableFuture<>();
+        private final long createdAt;
+        // true, пока запись учитывается в size; сбрасывает тот, кто её вытеснил или освободил
+        private final AtomicBoolean counted = new AtomicBoolean(true);
+
+        private Entry(Key key, byte[] fingerprint, long createdAt) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.createdAt = createdAt;
+        }
+
+        private boolean release() {
+            return counted.compareAndSet(true, false);
+        }
+
+        private boolean isReleased() {
+            return !counted.get();
+        }
+    }
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    // записи в порядке добавления, старейшие - в голове; неудачные остаются до вытеснения или очистки
+    private final Queue<Entry> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger released = new AtomicInteger();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final int maxEntries;
+    private final long ttlMs;
+
+    public IdempotencyCache(@Value("${transfer.idempotency.max-entries:100000}") int maxEntries,
+                            @Value("${transfer.idempotency.ttl-ms:3600000}") long ttlMs,
+                            MeterRegistry meterRegistry) {
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+
+        Gauge.builder("transfer.idempotency.size", size, AtomicInteger::get).register(meterRegistry);
+        FunctionCounter.builder("transfer.idempotency.requests", hits, AtomicLong::get)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("transfer.idempotency.requests", misses, AtomicLong::get)
+                .tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * Выполнить action один раз для ключа key клиента client.
+     * fingerprint - SHA-256 тела запроса: повтор ключа с другим телом отклоняется.
+     */
+    public OperationStatus execute(String client, String key, byte[] fingerprint,
+                                   Supplier<OperationStatus> action) throws ErrorInputData {
+        Key scoped = new Key(client, key);
+        while (true) {
+            long now = System.currentTimeMillis();
+            Entry existing = entries.get(scoped);
+            if (existing != null && existing.createdAt < now - ttlMs) {
+                entries.remove(scoped, existing);
+                continue;
+            }
+            if (existing != null) {
+                if (!MessageDigest.isEqual(existing.fingerprint, fingerprint)) {
+                    throw new ErrorInputData("Idempotency-Key is already used for another request");
+                }
+                hits.incrementAndGet();
+                return await(existing);
+            }
+
+            Entry entry = new Entry(scoped, fingerprint, now);
+            if (entries.putIfAbsent(scoped, entry) != null) {
+                continue;
+            }
+            misses.incrementAndGet();
+            order.add(entry);
+            size.incrementAndGet();
+            evict(now);
+            return run(entry, action);
+        }
+    }
+
+    private OperationStatus run(Entry entry, Supplier<OperationStatus> action) {
+        OperationStatus operationStatus;
+        try {
+            operationStatus = action.get();
+        } catch (RuntimeException e) {
+            // неудачный запрос не запоминаем: повтор после исправления должен выполниться
+            entries.remove(entry.key, entry);
+            entry.result.completeExceptionally(e);
+            release(entry);
+            throw e;
+        }
+        entry.result.complete(operationStatus);
+        return operationStatus;
+    }
+
+    // запись остаётся в order, но сразу перестаёт занимать место; когда таких записей больше живых, order очищается
+    private void release(Entry entry) {
+        if (!entry.release()) {
+            return;
+        }
+        int live = size.decrementAndGet();
+        if (released.incrementAndGet() >= Math.max(live, PURGE_MIN)) {
+            released.set(0);
+            order.removeIf(Entry::isReleased);
+        }
+    }
+
+    private OperationStatus await(Entry entry) {
+        try {
+            return entry.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${repository.sweep-interval-ms}")
+    public void evictExpired() {
+        evict(System.currentTimeMillis());
+    }
+
+    private void evict(long now) {
+        long expireBefore = now - ttlMs;
+        Entry head;
+        while ((head = order.peek()) != null
+                && (head.isReleased() || size.get() > maxEntries || head.createdAt < expireBefore)) {
+            if (order.remove(head) && head.release()) {
+                size.decrementAndGet();
+                entries.remove(head.key, head);
+            }
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+}
@@ -0,0 +1,104 @@
+package ru.netology.moneytransferservice.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import ru.netology.moneytransferservice.exception.ErrorInputData;
+import ru.netology.moneytransferservice.logger.AuditRecord;
+import ru.netology.moneytransferservice.model.Operation;
+import ru.netology.moneytransferservice.model.OperationPage;
+import ru.netology.moneytransferservice.model.OperationState;
+import ru.netology.moneytransferservice.model.OperationView;
+import ru.netology.moneytransferservice.repository.OperationIndex;
+import ru.netology.moneytransferservice.repository.OperationQuery;
+import ru.netology.moneytransferservice.repository.TransferMoneyRepositoryInterface;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * История операций по карте, состоянию и времени создания, от новых к старым.
+ * Курсор - закодированная позиция (createdAt, operationId) последней выданной операции: следующая страница
+ * начинается поиском в индексе, а не пропуском offset записей, поэтому время запроса не зависит
+ * ни от номера страницы, ни от размера хранилища, а вставки новых операций не сдвигают страницы.
+ * Без номера карты история не выдаётся, номера карт в ответе маскируются так же, как в логе.
+ */
+@RequiredArgsConstructor
+@Service
+public class OperationHistoryService implements OperationHistoryServiceInterface {
+
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
+
+    private final TransferMoneyRepositoryInterface transferMoneyRepository;
+
+    @Override
+    public OperationPage history(String card, String status, Long fromMs, Long toMs, String cursor, Integer limit)
+            throws ErrorInputData {
+        int pageSize = limit == null ? DEFAULT_LIMIT : limit;
+        if (pageSize < 1 || pageSize > MAX_LIMIT) {
+            throw new ErrorInputData("Limit must be between 1 and " + MAX_LIMIT);
+        }
+        // на одну операцию больше, чтобы узнать, есть ли следующая страница
+        List<OperationView> operations = transferMoneyRepository.findOperations(query(card, status, fromMs, toMs, cursor))
+                .limit(pageSize + 1)
+                .map(OperationHistoryService::view)
+                .toList();
+        if (operations.size() <= pageSize) {
+            return new OperationPage(operations, null);
+        }
+        List<OperationView> page = operations.subList(0, pageSize);
+        return new OperationPage(page, page.get(pageSize - 1).cursor());
+    }
+
+    @Override
+    public Stream<OperationView> stream(String card, String status, Long fromMs, Long toMs, String cursor)
+            throws ErrorInputData {
+        return transferMoneyRepository.findOperations(query(card, status, fromMs, toMs, cursor))
+                .map(OperationHistoryService::view);
+    }
+
+    private static OperationQuery query(String card, String status, Long fromMs, Long toMs, String cursor)
+            throws ErrorInputData {
+        if (card == null || card.isBlank()) {
+            throw new ErrorInputData("Enter card number");
+        }
+        OperationState state = null;
+        if (status != null) {
+            try {
+                state = OperationState.valueOf(status.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new ErrorInputData("Unknown status: " + status);
+            }
+        }
+        long from = fromMs == null ? 0 : fromMs;
+        long to = toMs == null ? Long.MAX_VALUE : toMs;
+        if (from < 0 || to < from) {
+            throw new ErrorInputData("Invalid time range");
+        }
+        return new OperationQuery(card, state, from, to, cursor == null ? null : decode(cursor));
+    }
+
+    private static OperationView view(Operation operation) {
+        return new OperationView(operation.getId(), AuditRecord.maskCard(operation.getCardFromNumber()),
+                AuditRecord.maskCard(operation.getCardToNumber()), operation.getAmount(), operation.getState(),
+                operation.getCreatedAt(), operation.getFinishedAt(), encode(OperationIndex.Key.of(operation)));
+    }
+
+    static String encode(OperationIndex.Key key) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((key.createdAt() + ":" + key.operationId()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static OperationIndex.Key decode(String cursor) throws ErrorInputData {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.indexOf(':');
+            return new OperationIndex.Key(Long.parseLong(position.substring(0, separator)),
+                    position.substring(separator + 1));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new ErrorInputData("Invalid cursor");
+        }
+    }
+}
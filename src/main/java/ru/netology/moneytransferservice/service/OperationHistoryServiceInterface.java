@@ -0,0 +1,17 @@
+package ru.netology.moneytransferservice.service;
+
+import ru.netology.moneytransferservice.exception.ErrorInputData;
+import ru.netology.moneytransferservice.model.OperationPage;
+import ru.netology.moneytransferservice.model.OperationView;
+
+import java.util.stream.Stream;
+
+public interface OperationHistoryServiceInterface {
+    // null в любом условии - без ограничения
+    OperationPage history(String card, String status, Long fromMs, Long toMs, String cursor, Integer limit)
+            throws ErrorInputData;
+
+    // вся история по условиям без разбиения на страницы, поток ленивый
+    Stream<OperationView> stream(String card, String status, Long fromMs, Long toMs, String cursor)
+            throws ErrorInputData;
+}
@@ -1,19 +1,27 @@
 package ru.netology.moneytransferservice.service;
 
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import ru.netology.moneytransferservice.code.ConfirmationCodes;
 import ru.netology.moneytransferservice.exception.ErrorInputData;
-import ru.netology.moneytransferservice.logger.Logger;
+import ru.netology.moneytransferservice.exception.ErrorTooManyRequests;
+import ru.netology.moneytransferservice.id.OperationIdGenerator;
+import ru.netology.moneytransferservice.logger.LoggerInterface;
+import ru.netology.moneytransferservice.metrics.TransferMetrics;
+import ru.netology.moneytransferservice.metrics.TransferMetrics.Outcome;
 import ru.netology.moneytransferservice.model.ConfirmationData;
+import ru.netology.moneytransferservice.model.Operation;
+import ru.netology.moneytransferservice.model.OperationState;
 import ru.netology.moneytransferservice.model.OperationStatus;
 import ru.netology.moneytransferservice.model.TransferMoneyData;
-import ru.netology.moneytransferservice.repository.TransferMoneyRepository;
+import ru.netology.moneytransferservice.ratelimit.RateLimits;
+import ru.netology.moneytransferservice.repository.ConfirmResult;
 import ru.netology.moneytransferservice.repository.TransferMoneyRepositoryInterface;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Аннотация @Service в Spring Framework указывает, что класс является сервисом, который предоставляет бизнес-логику
@@ -26,49 +34,208 @@ import java.util.UUID;
  * <p>
  * UUID (Universally Unique Identifier) в Java представляет собой 128-битное значение,
  * которое используется для идентификации объектов и обеспечения их уникальности.
- * Он может быть использован для генерации уникальных идентификаторов для различных целей,
- * таких как идентификация записей в базе данных, создание временных файлов или идентификация сессий пользователей.
+ * Идентификаторы операций выдаёт OperationIdGenerator: по умолчанию UUID версии 7, упорядоченные по времени,
+ * без обращения к общему SecureRandom, которое делает UUID.randomUUID().
  */
 
 @RequiredArgsConstructor
 @Service
 public class TransferMoneyService implements TransferMoneyServiceInterface {
 
-    private final String ZERO = "0000";
-
     private final TransferMoneyRepositoryInterface transferMoneyRepository;
+    private final LoggerInterface logger;
+    private final TransferMetrics metrics;
+    private final RateLimits rateLimits;
+    private final OperationIdGenerator idGenerator;
+    private final ConfirmationCodes confirmationCodes;
+
+    private static final String TOO_MANY_REQUESTS = "Too many requests!";
+    private static final String WRONG_CODE = "Wrong verification code!";
 
-    @Value("${logger.path}")
-    private String loggerPath;
+    // причина отказа в подтверждении
+    private record Rejection(Outcome outcome, String message, long retryAfterNanos) {
+        private Rejection(Outcome outcome, String message) {
+            this(outcome, message, 0);
+        }
+    }
 
     @Override
     public OperationStatus transfer(TransferMoneyData transferMoneyData) {
+        Timer.Sample sample = metrics.start();
+        long retryAfter = rateLimits.getCard().acquire(transferMoneyData.getCardFromNumber());
+        if (retryAfter > 0) {
+            metrics.transfer(sample, Outcome.RATE_LIMITED);
+            throw new ErrorTooManyRequests(TOO_MANY_REQUESTS, retryAfter);
+        }
+        try {
+            transferMoneyData.setId(idGenerator.nextId());
 
-        transferMoneyData.setId(String.valueOf(UUID.randomUUID()));
-        Logger logger = new Logger(loggerPath);
-
-        logger.log("Date : " + LocalDateTime.now().format(
-                DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss")) + "\n"
-                + "Card From : " + transferMoneyData.getCardFromNumber() + "\n"
-                + "Card To : " + transferMoneyData.getCardToNumber() + "\n"
-                + "Value : " + transferMoneyData.getAmount().value() / 100 + "\n"
-                + "Commission : 1%" + "\n"
-                + "ID : " + transferMoneyData.getId() + "\n");
-        return transferMoneyRepository.saveTransferData(transferMoneyData);
+            int weight = logger.sampleSuccess();
+            if (weight > 0) {
+                logger.log(AuditMessages.transfer(transferMoneyData, weight));
+            }
+            // хэш кода сохраняется до операции (и журналируется до неё), доставка - только после сохранения
+            String code = confirmationCodes.prepare(transferMoneyData.getId());
+            OperationStatus operationStatus;
+            try {
+                operationStatus = transferMoneyRepository.saveTransferData(transferMoneyData);
+            } catch (RuntimeException e) {
+                confirmationCodes.remove(transferMoneyData.getId());
+                throw e;
+            }
+            confirmationCodes.deliver(transferMoneyData, code);
+            metrics.transfer(sample, Outcome.SUCCESS);
+            return operationStatus;
+        } catch (RuntimeException e) {
+            metrics.transfer(sample, Outcome.ERROR);
+            throw e;
+        }
     }
 
     @Override
     public OperationStatus confirm(ConfirmationData confirmationData) throws ErrorInputData {
-        TransferMoneyData transferMoneyData = transferMoneyRepository.getTransfers().pop();
-        String code = transferMoneyRepository.getOperations()
-                .getOrDefault(transferMoneyData.getId(), ZERO);
-        Logger logger = new Logger(loggerPath);
-        if (confirmationData.code().equals(code)) {
-            logger.log("Подтверждение успешного перевода с ID: " + transferMoneyData.getId());
-            return transferMoneyRepository.saveConfirmationData(confirmationData);
-        } else {
-            logger.log("Неверный код подтверждения для перевода с ID: " + transferMoneyData.getId());
-            throw new ErrorInputData("Wrong verification code!");
+        Timer.Sample sample = metrics.start();
+        Rejection rejection;
+        try {
+            rejection = accept(confirmationData);
+            if (rejection == null) {
+                OperationStatus operationStatus = transferMoneyRepository.saveConfirmationData(confirmationData);
+                metrics.confirm(sample, Outcome.SUCCESS);
+                return operationStatus;
+            }
+        } catch (RuntimeException e) {
+            metrics.confirm(sample, Outcome.ERROR);
+            throw e;
+        }
+        metrics.confirm(sample, rejection.outcome());
+        if (rejection.outcome() == Outcome.RATE_LIMITED) {
+            throw new ErrorTooManyRequests(rejection.message(), rejection.retryAfterNanos());
+        }
+        throw new ErrorInputData(rejection.message());
+    }
+
+    @Override
+    public List<OperationStatus> transferBatch(List<TransferMoneyData> transfers) {
+        OperationStatus[] results = new OperationStatus[transfers.size()];
+        List<TransferMoneyData> allowed = new ArrayList<>(transfers.size());
+        int[] positions = new int[transfers.size()];
+        StringBuilder audit = new StringBuilder();
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferMoneyData transferMoneyData = transfers.get(i);
+            if (rateLimits.getCard().acquire(transferMoneyData.getCardFromNumber()) > 0) {
+                results[i] = new OperationStatus(idGenerator.nextId(), TOO_MANY_REQUESTS);
+                continue;
+            }
+            positions[allowed.size()] = i;
+            allowed.add(transferMoneyData);
+            transferMoneyData.setId(idGenerator.nextId());
+            int weight = logger.sampleSuccess();
+            if (weight == 0) {
+                continue;
+            }
+            if (!audit.isEmpty()) {
+                audit.append("\n");
+            }
+            audit.append(AuditMessages.transfer(transferMoneyData, weight));
+        }
+        if (!audit.isEmpty()) {
+            logger.log(audit.toString());
+        }
+        String[] codes = new String[allowed.size()];
+        for (int i = 0; i < allowed.size(); i++) {
+            codes[i] = confirmationCodes.prepare(allowed.get(i).getId());
+        }
+        List<OperationStatus> saved;
+        try {
+            saved = transferMoneyRepository.saveTransferDataBatch(allowed);
+        } catch (RuntimeException e) {
+            allowed.forEach(transferMoneyData -> confirmationCodes.remove(transferMoneyData.getId()));
+            throw e;
+        }
+        for (int i = 0; i < saved.size(); i++) {
+            confirmationCodes.deliver(allowed.get(i), codes[i]);
+            results[positions[i]] = saved.get(i);
+        }
+        metrics.transfers(Outcome.RATE_LIMITED, transfers.size() - allowed.size());
+        metrics.transfers(Outcome.SUCCESS, saved.size());
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public List<OperationStatus> confirmBatch(List<ConfirmationData> confirmations) {
+        OperationStatus[] results = new OperationStatus[confirmations.size()];
+        List<ConfirmationData> accepted = new ArrayList<>(confirmations.size());
+        int[] positions = new int[confirmations.size()];
+        for (int i = 0; i < confirmations.size(); i++) {
+            Rejection rejection = accept(confirmations.get(i));
+            if (rejection == null) {
+                positions[accepted.size()] = i;
+                accepted.add(confirmations.get(i));
+            } else {
+                metrics.confirms(rejection.outcome(), 1);
+                results[i] = new OperationStatus(idGenerator.nextId(), rejection.message());
+            }
+        }
+        List<OperationStatus> saved = transferMoneyRepository.saveConfirmationDataBatch(accepted);
+        for (int i = 0; i < saved.size(); i++) {
+            results[positions[i]] = saved.get(i);
+        }
+        metrics.confirms(Outcome.SUCCESS, saved.size());
+        return Arrays.asList(results);
+    }
+
+    // проверка кода, проводка и перевод операции в CONFIRMED без сохранения подтверждения, null - подтверждение принято
+    private Rejection accept(ConfirmationData confirmationData) {
+        String operationId = confirmationData.operationId();
+        long retryAfter = rateLimits.getConfirmation().acquire(operationId);
+        if (retryAfter > 0) {
+            return new Rejection(Outcome.RATE_LIMITED, TOO_MANY_REQUESTS, retryAfter);
+        }
+        Operation operation = transferMoneyRepository.getOperation(operationId);
+        if (operation == null) {
+            logger.log(AuditMessages.notFound(operationId));
+            return new Rejection(Outcome.NOT_FOUND, "Operation not found!");
+        }
+        switch (confirmationCodes.check(operationId, confirmationData.code())) {
+            case WRONG -> {
+                logger.log(AuditMessages.wrongCode(operationId));
+                return new Rejection(Outcome.WRONG_CODE, WRONG_CODE);
+            }
+            case EXHAUSTED -> {
+                transferMoneyRepository.changeState(operation, OperationState.PENDING, OperationState.REJECTED);
+                logger.log(AuditMessages.wrongCode(operationId));
+                return new Rejection(Outcome.WRONG_CODE, WRONG_CODE);
+            }
+            case UNKNOWN -> {
+                // код удалён после завершения операции или не выдавался
+                if (operation.getState() != OperationState.PENDING) {
+                    logger.log(AuditMessages.alreadyFinished(operationId, operation.getState()));
+                    return new Rejection(Outcome.ALREADY_FINISHED, "Operation is already " + operation.getState() + "!");
+                }
+                logger.log(AuditMessages.wrongCode(operationId));
+                return new Rejection(Outcome.WRONG_CODE, WRONG_CODE);
+            }
+            case VALID -> {
+            }
+        }
+        ConfirmResult result = transferMoneyRepository.confirm(operation);
+        // после проводки операция не ожидает подтверждения; при ALREADY_FINISHED код не трогаем -
+        // операция могла уйти в MOVED, и код ещё передаётся новому владельцу или вернётся вместе с шардом
+        if (result != ConfirmResult.ALREADY_FINISHED) {
+            confirmationCodes.remove(operationId);
+        }
+        if (result == ConfirmResult.INSUFFICIENT_FUNDS) {
+            logger.log(AuditMessages.insufficientFunds(operationId));
+            return new Rejection(Outcome.INSUFFICIENT_FUNDS, "Insufficient funds!");
+        }
+        if (result != ConfirmResult.CONFIRMED) {
+            logger.log(AuditMessages.alreadyFinished(operationId, operation.getState()));
+            return new Rejection(Outcome.ALREADY_FINISHED, "Operation is already " + operation.getState() + "!");
+        }
+        int weight = logger.sampleSuccess();
+        if (weight > 0) {
+            logger.log(AuditMessages.confirmed(operationId, weight));
         }
+        return null;
     }
 }
\ No newline at end of file
@@ -5,8 +5,15 @@ import ru.netology.moneytransferservice.model.ConfirmationData;
 import ru.netology.moneytransferservice.model.OperationStatus;
 import ru.netology.moneytransferservice.model.TransferMoneyData;
 
+import java.util.List;
+
 public interface TransferMoneyServiceInterface {
     public OperationStatus transfer(TransferMoneyData transferMoneyData);
 
     public OperationStatus confirm(ConfirmationData confirmationData) throws ErrorInputData;
+
+    public List<OperationStatus> transferBatch(List<TransferMoneyData> transfers);
+
+    // результат по каждому подтверждению в исходном порядке, ошибки возвращаются статусом, а не исключением
+    public List<OperationStatus> confirmBatch(List<ConfirmationData> confirmations);
 }
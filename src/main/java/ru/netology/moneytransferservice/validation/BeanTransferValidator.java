@@ -0,0 +1,37 @@
+package ru.netology.moneytransferservice.validation;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+
+import java.util.Set;
+
+/**
+ * Прежняя проверка через Bean Validation по аннотациям TransferMoneyData и Amount
+ * (transfer.validator=bean). Порядок сообщений не определён, проверок номера карты по Луну и срока нет.
+ */
+@Component
+@ConditionalOnProperty(name = "transfer.validator", havingValue = "bean")
+public class BeanTransferValidator implements TransferValidator {
+
+    private final Validator validator;
+
+    public BeanTransferValidator(Validator validator) {
+        this.validator = validator;
+    }
+
+    @Override
+    public String validate(TransferMoneyData transferMoneyData) {
+        Set<ConstraintViolation<TransferMoneyData>> violations = validator.validate(transferMoneyData);
+        if (violations.isEmpty()) {
+            return "";
+        }
+        StringBuilder description = new StringBuilder();
+        for (ConstraintViolation<TransferMoneyData> violation : violations) {
+            description.append(violation.getMessage()).append(" ");
+        }
+        return description.toString();
+    }
+}
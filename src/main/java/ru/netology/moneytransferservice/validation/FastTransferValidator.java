@@ -0,0 +1,175 @@
+package ru.netology.moneytransferservice.validation;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.netology.moneytransferservice.model.Amount;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+import ru.netology.moneytransferservice.model.ValidationMessages;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Проверка перевода без рефлексии и регулярных выражений: те же правила и тексты, что у аннотаций
+ * TransferMoneyData и Amount (@NotBlank, @NotNull, @Size, @Pattern, @Positive), поля проверяются по символам.
+ * Корректный перевод проверяется без создания объектов, строка ошибок собирается только при нарушениях,
+ * в порядке полей.
+ * <p>
+ * Дополнительно: контрольная цифра номеров карт по алгоритму Луна (transfer.validator.luhn) и срок действия
+ * карты отправителя (transfer.validator.expiry): карта действует до конца указанного месяца 20YY года.
+ * Номер текущего месяца кэшируется до начала следующего.
+ */
+@Component
+@ConditionalOnProperty(name = "transfer.validator", havingValue = "fast", matchIfMissing = true)
+public class FastTransferValidator implements TransferValidator {
+
+    // месяц как year * 12 + (month - 1) и начало следующего месяца
+    private record Month(int index, long nextStartMillis) {
+    }
+
+    private final boolean luhn;
+    private final boolean expiry;
+    private final Clock clock;
+    private volatile Month month;
+
+    @Autowired
+    public FastTransferValidator(@Value("${transfer.validator.luhn:true}") boolean luhn,
+                                 @Value("${transfer.validator.expiry:true}") boolean expiry) {
+        this(luhn, expiry, Clock.systemDefaultZone());
+    }
+
+    public FastTransferValidator(boolean luhn, boolean expiry, Clock clock) {
+        this.luhn = luhn;
+        this.expiry = expiry;
+        this.clock = clock;
+        this.month = month(clock.millis());
+    }
+
+    @Override
+    public String validate(TransferMoneyData transferMoneyData) {
+        StringBuilder errors = null;
+        errors = cardNumber(transferMoneyData.getCardFromNumber(), errors);
+        errors = validTill(transferMoneyData.getCardFromValidTill(), errors);
+        String cvv = transferMoneyData.getCardFromCVV();
+        if (blank(cvv)) {
+            errors = append(errors, ValidationMessages.CVV_BLANK);
+        }
+        if (cvv != null && cvv.length() != 3) {
+            errors = append(errors, ValidationMessages.CVV_LENGTH);
+        }
+        errors = cardNumber(transferMoneyData.getCardToNumber(), errors);
+        Amount amount = transferMoneyData.getAmount();
+        if (amount == null) {
+            errors = append(errors, ValidationMessages.AMOUNT_BLANK);
+        } else {
+            if (amount.value() == null) {
+                errors = append(errors, ValidationMessages.AMOUNT_BLANK);
+            } else if (amount.value() <= 0) {
+                errors = append(errors, ValidationMessages.AMOUNT_POSITIVE);
+            }
+            if (blank(amount.currency())) {
+                errors = append(errors, ValidationMessages.CURRENCY_BLANK);
+            }
+        }
+        return errors == null ? "" : errors.toString();
+    }
+
+    private StringBuilder cardNumber(String card, StringBuilder errors) {
+        boolean blank = blank(card);
+        if (blank) {
+            errors = append(errors, ValidationMessages.CARD_NUMBER_BLANK);
+        }
+        if (card != null && card.length() != 16) {
+            return append(errors, ValidationMessages.CARD_NUMBER_LENGTH);
+        }
+        if (luhn && !blank && !luhn(card)) {
+            errors = append(errors, ValidationMessages.CARD_NUMBER_CHECKSUM);
+        }
+        return errors;
+    }
+
+    private StringBuilder validTill(String validTill, StringBuilder errors) {
+        if (blank(validTill)) {
+            errors = append(errors, ValidationMessages.VALID_TILL_BLANK);
+        }
+        if (validTill == null) {
+            return errors;
+        }
+        // (0[1-9]|1[0-2])/([0-9]{2})
+        if (validTill.length() != 5 || validTill.charAt(2) != '/') {
+            return append(errors, ValidationMessages.VALID_TILL_PATTERN);
+        }
+        int month = digit(validTill.charAt(0)) * 10 + digit(validTill.charAt(1));
+        int year = digit(validTill.charAt(3)) * 10 + digit(validTill.charAt(4));
+        if (month < 1 || month > 12 || year < 0) {
+            return append(errors, ValidationMessages.VALID_TILL_PATTERN);
+        }
+        if (expiry && (2000 + year) * 12 + month - 1 < currentMonth()) {
+            errors = append(errors, ValidationMessages.CARD_EXPIRED);
+        }
+        return errors;
+    }
+
+    private int currentMonth() {
+        Month current = month;
+        long now = clock.millis();
+        if (now >= current.nextStartMillis()) {
+            current = month(now);
+            month = current;
+        }
+        return current.index();
+    }
+
+    private Month month(long now) {
+        ZonedDateTime start = ZonedDateTime.ofInstant(Instant.ofEpochMilli(now), clock.getZone())
+                .truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+        return new Month(start.getYear() * 12 + start.getMonthValue() - 1,
+                start.plusMonths(1).toInstant().toEpochMilli());
+    }
+
+    // контрольная сумма по Луну, нецифровой символ - ошибка
+    private static boolean luhn(String card) {
+        int sum = 0;
+        for (int i = card.length() - 1, position = 0; i >= 0; i--, position++) {
+            int digit = card.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return false;
+            }
+            if ((position & 1) == 1) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+        }
+        return sum % 10 == 0;
+    }
+
+    // -100 для нецифрового символа: любое число с ним выходит за допустимый диапазон
+    private static int digit(char c) {
+        return c >= '0' && c <= '9' ? c - '0' : -100;
+    }
+
+    // как @NotBlank: null или только символы не больше пробела (String.trim)
+    private static boolean blank(String value) {
+        if (value == null) {
+            return true;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static StringBuilder append(StringBuilder errors, String message) {
+        StringBuilder description = errors != null ? errors : new StringBuilder(64);
+        return description.append(message).append(' ');
+    }
+}
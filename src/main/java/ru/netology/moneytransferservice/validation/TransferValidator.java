@@ -0,0 +1,20 @@
+package ru.netology.moneytransferservice.validation;
+
+import ru.netology.moneytransferservice.exception.ErrorValidation;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+
+/**
+ * Проверка перевода перед сохранением, реализация выбирается transfer.validator.
+ */
+public interface TransferValidator {
+
+    // тексты нарушений, каждый с пробелом в конце (как в ответе ExceptionHandlerAdvice), "" - перевод корректен
+    String validate(TransferMoneyData transferMoneyData);
+
+    default void check(TransferMoneyData transferMoneyData) {
+        String errors = validate(transferMoneyData);
+        if (!errors.isEmpty()) {
+            throw new ErrorValidation(errors);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package ru.netology.moneytransferservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.netology.moneytransferservice.code.ConfirmationCodes;
+import ru.netology.moneytransferservice.controller.AsyncTransferMoneyController;
+import ru.netology.moneytransferservice.exception.ExceptionHandlerAdvice;
+import ru.netology.moneytransferservice.id.TimeOrderedIdGenerator;
+import ru.netology.moneytransferservice.logger.LoggerInterface;
+import ru.netology.moneytransferservice.metrics.TransferMetrics;
+import ru.netology.moneytransferservice.model.Amount;
+import ru.netology.moneytransferservice.model.ConfirmationData;
+import ru.netology.moneytransferservice.model.OperationState;
+import ru.netology.moneytransferservice.model.OperationStatus;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+import ru.netology.moneytransferservice.ratelimit.RateLimiter;
+import ru.netology.moneytransferservice.ratelimit.RateLimits;
+import ru.netology.moneytransferservice.repository.TransferMoneyRepository;
+import ru.netology.moneytransferservice.repository.ledger.Ledger;
+import ru.netology.moneytransferservice.service.AsyncTransferMoneyService;
+import ru.netology.moneytransferservice.validation.FastTransferValidator;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * AsyncTransferMoneyController (transfer.stack=async) через MockMvc с асинхронной диспетчеризацией:
+ * <p>
+ * 1. transferAndConfirmThroughAsyncDispatchTest(): /transfer и /confirmOperation возвращают future, ответ
+ * отправляется по его завершении. После подтверждения операция в CONFIRMED, её код удалён,
+ * повторное подтверждение отклоняется как уже завершённое.
+ * <p>
+ * 2. futureErrorsAreMappedByAdviceTest(): ошибки, которыми завершается future, обрабатывает
+ * ExceptionHandlerAdvice: неизвестная операция и неверный код - 400, лимит частоты переводов
+ * и подтверждений - 429 с Retry-After. Ошибка валидации возникает до future и тоже даёт 400.
+ * <p>
+ * 3. exhaustedCodeRejectsOperationTest(): после max-attempts неверных кодов операция переходит в REJECTED,
+ * код удалён, и верный код уже не принимается.
+ */
+class AsyncTransferMoneyControllerTests {
+
+    private static final String CODE = "0000";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final TransferMoneyRepository repository = new TransferMoneyRepository(60_000, 60_000, 1_000,
+            new Ledger(256, 1_000_000_000_000L, 100), new TimeOrderedIdGenerator(1));
+    private final ConfirmationCodes confirmationCodes = ConfirmationCodes.fixed(CODE);
+
+    @Test
+    void transferAndConfirmThroughAsyncDispatchTest() throws Exception {
+        MockMvc mvc = mvc(RateLimits.unlimited());
+
+        String operationId = transfer(mvc, "4111111111111111")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.description").value("Operation Transfer!"))
+                .andReturn().getResponse().getContentAsString();
+        operationId = mapper.readValue(operationId, OperationStatus.class).id();
+        Assertions.assertEquals(OperationState.PENDING, repository.getOperation(operationId).getState());
+        Assertions.assertEquals(1, confirmationCodes.size());
+
+        confirm(mvc, operationId, CODE)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.description").value("Operation Confirmed!"));
+        Assertions.assertEquals(OperationState.CONFIRMED, repository.getOperation(operationId).getState());
+        Assertions.assertEquals(0, confirmationCodes.size());
+
+        confirm(mvc, operationId, CODE)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.description").value("Operation is already CONFIRMED!"));
+    }
+
+    @Test
+    void futureErrorsAreMappedByAdviceTest() throws Exception {
+        MockMvc mvc = mvc(new RateLimits(new RateLimiter(1, 60_000, 100), new RateLimiter(1, 60_000, 100),
+                RateLimiter.unlimited()));
+
+        String operationId = mapper.readValue(transfer(mvc, "4111111111111111")
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), OperationStatus.class).id();
+        transfer(mvc, "4111111111111111")
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER))
+                .andExpect(jsonPath("$.description").value("Too many requests!"));
+
+        confirm(mvc, "unknown", CODE)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.description").value("Operation not found!"));
+        confirm(mvc, operationId, "1111")
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.description").value("Wrong verification code!"));
+        confirm(mvc, operationId, CODE)
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+        Assertions.assertEquals(OperationState.PENDING, repository.getOperation(operationId).getState());
+
+        TransferMoneyData invalid = transferMoneyData("5235890189478954");
+        invalid.setAmount(new Amount(0, "RUR"));
+        mvc.perform(post("/transfer").contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(invalid)))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void exhaustedCodeRejectsOperationTest() throws Exception {
+        MockMvc mvc = mvc(RateLimits.unlimited());
+        String operationId = mapper.readValue(transfer(mvc, "4111111111111111")
+                .andReturn().getResponse().getContentAsString(), OperationStatus.class).id();
+
+        for (int attempt = 0; attempt < 3; attempt++) {
+            confirm(mvc, operationId, "1111")
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.description").value("Wrong verification code!"));
+        }
+        Assertions.assertEquals(OperationState.REJECTED, repository.getOperation(operationId).getState());
+        Assertions.assertEquals(0, confirmationCodes.size());
+
+        confirm(mvc, operationId, CODE)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.description").value("Operation is already REJECTED!"));
+        Assertions.assertEquals(OperationState.REJECTED, repository.getOperation(operationId).getState());
+    }
+
+    private MockMvc mvc(RateLimits rateLimits) {
+        LoggerInterface logger = Mockito.mock(LoggerInterface.class);
+        TransferMetrics metrics = new TransferMetrics(new SimpleMeterRegistry());
+        TimeOrderedIdGenerator idGenerator = new TimeOrderedIdGenerator(1);
+        AsyncTransferMoneyService service = new AsyncTransferMoneyService(repository, logger, metrics, rateLimits,
+                idGenerator, confirmationCodes);
+        return MockMvcBuilders.standaloneSetup(
+                        new AsyncTransferMoneyController(service, new FastTransferValidator(false, false)))
+                .setControllerAdvice(new ExceptionHandlerAdvice(logger, metrics, idGenerator))
+                .addPlaceholderValue("myapp.allowed.origin", "http://localhost")
+                .build();
+    }
+
+    private ResultActions transfer(MockMvc mvc, String cardFrom) throws Exception {
+        return dispatch(mvc, post("/transfer").contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(transferMoneyData(cardFrom))));
+    }
+
+    private ResultActions confirm(MockMvc mvc, String operationId, String code) throws Exception {
+        return dispatch(mvc, post("/confirmOperation").contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(new ConfirmationData(operationId, code))));
+    }
+
+    // запрос должен уйти в асинхронную обработку; ответ - после повторной диспетчеризации с результатом future
+    private static ResultActions dispatch(MockMvc mvc, RequestBuilder builder) throws Exception {
+        MvcResult started = mvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mvc.perform(asyncDispatch(started));
+    }
+
+    private static TransferMoneyData transferMoneyData(String cardFrom) {
+        TransferMoneyData data = new TransferMoneyData();
+        data.setCardFromNumber(cardFrom);
+        data.setCardFromValidTill("12/30");
+        data.setCardFromCVV("123");
+        data.setCardToNumber("5235890189478954");
+        data.setAmount(new Amount(10_000, "RUR"));
+        return data;
+    }
+}
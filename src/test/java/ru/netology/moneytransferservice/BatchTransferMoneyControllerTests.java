@@ -0,0 +1,198 @@
+package ru.netology.moneytransferservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.netology.moneytransferservice.code.ConfirmationCodes;
+import ru.netology.moneytransferservice.controller.BatchTransferMoneyController;
+import ru.netology.moneytransferservice.id.TimeOrderedIdGenerator;
+import ru.netology.moneytransferservice.logger.LoggerInterface;
+import ru.netology.moneytransferservice.metrics.TransferMetrics;
+import ru.netology.moneytransferservice.model.Amount;
+import ru.netology.moneytransferservice.model.ConfirmationData;
+import ru.netology.moneytransferservice.model.OperationState;
+import ru.netology.moneytransferservice.model.OperationStatus;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+import ru.netology.moneytransferservice.model.ValidationMessages;
+import ru.netology.moneytransferservice.ratelimit.RateLimiter;
+import ru.netology.moneytransferservice.ratelimit.RateLimits;
+import ru.netology.moneytransferservice.repository.TransferMoneyRepository;
+import ru.netology.moneytransferservice.repository.ledger.Ledger;
+import ru.netology.moneytransferservice.service.TransferMoneyService;
+import ru.netology.moneytransferservice.validation.FastTransferValidator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * BatchTransferMoneyController через MockMvc:
+ * <p>
+ * 1. jsonArrayAndNdjsonAreAcceptedTest(): одни и те же переводы в JSON-массиве и в NDJSON сохраняются
+ * одинаково, ответ - NDJSON по строке на элемент.
+ * <p>
+ * 2. transferResultsKeepRequestOrderTest(): в пакете вперемешку верные, неверные, пустые (null) переводы
+ * и переводы сверх лимита частоты карты - результат каждого на месте своего элемента, сохранены только
+ * прошедшие проверку и лимит.
+ * <p>
+ * 3. confirmResultsKeepRequestOrderTest(): пакет подтверждений с верным и неверным кодом, неизвестной операцией,
+ * пустым элементом и подтверждением без полей - пустые и неполные получают сообщение проверки, а не отказ
+ * по лимиту частоты, остальные - результат подтверждения, порядок сохранён.
+ */
+class BatchTransferMoneyControllerTests {
+
+    private static final String CODE = "0000";
+    private static final String TRANSFERRED = "Operation Transfer!";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final TransferMoneyRepository repository = new TransferMoneyRepository(60_000, 60_000, 1_000,
+            new Ledger(256, 1_000_000_000_000L, 100), new TimeOrderedIdGenerator(1));
+
+    @Test
+    void jsonArrayAndNdjsonAreAcceptedTest() throws Exception {
+        MockMvc mvc = mvc(RateLimits.unlimited());
+        List<TransferMoneyData> transfers = List.of(transferMoneyData("4111111111111111"),
+                transferMoneyData("5500000000000004"), transferMoneyData("4111111111111111"));
+
+        List<OperationStatus> array = batch(mvc, "/transfer/batch", MediaType.APPLICATION_JSON,
+                mapper.writeValueAsString(transfers));
+        List<OperationStatus> ndjson = batch(mvc, "/transfer/batch", MediaType.APPLICATION_NDJSON, ndjson(transfers));
+
+        Assertions.assertEquals(3, array.size());
+        Assertions.assertEquals(3, ndjson.size());
+        for (OperationStatus operationStatus : concat(array, ndjson)) {
+            Assertions.assertEquals(TRANSFERRED, operationStatus.description());
+            Assertions.assertEquals(OperationState.PENDING, repository.getOperation(operationStatus.id()).getState());
+        }
+        Assertions.assertEquals(6, repository.getOperations().size());
+    }
+
+    @Test
+    void transferResultsKeepRequestOrderTest() throws Exception {
+        MockMvc mvc = mvc(new RateLimits(new RateLimiter(1, 60_000, 100), RateLimiter.unlimited(),
+                RateLimiter.unlimited()));
+        TransferMoneyData invalid = transferMoneyData("5500000000000004");
+        invalid.setAmount(new Amount(0, "RUR"));
+        List<TransferMoneyData> transfers = Arrays.asList(
+                transferMoneyData("4111111111111111"),
+                invalid,
+                null,
+                transferMoneyData("4111111111111111"),
+                transferMoneyData("5500000000000004"));
+
+        List<String> expected = List.of(TRANSFERRED, ValidationMessages.AMOUNT_POSITIVE,
+                ValidationMessages.TRANSFER_EMPTY, "Too many requests!", TRANSFERRED);
+
+        Assertions.assertEquals(expected, descriptions(batch(mvc, "/transfer/batch", MediaType.APPLICATION_JSON,
+                mapper.writeValueAsString(transfers))));
+        Assertions.assertEquals(2, repository.getOperations().size());
+
+        // новый лимит частоты: повтор того же пакета в NDJSON
+        mvc = mvc(new RateLimits(new RateLimiter(1, 60_000, 100), RateLimiter.unlimited(), RateLimiter.unlimited()));
+        Assertions.assertEquals(expected, descriptions(batch(mvc, "/transfer/batch", MediaType.APPLICATION_NDJSON,
+                ndjson(transfers))));
+        Assertions.assertEquals(4, repository.getOperations().size());
+    }
+
+    @Test
+    void confirmResultsKeepRequestOrderTest() throws Exception {
+        MockMvc mvc = mvc(RateLimits.unlimited());
+        List<String> operationIds = new ArrayList<>();
+        for (OperationStatus operationStatus : batch(mvc, "/transfer/batch", MediaType.APPLICATION_JSON,
+                mapper.writeValueAsString(List.of(transferMoneyData("4111111111111111"),
+                        transferMoneyData("5500000000000004"))))) {
+            operationIds.add(operationStatus.id());
+        }
+        List<ConfirmationData> confirmations = Arrays.asList(
+                new ConfirmationData(operationIds.get(0), CODE),
+                null,
+                new ConfirmationData(null, CODE),
+                new ConfirmationData(operationIds.get(1), null),
+                new ConfirmationData(operationIds.get(1), "1111"),
+                new ConfirmationData("unknown", CODE));
+
+        List<String> descriptions = descriptions(batch(mvc, "/confirmOperation/batch", MediaType.APPLICATION_NDJSON,
+                ndjson(confirmations)));
+
+        Assertions.assertEquals(List.of("Operation Confirmed!", ValidationMessages.CONFIRMATION_EMPTY,
+                ValidationMessages.OPERATION_ID_BLANK, ValidationMessages.CODE_BLANK, "Wrong verification code!",
+                "Operation not found!"), descriptions);
+        Assertions.assertEquals(OperationState.CONFIRMED, repository.getOperation(operationIds.get(0)).getState());
+        Assertions.assertEquals(OperationState.PENDING, repository.getOperation(operationIds.get(1)).getState());
+
+        descriptions = descriptions(batch(mvc, "/confirmOperation/batch", MediaType.APPLICATION_JSON,
+                mapper.writeValueAsString(Arrays.asList(null, new ConfirmationData(operationIds.get(1), CODE)))));
+        Assertions.assertEquals(List.of(ValidationMessages.CONFIRMATION_EMPTY, "Operation Confirmed!"), descriptions);
+        Assertions.assertEquals(OperationState.CONFIRMED, repository.getOperation(operationIds.get(1)).getState());
+    }
+
+    private MockMvc mvc(RateLimits rateLimits) {
+        TransferMetrics metrics = new TransferMetrics(new SimpleMeterRegistry());
+        TimeOrderedIdGenerator idGenerator = new TimeOrderedIdGenerator(1);
+        TransferMoneyService service = new TransferMoneyService(repository, Mockito.mock(LoggerInterface.class),
+                metrics, rateLimits, idGenerator, ConfirmationCodes.fixed(CODE));
+        return MockMvcBuilders.standaloneSetup(new BatchTransferMoneyController(service,
+                        new FastTransferValidator(false, false), mapper, metrics, idGenerator))
+                .addPlaceholderValue("myapp.allowed.origin", "http://localhost")
+                .build();
+    }
+
+    // ответ пишется StreamingResponseBody, то есть асинхронно; результат - строки NDJSON
+    private List<OperationStatus> batch(MockMvc mvc, String path, MediaType type, String body) throws Exception {
+        MvcResult started = mvc.perform(post(path).contentType(type).content(body))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String response = mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        List<OperationStatus> statuses = new ArrayList<>();
+        for (String line : response.split("\n")) {
+            statuses.add(mapper.readValue(line, OperationStatus.class));
+        }
+        return statuses;
+    }
+
+    private String ndjson(List<?> items) throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (Object item : items) {
+            body.append(mapper.writeValueAsString(item)).append('\n');
+        }
+        return body.toString();
+    }
+
+    private static List<String> descriptions(List<OperationStatus> statuses) {
+        return statuses.stream()
+                .map(operationStatus -> operationStatus.description().trim())
+                .collect(Collectors.toList());
+    }
+
+    private static List<OperationStatus> concat(List<OperationStatus> first, List<OperationStatus> second) {
+        List<OperationStatus> all = new ArrayList<>(first);
+        all.addAll(second);
+        return all;
+    }
+
+    private static TransferMoneyData transferMoneyData(String cardFrom) {
+        TransferMoneyData data = new TransferMoneyData();
+        data.setCardFromNumber(cardFrom);
+        data.setCardFromValidTill("12/30");
+        data.setCardFromCVV("123");
+        data.setCardToNumber("5235890189478954");
+        data.setAmount(new Amount(10_000, "RUR"));
+        return data;
+    }
+}
@@ -0,0 +1,429 @@
+package ru.netology.moneytransferservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import ru.netology.moneytransferservice.cluster.ClusterClient;
+import ru.netology.moneytransferservice.cluster.ClusterController;
+import ru.netology.moneytransferservice.cluster.ClusterIdGenerator;
+import ru.netology.moneytransferservice.cluster.ClusterMember;
+import ru.netology.moneytransferservice.cluster.ClusterMembership;
+import ru.netology.moneytransferservice.cluster.ClusterRebalancer;
+import ru.netology.moneytransferservice.cluster.HashRing;
+import ru.netology.moneytransferservice.code.ConfirmationCodes;
+import ru.netology.moneytransferservice.exception.ErrorClusterAuthorization;
+import ru.netology.moneytransferservice.exception.ErrorInputData;
+import ru.netology.moneytransferservice.exception.ErrorNodeUnavailable;
+import ru.netology.moneytransferservice.id.RandomIdGenerator;
+import ru.netology.moneytransferservice.id.TimeOrderedIdGenerator;
+import ru.netology.moneytransferservice.logger.LoggerInterface;
+import ru.netology.moneytransferservice.metrics.TransferMetrics;
+import ru.netology.moneytransferservice.model.Amount;
+import ru.netology.moneytransferservice.model.ConfirmationData;
+import ru.netology.moneytransferservice.model.Operation;
+import ru.netology.moneytransferservice.model.OperationState;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+import ru.netology.moneytransferservice.ratelimit.RateLimits;
+import ru.netology.moneytransferservice.repository.journal.DurabilityMode;
+import ru.netology.moneytransferservice.repository.journal.JournaledTransferMoneyRepository;
+import ru.netology.moneytransferservice.repository.ledger.Ledger;
+import ru.netology.moneytransferservice.service.TransferMoneyService;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Кластерный режим. В тестах передачи - два узла с repository.type=journal, узел 2 принимает передачи
+ * через ClusterController на локальном HTTP-сервере; тот же сервер изображает другой узел для ClusterClient:
+ * <p>
+ * 1. handoffSurvivesRestartOfBothNodesTest(): после добавления узла 2 узел 1 передаёт ему ожидающие операции
+ * его шардов вместе с кодами. После перезапуска узел 2 подтверждает их прежним кодом, а узел 1 не
+ * восстанавливает переданные операции и их коды, свои операции остаются ожидающими.
+ * <p>
+ * 2. movedOperationsReturnInPlaceTest(): узел 2 недоступен, операции его шардов остаются в MOVED; после
+ * исключения узла 2 они возвращаются в PENDING тем же объектом, без удаления из хранилища, и после
+ * перезапуска узла 1 подтверждаются.
+ * <p>
+ * 3. onlyClusterIdsHaveShardsTest(): шард есть только у id, выданных ClusterIdGenerator; у id uuid7 вне
+ * кластера (с любым полем node), random, UUID других версий и строк не-UUID шарда нет, и их владелец -
+ * этот узел.
+ * <p>
+ * 4. addedNodeTakesOnlyItsShareOfShardsTest(): при добавлении узла в кольцо владельца меняет около 1/N шардов,
+ * и все они переходят к новому узлу.
+ * <p>
+ * 5. clusterSecretIsRequiredTest(): без cluster.secret узел не создаётся, запросы с чужим секретом
+ * или без него не авторизованы.
+ * <p>
+ * 6. clusterIdsStayInOwnedShardsWhileMembershipChangesTest(): потоки получают id операций, пока состав кластера
+ * меняется: id различны, а шард каждого id принадлежит этому узлу в прежнем или новом кольце.
+ * <p>
+ * 7. refusedNodeDiffersFromUnavailableNodeTest(): ответ узла 403 без тела - чужой cluster.secret
+ * (ErrorClusterAuthorization), другой ответ без OperationStatus - узел недоступен (ErrorNodeUnavailable).
+ * <p>
+ * 8. confirmingMovedOperationKeepsItsCodeTest(): подтверждение операции в MOVED отклоняется и не удаляет её код,
+ * который ещё передаётся новому владельцу.
+ */
+class ClusterTests {
+
+    private static final int OPERATIONS = 200;
+    private static final int THREADS = 16;
+    private static final String CODE = "1234";
+    private static final String SECRET = Base64.getEncoder().encodeToString(new byte[32]);
+    private static final String CLUSTER_SECRET = "secret";
+
+    private final List<Path> directories = new ArrayList<>();
+    private final List<JournaledTransferMoneyRepository> opened = new ArrayList<>();
+    private HttpServer server;
+    private Path senderDirectory;
+    private Path receiverDirectory;
+
+    @BeforeEach
+    void createDirectories() throws IOException {
+        senderDirectory = directory();
+        receiverDirectory = directory();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    }
+
+    @AfterEach
+    void deleteDirectories() throws IOException {
+        server.stop(0);
+        opened.forEach(JournaledTransferMoneyRepository::close);
+        for (Path directory : directories) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Test
+    void handoffSurvivesRestartOfBothNodesTest() throws Exception {
+        ClusterMembership senderMembership = membership(1, false);
+        ConfirmationCodes senderCodes = codes();
+        JournaledTransferMoneyRepository sender = open(senderDirectory, senderCodes);
+        List<String> ids = transfers(service(sender, senderCodes, senderMembership));
+
+        ConfirmationCodes receiverCodes = codes();
+        JournaledTransferMoneyRepository receiver = open(receiverDirectory, receiverCodes);
+        serve(new ClusterController(null, receiver, receiverCodes, membership(2, true)));
+        ClusterRebalancer rebalancer = new ClusterRebalancer(senderMembership,
+                new ClusterClient(senderMembership, new ObjectMapper(), 2_000), sender, senderCodes, SECRET);
+        Assertions.assertTrue(senderMembership.update(members(true)));
+        rebalancer.rebalance();
+
+        List<String> moved = new ArrayList<>();
+        List<String> kept = new ArrayList<>();
+        for (String id : ids) {
+            (senderMembership.owner(ClusterMembership.shard(id)) == 2 ? moved : kept).add(id);
+        }
+        Assertions.assertFalse(moved.isEmpty());
+        Assertions.assertFalse(kept.isEmpty());
+        Assertions.assertEquals(kept.size(), sender.getOperations().size());
+        Assertions.assertEquals(kept.size(), senderCodes.size());
+        Assertions.assertEquals(moved.size(), receiver.getPendingOperations());
+        Assertions.assertEquals(moved.size(), receiverCodes.size());
+
+        ConfirmationCodes restoredReceiverCodes = codes();
+        JournaledTransferMoneyRepository restoredReceiver = reopen(receiver, receiverDirectory, restoredReceiverCodes);
+        Assertions.assertEquals(moved.size(), restoredReceiver.getPendingOperations());
+        Assertions.assertEquals(moved.size(), restoredReceiverCodes.size());
+        TransferMoneyService receiverService = service(restoredReceiver, restoredReceiverCodes, membership(2, true));
+        for (String id : moved) {
+            Assertions.assertEquals("Operation Confirmed!",
+                    receiverService.confirm(new ConfirmationData(id, CODE)).description());
+        }
+
+        ConfirmationCodes restoredSenderCodes = codes();
+        JournaledTransferMoneyRepository restoredSender = reopen(sender, senderDirectory, restoredSenderCodes);
+        Assertions.assertEquals(kept.size(), restoredSender.getOperations().size());
+        Assertions.assertEquals(kept.size(), restoredSender.getPendingOperations());
+        Assertions.assertEquals(kept.size(), restoredSenderCodes.size());
+        for (String id : moved) {
+            Assertions.assertNull(restoredSender.getOperation(id));
+        }
+    }
+
+    @Test
+    void movedOperationsReturnInPlaceTest() throws Exception {
+        ClusterMembership senderMembership = membership(1, false);
+        ConfirmationCodes senderCodes = codes();
+        JournaledTransferMoneyRepository sender = open(senderDirectory, senderCodes);
+        List<String> ids = transfers(service(sender, senderCodes, senderMembership));
+        List<Operation> before = new ArrayList<>();
+        for (String id : ids) {
+            before.add(sender.getOperation(id));
+        }
+
+        // сервер узла 2 не запущен - передача не проходит
+        ClusterRebalancer rebalancer = new ClusterRebalancer(senderMembership,
+                new ClusterClient(senderMembership, new ObjectMapper(), 2_000), sender, senderCodes, SECRET);
+        Assertions.assertTrue(senderMembership.update(members(true)));
+        rebalancer.rebalance();
+        long moved = sender.getOperations().values().stream()
+                .filter(operation -> operation.getState() == OperationState.MOVED).count();
+        Assertions.assertTrue(moved > 0);
+        Assertions.assertEquals(OPERATIONS - moved, sender.getPendingOperations());
+        Assertions.assertEquals(OPERATIONS, senderCodes.size());
+
+        Assertions.assertTrue(senderMembership.update(members(false)));
+        rebalancer.rebalance();
+        for (Operation operation : before) {
+            Assertions.assertSame(operation, sender.getOperation(operation.getId()));
+            Assertions.assertEquals(OperationState.PENDING, operation.getState());
+            Assertions.assertEquals(0, operation.getFinishedAt());
+        }
+        Assertions.assertEquals(OPERATIONS, sender.getPendingOperations());
+
+        ConfirmationCodes restoredCodes = codes();
+        JournaledTransferMoneyRepository restored = reopen(sender, senderDirectory, restoredCodes);
+        Assertions.assertEquals(OPERATIONS, restored.getPendingOperations());
+        Assertions.assertEquals(OPERATIONS, restoredCodes.size());
+        TransferMoneyService service = service(restored, restoredCodes, senderMembership);
+        for (String id : ids) {
+            Assertions.assertEquals("Operation Confirmed!",
+                    service.confirm(new ConfirmationData(id, CODE)).description());
+        }
+    }
+
+    @Test
+    void onlyClusterIdsHaveShardsTest() {
+        ClusterMembership membership = membership(2, true);
+        ClusterIdGenerator generator = new ClusterIdGenerator(membership);
+        for (int i = 0; i < 1_000; i++) {
+            String id = generator.nextId();
+            int shard = ClusterMembership.shard(id);
+            Assertions.assertEquals(2, membership.owner(shard), id);
+            Assertions.assertEquals(2, TimeOrderedIdGenerator.node(id) & ClusterMembership.MAX_NODE_ID);
+        }
+
+        List<String> local = new ArrayList<>();
+        for (int node : new int[]{0, 1, 63, 0xFFFF}) {
+            local.add(new TimeOrderedIdGenerator(node).nextId());
+        }
+        local.add(new RandomIdGenerator().nextId());
+        local.add(UUID.randomUUID().toString());
+        local.add(UUID.nameUUIDFromBytes(new byte[]{1}).toString());
+        local.add(new UUID(-1L, -1L).toString());
+        local.add("not-an-id");
+        local.add(null);
+        for (String id : local) {
+            Assertions.assertEquals(-1, ClusterMembership.shard(id), id);
+            Assertions.assertNull(membership.remoteOwner(id), id);
+        }
+    }
+
+    @Test
+    void addedNodeTakesOnlyItsShareOfShardsTest() {
+        List<ClusterMember> four = ClusterMember.parse(
+                "1=http://127.0.0.1:5501, 2=http://127.0.0.1:5502, 3=http://127.0.0.1:5503, 4=http://127.0.0.1:5504");
+        List<ClusterMember> five = new ArrayList<>(four);
+        five.add(new ClusterMember(5, URI.create("http://127.0.0.1:5505")));
+        HashRing before = new HashRing(four);
+        HashRing after = new HashRing(five);
+        int moved = 0;
+        for (int shard = 0; shard < HashRing.SHARDS; shard++) {
+            if (before.owner(shard) != after.owner(shard)) {
+                Assertions.assertEquals(5, after.owner(shard));
+                moved++;
+            }
+        }
+        Assertions.assertTrue(moved > HashRing.SHARDS / 10 && moved < HashRing.SHARDS * 3 / 10, "moved " + moved);
+    }
+
+    @Test
+    void clusterSecretIsRequiredTest() {
+        ClusterMembership membership = membership(1, true);
+        Assertions.assertTrue(membership.authorized(CLUSTER_SECRET));
+        Assertions.assertFalse(membership.authorized(null));
+        Assertions.assertFalse(membership.authorized("other"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new ClusterMembership(1, "1=http://127.0.0.1:5501", "", " "));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new ClusterMembership(1, "1=http://127.0.0.1:5501", "", ""));
+    }
+
+    @Test
+    void clusterIdsStayInOwnedShardsWhileMembershipChangesTest() throws Exception {
+        List<ClusterMember> four = ClusterMember.parse(
+                "1=http://127.0.0.1:5501, 2=http://127.0.0.1:5502, 3=http://127.0.0.1:5503, 4=http://127.0.0.1:5504");
+        List<ClusterMember> five = new ArrayList<>(four);
+        five.add(new ClusterMember(5, URI.create("http://127.0.0.1:5505")));
+        HashRing before = new HashRing(four);
+        HashRing after = new HashRing(five);
+        ClusterMembership membership = new ClusterMembership(1, "1=http://127.0.0.1:5501, 2=http://127.0.0.1:5502, "
+                + "3=http://127.0.0.1:5503, 4=http://127.0.0.1:5504", "", CLUSTER_SECRET);
+        ClusterIdGenerator generator = new ClusterIdGenerator(membership);
+        Set<Integer> owned = new HashSet<>();
+        for (int shard : before.shardsOf(1)) {
+            owned.add(shard);
+        }
+        for (int shard : after.shardsOf(1)) {
+            owned.add(shard);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<String>>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                List<String> ids = new ArrayList<>();
+                for (int j = 0; j < 10_000; j++) {
+                    ids.add(generator.nextId());
+                }
+                return ids;
+            }));
+        }
+        start.countDown();
+        Assertions.assertTrue(membership.update(five));
+        Assertions.assertFalse(membership.update(five));
+        Set<String> unique = new HashSet<>();
+        for (Future<List<String>> future : futures) {
+            for (String id : future.get()) {
+                Assertions.assertTrue(owned.contains(ClusterMembership.shard(id)), id);
+                Assertions.assertEquals(1, TimeOrderedIdGenerator.node(id) & ClusterMembership.MAX_NODE_ID);
+                unique.add(id);
+            }
+        }
+        executor.shutdown();
+
+        Assertions.assertEquals(THREADS * 10_000, unique.size());
+        Assertions.assertEquals(1, membership.version());
+        for (int shard : membership.ownedShards()) {
+            Assertions.assertEquals(1, after.owner(shard));
+        }
+        Assertions.assertNull(membership.remoteOwner(generator.nextId()));
+    }
+
+    @Test
+    void refusedNodeDiffersFromUnavailableNodeTest() {
+        ClusterMembership membership = membership(1, true);
+        int[] status = {403};
+        server.createContext(ClusterClient.CONFIRM_PATH, exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            byte[] body = status[0] == 403 ? new byte[0] : "<html>Bad Gateway</html>".getBytes();
+            exchange.sendResponseHeaders(status[0], body.length == 0 ? -1 : body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        ClusterClient client = new ClusterClient(membership, new ObjectMapper(), 2_000);
+        ClusterMember member = new ClusterMember(2, URI.create("http://127.0.0.1:" + server.getAddress().getPort()));
+        ConfirmationData confirmationData = new ConfirmationData(new ClusterIdGenerator(membership).nextId(), CODE);
+
+        Assertions.assertThrows(ErrorClusterAuthorization.class, () -> client.confirm(member, confirmationData, false));
+        status[0] = 502;
+        Assertions.assertThrows(ErrorNodeUnavailable.class, () -> client.confirm(member, confirmationData, false));
+    }
+
+    @Test
+    void confirmingMovedOperationKeepsItsCodeTest() throws Exception {
+        ClusterMembership membership = membership(1, false);
+        ConfirmationCodes codes = codes();
+        JournaledTransferMoneyRepository repository = open(senderDirectory, codes);
+        String movedId = transfers(service(repository, codes, membership)).get(0);
+        Assertions.assertTrue(repository.changeState(repository.getOperation(movedId), OperationState.PENDING,
+                OperationState.MOVED));
+
+        TransferMoneyService service = service(repository, codes, membership);
+        Assertions.assertThrows(ErrorInputData.class, () -> service.confirm(new ConfirmationData(movedId, CODE)));
+        Assertions.assertEquals(OperationState.MOVED, repository.getOperation(movedId).getState());
+        Assertions.assertNotNull(codes.export(movedId));
+    }
+
+    // ожидающие переводы с id по кольцу membership
+    private static List<String> transfers(TransferMoneyService service) throws ErrorInputData {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < OPERATIONS; i++) {
+            TransferMoneyData data = new TransferMoneyData();
+            data.setCardFromNumber(String.valueOf(4_000_000_000_000_000L + i));
+            data.setCardFromValidTill("12/30");
+            data.setCardFromCVV("123");
+            data.setCardToNumber("5235890189478954");
+            data.setAmount(new Amount(10_000 + i, "RUR"));
+            ids.add(service.transfer(data).id());
+        }
+        return ids;
+    }
+
+    private void serve(ClusterController controller) {
+        server.createContext(ClusterClient.HANDOFF_PATH, exchange -> {
+            int status = controller.handoff(exchange.getRequestHeaders().getFirst(ClusterClient.TOKEN),
+                    exchange.getRequestBody().readAllBytes()).getStatusCode().value();
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    private List<ClusterMember> members(boolean withReceiver) {
+        return ClusterMember.parse("1=http://127.0.0.1:1" + (withReceiver
+                ? ", 2=http://127.0.0.1:" + server.getAddress().getPort() : ""));
+    }
+
+    private ClusterMembership membership(int nodeId, boolean withReceiver) {
+        StringBuilder members = new StringBuilder();
+        for (ClusterMember member : members(withReceiver)) {
+            if (!members.isEmpty()) {
+                members.append(',');
+            }
+            members.append(member.id()).append('=').append(member.address());
+        }
+        return new ClusterMembership(nodeId, members.toString(), "", CLUSTER_SECRET);
+    }
+
+    // общий для узлов ключ confirmation.code.secret
+    private static ConfirmationCodes codes() {
+        return new ConfirmationCodes(() -> CODE, (transferMoneyData, code) -> {
+        }, SECRET, 3, 60_000, 1, 1, new SimpleMeterRegistry());
+    }
+
+    private static TransferMoneyService service(JournaledTransferMoneyRepository repository, ConfirmationCodes codes,
+                                                ClusterMembership membership) {
+        return new TransferMoneyService(repository, Mockito.mock(LoggerInterface.class),
+                new TransferMetrics(new SimpleMeterRegistry()), RateLimits.unlimited(),
+                new ClusterIdGenerator(membership), codes);
+    }
+
+    private JournaledTransferMoneyRepository reopen(JournaledTransferMoneyRepository repository, Path directory,
+                                                    ConfirmationCodes codes) throws IOException {
+        opened.remove(repository);
+        repository.close();
+        return open(directory, codes);
+    }
+
+    private JournaledTransferMoneyRepository open(Path directory, ConfirmationCodes codes) throws IOException {
+        JournaledTransferMoneyRepository repository = new JournaledTransferMoneyRepository(60_000, 60_000, 100_000,
+                directory.toString(), DurabilityMode.BATCH, 10, 64L << 20,
+                new Ledger(256, 1_000_000_000_000L, 100), new TimeOrderedIdGenerator(1), codes);
+        opened.add(repository);
+        return repository;
+    }
+
+    private Path directory() throws IOException {
+        Path directory = Files.createTempDirectory("cluster-test");
+        directories.add(directory);
+        return directory;
+    }
+}
@@ -0,0 +1,47 @@
+package ru.netology.moneytransferservice;
+
+import ru.netology.moneytransferservice.code.CodeNotifier;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Доставка кодов только для тестов: код открытым текстом кладётся в память по id операции.
+ * Доставка ждёт открытия gate - так проверяется, что /transfer не ждёт CodeNotifier.
+ */
+class InboxCodeNotifier implements CodeNotifier {
+
+    private final Map<String, String> inbox = new ConcurrentHashMap<>();
+    private final CountDownLatch gate = new CountDownLatch(1);
+    private final CountDownLatch delivered;
+
+    InboxCodeNotifier(int expected) {
+        this.delivered = new CountDownLatch(expected);
+    }
+
+    @Override
+    public void send(TransferMoneyData transferMoneyData, String code) throws InterruptedException {
+        gate.await();
+        inbox.put(transferMoneyData.getId(), code);
+        delivered.countDown();
+    }
+
+    void open() {
+        gate.countDown();
+    }
+
+    boolean awaitDelivered(long timeout, TimeUnit unit) throws InterruptedException {
+        return delivered.await(timeout, unit);
+    }
+
+    int size() {
+        return inbox.size();
+    }
+
+    String code(String operationId) {
+        return inbox.get(operationId);
+    }
+}
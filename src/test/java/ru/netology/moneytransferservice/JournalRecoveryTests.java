@@ -0,0 +1,421 @@
+package ru.netology.moneytransferservice;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import ru.netology.moneytransferservice.code.ConfirmationCodes;
+import ru.netology.moneytransferservice.exception.ErrorInputData;
+import ru.netology.moneytransferservice.id.TimeOrderedIdGenerator;
+import ru.netology.moneytransferservice.logger.LoggerInterface;
+import ru.netology.moneytransferservice.metrics.TransferMetrics;
+import ru.netology.moneytransferservice.model.Amount;
+import ru.netology.moneytransferservice.model.ConfirmationData;
+import ru.netology.moneytransferservice.model.Operation;
+import ru.netology.moneytransferservice.model.OperationState;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+import ru.netology.moneytransferservice.ratelimit.RateLimits;
+import ru.netology.moneytransferservice.repository.ConfirmResult;
+import ru.netology.moneytransferservice.repository.journal.DurabilityMode;
+import ru.netology.moneytransferservice.repository.journal.Journal;
+import ru.netology.moneytransferservice.repository.journal.JournaledTransferMoneyRepository;
+import ru.netology.moneytransferservice.repository.ledger.Ledger;
+import ru.netology.moneytransferservice.service.TransferMoneyService;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Восстановление хранилища repository.type=journal после перезапуска:
+ * <p>
+ * 1. replayRestoresOperationsAndConfirmationsTest(): переводы, подтверждения и отклонения, записанные
+ * только в сегменты журнала, после перезапуска восстанавливаются с теми же состояниями.
+ * <p>
+ * 2. snapshotWithLaterSegmentsIsRecoveredTest(): снимок и записи сегментов после него вместе дают
+ * полное состояние, сегменты до снимка удалены.
+ * <p>
+ * 3. replayIsIdempotentTest(): повторное проигрывание тех же записей (копия сегмента, повторный
+ * перезапуск) не меняет состояние и не дублирует подтверждения.
+ * <p>
+ * 4. tornOrCorruptedTailIsDiscardedTest(): оборванная запись, запись с неверной контрольной суммой и
+ * заголовок с огромной длиной в хвосте сегмента отбрасываются, все записи до них восстанавливаются.
+ * <p>
+ * 5. pendingOperationsAreConfirmedAfterRestartTest(): коды операций, ожидавших подтверждения до перезапуска,
+ * восстанавливаются из снимка и сегментов вместе с оставшимися попытками: верный код принимается,
+ * исчерпанные попытки отклоняют операцию, коды завершённых операций не восстанавливаются.
+ * <p>
+ * 6. ledgerBalancesAreRestoredTest(): балансы карт и комиссия после перезапуска те же, что до него - при
+ * проигрывании сегментов, со снимком и с подтверждёнными операциями, удалёнными по retentionMs до и после
+ * снимка; опустошённую до перезапуска карту нельзя потратить снова.
+ */
+class JournalRecoveryTests {
+
+    private static final int OPERATIONS = 200;
+    private static final long RETENTION_MS = 20;
+    private static final long OPENING_BALANCE = 100_000;
+    private static final String DRAINED = "4111111111111111";
+    private static final String RECEIVER = "5235890189478954";
+    private static final String CODE = "1234";
+    private static final String SECRET = Base64.getEncoder().encodeToString(new byte[32]);
+
+    private Path directory;
+    private final List<JournaledTransferMoneyRepository> opened = new ArrayList<>();
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("journal-test");
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        opened.forEach(JournaledTransferMoneyRepository::close);
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    void replayRestoresOperationsAndConfirmationsTest() throws Exception {
+        JournaledTransferMoneyRepository repository = open();
+        Map<String, OperationState> expected = fill(repository, 0);
+        repository.close();
+
+        JournaledTransferMoneyRepository recovered = open();
+        Assertions.assertEquals(expected, states(recovered));
+        Assertions.assertEquals(count(expected, OperationState.CONFIRMED), recovered.getConfirmationsSize());
+        Assertions.assertEquals(count(expected, OperationState.PENDING), recovered.getPendingOperations());
+    }
+
+    @Test
+    void snapshotWithLaterSegmentsIsRecoveredTest() throws Exception {
+        JournaledTransferMoneyRepository repository = open();
+        Map<String, OperationState> expected = fill(repository, 0);
+        repository.snapshot();
+        int firstAfterSnapshot = Journal.segmentIndexes(directory).get(0);
+        expected.putAll(fill(repository, OPERATIONS));
+        repository.close();
+
+        Assertions.assertTrue(Files.exists(directory.resolve("snapshot.bin")));
+        Assertions.assertTrue(firstAfterSnapshot > 0);
+
+        JournaledTransferMoneyRepository recovered = open();
+        Assertions.assertEquals(2 * OPERATIONS, expected.size());
+        Assertions.assertEquals(expected, states(recovered));
+        Assertions.assertEquals(count(expected, OperationState.CONFIRMED), recovered.getConfirmationsSize());
+        Assertions.assertEquals(count(expected, OperationState.PENDING), recovered.getPendingOperations());
+    }
+
+    @Test
+    void replayIsIdempotentTest() throws Exception {
+        JournaledTransferMoneyRepository repository = open();
+        Map<String, OperationState> expected = fill(repository, 0);
+        repository.snapshot();
+        expected.putAll(fill(repository, OPERATIONS));
+        repository.close();
+
+        // сегмент после снимка проигрывается дважды - как если бы запись попала и в снимок, и в журнал
+        List<Integer> segments = Journal.segmentIndexes(directory);
+        int last = segments.get(segments.size() - 1);
+        Files.copy(Journal.segmentPath(directory, last), Journal.segmentPath(directory, last + 1));
+
+        JournaledTransferMoneyRepository recovered = open();
+        Assertions.assertEquals(expected, states(recovered));
+        Assertions.assertEquals(count(expected, OperationState.CONFIRMED), recovered.getConfirmationsSize());
+        recovered.close();
+
+        JournaledTransferMoneyRepository again = open();
+        Assertions.assertEquals(expected, states(again));
+        Assertions.assertEquals(count(expected, OperationState.CONFIRMED), again.getConfirmationsSize());
+        Assertions.assertEquals(count(expected, OperationState.PENDING), again.getPendingOperations());
+    }
+
+    @Test
+    void tornOrCorruptedTailIsDiscardedTest() throws Exception {
+        JournaledTransferMoneyRepository repository = open();
+        Map<String, OperationState> expected = fill(repository, 0);
+        repository.close();
+        Path segment = lastNonEmptySegment();
+        byte[] original = Files.readAllBytes(segment);
+        int records = records(segment);
+
+        // заголовок с длиной почти 2 ГБ: чтение останавливается без выделения буфера такого размера
+        append(segment, ByteBuffer.allocate(12).putInt(Integer.MAX_VALUE).putInt(0).putInt(42).array());
+        Assertions.assertEquals(records, records(segment));
+        Assertions.assertEquals(expected, states(reopen()));
+
+        // запись, длина которой больше оставшейся части файла
+        Files.write(segment, original);
+        append(segment, ByteBuffer.allocate(16).putInt(1_000).putInt(0).putLong(7).array());
+        Assertions.assertEquals(records, records(segment));
+        Assertions.assertEquals(expected, states(reopen()));
+
+        // последняя запись (перевод без подтверждения) оборвана или повреждена: теряется только она
+        Files.write(segment, original);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(original.length - 3);
+        }
+        Assertions.assertEquals(records - 1, records(segment));
+        assertAllButOne(expected, states(reopen()));
+
+        Files.write(segment, original);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) (original[original.length - 1] ^ 0xFF)}),
+                    original.length - 1);
+        }
+        Assertions.assertEquals(records - 1, records(segment));
+        assertAllButOne(expected, states(reopen()));
+    }
+
+    @Test
+    void pendingOperationsAreConfirmedAfterRestartTest() throws Exception {
+        ConfirmationCodes codes = codes();
+        TransferMoneyService service = service(open(codes), codes);
+        String confirmedBefore = transfer(service);
+        service.confirm(new ConfirmationData(confirmedBefore, CODE));
+        String pending = transfer(service);
+        String oneAttemptLeft = transfer(service);
+        assertWrongCode(service, oneAttemptLeft);
+        opened.get(0).snapshot();
+        // после снимка: новая операция и ещё одна неверная попытка - только в сегменте
+        assertWrongCode(service, oneAttemptLeft);
+        String afterSnapshot = transfer(service);
+        Assertions.assertEquals(3, codes.size());
+
+        ConfirmationCodes restored = codes();
+        JournaledTransferMoneyRepository repository = reopen(restored);
+        TransferMoneyService recovered = service(repository, restored);
+        Assertions.assertEquals(3, restored.size());
+        Assertions.assertEquals(OperationState.PENDING, repository.getOperation(pending).getState());
+
+        Assertions.assertEquals("Operation Confirmed!",
+                recovered.confirm(new ConfirmationData(pending, CODE)).description());
+        Assertions.assertEquals("Operation Confirmed!",
+                recovered.confirm(new ConfirmationData(afterSnapshot, CODE)).description());
+        // последняя попытка неверна - операция отклонена, верный код уже не принимается
+        assertWrongCode(recovered, oneAttemptLeft);
+        Assertions.assertThrows(ErrorInputData.class,
+                () -> recovered.confirm(new ConfirmationData(oneAttemptLeft, CODE)));
+        Assertions.assertThrows(ErrorInputData.class,
+                () -> recovered.confirm(new ConfirmationData(confirmedBefore, CODE)));
+
+        Assertions.assertEquals(OperationState.CONFIRMED, repository.getOperation(pending).getState());
+        Assertions.assertEquals(OperationState.CONFIRMED, repository.getOperation(afterSnapshot).getState());
+        Assertions.assertEquals(OperationState.REJECTED, repository.getOperation(oneAttemptLeft).getState());
+        Assertions.assertEquals(0, restored.size());
+    }
+
+    @Test
+    void ledgerBalancesAreRestoredTest() throws Exception {
+        JournaledTransferMoneyRepository repository = openSmall(codes());
+        List<String> cards = new ArrayList<>(List.of(DRAINED, RECEIVER));
+        // 3 * (30 000 + 1% комиссии) списано, четвёртый перевод не проходит
+        for (int i = 0; i < 4; i++) {
+            Operation operation = save(repository, DRAINED, RECEIVER, 30_000);
+            Assertions.assertEquals(i < 3 ? ConfirmResult.CONFIRMED : ConfirmResult.INSUFFICIENT_FUNDS,
+                    repository.confirm(operation));
+        }
+        Assertions.assertEquals(OPENING_BALANCE - 3 * 30_300, repository.getLedger().balance(DRAINED));
+        cards.addAll(confirmAll(repository, 0));
+        Map<String, Long> expected = balances(repository, cards);
+
+        // только сегменты
+        JournaledTransferMoneyRepository recovered = reopenSmall();
+        Assertions.assertEquals(expected, balances(recovered, cards));
+
+        // подтверждённые операции удалены по retentionMs до снимка, после снимка - новые проводки
+        Thread.sleep(2 * RETENTION_MS);
+        recovered.evictExpired();
+        Assertions.assertTrue(recovered.getEvictedOperations() > 0);
+        recovered.snapshot();
+        cards.addAll(confirmAll(recovered, OPERATIONS));
+        expected = balances(recovered, cards);
+        JournaledTransferMoneyRepository fromSnapshot = reopenSmall();
+        Assertions.assertEquals(expected, balances(fromSnapshot, cards));
+
+        // удалённые уже после снимка операции учитываются снимком, а не итогом
+        Thread.sleep(2 * RETENTION_MS);
+        fromSnapshot.evictExpired();
+        JournaledTransferMoneyRepository again = reopenSmall();
+        Assertions.assertEquals(expected, balances(again, cards));
+        Assertions.assertEquals(again.getLedger().getIssued(),
+                cards.stream().mapToLong(again.getLedger()::balance).sum() + again.getLedger().getCommission());
+
+        Operation overdraft = save(again, DRAINED, RECEIVER, 30_000);
+        Assertions.assertEquals(ConfirmResult.INSUFFICIENT_FUNDS, again.confirm(overdraft));
+    }
+
+    private static Operation save(JournaledTransferMoneyRepository repository, String from, String to, int amount) {
+        TransferMoneyData data = new TransferMoneyData();
+        data.setId(UUID.randomUUID().toString());
+        data.setCardFromNumber(from);
+        data.setCardFromValidTill("12/30");
+        data.setCardFromCVV("123");
+        data.setCardToNumber(to);
+        data.setAmount(new Amount(amount, "RUR"));
+        repository.saveTransferData(data);
+        return repository.getOperation(data.getId());
+    }
+
+    // переводы по кругу между картами от from до from + 9, все подтверждаются; возвращает карты
+    private static List<String> confirmAll(JournaledTransferMoneyRepository repository, int from) {
+        List<String> cards = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            cards.add(String.valueOf(4_000_000_000_000_000L + from + i));
+        }
+        for (int i = 0; i < 50; i++) {
+            Operation operation = save(repository, cards.get(i % 10), cards.get((i + 3) % 10), 1_000 + i);
+            Assertions.assertEquals(ConfirmResult.CONFIRMED, repository.confirm(operation));
+        }
+        return cards;
+    }
+
+    private static Map<String, Long> balances(JournaledTransferMoneyRepository repository, List<String> cards) {
+        Map<String, Long> balances = new HashMap<>();
+        for (String card : cards) {
+            balances.put(card, repository.getLedger().balance(card));
+        }
+        balances.put("commission", repository.getLedger().getCommission());
+        return balances;
+    }
+
+    private static String transfer(TransferMoneyService service) {
+        TransferMoneyData data = new TransferMoneyData();
+        data.setCardFromNumber("4111111111111111");
+        data.setCardFromValidTill("12/30");
+        data.setCardFromCVV("123");
+        data.setCardToNumber("5235890189478954");
+        data.setAmount(new Amount(10_000, "RUR"));
+        return service.transfer(data).id();
+    }
+
+    private static void assertWrongCode(TransferMoneyService service, String operationId) {
+        Assertions.assertThrows(ErrorInputData.class, () -> service.confirm(new ConfirmationData(operationId, "0000")));
+    }
+
+    // тот же ключ confirmation.code.secret, что у прежнего процесса
+    private static ConfirmationCodes codes() {
+        return new ConfirmationCodes(() -> CODE, (transferMoneyData, code) -> {
+        }, SECRET, 3, 60_000, 1, 1, new SimpleMeterRegistry());
+    }
+
+    private static TransferMoneyService service(JournaledTransferMoneyRepository repository, ConfirmationCodes codes) {
+        return new TransferMoneyService(repository, Mockito.mock(LoggerInterface.class),
+                new TransferMetrics(new SimpleMeterRegistry()), RateLimits.unlimited(), new TimeOrderedIdGenerator(1),
+                codes);
+    }
+
+    private static void assertAllButOne(Map<String, OperationState> expected, Map<String, OperationState> actual) {
+        Assertions.assertEquals(expected.size() - 1, actual.size());
+        Assertions.assertTrue(expected.entrySet().containsAll(actual.entrySet()));
+    }
+
+    // открыть заново, закрыв предыдущее: каждое открытие начинает новый пустой сегмент
+    private JournaledTransferMoneyRepository reopen() throws IOException {
+        return reopen(codes());
+    }
+
+    private JournaledTransferMoneyRepository reopen(ConfirmationCodes codes) throws IOException {
+        if (!opened.isEmpty()) {
+            opened.remove(opened.size() - 1).close();
+        }
+        return open(codes);
+    }
+
+    private JournaledTransferMoneyRepository reopenSmall() throws IOException {
+        opened.remove(opened.size() - 1).close();
+        return openSmall(codes());
+    }
+
+    // короткое хранение завершённых операций и небольшие начальные балансы
+    private JournaledTransferMoneyRepository openSmall(ConfirmationCodes codes) throws IOException {
+        JournaledTransferMoneyRepository repository = new JournaledTransferMoneyRepository(60_000, RETENTION_MS,
+                100_000, directory.toString(), DurabilityMode.BATCH, 10, 64L << 20,
+                new Ledger(256, OPENING_BALANCE, 100), new TimeOrderedIdGenerator(1), codes);
+        opened.add(repository);
+        return repository;
+    }
+
+    private JournaledTransferMoneyRepository open() throws IOException {
+        return open(codes());
+    }
+
+    private JournaledTransferMoneyRepository open(ConfirmationCodes codes) throws IOException {
+        JournaledTransferMoneyRepository repository = new JournaledTransferMoneyRepository(60_000, 60_000, 100_000,
+                directory.toString(), DurabilityMode.BATCH, 10, 64L << 20,
+                new Ledger(256, 1_000_000_000_000L, 100), new TimeOrderedIdGenerator(1), codes);
+        opened.add(repository);
+        return repository;
+    }
+
+    // переводы; каждый третий подтверждается, каждый пятый из остальных отклоняется
+    private static Map<String, OperationState> fill(JournaledTransferMoneyRepository repository, int from) {
+        Map<String, OperationState> states = new HashMap<>();
+        for (int i = from; i < from + OPERATIONS; i++) {
+            TransferMoneyData data = new TransferMoneyData();
+            data.setId(UUID.randomUUID().toString());
+            data.setCardFromNumber(String.valueOf(4_000_000_000_000_000L + i));
+            data.setCardFromValidTill("12/30");
+            data.setCardFromCVV("123");
+            data.setCardToNumber(String.valueOf(5_000_000_000_000_000L + i));
+            data.setAmount(new Amount(10_000 + i, "RUR"));
+            repository.saveTransferData(data);
+            Operation operation = repository.getOperation(data.getId());
+            if (i % 3 == 0) {
+                Assertions.assertEquals(ConfirmResult.CONFIRMED, repository.confirm(operation));
+                repository.saveConfirmationData(new ConfirmationData(data.getId(), "0000"));
+            } else if (i % 5 == 0) {
+                Assertions.assertTrue(repository.changeState(operation, OperationState.PENDING,
+                        OperationState.REJECTED));
+            }
+            states.put(data.getId(), operation.getState());
+        }
+        return states;
+    }
+
+    private static Map<String, OperationState> states(JournaledTransferMoneyRepository repository) {
+        Map<String, OperationState> states = new HashMap<>();
+        repository.getOperations().forEach((id, operation) -> states.put(id, operation.getState()));
+        return states;
+    }
+
+    private static long count(Map<String, OperationState> states, OperationState state) {
+        return states.values().stream().filter(state::equals).count();
+    }
+
+    private Path lastNonEmptySegment() throws IOException {
+        List<Integer> segments = Journal.segmentIndexes(directory);
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            Path segment = Journal.segmentPath(directory, segments.get(i));
+            if (Files.size(segment) > 0) {
+                return segment;
+            }
+        }
+        throw new AssertionError("No journal records in " + directory);
+    }
+
+    private static int records(Path segment) throws IOException {
+        int[] records = new int[1];
+        Journal.read(segment, payload -> records[0]++);
+        return records[0];
+    }
+
+    private static void append(Path segment, byte[] bytes) throws IOException {
+        Files.write(segment, bytes, StandardOpenOption.APPEND);
+    }
+}
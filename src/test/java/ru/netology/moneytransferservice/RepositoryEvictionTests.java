@@ -0,0 +1,139 @@
+package ru.netology.moneytransferservice;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import ru.netology.moneytransferservice.id.TimeOrderedIdGenerator;
+import ru.netology.moneytransferservice.model.Amount;
+import ru.netology.moneytransferservice.model.ConfirmationData;
+import ru.netology.moneytransferservice.model.Operation;
+import ru.netology.moneytransferservice.model.OperationState;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+import ru.netology.moneytransferservice.repository.ConfirmResult;
+import ru.netology.moneytransferservice.repository.OperationQuery;
+import ru.netology.moneytransferservice.repository.TransferMoneyRepository;
+import ru.netology.moneytransferservice.repository.ledger.Ledger;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Просрочка и удаление в TransferMoneyRepository с короткими operationTtlMs и retentionMs:
+ * <p>
+ * 1. pendingOperationsExpireOnReadAndBySweepTest(): ожидающая операция старше operationTtlMs переводится
+ * в EXPIRED при чтении через getOperation и обходом evictExpired; более новая операция остаётся ожидающей.
+ * Счётчики ожидающих и просроченных операций и индекс по состоянию следуют за переходами.
+ * <p>
+ * 2. finishedOperationsAreRemovedAfterRetentionTest(): завершённые операции старше retentionMs удаляются
+ * и из хранилища, и из индекса истории; ожидающая операция и недавно завершённая остаются.
+ * <p>
+ * 3. confirmationLogIsCappedAndAgedTest(): журнал подтверждений вытесняет старейшие записи сверх maxEntries
+ * и удаляет записи старше retentionMs, каждое вытеснение учтено своим счётчиком.
+ */
+class RepositoryEvictionTests {
+
+    private static final long SHORT_MS = 20;
+    private static final long LONG_MS = 60_000;
+
+    @Test
+    void pendingOperationsExpireOnReadAndBySweepTest() throws Exception {
+        TransferMoneyRepository repository = repository(SHORT_MS, LONG_MS, 100);
+        Operation read = save(repository);
+        Operation swept = save(repository);
+        Thread.sleep(2 * SHORT_MS);
+        Operation fresh = save(repository);
+        Assertions.assertEquals(3, repository.getPendingOperations());
+
+        Assertions.assertEquals(OperationState.EXPIRED, repository.getOperation(read.getId()).getState());
+        Assertions.assertEquals(OperationState.PENDING, swept.getState());
+        Assertions.assertEquals(1, repository.getExpiredOperations());
+        Assertions.assertEquals(2, repository.getPendingOperations());
+
+        repository.evictExpired();
+        Assertions.assertEquals(OperationState.EXPIRED, swept.getState());
+        Assertions.assertEquals(OperationState.PENDING, fresh.getState());
+        Assertions.assertEquals(2, repository.getExpiredOperations());
+        Assertions.assertEquals(1, repository.getPendingOperations());
+        Assertions.assertEquals(Set.of(read.getId(), swept.getId()), ids(repository, OperationState.EXPIRED));
+        Assertions.assertEquals(Set.of(fresh.getId()), ids(repository, OperationState.PENDING));
+        // просроченные операции хранятся до retentionMs
+        Assertions.assertEquals(3, repository.getOperations().size());
+        Assertions.assertEquals(0, repository.getEvictedOperations());
+    }
+
+    @Test
+    void finishedOperationsAreRemovedAfterRetentionTest() throws Exception {
+        TransferMoneyRepository repository = repository(LONG_MS, SHORT_MS, 100);
+        Operation confirmed = save(repository);
+        Assertions.assertEquals(ConfirmResult.CONFIRMED, repository.confirm(confirmed));
+        Operation rejected = save(repository);
+        Assertions.assertTrue(repository.changeState(rejected, OperationState.PENDING, OperationState.REJECTED));
+        Operation pending = save(repository);
+        // завершена недавно, хотя создана так же давно
+        Operation late = save(repository);
+        Thread.sleep(2 * SHORT_MS);
+        Assertions.assertEquals(ConfirmResult.CONFIRMED, repository.confirm(late));
+
+        repository.evictExpired();
+        Assertions.assertEquals(Set.of(pending.getId(), late.getId()), repository.getOperations().keySet());
+        Assertions.assertEquals(Set.of(pending.getId(), late.getId()), ids(repository, null));
+        Assertions.assertEquals(Set.of(late.getId()), ids(repository, OperationState.CONFIRMED));
+        Assertions.assertEquals(Set.of(), ids(repository, OperationState.REJECTED));
+        Assertions.assertNull(repository.getOperation(confirmed.getId()));
+        Assertions.assertEquals(2, repository.getEvictedOperations());
+        Assertions.assertEquals(1, repository.getPendingOperations());
+
+        Thread.sleep(2 * SHORT_MS);
+        repository.evictExpired();
+        Assertions.assertEquals(Set.of(pending.getId()), ids(repository, null));
+        Assertions.assertEquals(3, repository.getEvictedOperations());
+    }
+
+    @Test
+    void confirmationLogIsCappedAndAgedTest() throws Exception {
+        TransferMoneyRepository repository = repository(LONG_MS, SHORT_MS, 5);
+        for (int i = 0; i < 8; i++) {
+            repository.saveConfirmationData(new ConfirmationData(String.valueOf(i), "0000"));
+        }
+        Assertions.assertEquals(5, repository.getConfirmationsSize());
+        Assertions.assertEquals(3, repository.getEvictedConfirmationsByCapacity());
+        Assertions.assertEquals(Set.of("3", "4", "5", "6", "7"), repository.getConfirmations().stream()
+                .map(ConfirmationData::operationId)
+                .collect(Collectors.toSet()));
+
+        Thread.sleep(2 * SHORT_MS);
+        repository.evictExpired();
+        Assertions.assertEquals(0, repository.getConfirmationsSize());
+        Assertions.assertEquals(5, repository.getEvictedConfirmationsByAge());
+
+        repository.saveConfirmationData(new ConfirmationData("8", "0000"));
+        repository.evictExpired();
+        Assertions.assertEquals("8", repository.getConfirmations().get(0).operationId());
+        Assertions.assertEquals(5, repository.getEvictedConfirmationsByAge());
+        Assertions.assertEquals(3, repository.getEvictedConfirmationsByCapacity());
+    }
+
+    private static TransferMoneyRepository repository(long operationTtlMs, long retentionMs, int maxConfirmations) {
+        return new TransferMoneyRepository(operationTtlMs, retentionMs, maxConfirmations,
+                new Ledger(256, 1_000_000_000_000L, 100), new TimeOrderedIdGenerator(1));
+    }
+
+    private static Operation save(TransferMoneyRepository repository) {
+        TransferMoneyData data = new TransferMoneyData();
+        data.setId(UUID.randomUUID().toString());
+        data.setCardFromNumber("4111111111111111");
+        data.setCardFromValidTill("12/30");
+        data.setCardFromCVV("123");
+        data.setCardToNumber("5235890189478954");
+        data.setAmount(new Amount(10_000, "RUR"));
+        repository.saveTransferData(data);
+        return repository.getOperations().get(data.getId());
+    }
+
+    // id операций из индекса истории, state == null - все
+    private static Set<String> ids(TransferMoneyRepository repository, OperationState state) {
+        return repository.findOperations(new OperationQuery(null, state, 0, Long.MAX_VALUE, null))
+                .map(Operation::getId)
+                .collect(Collectors.toSet());
+    }
+}
@@ -1,5 +1,6 @@
 package ru.netology.moneytransferservice;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -8,22 +9,30 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
-
-import java.util.Deque;
-import java.util.concurrent.ConcurrentLinkedDeque;
+import org.springframework.mock.web.MockHttpServletRequest;
 
 import org.testcontainers.containers.GenericContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.netology.moneytransferservice.code.ConfirmationCodes;
 import ru.netology.moneytransferservice.controller.TransferMoneyController;
 import ru.netology.moneytransferservice.controller.TransferMoneyControllerInterface;
 import ru.netology.moneytransferservice.exception.ErrorInputData;
+import ru.netology.moneytransferservice.id.TimeOrderedIdGenerator;
+import ru.netology.moneytransferservice.logger.LoggerInterface;
+import ru.netology.moneytransferservice.metrics.TransferMetrics;
 import ru.netology.moneytransferservice.model.Amount;
 import ru.netology.moneytransferservice.model.ConfirmationData;
+import ru.netology.moneytransferservice.model.Operation;
 import ru.netology.moneytransferservice.model.OperationStatus;
 import ru.netology.moneytransferservice.model.TransferMoneyData;
+import ru.netology.moneytransferservice.ratelimit.ClientKeyResolver;
+import ru.netology.moneytransferservice.ratelimit.RateLimits;
+import ru.netology.moneytransferservice.repository.ConfirmResult;
 import ru.netology.moneytransferservice.repository.TransferMoneyRepository;
+import ru.netology.moneytransferservice.service.IdempotencyCache;
 import ru.netology.moneytransferservice.service.TransferMoneyService;
+import ru.netology.moneytransferservice.validation.TransferValidator;
 
 
 /**
@@ -44,10 +53,10 @@ import ru.netology.moneytransferservice.service.TransferMoneyService;
  * Затем роверяется, что метод saveTransferData() в репозитории был вызван хотя бы один раз.
  * <p>
  * 4. confirmSuccessTest(): В данном тесте проверяется, что метод confirmOperation()
- * в классе TransferMoneyController вызывает методы saveConfirmationData() и getTransfers()
+ * в классе TransferMoneyController находит операцию через getOperation() и вызывает метод saveConfirmationData()
  * в классе TransferMoneyRepository. Для этого создается mock-объект класса TransferMoneyData,
- * который передается в контроллер. Затем проверяется, что методы saveConfirmationData() и getTransfers()
- * в репозитории были вызваны хотя бы один раз.
+ * операция с которым возвращается репозиторием по operationId. Затем проверяется, что метод saveConfirmationData()
+ * в репозитории был вызван хотя бы один раз.
  * <p>
  * 5. confirmErrorTest(): В этом тесте проверяется, что при передаче некорректного кода подтверждения
  * (confirmationData) метод confirmOperation() в классе TransferMoneyController выбрасывает исключение ErrorInputData.
@@ -93,9 +102,11 @@ class SpringBootCourseProjectMoneyTransferServiceApplicationTests {
     @Test
     void transferServiceTest() throws ErrorInputData {
         TransferMoneyService service = Mockito.mock(TransferMoneyService.class);
-        TransferMoneyControllerInterface controller = new TransferMoneyController(service);
+        TransferMoneyControllerInterface controller = new TransferMoneyController(service,
+                new IdempotencyCache(100, 60_000, new SimpleMeterRegistry()), Mockito.mock(TransferValidator.class),
+                new ClientKeyResolver(null));
 
-        controller.transfer(Mockito.any());
+        controller.transfer(null, Mockito.any(), new MockHttpServletRequest());
 
         Mockito.verify(service, Mockito.atLeastOnce()).transfer(Mockito.any());
     }
@@ -114,10 +125,14 @@ class SpringBootCourseProjectMoneyTransferServiceApplicationTests {
         Mockito.when(transferMoneyData.getAmount()).thenReturn(amount);
 
         TransferMoneyRepository repository = Mockito.mock(TransferMoneyRepository.class);
-        TransferMoneyService service = new TransferMoneyService(repository);
-        TransferMoneyController controller = new TransferMoneyController(service);
+        TransferMoneyService service = new TransferMoneyService(repository, Mockito.mock(LoggerInterface.class),
+                new TransferMetrics(new SimpleMeterRegistry()), RateLimits.unlimited(),
+                new TimeOrderedIdGenerator(1), ConfirmationCodes.fixed("0000"));
+        TransferMoneyController controller = new TransferMoneyController(service,
+                new IdempotencyCache(100, 60_000, new SimpleMeterRegistry()), Mockito.mock(TransferValidator.class),
+                new ClientKeyResolver(null));
 
-        controller.transfer(transferMoneyData);
+        controller.transfer(null, transferMoneyData, new MockHttpServletRequest());
 
         Mockito.verify(repository, Mockito.atLeastOnce()).saveTransferData(transferMoneyData);
     }
@@ -125,20 +140,24 @@ class SpringBootCourseProjectMoneyTransferServiceApplicationTests {
     @Test
     void confirmSuccessTest() throws ErrorInputData {
         TransferMoneyData transferMoneyData = Mockito.mock(TransferMoneyData.class);
-        Mockito.when(transferMoneyData.getId()).thenReturn("0000");
-
-        ConfirmationData confirmationData = new ConfirmationData(null, "0000");
+        Mockito.when(transferMoneyData.getId()).thenReturn("1");
 
-        Deque<TransferMoneyData> transfers = new ConcurrentLinkedDeque<>();
-        transfers.push(transferMoneyData);
+        ConfirmationData confirmationData = new ConfirmationData("1", "0000");
 
         TransferMoneyRepository repository = Mockito.mock(TransferMoneyRepository.class);
         Mockito.when(repository.saveConfirmationData(confirmationData)).thenReturn(
                 new OperationStatus("0", "Successful"));
-        Mockito.when(repository.getTransfers()).thenReturn(transfers);
-
-        TransferMoneyService service = new TransferMoneyService(repository);
-        TransferMoneyController controller = new TransferMoneyController(service);
+        Mockito.when(repository.getOperation("1")).thenReturn(new Operation(transferMoneyData));
+        ConfirmationCodes confirmationCodes = ConfirmationCodes.fixed("0000");
+        confirmationCodes.issue(transferMoneyData);
+        Mockito.when(repository.confirm(Mockito.any())).thenReturn(ConfirmResult.CONFIRMED);
+
+        TransferMoneyService service = new TransferMoneyService(repository, Mockito.mock(LoggerInterface.class),
+                new TransferMetrics(new SimpleMeterRegistry()), RateLimits.unlimited(),
+                new TimeOrderedIdGenerator(1), confirmationCodes);
+        TransferMoneyController controller = new TransferMoneyController(service,
+                new IdempotencyCache(100, 60_000, new SimpleMeterRegistry()), Mockito.mock(TransferValidator.class),
+                new ClientKeyResolver(null));
 
         controller.confirmOperation(confirmationData);
 
@@ -148,20 +167,23 @@ class SpringBootCourseProjectMoneyTransferServiceApplicationTests {
     @Test
     void confirmErrorTest() {
         TransferMoneyData transferMoneyData = Mockito.mock(TransferMoneyData.class);
-        Mockito.when(transferMoneyData.getId()).thenReturn("0000");
+        Mockito.when(transferMoneyData.getId()).thenReturn("1");
 
-        ConfirmationData confirmationData = new ConfirmationData(null, "0001");
-
-        Deque<TransferMoneyData> transfers = new ConcurrentLinkedDeque<>();
-        transfers.push(transferMoneyData);
+        ConfirmationData confirmationData = new ConfirmationData("1", "0001");
 
         TransferMoneyRepository repository = Mockito.mock(TransferMoneyRepository.class);
         Mockito.when(repository.saveConfirmationData(confirmationData)).thenReturn(
                 new OperationStatus("0", "Successful"));
-        Mockito.when(repository.getTransfers()).thenReturn(transfers);
-
-        TransferMoneyService service = new TransferMoneyService(repository);
-        TransferMoneyController controller = new TransferMoneyController(service);
+        Mockito.when(repository.getOperation("1")).thenReturn(new Operation(transferMoneyData));
+        ConfirmationCodes confirmationCodes = ConfirmationCodes.fixed("0000");
+        confirmationCodes.issue(transferMoneyData);
+
+        TransferMoneyService service = new TransferMoneyService(repository, Mockito.mock(LoggerInterface.class),
+                new TransferMetrics(new SimpleMeterRegistry()), RateLimits.unlimited(),
+                new TimeOrderedIdGenerator(1), confirmationCodes);
+        TransferMoneyController controller = new TransferMoneyController(service,
+                new IdempotencyCache(100, 60_000, new SimpleMeterRegistry()), Mockito.mock(TransferValidator.class),
+                new ClientKeyResolver(null));
 
         Assertions.assertThrows(ErrorInputData.class, () -> controller.confirmOperation(confirmationData));
     }
@@ -0,0 +1,853 @@
+package ru.netology.moneytransferservice;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockHttpServletRequest;
+import ru.netology.moneytransferservice.code.ConfirmationCodes;
+import ru.netology.moneytransferservice.code.RandomCodeGenerator;
+import ru.netology.moneytransferservice.controller.TransferMoneyController;
+import ru.netology.moneytransferservice.exception.ErrorInputData;
+import ru.netology.moneytransferservice.exception.ErrorTransfer;
+import ru.netology.moneytransferservice.exception.ErrorValidation;
+import ru.netology.moneytransferservice.exception.ExceptionHandlerAdvice;
+import ru.netology.moneytransferservice.id.TimeOrderedIdGenerator;
+import ru.netology.moneytransferservice.logger.AsyncLogger;
+import ru.netology.moneytransferservice.logger.AuditLogReader;
+import ru.netology.moneytransferservice.logger.AuditRecord;
+import ru.netology.moneytransferservice.logger.BackpressurePolicy;
+import ru.netology.moneytransferservice.logger.LoggerInterface;
+import ru.netology.moneytransferservice.metrics.TransferMetrics;
+import ru.netology.moneytransferservice.model.Amount;
+import ru.netology.moneytransferservice.model.ConfirmationData;
+import ru.netology.moneytransferservice.model.Operation;
+import ru.netology.moneytransferservice.model.OperationPage;
+import ru.netology.moneytransferservice.model.OperationState;
+import ru.netology.moneytransferservice.model.OperationStatus;
+import ru.netology.moneytransferservice.model.OperationView;
+import ru.netology.moneytransferservice.model.TransferMoneyData;
+import ru.netology.moneytransferservice.model.ValidationMessages;
+import ru.netology.moneytransferservice.ratelimit.ClientKeyResolver;
+import ru.netology.moneytransferservice.ratelimit.RateLimiter;
+import ru.netology.moneytransferservice.ratelimit.RateLimits;
+import ru.netology.moneytransferservice.repository.TransferMoneyRepository;
+import ru.netology.moneytransferservice.repository.ledger.Ledger;
+import ru.netology.moneytransferservice.service.IdempotencyCache;
+import ru.netology.moneytransferservice.service.OperationHistoryService;
+import ru.netology.moneytransferservice.service.TransferMoneyService;
+import ru.netology.moneytransferservice.validation.BeanTransferValidator;
+import ru.netology.moneytransferservice.validation.FastTransferValidator;
+import ru.netology.moneytransferservice.validation.TransferValidator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Нагрузочные проверки хранилища операций:
+ * <p>
+ * 1. parallelClientsConfirmOwnTransfersTest(): множество клиентов параллельно создают переводы и подтверждают
+ * каждый свой operationId. Каждая операция должна оказаться в состоянии CONFIRMED и хранить (в упакованном виде)
+ * перевод своего клиента.
+ * <p>
+ * 2. concurrentConfirmationOfSameOperationTest(): много потоков одновременно подтверждают одну операцию -
+ * успешным должно быть ровно одно подтверждение.
+ * <p>
+ * 3. concurrentRetriesWithSameIdempotencyKeyTest(): одновременные и последующие повторы перевода с одним
+ * Idempotency-Key получают один и тот же OperationStatus, а перевод сохраняется один раз. Тот же ключ
+ * с другим телом отклоняется, у другого клиента - выполняется отдельно; неудачные запросы место в кэше не занимают.
+ * <p>
+ * 4. ledgerConservesMoneyOnHotCardsTest(): потоки переводят случайные суммы между несколькими картами
+ * с небольшим балансом. Часть переводов отклоняется из-за нехватки средств, но балансы не уходят в минус,
+ * а сумма балансов и комиссии равна сумме начальных балансов.
+ * <p>
+ * 5. rateLimiterGrantsExactlyLimitUnderContentionTest(): потоки одновременно запрашивают разрешения по одному ключу,
+ * за период выдаётся ровно limit разрешений; ключи сверх maxKeys и запрос без ключа отклоняются, не расходуя
+ * лимит известных ключей.
+ * <p>
+ * 6. idGeneratorProducesUniqueIdsUnderContentionTest(): потоки одновременно получают идентификаторы операций,
+ * все они различны, имеют версию 7 и номер своего узла; у двух узлов идентификаторы не пересекаются.
+ * Идентификаторы одного потока возрастают: каждый поток увеличивает свой счётчик.
+ * <p>
+ * 7. historyPagesAreStableUnderConcurrentInsertsTest(): клиент листает историю карты страницами по курсору,
+ * пока другие потоки добавляют переводы на эту карту. Каждая операция, существовавшая до начала обхода,
+ * выдаётся ровно один раз, порядок - от новых к старым; фильтр по состоянию возвращает только подтверждённые.
+ * Номера карт в ответе маскированы, без номера карты история не выдаётся.
+ * <p>
+ * 8. randomCodesAreDeliveredAsynchronouslyAndAttemptsAreLimitedTest(): переводы создаются, пока заглушка
+ * доставки кодов заблокирована, - /transfer не ждёт доставки. Затем половина операций подтверждается
+ * доставленным кодом, другая получает неверные коды: после max-attempts попыток операция отклоняется,
+ * а верный код уже не принимается. В конце таблица кодов пуста.
+ * <p>
+ * 9. fastValidatorMatchesBeanValidationTest(): потоки проверяют случайно испорченные переводы одним
+ * FastTransferValidator и Bean Validation - наборы сообщений совпадают. Проверки по Луну и срока действия
+ * карты отклоняют только неверную контрольную цифру и истёкший срок.
+ * <p>
+ * 10. auditLogRotatesCompressesAndSamplesTest(): потоки пишут в AsyncLogger успешные записи через выборку
+ * и записи об ошибках. Лог ротируется по размеру, все закрытые сегменты сжаты, номера карт нигде
+ * не записаны открыто. AuditLogReader находит все ошибки, а сумма весов успешных записей близка к их числу.
+ * <p>
+ * 11. asyncLoggerDrainsOnConcurrentCloseTest(): простаивающий писатель AsyncLogger просыпается от первого
+ * сообщения. Потоки пишут в логгер, пока он закрывается: ни одно сообщение не теряется и не дублируется -
+ * принятые до close() дописываются писателем, остальные пишутся синхронно.
+ * <p>
+ * 12. asyncLoggerBackpressurePoliciesTest(): потоки переполняют буфер на несколько сообщений при каждой
+ * политике: BLOCK записывает всё, DROP - всё, кроме учтённых отброшенных, SPILL - остальное в spill-файл.
+ * <p>
+ * 13. errorTagsDoNotDependOnMessagesTest(): потоки передают в ExceptionHandlerAdvice ошибки с разными
+ * сообщениями (id операций, ответы других узлов) - число счётчиков transfer.errors не растёт с числом
+ * сообщений, все ошибки учтены счётчиком своей причины.
+ * <p>
+ * 14. errorRecordsAreKeptWhenLogBufferIsFullTest(): потоки передают ошибки в ExceptionHandlerAdvice, пока буфер
+ * AsyncLogger переполнен: при BLOCK все записи об ошибках попадают в лог, при SPILL - в лог или в spill-файл.
+ */
+class TransferMoneyConcurrencyTests {
+
+    private static final int THREADS = 16;
+    private static final int CLIENTS = 5_000;
+
+    private final TransferMoneyRepository repository = new TransferMoneyRepository(60_000, 60_000, CLIENTS,
+                new Ledger(256, 1_000_000_000_000L, 100), new TimeOrderedIdGenerator(1));
+    private final TransferMoneyService service =
+            new TransferMoneyService(repository, Mockito.mock(LoggerInterface.class),
+                new TransferMetrics(new SimpleMeterRegistry()), RateLimits.unlimited(),
+                new TimeOrderedIdGenerator(1), ConfirmationCodes.fixed("0000"));
+
+    @Test
+    void parallelClientsConfirmOwnTransfersTest() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<TransferMoneyData>> results = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            String card = String.format("%016d", i);
+            results.add(executor.submit(() -> {
+                TransferMoneyData transferMoneyData = transferMoneyData(card);
+                String operationId = service.transfer(transferMoneyData).id();
+                service.confirm(new ConfirmationData(operationId, "0000"));
+                return transferMoneyData;
+            }));
+        }
+        for (Future<TransferMoneyData> result : results) {
+            TransferMoneyData transferMoneyData = result.get();
+            Operation operation = repository.getOperation(transferMoneyData.getId());
+            // операция хранится упакованной: сравниваются поля, а не объект
+            Assertions.assertTrue(operation.isPacked());
+            Assertions.assertSame(transferMoneyData.getId(), operation.getId());
+            Assertions.assertEquals(transferMoneyData.getCardFromNumber(), operation.getCardFromNumber());
+            Assertions.assertEquals(transferMoneyData.getCardFromValidTill(),
+                    operation.getTransferMoneyData().getCardFromValidTill());
+            Assertions.assertEquals(transferMoneyData.getCardToNumber(), operation.getCardToNumber());
+            Assertions.assertEquals(transferMoneyData.getAmount().value(), operation.getAmount().value());
+            Assertions.assertEquals(transferMoneyData.getAmount().currency(), operation.getAmount().currency());
+            Assertions.assertEquals(OperationState.CONFIRMED, operation.getState());
+        }
+        executor.shutdown();
+
+        Assertions.assertEquals(CLIENTS, repository.getOperations().size());
+        Assertions.assertEquals(CLIENTS, repository.getConfirmations().size());
+    }
+
+    @Test
+    void concurrentRetriesWithSameIdempotencyKeyTest() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(CLIENTS, 60_000, new SimpleMeterRegistry());
+        TransferMoneyController controller = new TransferMoneyController(service, cache,
+                new BeanTransferValidator(Validation.buildDefaultValidatorFactory().getValidator()),
+                new ClientKeyResolver(null));
+        TransferMoneyData transferMoneyData = transferMoneyData("1111111111111111");
+        MockHttpServletRequest client = new MockHttpServletRequest();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<OperationStatus>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return controller.transfer("retry-key", transferMoneyData, client).getBody();
+            }));
+        }
+        start.countDown();
+        Set<OperationStatus> statuses = new HashSet<>();
+        for (Future<OperationStatus> future : futures) {
+            statuses.add(future.get());
+        }
+        executor.shutdown();
+        statuses.add(controller.transfer("retry-key", transferMoneyData, client).getBody());
+
+        Assertions.assertEquals(1, statuses.size());
+        Assertions.assertEquals(1, repository.getOperations().size());
+        Assertions.assertThrows(ErrorInputData.class,
+                () -> controller.transfer("retry-key", transferMoneyData("2222222222222222"), client));
+        // тело отличается только суммой - отпечаток тоже другой
+        TransferMoneyData otherAmount = transferMoneyData("1111111111111111");
+        otherAmount.setAmount(new Amount(10_001, "RUR"));
+        Assertions.assertThrows(ErrorInputData.class, () -> controller.transfer("retry-key", otherAmount, client));
+
+        // тот же ключ другого клиента - отдельный перевод
+        MockHttpServletRequest otherClient = new MockHttpServletRequest();
+        otherClient.setRemoteAddr("10.0.0.2");
+        OperationStatus other = controller.transfer("retry-key", transferMoneyData, otherClient).getBody();
+        Assertions.assertFalse(statuses.contains(other));
+        Assertions.assertEquals(2, repository.getOperations().size());
+        Assertions.assertEquals(2, cache.size());
+
+        // неудачные запросы не занимают место и не вытесняют удачные
+        TransferMoneyData invalid = transferMoneyData("1111111111111111");
+        invalid.setAmount(new Amount(-1, "RUR"));
+        for (int i = 0; i < 2 * CLIENTS; i++) {
+            String key = "invalid-" + i;
+            Assertions.assertThrows(RuntimeException.class, () -> controller.transfer(key, invalid, client));
+        }
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertEquals(statuses.iterator().next(),
+                controller.transfer("retry-key", transferMoneyData, client).getBody());
+    }
+
+    @Test
+    void ledgerConservesMoneyOnHotCardsTest() throws Exception {
+        Ledger ledger = new Ledger(4, 1_000_000, 100);
+        TransferMoneyRepository ledgerRepository = new TransferMoneyRepository(60_000, 60_000, THREADS * 1_000, ledger, new TimeOrderedIdGenerator(1));
+        TransferMoneyService ledgerService = new TransferMoneyService(ledgerRepository,
+                Mockito.mock(LoggerInterface.class), new TransferMetrics(new SimpleMeterRegistry()),
+                RateLimits.unlimited(),
+                new TimeOrderedIdGenerator(1), ConfirmationCodes.fixed("0000"));
+        String[] cards = new String[8];
+        for (int i = 0; i < cards.length; i++) {
+            cards[i] = String.format("%016d", i);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger confirmed = new AtomicInteger();
+        AtomicInteger insufficient = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 1_000; i++) {
+                    TransferMoneyData transferMoneyData = transferMoneyData(cards[random.nextInt(cards.length)]);
+                    transferMoneyData.setCardToNumber(cards[random.nextInt(cards.length)]);
+                    transferMoneyData.setAmount(new Amount(random.nextInt(1, 200_000), "RUR"));
+                    String operationId = ledgerService.transfer(transferMoneyData).id();
+                    try {
+                        ledgerService.confirm(new ConfirmationData(operationId, "0000"));
+                        confirmed.incrementAndGet();
+                    } catch (ErrorInputData e) {
+                        Assertions.assertEquals("Insufficient funds!", e.getMessage());
+                        insufficient.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        long total = ledger.getCommission();
+        for (String card : cards) {
+            Assertions.assertTrue(ledger.balance(card) >= 0);
+            total += ledger.balance(card);
+        }
+        Assertions.assertEquals(ledger.getIssued(), total);
+        Assertions.assertEquals(THREADS * 1_000, confirmed.get() + insufficient.get());
+        Assertions.assertEquals(confirmed.get(), ledgerRepository.getConfirmations().size());
+    }
+
+    @Test
+    void rateLimiterGrantsExactlyLimitUnderContentionTest() throws Exception {
+        RateLimiter limiter = new RateLimiter(100, 3_600_000, 10);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger allowed = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 1_000; i++) {
+                    if (limiter.acquire("1111111111111111") == 0) {
+                        allowed.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        Assertions.assertEquals(100, allowed.get());
+        Assertions.assertEquals(THREADS * 1_000 - 100, limiter.getRejected());
+
+        int overflowAllowed = 0;
+        for (int i = 0; i < 1_000; i++) {
+            if (limiter.acquire(String.format("%016d", i)) == 0) {
+                overflowAllowed++;
+            }
+        }
+        Assertions.assertEquals(10, limiter.size());
+        // по одному запросу у 9 новых ключей, остальные ключи не поместились и отклонены
+        Assertions.assertEquals(9, overflowAllowed);
+        // известный ключ не страдает от потока новых
+        Assertions.assertEquals(0, limiter.acquire(String.format("%016d", 1)));
+        Assertions.assertTrue(limiter.acquire(null) > 0);
+    }
+
+    @Test
+    void concurrentConfirmationOfSameOperationTest() throws Exception {
+        String operationId = service.transfer(transferMoneyData("1111111111111111")).id();
+        ConfirmationData confirmationData = new ConfirmationData(operationId, "0000");
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger confirmed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            tasks.add(() -> {
+                start.await();
+                try {
+                    service.confirm(confirmationData);
+                    confirmed.incrementAndGet();
+                } catch (ErrorInputData e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        List<Future<Void>> futures = new ArrayList<>();
+        for (Callable<Void> task : tasks) {
+            futures.add(executor.submit(task));
+        }
+        start.countDown();
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        Assertions.assertEquals(1, confirmed.get());
+        Assertions.assertEquals(THREADS - 1, rejected.get());
+        Assertions.assertEquals(OperationState.CONFIRMED, repository.getOperation(operationId).getState());
+    }
+
+    @Test
+    void idGeneratorProducesUniqueIdsUnderContentionTest() throws Exception {
+        TimeOrderedIdGenerator first = new TimeOrderedIdGenerator(1);
+        TimeOrderedIdGenerator second = new TimeOrderedIdGenerator(2);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<UUID>>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            TimeOrderedIdGenerator generator = i % 2 == 0 ? first : second;
+            futures.add(executor.submit(() -> {
+                start.await();
+                List<UUID> ids = new ArrayList<>();
+                for (int j = 0; j < 10_000; j++) {
+                    ids.add(generator.next());
+                }
+                return ids;
+            }));
+        }
+        start.countDown();
+        Set<UUID> unique = new HashSet<>();
+        int total = 0;
+        for (Future<List<UUID>> future : futures) {
+            UUID previous = null;
+            for (UUID id : future.get()) {
+                Assertions.assertTrue(previous == null || previous.compareTo(id) < 0);
+                previous = id;
+                Assertions.assertEquals(7, id.version());
+                Assertions.assertEquals(2, id.variant());
+                long node = TimeOrderedIdGenerator.node(id.toString());
+                Assertions.assertTrue(node == first.getNode() || node == second.getNode());
+                unique.add(id);
+                total++;
+            }
+        }
+        executor.shutdown();
+
+        Assertions.assertEquals(THREADS * 10_000, total);
+        Assertions.assertEquals(total, unique.size());
+    }
+
+    @Test
+    void historyPagesAreStableUnderConcurrentInsertsTest() throws Exception {
+        String card = "5235890189478954";
+        OperationHistoryService history = new OperationHistoryService(repository);
+        Set<String> existing = new HashSet<>();
+        Set<String> confirmed = new HashSet<>();
+        for (int i = 0; i < 2_000; i++) {
+            String operationId = service.transfer(transferMoneyData(String.format("%016d", i))).id();
+            existing.add(operationId);
+            if (i % 10 == 0) {
+                service.confirm(new ConfirmationData(operationId, "0000"));
+                confirmed.add(operationId);
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger running = new AtomicInteger(1);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            writers.add(executor.submit(() -> {
+                while (running.get() == 1) {
+                    service.transfer(transferMoneyData(String.format("%016d", ThreadLocalRandom.current().nextInt(CLIENTS))));
+                }
+            }));
+        }
+
+        Set<String> seen = new HashSet<>();
+        long previousCreatedAt = Long.MAX_VALUE;
+        String cursor = null;
+        do {
+            OperationPage page = history.history(card, null, null, null, cursor, 100);
+            for (OperationView operation : page.operations()) {
+                Assertions.assertTrue(seen.add(operation.operationId()));
+                Assertions.assertEquals("523589******8954", operation.cardToNumber());
+                Assertions.assertTrue(operation.cardFromNumber().contains("******"));
+                Assertions.assertTrue(operation.createdAt() <= previousCreatedAt);
+                previousCreatedAt = operation.createdAt();
+            }
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        running.set(0);
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        executor.shutdown();
+
+        Assertions.assertTrue(seen.containsAll(existing));
+        Assertions.assertEquals(confirmed, history.stream(card, "confirmed", null, null, null)
+                .map(OperationView::operationId)
+                .collect(Collectors.toSet()));
+        Assertions.assertThrows(ErrorInputData.class, () -> history.history(null, null, null, null, null, 100));
+        Assertions.assertThrows(ErrorInputData.class, () -> history.stream(" ", "confirmed", null, null, null));
+    }
+
+    @Test
+    void randomCodesAreDeliveredAsynchronouslyAndAttemptsAreLimitedTest() throws Exception {
+        InboxCodeNotifier inbox = new InboxCodeNotifier(CLIENTS);
+        ConfirmationCodes confirmationCodes = new ConfirmationCodes(new RandomCodeGenerator(6), inbox,
+                "", 3, 60_000, 2, CLIENTS, new SimpleMeterRegistry());
+        TransferMoneyService codesService = new TransferMoneyService(repository, Mockito.mock(LoggerInterface.class),
+                new TransferMetrics(new SimpleMeterRegistry()), RateLimits.unlimited(),
+                new TimeOrderedIdGenerator(1), confirmationCodes);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<String>> transfers = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            String card = String.format("%016d", i);
+            transfers.add(executor.submit(() -> codesService.transfer(transferMoneyData(card)).id()));
+        }
+        List<String> operationIds = new ArrayList<>();
+        for (Future<String> transfer : transfers) {
+            operationIds.add(transfer.get(30, TimeUnit.SECONDS));
+        }
+        Assertions.assertEquals(0, inbox.size());
+        inbox.open();
+        Assertions.assertTrue(inbox.awaitDelivered(30, TimeUnit.SECONDS));
+        Assertions.assertEquals(CLIENTS, confirmationCodes.size());
+
+        List<Future<OperationState>> confirmations = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            String operationId = operationIds.get(i);
+            String code = inbox.code(operationId);
+            boolean guess = i % 2 == 1;
+            confirmations.add(executor.submit(() -> {
+                if (guess) {
+                    for (int attempt = 0; attempt < 3; attempt++) {
+                        String wrong = code.equals("000000") ? "000001" : "000000";
+                        Assertions.assertThrows(ErrorInputData.class,
+                                () -> codesService.confirm(new ConfirmationData(operationId, wrong)));
+                    }
+                    Assertions.assertThrows(ErrorInputData.class,
+                            () -> codesService.confirm(new ConfirmationData(operationId, code)));
+                } else {
+                    codesService.confirm(new ConfirmationData(operationId, code));
+                }
+                return repository.getOperation(operationId).getState();
+            }));
+        }
+        for (int i = 0; i < CLIENTS; i++) {
+            OperationState expected = i % 2 == 1 ? OperationState.REJECTED : OperationState.CONFIRMED;
+            Assertions.assertEquals(expected, confirmations.get(i).get());
+        }
+        executor.shutdown();
+        confirmationCodes.close();
+
+        Assertions.assertEquals(0, confirmationCodes.size());
+    }
+
+    @Test
+    void fastValidatorMatchesBeanValidationTest() throws Exception {
+        Clock clock = Clock.fixed(Instant.parse("2030-06-15T12:00:00Z"), ZoneOffset.UTC);
+        TransferValidator bean = new BeanTransferValidator(Validation.buildDefaultValidatorFactory().getValidator());
+        TransferValidator fast = new FastTransferValidator(false, false, clock);
+        String[] cards = {null, "", " ", "                ", "4111111111111111", "411111111111111", "41111111111111111", "4111 1111 1111 11"};
+        String[] dates = {null, "", "     ", "12/30", "00/30", "13/30", "1/30", "12-30", "12/3a", "09/99"};
+        String[] cvvs = {null, "", "   ", "123", "12", "1234"};
+        Integer[] values = {null, -1, 0, 1, 10_000};
+        String[] currencies = {null, "", " ", "RUR"};
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 5_000; i++) {
+                    TransferMoneyData data = new TransferMoneyData();
+                    data.setCardFromNumber(cards[random.nextInt(cards.length)]);
+                    data.setCardFromValidTill(dates[random.nextInt(dates.length)]);
+                    data.setCardFromCVV(cvvs[random.nextInt(cvvs.length)]);
+                    data.setCardToNumber(cards[random.nextInt(cards.length)]);
+                    data.setAmount(random.nextInt(5) == 0 ? null
+                            : new Amount(values[random.nextInt(values.length)], currencies[random.nextInt(currencies.length)]));
+                    Assertions.assertEquals(messages(bean.validate(data)), messages(fast.validate(data)), data.toString());
+                }
+                return 5_000;
+            }));
+        }
+        for (Future<Integer> future : futures) {
+            Assertions.assertEquals(5_000, future.get());
+        }
+        executor.shutdown();
+
+        FastTransferValidator checks = new FastTransferValidator(true, true, clock);
+        TransferMoneyData data = transferMoneyData("4111111111111111");
+        data.setCardToNumber("5235890189478951");
+        data.setCardFromValidTill("06/30");
+        Assertions.assertEquals("", checks.validate(data));
+        data.setCardFromValidTill("05/30");
+        Assertions.assertEquals(ValidationMessages.CARD_EXPIRED + " ", checks.validate(data));
+        data.setCardFromValidTill("01/31");
+        data.setCardToNumber("5235890189478954");
+        Assertions.assertEquals(ValidationMessages.CARD_NUMBER_CHECKSUM + " ", checks.validate(data));
+
+        // без суммы перевод не доходит до лога и Ledger.post: оба валидатора отвечают 400
+        TransferMoneyData noAmount = transferMoneyData("4111111111111111");
+        for (Amount amount : new Amount[]{null, new Amount(null, "RUR")}) {
+            noAmount.setAmount(amount);
+            Assertions.assertEquals(ValidationMessages.AMOUNT_BLANK + " ", fast.validate(noAmount));
+            Assertions.assertEquals(ValidationMessages.AMOUNT_BLANK + " ", bean.validate(noAmount));
+            Assertions.assertThrows(ErrorValidation.class, () -> fast.check(noAmount));
+        }
+    }
+
+    @Test
+    void auditLogRotatesCompressesAndSamplesTest() throws Exception {
+        int perThread = 2_000;
+        Path dir = Files.createTempDirectory("audit-log-test");
+        Path path = dir.resolve("audit.jsonl");
+        long start = System.currentTimeMillis();
+        AsyncLogger logger = new AsyncLogger(path.toString(), dir.resolve("spill.jsonl").toString(), 1024, 64, 5,
+                BackpressurePolicy.BLOCK, 16 * 1024, 0, 0, 0, 5, new SimpleMeterRegistry());
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    String id = thread + "-" + i;
+                    if (i % 10 == 0) {
+                        logger.log(AuditRecord.of("wrong_code").field("id", id).build());
+                        continue;
+                    }
+                    int weight = logger.sampleSuccess();
+                    if (weight > 0) {
+                        AuditRecord record = AuditRecord.of("transfer").field("id", id)
+                                .card("from", "4111111111111111").card("to", "5235890189478951");
+                        logger.log((weight > 1 ? record.field("weight", weight) : record).build());
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        logger.close();
+        long seconds = (System.currentTimeMillis() - start) / 1000 + 1;
+
+        List<String> files;
+        try (var list = Files.list(dir)) {
+            files = list.map(file -> file.getFileName().toString()).sorted().toList();
+        }
+        Assertions.assertTrue(files.stream().filter(name -> name.endsWith(".jsonl.gz")).count() > 1, files.toString());
+        Assertions.assertTrue(files.stream().noneMatch(name -> name.startsWith("audit-") && !name.endsWith(".gz")),
+                files.toString());
+
+        List<String> lines = new ArrayList<>();
+        AuditLogReader.scan(path, AuditLogReader.Filter.all(), lines::add);
+        for (String line : lines) {
+            Assertions.assertTrue(line.startsWith("{\"ts\":") && line.endsWith("}"), line);
+            Assertions.assertFalse(line.contains("4111111111111111") || line.contains("5235890189478951"), line);
+        }
+
+        List<String> failures = new ArrayList<>();
+        AuditLogReader.scan(path, new AuditLogReader.Filter("wrong_code", null, null, start, Long.MAX_VALUE),
+                failures::add);
+        Assertions.assertEquals(THREADS * perThread / 10, failures.size());
+        Assertions.assertEquals(THREADS * perThread / 10, new HashSet<>(failures).size());
+
+        long[] weights = new long[1];
+        AuditLogReader.scan(path, new AuditLogReader.Filter(null, null, "4111111111111111", start, Long.MAX_VALUE),
+                line -> {
+                    Assertions.assertTrue(line.contains("\"event\":\"transfer\""), line);
+                    Assertions.assertTrue(line.contains(",\"weight\":5"), line);
+                    weights[0] += 5;
+                });
+        long successes = (long) THREADS * perThread * 9 / 10;
+        // при смене секунды выборка начинается заново: на каждой границе теряется или добавляется до every событий
+        Assertions.assertTrue(Math.abs(weights[0] - successes) <= 5L * THREADS * seconds,
+                weights[0] + " / " + successes);
+
+        List<String> one = new ArrayList<>();
+        AuditLogReader.scan(path, new AuditLogReader.Filter(null, "3-10", null, start, Long.MAX_VALUE), one::add);
+        Assertions.assertEquals(1, one.size());
+        List<String> future = new ArrayList<>();
+        AuditLogReader.scan(path, new AuditLogReader.Filter(null, null, null, System.currentTimeMillis() + 3_600_000,
+                Long.MAX_VALUE), future::add);
+        Assertions.assertTrue(future.isEmpty());
+
+        for (String name : files) {
+            Files.deleteIfExists(dir.resolve(name));
+        }
+        Files.delete(dir);
+    }
+
+    @Test
+    void asyncLoggerDrainsOnConcurrentCloseTest() throws Exception {
+        Path dir = Files.createTempDirectory("async-logger-test");
+        Path path = dir.resolve("audit.jsonl");
+        AsyncLogger logger = new AsyncLogger(path.toString(), dir.resolve("spill.jsonl").toString(), 256, 64, 5,
+                BackpressurePolicy.BLOCK, new SimpleMeterRegistry());
+
+        // писатель уже уснул без таймаута, сообщение должно его разбудить
+        Thread.sleep(50);
+        logger.log("idle");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (logger.getWritten() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        Assertions.assertEquals(1, logger.getWritten());
+
+        CountDownLatch started = new CountDownLatch(THREADS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                started.countDown();
+                for (int i = 0; i < 5_000; i++) {
+                    logger.log(thread + "-" + i);
+                }
+            }));
+        }
+        // close() приходится на середину записи: часть сообщений в буфере, часть пишется после остановки
+        started.await();
+        logger.close();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        int sent = 1 + THREADS * 5_000;
+
+        List<String> lines = Files.readAllLines(path);
+        Assertions.assertEquals(sent, lines.size());
+        Assertions.assertEquals(sent, new HashSet<>(lines).size());
+        Assertions.assertEquals(0, logger.getQueueSize());
+
+        Files.delete(path);
+        Files.deleteIfExists(dir.resolve("spill.jsonl"));
+        Files.delete(dir);
+    }
+
+    @Test
+    void asyncLoggerBackpressurePoliciesTest() throws Exception {
+        int perThread = 5_000;
+        for (BackpressurePolicy policy : BackpressurePolicy.values()) {
+            Path dir = Files.createTempDirectory("async-logger-test");
+            Path path = dir.resolve("audit.jsonl");
+            Path spill = dir.resolve("spill.jsonl");
+            AsyncLogger logger = new AsyncLogger(path.toString(), spill.toString(), 2, 64, 5, policy,
+                    new SimpleMeterRegistry());
+
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        logger.log(thread + "-" + i);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+            logger.close();
+
+            long total = (long) THREADS * perThread;
+            List<String> lines = Files.readAllLines(path);
+            List<String> spilled = Files.exists(spill) ? Files.readAllLines(spill) : List.of();
+            Assertions.assertEquals(lines.size(), logger.getWritten(), policy.name());
+            Assertions.assertEquals(spilled.size(), logger.getSpilled(), policy.name());
+            Set<String> all = new HashSet<>(lines);
+            all.addAll(spilled);
+            Assertions.assertEquals(lines.size() + spilled.size(), all.size(), policy.name());
+            switch (policy) {
+                case BLOCK -> {
+                    Assertions.assertEquals(total, lines.size());
+                    Assertions.assertEquals(0, logger.getDropped() + logger.getSpilled());
+                }
+                case DROP -> {
+                    Assertions.assertTrue(logger.getDropped() > 0);
+                    Assertions.assertEquals(0, logger.getSpilled());
+                    Assertions.assertEquals(total, lines.size() + logger.getDropped());
+                }
+                case SPILL -> {
+                    Assertions.assertTrue(logger.getSpilled() > 0);
+                    Assertions.assertEquals(0, logger.getDropped());
+                    Assertions.assertEquals(total, lines.size() + spilled.size());
+                }
+            }
+
+            Files.delete(path);
+            Files.deleteIfExists(spill);
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    void errorTagsDoNotDependOnMessagesTest() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ExceptionHandlerAdvice advice = new ExceptionHandlerAdvice(Mockito.mock(LoggerInterface.class),
+                new TransferMetrics(registry), new TimeOrderedIdGenerator(1));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    advice.handleErrorInputData(new ErrorInputData("Unknown status: " + UUID.randomUUID()));
+                    advice.handleErrorTransfer(new ErrorTransfer("Cluster node 2 answered: " + UUID.randomUUID()));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        int reasons = TransferMetrics.Reason.values().length;
+        Assertions.assertEquals(2 * reasons, registry.find("transfer.errors").counters().size());
+        Assertions.assertEquals(THREADS * 1_000, registry.get("transfer.errors")
+                .tags("exception", "ErrorInputData", "reason", "input").counter().count());
+        Assertions.assertEquals(THREADS * 1_000, registry.get("transfer.errors")
+                .tags("exception", "ErrorTransfer", "reason", "transfer").counter().count());
+    }
+
+    @Test
+    void errorRecordsAreKeptWhenLogBufferIsFullTest() throws Exception {
+        int perThread = 1_000;
+        for (BackpressurePolicy policy : new BackpressurePolicy[]{BackpressurePolicy.BLOCK, BackpressurePolicy.SPILL}) {
+            Path dir = Files.createTempDirectory("async-logger-test");
+            Path path = dir.resolve("audit.jsonl");
+            Path spill = dir.resolve("spill.jsonl");
+            AsyncLogger logger = new AsyncLogger(path.toString(), spill.toString(), 2, 64, 5, policy,
+                    new SimpleMeterRegistry());
+            ExceptionHandlerAdvice advice = new ExceptionHandlerAdvice(logger,
+                    new TransferMetrics(new SimpleMeterRegistry()), new TimeOrderedIdGenerator(1));
+
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        advice.handleErrorInputData(new ErrorInputData("Operation not found: " + thread + "-" + i));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+            logger.close();
+
+            List<String> records = new ArrayList<>(Files.readAllLines(path));
+            if (Files.exists(spill)) {
+                records.addAll(Files.readAllLines(spill));
+            }
+            Assertions.assertEquals(0, logger.getDropped(), policy.name());
+            Assertions.assertEquals(THREADS * perThread, records.size(), policy.name());
+            Assertions.assertEquals(THREADS * perThread, new HashSet<>(records).size(), policy.name());
+            if (policy == BackpressurePolicy.BLOCK) {
+                Assertions.assertEquals(0, logger.getSpilled());
+            }
+
+            Files.delete(path);
+            Files.deleteIfExists(spill);
+            Files.delete(dir);
+        }
+    }
+
+    // сообщения без учёта порядка: у Bean Validation он не определён
+    private static List<String> messages(String description) {
+        List<String> messages = new ArrayList<>();
+        String rest = description;
+        while (!rest.isEmpty()) {
+            String next = null;
+            for (String message : new String[]{ValidationMessages.CARD_NUMBER_BLANK, ValidationMessages.CARD_NUMBER_LENGTH,
+                    ValidationMessages.VALID_TILL_BLANK, ValidationMessages.VALID_TILL_PATTERN, ValidationMessages.CVV_BLANK,
+                    ValidationMessages.CVV_LENGTH, ValidationMessages.AMOUNT_BLANK, ValidationMessages.AMOUNT_POSITIVE,
+                    ValidationMessages.CURRENCY_BLANK}) {
+                if (rest.startsWith(message + " ")) {
+                    next = message;
+                }
+            }
+            Assertions.assertNotNull(next, description);
+            messages.add(next);
+            rest = rest.substring(next.length() + 1);
+        }
+        String[] sorted = messages.toArray(new String[0]);
+        Arrays.sort(sorted);
+        return List.of(sorted);
+    }
+
+    private static TransferMoneyData transferMoneyData(String cardFromNumber) {
+        TransferMoneyData transferMoneyData = new TransferMoneyData();
+        transferMoneyData.setCardFromNumber(cardFromNumber);
+        transferMoneyData.setCardFromValidTill("12/30");
+        transferMoneyData.setCardFromCVV("123");
+        transferMoneyData.setCardToNumber("5235890189478954");
+        transferMoneyData.setAmount(new Amount(10_000, "RUR"));
+        return transferMoneyData;
+    }
+}